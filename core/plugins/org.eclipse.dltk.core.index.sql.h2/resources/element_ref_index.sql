@@ -0,0 +1,6 @@
+-- This are secondary indexes for the table of element references.
+-- Table name is substituted in a runtime.
+-- The indexes are created if they don't exist yet, so adding an index
+-- doesn't require incrementing the Schema.VERSION.
+
+CREATE INDEX IF NOT EXISTS {0}_NAME ON {0}(NAME);
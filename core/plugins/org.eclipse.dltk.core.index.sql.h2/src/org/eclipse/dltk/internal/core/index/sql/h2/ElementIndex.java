@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.internal.core.index.sql.h2;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.eclipse.dltk.core.index.sql.Element;
+
+/**
+ * In-memory index of the declarations of a single element type. Elements are
+ * stored in per-file posting lists and additionally in sorted maps keyed by
+ * the name (ordered ignoring case) and by the camel-case name, so exact,
+ * prefix and camel case lookups don't need to walk all the declarations.
+ *
+ * This class is not thread safe, access should be guarded by the caller.
+ */
+final class ElementIndex {
+
+	private final Map<Integer, List<Element>> elementsByFile = new HashMap<Integer, List<Element>>();
+
+	/**
+	 * The names are compared the same way as by
+	 * {@link String#equalsIgnoreCase(String)}, without depending on the
+	 * default locale
+	 */
+	private final TreeMap<String, List<Element>> elementsByName = new TreeMap<String, List<Element>>(
+			String.CASE_INSENSITIVE_ORDER);
+
+	private final TreeMap<String, List<Element>> elementsByCamelCase = new TreeMap<String, List<Element>>();
+
+	void add(Element element) {
+		final Integer fileId = element.getFileId();
+		List<Element> elements = elementsByFile.get(fileId);
+		if (elements == null) {
+			elements = new ArrayList<Element>();
+			elementsByFile.put(fileId, elements);
+		}
+		elements.add(element);
+		addKey(elementsByName, element.getName(), element);
+		if (element.getCamelCaseName() != null) {
+			addKey(elementsByCamelCase, element.getCamelCaseName(), element);
+		}
+	}
+
+	/**
+	 * Removes all the elements of the specified file
+	 */
+	void removeFile(int fileId) {
+		final List<Element> elements = elementsByFile.remove(fileId);
+		if (elements != null) {
+			for (Element element : elements) {
+				removeKey(elementsByName, element.getName(), element);
+				if (element.getCamelCaseName() != null) {
+					removeKey(elementsByCamelCase, element.getCamelCaseName(),
+							element);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the posting list of the specified file or <code>null</code>
+	 */
+	List<Element> getByFile(int fileId) {
+		return elementsByFile.get(fileId);
+	}
+
+	Collection<Integer> getFileIds() {
+		return elementsByFile.keySet();
+	}
+
+	Collection<List<Element>> getAll() {
+		return elementsByFile.values();
+	}
+
+	/**
+	 * Returns the elements which names are equal to the specified one ignoring
+	 * case or <code>null</code>
+	 */
+	List<Element> getByName(String name) {
+		return elementsByName.get(name);
+	}
+
+	/**
+	 * Returns the element lists which names start with the specified prefix
+	 * ignoring case
+	 */
+	Collection<List<Element>> getByNamePrefix(String prefix) {
+		return prefixRange(elementsByName, prefix, true);
+	}
+
+	/**
+	 * Returns the element lists which camel case names start with the specified
+	 * upper-case prefix
+	 */
+	Collection<List<Element>> getByCamelCasePrefix(String prefix) {
+		return prefixRange(elementsByCamelCase, prefix, false);
+	}
+
+	private static Collection<List<Element>> prefixRange(
+			TreeMap<String, List<Element>> map, String prefix,
+			boolean ignoreCase) {
+		final SortedMap<String, List<Element>> tail = map.tailMap(prefix);
+		final List<List<Element>> result = new ArrayList<List<Element>>();
+		for (Map.Entry<String, List<Element>> entry : tail.entrySet()) {
+			final String key = entry.getKey();
+			if (key.length() < prefix.length()
+					|| !key.regionMatches(ignoreCase, 0, prefix, 0,
+							prefix.length())) {
+				break;
+			}
+			result.add(entry.getValue());
+		}
+		return result;
+	}
+
+	private static void addKey(Map<String, List<Element>> map, String key,
+			Element element) {
+		List<Element> elements = map.get(key);
+		if (elements == null) {
+			elements = new ArrayList<Element>(1);
+			map.put(key, elements);
+		}
+		elements.add(element);
+	}
+
+	private static void removeKey(Map<String, List<Element>> map, String key,
+			Element element) {
+		final List<Element> elements = map.get(key);
+		if (elements != null) {
+			for (Iterator<Element> i = elements.iterator(); i.hasNext();) {
+				if (i.next() == element) {
+					i.remove();
+					break;
+				}
+			}
+			if (elements.isEmpty()) {
+				map.remove(key);
+			}
+		}
+	}
+}
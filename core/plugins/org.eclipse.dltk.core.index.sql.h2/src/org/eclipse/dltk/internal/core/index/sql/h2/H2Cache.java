@@ -13,15 +13,17 @@ package org.eclipse.dltk.internal.core.index.sql.h2;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.regex.Pattern;
 
 import org.eclipse.core.runtime.NullProgressMonitor;
@@ -44,235 +46,183 @@ import org.eclipse.dltk.core.index2.search.ISearchEngine.MatchRule;
  */
 public class H2Cache {
 
-	private static final ILock containerLock = Job.getJobManager().newLock();
-	private static final Map<Integer, Container> containerById = new HashMap<Integer, Container>();
+	private static final ConcurrentMap<Integer, Container> containerById = new ConcurrentHashMap<Integer, Container>();
 
-	private static final ILock fileLock = Job.getJobManager().newLock();
-	private static final Map<Integer, Map<Integer, File>> filesByContainer = new HashMap<Integer, Map<Integer, File>>();
+	private static final ConcurrentMap<Integer, ConcurrentMap<Integer, File>> filesByContainer = new ConcurrentHashMap<Integer, ConcurrentMap<Integer, File>>();
+	private static final ConcurrentMap<Integer, Integer> containerByFile = new ConcurrentHashMap<Integer, Integer>();
 
-	private static final ILock elementLock = Job.getJobManager().newLock();
-	private static final Map<Integer, Map<Integer, List<Element>>> elementsMap = new HashMap<Integer, Map<Integer, List<Element>>>();
+	/**
+	 * Elements of the single type together with the lock guarding them, so
+	 * searches and insertions of different element types never contend, and
+	 * searches of the same type run concurrently.
+	 */
+	private static class ElementStripe {
+		final ReadWriteLock lock = new ReentrantReadWriteLock();
+		final ElementIndex index = new ElementIndex();
+	}
+
+	private static final ConcurrentMap<Integer, ElementStripe> elementsMap = new ConcurrentHashMap<Integer, ElementStripe>();
 
 	private static final ILock loadedLock = Job.getJobManager().newLock();
-	private static boolean isLoaded;
+	private static volatile boolean isLoaded;
 
 	public static void addContainer(Container container) {
-		containerLock.acquire();
-		try {
-			int containerId = container.getId();
-			containerById.put(containerId, container);
-		} finally {
-			containerLock.release();
+		containerById.put(container.getId(), container);
+	}
+
+	private static ElementStripe getStripe(int elementType) {
+		ElementStripe stripe = elementsMap.get(elementType);
+		if (stripe == null) {
+			stripe = new ElementStripe();
+			ElementStripe existing = elementsMap.putIfAbsent(elementType,
+					stripe);
+			if (existing != null) {
+				stripe = existing;
+			}
 		}
+		return stripe;
 	}
 
 	public static void addElement(Element element) {
-		elementLock.acquire();
+		ElementStripe stripe = getStripe(element.getType());
+		stripe.lock.writeLock().lock();
 		try {
-			int elementType = element.getType();
-			Map<Integer, List<Element>> elementsByFile = elementsMap
-					.get(elementType);
-			if (elementsByFile == null) {
-				elementsByFile = new HashMap<Integer, List<Element>>();
-				elementsMap.put(elementType, elementsByFile);
-			}
-			int fileId = element.getFileId();
-			List<Element> elementsSet = elementsByFile.get(fileId);
-			if (elementsSet == null) {
-				elementsSet = new LinkedList<Element>();
-				elementsByFile.put(fileId, elementsSet);
-			}
-			elementsSet.add(element);
+			stripe.index.add(element);
 		} finally {
-			elementLock.release();
+			stripe.lock.writeLock().unlock();
 		}
 	}
 
 	public static void addFile(File file) {
-		fileLock.acquire();
-		try {
-			int containerId = file.getContainerId();
-			Map<Integer, File> files = filesByContainer.get(containerId);
-			if (files == null) {
-				files = new HashMap<Integer, File>();
-				filesByContainer.put(containerId, files);
+		int containerId = file.getContainerId();
+		ConcurrentMap<Integer, File> files = filesByContainer.get(containerId);
+		if (files == null) {
+			files = new ConcurrentHashMap<Integer, File>();
+			ConcurrentMap<Integer, File> existing = filesByContainer
+					.putIfAbsent(containerId, files);
+			if (existing != null) {
+				files = existing;
 			}
-			files.put(file.getId(), file);
-		} finally {
-			fileLock.release();
 		}
+		files.put(file.getId(), file);
+		containerByFile.put(file.getId(), containerId);
 	}
 
 	public static void deleteContainerById(int id) {
-		containerLock.acquire();
-		try {
-			containerById.remove(id);
-			deleteFilesByContainerId(id);
-		} finally {
-			containerLock.release();
-		}
+		containerById.remove(id);
+		deleteFilesByContainerId(id);
 	}
 
 	public static void deleteContainerByPath(String path) {
-		containerLock.acquire();
-		try {
-			Container container = selectContainerByPath(path);
-			if (container != null) {
-				deleteContainerById(container.getId());
-			}
-		} finally {
-			containerLock.release();
+		Container container = selectContainerByPath(path);
+		if (container != null) {
+			deleteContainerById(container.getId());
 		}
 	}
 
 	public static void deleteElementsByFileId(int id) {
-		elementLock.acquire();
-		try {
-			Iterator<Map<Integer, List<Element>>> i = elementsMap.values()
-					.iterator();
-			while (i.hasNext()) {
-				Map<Integer, List<Element>> elementsByFile = i.next();
-				elementsByFile.remove(id);
+		for (ElementStripe stripe : elementsMap.values()) {
+			stripe.lock.writeLock().lock();
+			try {
+				stripe.index.removeFile(id);
+			} finally {
+				stripe.lock.writeLock().unlock();
 			}
-		} finally {
-			elementLock.release();
 		}
 	}
 
 	public static void deleteFileByContainerIdAndPath(int containerId,
 			String path) {
-		fileLock.acquire();
-		try {
-			File file = selectFileByContainerIdAndPath(containerId, path);
-			if (file != null) {
-				deleteFileById(file.getId());
-			}
-		} finally {
-			fileLock.release();
+		File file = selectFileByContainerIdAndPath(containerId, path);
+		if (file != null) {
+			deleteFileById(file.getId());
 		}
 	}
 
 	public static void deleteFileById(int id) {
-		fileLock.acquire();
-		try {
-			Iterator<Map<Integer, File>> i = filesByContainer.values()
-					.iterator();
-			while (i.hasNext()) {
-				i.next().remove(id);
+		Integer containerId = containerByFile.remove(id);
+		if (containerId != null) {
+			Map<Integer, File> files = filesByContainer.get(containerId);
+			if (files != null) {
+				files.remove(id);
+			}
+		} else {
+			for (Map<Integer, File> files : filesByContainer.values()) {
+				files.remove(id);
 			}
-			deleteElementsByFileId(id);
-		} finally {
-			fileLock.release();
 		}
+		deleteElementsByFileId(id);
 	}
 
 	public static void deleteFilesByContainerId(int id) {
-		fileLock.acquire();
-		try {
-			Map<Integer, File> files = filesByContainer.remove(id);
-			if (files != null) {
-				Iterator<Integer> i = files.keySet().iterator();
-				while (i.hasNext()) {
-					deleteElementsByFileId(i.next());
-				}
+		Map<Integer, File> files = filesByContainer.remove(id);
+		if (files != null) {
+			for (Integer fileId : files.keySet()) {
+				containerByFile.remove(fileId);
+				deleteElementsByFileId(fileId);
 			}
-		} finally {
-			fileLock.release();
 		}
 	}
 
 	public static Container selectContainerById(int id) {
-		containerLock.acquire();
-		try {
-			return containerById.get(id);
-		} finally {
-			containerLock.release();
-		}
+		return containerById.get(id);
 	}
 
 	public static Container selectContainerByPath(String path) {
-		containerLock.acquire();
-		try {
-			Iterator<Container> i = containerById.values().iterator();
-			while (i.hasNext()) {
-				Container container = i.next();
-				if (container.getPath().equals(path)) {
-					return container;
-				}
+		for (Container container : containerById.values()) {
+			if (container.getPath().equals(path)) {
+				return container;
 			}
-			return null;
-		} finally {
-			containerLock.release();
 		}
+		return null;
 	}
 
 	public static Collection<Element> selectElementsByFileId(int id) {
-		elementLock.acquire();
-		try {
-			List<Element> elements = new LinkedList<Element>();
-			Iterator<Map<Integer, List<Element>>> i = elementsMap.values()
-					.iterator();
-			while (i.hasNext()) {
-				Map<Integer, List<Element>> elementsByFile = i.next();
-				List<Element> l = elementsByFile.get(id);
+		List<Element> elements = new ArrayList<Element>();
+		for (ElementStripe stripe : elementsMap.values()) {
+			stripe.lock.readLock().lock();
+			try {
+				List<Element> l = stripe.index.getByFile(id);
 				if (l != null) {
 					elements.addAll(l);
 				}
+			} finally {
+				stripe.lock.readLock().unlock();
 			}
-			return elements;
-		} finally {
-			elementLock.release();
 		}
+		return elements;
 	}
 
 	public static File selectFileByContainerIdAndPath(int containerId,
 			String path) {
-		fileLock.acquire();
-		try {
-			Map<Integer, File> files = filesByContainer.get(containerId);
-			if (files != null) {
-				Iterator<File> i = files.values().iterator();
-				while (i.hasNext()) {
-					File file = i.next();
-					if (file.getPath().equals(path)) {
-						return file;
-					}
+		Map<Integer, File> files = filesByContainer.get(containerId);
+		if (files != null) {
+			for (File file : files.values()) {
+				if (file.getPath().equals(path)) {
+					return file;
 				}
 			}
-		} finally {
-			fileLock.release();
 		}
 		return null;
 	}
 
 	public static File selectFileById(int id) {
-		fileLock.acquire();
-		try {
-			Iterator<Map<Integer, File>> i = filesByContainer.values()
-					.iterator();
-			while (i.hasNext()) {
-				File file = i.next().get(id);
-				if (file != null) {
-					return file;
-				}
+		Integer containerId = containerByFile.get(id);
+		if (containerId != null) {
+			Map<Integer, File> files = filesByContainer.get(containerId);
+			if (files != null) {
+				return files.get(id);
 			}
-			return null;
-		} finally {
-			fileLock.release();
 		}
+		return null;
 	}
 
 	public static Collection<File> selectFilesByContainerId(int id) {
-		fileLock.acquire();
-		try {
-			Map<Integer, File> files = filesByContainer.get(id);
-			if (files != null) {
-				return files.values();
-			}
-			return Collections.emptyList();
-		} finally {
-			fileLock.release();
+		Map<Integer, File> files = filesByContainer.get(id);
+		if (files != null) {
+			return new ArrayList<File>(files.values());
 		}
+		return Collections.emptyList();
 	}
 
 	public static Collection<Element> searchElements(String pattern,
@@ -280,32 +230,11 @@ public class H2Cache {
 			int falseFlags, String qualifier, String parent, int[] filesId,
 			int containersId[], String natureId, int limit) {
 
-		Set<Integer> filesIds = new HashSet<Integer>();
-		if (filesId != null) {
-			for (int fileId : filesId) {
-				filesIds.add(fileId);
-			}
-		} else if (containersId != null) {
-			containerLock.acquire();
-			try {
-				for (int containerId : containersId) {
-					fileLock.acquire();
-					try {
-						Map<Integer, File> files = filesByContainer
-								.get(containerId);
-						if (files != null) {
-							filesIds.addAll(files.keySet());
-						}
-					} finally {
-						fileLock.release();
-					}
-				}
-			} finally {
-				containerLock.release();
-			}
+		ElementStripe stripe = elementsMap.get(elementType);
+		if (stripe == null) {
+			return Collections.emptyList();
 		}
-
-		elementLock.acquire();
+		stripe.lock.readLock().lock();
 		try {
 			Set<String> patternSet = null;
 			Pattern posixPattern = null;
@@ -319,67 +248,170 @@ public class H2Cache {
 			}
 
 			if (matchRule == MatchRule.SET) {
-				patternSet = new HashSet<String>();
+				patternSet = new TreeSet<String>(String.CASE_INSENSITIVE_ORDER);
 				String[] parts = pattern.split(",");
 				for (String part : parts) {
 					if (part.length() > 0) {
-						patternSet.add(part.toLowerCase());
+						patternSet.add(part);
 					}
 				}
 			} else if (matchRule == MatchRule.PATTERN) {
 				posixPattern = createPosixPattern(pattern);
 			}
 
-			List<Element> result = new LinkedList<Element>();
-			Map<Integer, List<Element>> elementsByFile = elementsMap
-					.get(elementType);
-			if (elementsByFile != null) {
-
-				if (filesIds.size() == 0) {
-					Iterator<List<Element>> i = elementsByFile.values()
-							.iterator();
-					while (i.hasNext()) {
-						searchInElements(i.next(), result, pattern, matchRule,
-								trueFlags, falseFlags, qualifier, parent,
-								patternSet, posixPattern, patternLC, patternUC,
-								limit);
+			List<Element> result = new ArrayList<Element>();
+			ElementIndex index = stripe.index;
+			ElementFilter filter = new ElementFilter(pattern, matchRule,
+					trueFlags, falseFlags, qualifier, parent, patternSet,
+					posixPattern, patternLC, patternUC, limit);
+
+			if (containersId != null && !hasFiles(containersId)) {
+				// as before, containers without files don't limit the search
+				containersId = null;
+			}
+
+			if (filesId != null && filesId.length > 0) {
+				// posting lists of the requested files
+				for (int fileId : filesId) {
+					if (filter.searchIn(index.getByFile(fileId), result)) {
+						break;
 					}
-				} else {
-					for (Integer fileId : filesIds) {
-						searchInElements(elementsByFile.get(fileId), result,
-								pattern, matchRule, trueFlags, falseFlags,
-								qualifier, parent, patternSet, posixPattern,
-								patternLC, patternUC, limit);
+				}
+				return result;
+			}
+
+			Collection<List<Element>> candidates = null;
+			if (pattern != null && pattern.length() > 0) {
+				if (matchRule == MatchRule.EXACT) {
+					List<Element> elements = index.getByName(pattern);
+					candidates = elements != null ? Collections
+							.singletonList(elements) : Collections
+							.<List<Element>> emptyList();
+				} else if (matchRule == MatchRule.PREFIX) {
+					candidates = index.getByNamePrefix(pattern);
+				} else if (matchRule == MatchRule.CAMEL_CASE) {
+					candidates = index.getByCamelCasePrefix(patternUC);
+				} else if (matchRule == MatchRule.SET) {
+					candidates = new ArrayList<List<Element>>();
+					for (String part : patternSet) {
+						List<Element> elements = index.getByName(part);
+						if (elements != null) {
+							candidates.add(elements);
+						}
+					}
+				}
+			}
+
+			if (candidates != null) {
+				// name index lookup, filtered by containers if needed
+				filter.containersId = containersId;
+				for (List<Element> elements : candidates) {
+					if (filter.searchIn(elements, result)) {
+						break;
+					}
+				}
+			} else if (containersId != null) {
+				// posting lists of the files in the requested containers
+				for (Integer fileId : index.getFileIds()) {
+					if (isInContainers(fileId, containersId)
+							&& filter.searchIn(index.getByFile(fileId), result)) {
+						break;
+					}
+				}
+			} else {
+				for (List<Element> elements : index.getAll()) {
+					if (filter.searchIn(elements, result)) {
+						break;
 					}
 				}
 			}
 			return result;
 
 		} finally {
-			elementLock.release();
+			stripe.lock.readLock().unlock();
 		}
 	}
 
-	private static void searchInElements(List<Element> elements,
-			List<Element> result, String pattern, MatchRule matchRule,
-			int trueFlags, int falseFlags, String qualifier, String parent,
-			Set<String> patternSet, Pattern posixPattern, String patternLC,
-			String patternUC, int limit) {
-
-		if (elements != null) {
-			Iterator<Element> i = elements.iterator();
-			while (i.hasNext()) {
-				Element element = i.next();
-				if (elementMatches(element, pattern, matchRule, trueFlags,
-						falseFlags, qualifier, parent, patternSet,
-						posixPattern, patternLC, patternUC)) {
-
-					result.add(element);
-					if (--limit == 0) {
-						break;
+	/**
+	 * Checks whether at least one of the containers has files.
+	 */
+	private static boolean hasFiles(int[] containersId) {
+		for (int id : containersId) {
+			Map<Integer, File> files = filesByContainer.get(id);
+			if (files != null && !files.isEmpty()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks whether the specified file belongs to one of the containers.
+	 */
+	private static boolean isInContainers(int fileId, int[] containersId) {
+		Integer containerId = containerByFile.get(fileId);
+		if (containerId != null) {
+			for (int id : containersId) {
+				if (id == containerId.intValue()) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private static class ElementFilter {
+		final String pattern;
+		final MatchRule matchRule;
+		final int trueFlags;
+		final int falseFlags;
+		final String qualifier;
+		final String parent;
+		final Set<String> patternSet;
+		final Pattern posixPattern;
+		final String patternLC;
+		final String patternUC;
+		final int limit;
+		int[] containersId;
+
+		ElementFilter(String pattern, MatchRule matchRule, int trueFlags,
+				int falseFlags, String qualifier, String parent,
+				Set<String> patternSet, Pattern posixPattern,
+				String patternLC, String patternUC, int limit) {
+			this.pattern = pattern;
+			this.matchRule = matchRule;
+			this.trueFlags = trueFlags;
+			this.falseFlags = falseFlags;
+			this.qualifier = qualifier;
+			this.parent = parent;
+			this.patternSet = patternSet;
+			this.posixPattern = posixPattern;
+			this.patternLC = patternLC;
+			this.patternUC = patternUC;
+			this.limit = limit;
+		}
+
+		/**
+		 * Adds matching elements to the result, returns <code>true</code> if
+		 * the limit is reached.
+		 */
+		boolean searchIn(List<Element> elements, List<Element> result) {
+			if (elements != null) {
+				for (Element element : elements) {
+					if ((containersId == null || isInContainers(
+							element.getFileId(), containersId))
+							&& elementMatches(element, pattern, matchRule,
+									trueFlags, falseFlags, qualifier, parent,
+									patternSet, posixPattern, patternLC,
+									patternUC)) {
+						result.add(element);
+						if (limit > 0 && result.size() >= limit) {
+							return true;
+						}
 					}
 				}
 			}
+			return false;
 		}
 	}
 
@@ -408,7 +440,7 @@ public class H2Cache {
 									&& element.getCamelCaseName() != null && element
 									.getCamelCaseName().startsWith(patternUC))
 							|| (matchRule == MatchRule.SET && patternSet
-									.contains(elementName.toLowerCase()))
+									.contains(elementName))
 							|| (matchRule == MatchRule.PATTERN && posixPattern
 									.matcher(elementName).matches())) {
 						return true;
@@ -463,12 +495,7 @@ public class H2Cache {
 	}
 
 	public static boolean isLoaded() {
-		loadedLock.acquire();
-		try {
-			return isLoaded;
-		} finally {
-			loadedLock.release();
-		}
+		return isLoaded;
 	}
 
 	public static void load() {
@@ -479,6 +506,8 @@ public class H2Cache {
 					DbFactory dbFactory = DbFactory.getInstance();
 					Connection connection = dbFactory.createConnection();
 					try {
+						new H2FileDao().selectAll(connection);
+
 						IElementDao elementDao = dbFactory.getElementDao();
 						elementDao.search(connection, null, MatchRule.PREFIX,
 								IModelElement.FIELD, 0, 0, null, null, null,
@@ -19,11 +19,13 @@ import java.sql.Statement;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.dltk.core.index.sql.Element;
 import org.eclipse.dltk.core.index.sql.IElementDao;
+import org.eclipse.dltk.core.index.sql.IElementDaoExtension;
 import org.eclipse.dltk.core.index.sql.IElementHandler;
 import org.eclipse.dltk.core.index.sql.h2.H2Index;
 import org.eclipse.dltk.core.index2.search.ISearchEngine.MatchRule;
@@ -35,7 +37,10 @@ import org.eclipse.osgi.util.NLS;
  * 
  * @author michael
  */
-public class H2ElementDao implements IElementDao {
+public class H2ElementDao implements IElementDao, IElementDaoExtension {
+
+	/** Number of rows sent to the database at once */
+	private static final int BATCH_SIZE = 1000;
 
 	private static final Pattern SEPARATOR_PATTERN = Pattern.compile(","); //$NON-NLS-1$
 
@@ -46,17 +51,39 @@ public class H2ElementDao implements IElementDao {
 			.readSqlFile("resources/insert_decl.sql"); //$NON-NLS-1$
 
 	/** Cache for insert element declaration queries */
-	private static final Map<String, String> R_INSERT_QUERY_CACHE = new HashMap<String, String>();
+	private static final Map<String, String> R_INSERT_QUERY_CACHE = new ConcurrentHashMap<String, String>();
 
 	/** Cache for insert element reference queries */
-	private static final Map<String, String> D_INSERT_QUERY_CACHE = new HashMap<String, String>();
+	private static final Map<String, String> D_INSERT_QUERY_CACHE = new ConcurrentHashMap<String, String>();
 
 	private final ModelManager modelManager;
-	private final Map<String, PreparedStatement> batchStatements;
+	private final Map<String, Batch> batchStatements;
+
+	/**
+	 * Insert queries of the already created tables by nature and element type
+	 * key (see {@link #getInsertQuery(Connection, int, String, boolean)})
+	 */
+	private final Map<String, Map<Integer, String>> insertQueries;
+
+	private boolean bulkLoad;
+
+	/** Tables which indexes should be created at the end of the bulk load */
+	private final Map<String, Boolean> deferredIndexes;
+
+	private static class Batch {
+		final PreparedStatement statement;
+		int size;
+
+		Batch(PreparedStatement statement) {
+			this.statement = statement;
+		}
+	}
 
 	public H2ElementDao() {
 		this.modelManager = ModelManager.getModelManager();
-		this.batchStatements = new HashMap<String, PreparedStatement>();
+		this.batchStatements = new HashMap<String, Batch>();
+		this.insertQueries = new HashMap<String, Map<Integer, String>>();
+		this.deferredIndexes = new HashMap<String, Boolean>();
 	}
 
 	private String getTableName(Connection connection, int elementType,
@@ -70,6 +97,53 @@ public class H2ElementDao implements IElementDao {
 		return tableName;
 	}
 
+	/**
+	 * Returns insert query for the specified element table, creating the table
+	 * if needed. Results are cached in this DAO, so schema is consulted only
+	 * once per table.
+	 */
+	private String getInsertQuery(Connection connection, int elementType,
+			String natureId, boolean isReference) throws SQLException {
+
+		Map<Integer, String> queries = insertQueries.get(natureId);
+		if (queries == null) {
+			queries = new HashMap<Integer, String>();
+			insertQueries.put(natureId, queries);
+		}
+		final Integer key = Integer.valueOf(isReference ? -elementType - 1
+				: elementType);
+		String query = queries.get(key);
+		if (query != null) {
+			return query;
+		}
+
+		Schema schema = new Schema();
+		String tableName = schema.getTableName(elementType, natureId,
+				isReference);
+		if (bulkLoad) {
+			schema.createTable(connection, tableName, isReference, false);
+			deferredIndexes.put(tableName, Boolean.valueOf(isReference));
+		} else {
+			schema.createTable(connection, tableName, isReference);
+		}
+
+		if (isReference) {
+			query = R_INSERT_QUERY_CACHE.get(tableName);
+			if (query == null) {
+				query = NLS.bind(Q_INSERT_REF, tableName);
+				R_INSERT_QUERY_CACHE.put(tableName, query);
+			}
+		} else {
+			query = D_INSERT_QUERY_CACHE.get(tableName);
+			if (query == null) {
+				query = NLS.bind(Q_INSERT_DECL, tableName);
+				D_INSERT_QUERY_CACHE.put(tableName, query);
+			}
+		}
+		queries.put(key, query);
+		return query;
+	}
+
 	private void insertBatch(Connection connection,
 			PreparedStatement statement, int type, int flags, int offset,
 			int length, int nameOffset, int nameLength, String name,
@@ -136,43 +210,37 @@ public class H2ElementDao implements IElementDao {
 			int fileId, String natureId, boolean isReference)
 			throws SQLException {
 
-		String tableName = getTableName(connection, type, natureId, isReference);
+		synchronized (batchStatements) {
+			String query = getInsertQuery(connection, type, natureId,
+					isReference);
 
-		String query;
-		if (isReference) {
-			query = R_INSERT_QUERY_CACHE.get(tableName);
-			if (query == null) {
-				query = NLS.bind(Q_INSERT_REF, tableName);
-				R_INSERT_QUERY_CACHE.put(tableName, query);
+			Batch batch = batchStatements.get(query);
+			if (batch == null) {
+				batch = new Batch(connection.prepareStatement(query));
+				batchStatements.put(query, batch);
 			}
-		} else {
-			query = D_INSERT_QUERY_CACHE.get(tableName);
-			if (query == null) {
-				query = NLS.bind(Q_INSERT_DECL, tableName);
-				D_INSERT_QUERY_CACHE.put(tableName, query);
+			insertBatch(connection, batch.statement, type, flags, offset,
+					length, nameOffset, nameLength, name, metadata, doc,
+					qualifier, parent, fileId, natureId, isReference);
+
+			// Don't let pending batch grow unbounded on big files
+			if (++batch.size >= BATCH_SIZE) {
+				batch.statement.executeBatch();
+				batch.size = 0;
 			}
 		}
-
-		synchronized (batchStatements) {
-			PreparedStatement statement = batchStatements.get(query);
-			if (statement == null) {
-				statement = connection.prepareStatement(query);
-				batchStatements.put(query, statement);
-			}
-			insertBatch(connection, statement, type, flags, offset, length,
-					nameOffset, nameLength, name, metadata, doc, qualifier,
-					parent, fileId, natureId, isReference);
-		}
 	}
 
 	public void commitInsertions() throws SQLException {
 		synchronized (batchStatements) {
 			try {
-				for (PreparedStatement statement : batchStatements.values()) {
+				for (Batch batch : batchStatements.values()) {
 					try {
-						statement.executeBatch();
+						if (batch.size != 0) {
+							batch.statement.executeBatch();
+						}
 					} finally {
-						statement.close();
+						batch.statement.close();
 					}
 				}
 			} finally {
@@ -181,6 +249,30 @@ public class H2ElementDao implements IElementDao {
 		}
 	}
 
+	public void beginBulkLoad() {
+		synchronized (batchStatements) {
+			bulkLoad = true;
+			// tables must be re-checked, so their indexes would be deferred
+			insertQueries.clear();
+		}
+	}
+
+	public void endBulkLoad(Connection connection) throws SQLException {
+		synchronized (batchStatements) {
+			bulkLoad = false;
+			insertQueries.clear();
+			try {
+				Schema schema = new Schema();
+				for (Map.Entry<String, Boolean> entry : deferredIndexes.entrySet()) {
+					schema.createIndexes(connection, entry.getKey(), entry
+							.getValue().booleanValue());
+				}
+			} finally {
+				deferredIndexes.clear();
+			}
+		}
+	}
+
 	private String escapeBackslash(String pattern) {
 		return pattern.replaceAll("\\\\", "\\\\\\\\");
 	}
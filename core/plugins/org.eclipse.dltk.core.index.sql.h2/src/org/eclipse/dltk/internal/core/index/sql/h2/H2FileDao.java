@@ -34,6 +34,7 @@ public class H2FileDao implements IFileDao {
 	private static final String Q_SELECT = "SELECT * FROM FILES WHERE PATH=? AND CONTAINER_ID=?;"; //$NON-NLS-1$
 	private static final String Q_SELECT_BY_CONTAINER_ID = "SELECT * FROM FILES WHERE CONTAINER_ID=?;"; //$NON-NLS-1$
 	private static final String Q_SELECT_BY_ID = "SELECT * FROM FILES WHERE ID=?;"; //$NON-NLS-1$
+	private static final String Q_SELECT_ALL = "SELECT * FROM FILES;"; //$NON-NLS-1$
 	private static final String Q_DELETE = "DELETE FROM FILES WHERE PATH=? AND CONTAINER_ID=?;"; //$NON-NLS-1$
 	private static final String Q_DELETE_BY_ID = "DELETE FROM FILES WHERE ID=?;"; //$NON-NLS-1$
 
@@ -125,6 +126,27 @@ public class H2FileDao implements IFileDao {
 		return (File[]) files.toArray(new File[files.size()]);
 	}
 
+	/**
+	 * Reads all the files into the cache, so the elements could be filtered by
+	 * container without accessing the database.
+	 */
+	public void selectAll(Connection connection) throws SQLException {
+		Statement statement = connection.createStatement();
+		try {
+			ResultSet result = statement.executeQuery(Q_SELECT_ALL);
+			try {
+				while (result.next()) {
+					H2Cache.addFile(new File(result.getInt(1), result
+							.getString(2), result.getLong(3), result.getInt(4)));
+				}
+			} finally {
+				result.close();
+			}
+		} finally {
+			statement.close();
+		}
+	}
+
 	public File selectById(Connection connection, int id) throws SQLException {
 
 		File file = H2Cache.selectFileById(id);
@@ -41,7 +41,7 @@ public class Schema {
 
 	public static final String VERSION = "0.7"; //$NON-NLS-1$
 
-	/** Contains already created tables names */
+	/** Contains names of the tables created together with their indexes */
 	private static final Set<String> TABLES_CACHE = new HashSet<String>();
 
 	/**
@@ -108,9 +108,30 @@ public class Schema {
 	 */
 	public void createTable(Connection connection, String tableName,
 			boolean isReference) throws SQLException {
+		createTable(connection, tableName, isReference, true);
+	}
+
+	/**
+	 * Creates elements table
+	 * 
+	 * @param connection
+	 *            Database connection
+	 * @param tableName
+	 *            Table name
+	 * @param isReference
+	 *            Whether to create table for element references or element
+	 *            declarations
+	 * @param createIndexes
+	 *            Whether to create secondary indexes, if <code>false</code>
+	 *            they should be created later using
+	 *            {@link #createIndexes(Connection, String, boolean)}
+	 * @throws SQLException
+	 */
+	public void createTable(Connection connection, String tableName,
+			boolean isReference, boolean createIndexes) throws SQLException {
 
 		synchronized (TABLES_CACHE) {
-			if (TABLES_CACHE.add(tableName)) {
+			if (!TABLES_CACHE.contains(tableName)) {
 
 				String query = isReference ? readSqlFile("resources/element_ref.sql") //$NON-NLS-1$
 						: readSqlFile("resources/element_decl.sql"); //$NON-NLS-1$
@@ -129,7 +150,53 @@ public class Schema {
 							e);
 					throw e;
 				}
+
+				if (createIndexes) {
+					createIndexes(connection, tableName, isReference);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Creates secondary indexes of the elements table. Only the references
+	 * are indexed: the declarations are searched in the {@link H2Cache} once
+	 * it is loaded, so their indexes would only slow down the insertions. The
+	 * indexes are created if they don't exist yet, so the existing databases
+	 * get them without being rebuilt.
+	 * 
+	 * @param connection
+	 *            Database connection
+	 * @param tableName
+	 *            Table name
+	 * @param isReference
+	 *            Whether this is table for element references or element
+	 *            declarations
+	 * @throws SQLException
+	 */
+	public void createIndexes(Connection connection, String tableName,
+			boolean isReference) throws SQLException {
+
+		synchronized (TABLES_CACHE) {
+			if (isReference) {
+				String query = NLS.bind(
+						readSqlFile("resources/element_ref_index.sql"), //$NON-NLS-1$
+						tableName);
+				try {
+					Statement statement = connection.createStatement();
+					try {
+						statement.executeUpdate(query);
+					} finally {
+						statement.close();
+					}
+				} catch (SQLException e) {
+					H2Index.error(
+							"An exception was thrown while creating elements table indexes", //$NON-NLS-1$
+							e);
+					throw e;
+				}
 			}
+			TABLES_CACHE.add(tableName);
 		}
 	}
 
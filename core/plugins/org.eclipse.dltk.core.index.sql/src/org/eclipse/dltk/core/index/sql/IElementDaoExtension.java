@@ -0,0 +1,37 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.index.sql;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Optional extension of the {@link IElementDao} supporting bulk load of the
+ * elements.
+ * 
+ * @since 5.0
+ */
+public interface IElementDaoExtension {
+
+	/**
+	 * Starts bulk load: creation of the secondary indexes for the new element
+	 * tables is postponed till the {@link #endBulkLoad(Connection)} call.
+	 */
+	void beginBulkLoad();
+
+	/**
+	 * Completes bulk load, creating all the postponed indexes. Pending
+	 * insertions should be committed by the caller before.
+	 * 
+	 * @param connection
+	 *            Database connection
+	 * @throws SQLException
+	 */
+	void endBulkLoad(Connection connection) throws SQLException;
+}
@@ -28,8 +28,10 @@ import org.eclipse.dltk.core.index.sql.Container;
 import org.eclipse.dltk.core.index.sql.DbFactory;
 import org.eclipse.dltk.core.index.sql.File;
 import org.eclipse.dltk.core.index.sql.IElementDao;
+import org.eclipse.dltk.core.index.sql.IElementDaoExtension;
 import org.eclipse.dltk.core.index.sql.SqlIndex;
 import org.eclipse.dltk.core.index2.AbstractIndexer;
+import org.eclipse.dltk.core.index2.IIndexerExtension;
 import org.eclipse.dltk.core.index2.search.ISearchEngine;
 import org.eclipse.dltk.internal.core.ExternalSourceModule;
 import org.eclipse.dltk.internal.core.SourceModule;
@@ -42,13 +44,20 @@ import org.eclipse.osgi.util.NLS;
  * @author michael
  * 
  */
-public class SqlIndexer extends AbstractIndexer {
+public class SqlIndexer extends AbstractIndexer implements IIndexerExtension {
+
+	/** Number of documents indexed in one transaction during bulk load */
+	private static final int BULK_COMMIT_INTERVAL = 100;
 
 	private Connection connection;
 	private File file;
 	private String natureId;
 	private IElementDao elementDao;
 
+	private boolean bulkLoad;
+	private Connection bulkConnection;
+	private int bulkDocuments;
+
 	public SqlIndexer() {
 		final DbFactory db = DbFactory.getInstance();
 		if (db == null) {
@@ -86,66 +95,61 @@ public class SqlIndexer extends AbstractIndexer {
 		}
 	}
 
-	public void indexDocument(ISourceModule sourceModule) {
-
-		final IFileHandle fileHandle = EnvironmentPathUtils
-				.getFile(sourceModule);
+	public void beginBulkLoad() {
+		bulkLoad = true;
+		bulkDocuments = 0;
+		if (elementDao instanceof IElementDaoExtension) {
+			((IElementDaoExtension) elementDao).beginBulkLoad();
+		}
+	}
 
+	public void endBulkLoad() {
+		bulkLoad = false;
 		try {
-			DbFactory dbFactory = DbFactory.getInstance();
-			connection = dbFactory.createConnection();
+			Connection connection = bulkConnection;
+			bulkConnection = null;
+			if (connection == null) {
+				connection = DbFactory.getInstance().createConnection();
+			}
 			try {
-				connection.setAutoCommit(false);
-
-				IDLTKLanguageToolkit toolkit = DLTKLanguageManager
-						.getLanguageToolkit(sourceModule);
-				if (toolkit == null) {
-					return;
+				elementDao.commitInsertions();
+				if (elementDao instanceof IElementDaoExtension) {
+					((IElementDaoExtension) elementDao)
+							.endBulkLoad(connection);
 				}
+			} finally {
+				connection.commit();
+				connection.close();
+			}
+		} catch (SQLException e) {
+			SqlIndex.error("An exception was thrown while completing bulk load",
+					e);
+		}
+	}
 
-				natureId = toolkit.getNatureId();
+	public void indexDocument(ISourceModule sourceModule) {
 
-				IPath containerPath;
-				if (sourceModule instanceof SourceModule) {
-					containerPath = sourceModule.getScriptProject().getPath();
-				} else {
-					containerPath = sourceModule.getAncestor(
-							IModelElement.PROJECT_FRAGMENT).getPath();
-				}
-				Container container = dbFactory.getContainerDao().insert(
-						connection, containerPath.toString());
-
-				String relativePath;
-				if (toolkit instanceof IDLTKLanguageToolkitExtension
-						&& ((IDLTKLanguageToolkitExtension) toolkit)
-								.isArchiveFileName(sourceModule.getPath()
-										.toString())) {
-					relativePath = ((ExternalSourceModule) sourceModule)
-							.getFullPath().toString();
-				} else {
-					relativePath = Util.relativePath(sourceModule.getPath(),
-							containerPath.segmentCount());
+		try {
+			DbFactory dbFactory = DbFactory.getInstance();
+			if (bulkLoad) {
+				// Reuse the connection and prepared statements between
+				// documents, committing periodically
+				if (bulkConnection == null) {
+					bulkConnection = dbFactory.createConnection();
+					bulkConnection.setAutoCommit(false);
 				}
-
-				long lastModified = fileHandle == null ? 0 : fileHandle
-						.lastModified();
-
-				File existing = dbFactory.getFileDao().select(connection,
-						relativePath, container.getId());
-				if (existing != null) {
-					if (existing.getTimestamp() == lastModified) {
-						// File is not updated - nothing to do
-						return;
-					}
-					// Re-index:
-					dbFactory.getFileDao().deleteById(connection,
-							existing.getId());
+				connection = bulkConnection;
+				indexDocument(dbFactory, sourceModule);
+				if (++bulkDocuments % BULK_COMMIT_INTERVAL == 0) {
+					elementDao.commitInsertions();
+					connection.commit();
 				}
-				file = dbFactory.getFileDao().insert(connection, relativePath,
-						lastModified, container.getId());
-
-				super.indexDocument(sourceModule);
-
+				return;
+			}
+			connection = dbFactory.createConnection();
+			try {
+				connection.setAutoCommit(false);
+				indexDocument(dbFactory, sourceModule);
 			} finally {
 				elementDao.commitInsertions();
 				connection.commit();
@@ -156,6 +160,62 @@ public class SqlIndexer extends AbstractIndexer {
 		}
 	}
 
+	private void indexDocument(DbFactory dbFactory, ISourceModule sourceModule)
+			throws SQLException {
+
+		final IFileHandle fileHandle = EnvironmentPathUtils
+				.getFile(sourceModule);
+
+		IDLTKLanguageToolkit toolkit = DLTKLanguageManager
+				.getLanguageToolkit(sourceModule);
+		if (toolkit == null) {
+			return;
+		}
+
+		natureId = toolkit.getNatureId();
+
+		IPath containerPath;
+		if (sourceModule instanceof SourceModule) {
+			containerPath = sourceModule.getScriptProject().getPath();
+		} else {
+			containerPath = sourceModule.getAncestor(
+					IModelElement.PROJECT_FRAGMENT).getPath();
+		}
+		Container container = dbFactory.getContainerDao().insert(
+				connection, containerPath.toString());
+
+		String relativePath;
+		if (toolkit instanceof IDLTKLanguageToolkitExtension
+				&& ((IDLTKLanguageToolkitExtension) toolkit)
+						.isArchiveFileName(sourceModule.getPath()
+								.toString())) {
+			relativePath = ((ExternalSourceModule) sourceModule)
+					.getFullPath().toString();
+		} else {
+			relativePath = Util.relativePath(sourceModule.getPath(),
+					containerPath.segmentCount());
+		}
+
+		long lastModified = fileHandle == null ? 0 : fileHandle
+				.lastModified();
+
+		File existing = dbFactory.getFileDao().select(connection,
+				relativePath, container.getId());
+		if (existing != null) {
+			if (existing.getTimestamp() == lastModified) {
+				// File is not updated - nothing to do
+				return;
+			}
+			// Re-index:
+			dbFactory.getFileDao().deleteById(connection,
+					existing.getId());
+		}
+		file = dbFactory.getFileDao().insert(connection, relativePath,
+				lastModified, container.getId());
+
+		super.indexDocument(sourceModule);
+	}
+
 	public Map<String, Long> getDocuments(IPath containerPath) {
 		try {
 			DbFactory dbFactory = DbFactory.getInstance();
@@ -13,14 +13,26 @@ public class ASTCacheManager {
 	private static SimpleClassDLTKExtensionManager manager = new SimpleClassDLTKExtensionManager(
 			DLTKCore.PLUGIN_ID + ".astCache");
 
-	private static Map<String, IASTCache[]> providers = null;
+	/**
+	 * The value of the <code>language</code> attribute of the caches
+	 * contributed for all the languages
+	 */
+	public static final String ALL_LANGUAGES = "#"; //$NON-NLS-1$
 
+	private static Map<String, List<IASTCache>> langToElementList = null;
+
+	private static final Map<String, IASTCache[]> providers = new HashMap<String, IASTCache[]>();
+
+	/**
+	 * Returns the caches contributed for the specified language followed by
+	 * the ones contributed for all the languages or <code>null</code> if
+	 * there are none.
+	 */
 	public synchronized static IASTCache[] getProviders(String lang) {
-		if (providers == null) {
-			providers = new HashMap<String, IASTCache[]>();
+		if (langToElementList == null) {
+			langToElementList = new HashMap<String, List<IASTCache>>();
 
 			ElementInfo[] infos = manager.getElementInfos();
-			Map<String, List<IASTCache>> langToElementList = new HashMap<String, List<IASTCache>>();
 			// Fill element names and sort elements by language
 			for (int i = 0; i < infos.length; i++) {
 				String langauge = infos[i].getConfig().getAttribute("language");
@@ -31,13 +43,23 @@ public class ASTCacheManager {
 				}
 				elements.add((IASTCache) manager.getInitObject(infos[i]));
 			}
-			for (Map.Entry<String, List<IASTCache>> entry : langToElementList
-					.entrySet()) {
-				List<IASTCache> list = entry.getValue();
-				IASTCache[] result = list.toArray(new IASTCache[list.size()]);
-				providers.put(entry.getKey(), result);
-			}
 		}
-		return providers.get(lang);
+		if (providers.containsKey(lang)) {
+			return providers.get(lang);
+		}
+		final List<IASTCache> list = new ArrayList<IASTCache>();
+		final List<IASTCache> languageCaches = langToElementList.get(lang);
+		if (languageCaches != null) {
+			list.addAll(languageCaches);
+		}
+		final List<IASTCache> commonCaches = langToElementList
+				.get(ALL_LANGUAGES);
+		if (commonCaches != null) {
+			list.addAll(commonCaches);
+		}
+		final IASTCache[] result = !list.isEmpty() ? list
+				.toArray(new IASTCache[list.size()]) : null;
+		providers.put(lang, result);
+		return result;
 	}
 }
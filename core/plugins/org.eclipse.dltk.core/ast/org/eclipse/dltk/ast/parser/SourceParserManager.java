@@ -22,6 +22,8 @@ import org.eclipse.dltk.annotations.Nullable;
 import org.eclipse.dltk.core.DLTKContributedExtension;
 import org.eclipse.dltk.core.DLTKContributionExtensionManager;
 import org.eclipse.dltk.core.DLTKCore;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.Constants;
 
 /**
  * Manager responsible for all contributed <code>ISourceParser</code>
@@ -104,6 +106,28 @@ public class SourceParserManager extends DLTKContributionExtensionManager {
 		return null;
 	}
 	
+	/**
+	 * Returns the version of the source parser selected for the specified
+	 * project and nature, consisting of the parser id and the version of the
+	 * plugin contributing it, or <code>null</code> if there is no parser.
+	 * 
+	 * @since 5.0
+	 */
+	public String getSourceParserVersion(IProject project, String natureId) {
+		SourceParserContribution contribution = (SourceParserContribution) getSelectedContribution(
+				project, natureId);
+		if (contribution == null) {
+			return null;
+		}
+		final Bundle bundle = Platform.getBundle(contribution.config
+				.getContributor().getName());
+		if (bundle == null) {
+			return null;
+		}
+		return contribution.getId() + '_'
+				+ bundle.getHeaders().get(Constants.BUNDLE_VERSION);
+	}
+	
 	static class SourceParserContribution extends DLTKContributedExtension {		
 
 		private final ISourceParserFactory factory;
@@ -0,0 +1,237 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.ast.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.eclipse.dltk.ast.ASTNode;
+import org.eclipse.dltk.ast.ASTVisitor;
+import org.eclipse.dltk.core.DLTKCore;
+
+/**
+ * Immutable index of the source ranges of all the nodes of the AST, answering
+ * which nodes cover the specified offset or range without traversing the whole
+ * tree.
+ * <p>
+ * The nodes are sorted by their start offset and form the implicit balanced
+ * search tree, each subtree knowing the maximum end offset of its nodes, so
+ * the query takes O(log n) plus the number of the covering nodes. The nodes
+ * with the negative ranges are not indexed. As everywhere in the AST
+ * the node covers the offsets from its <code>sourceStart()</code> to its
+ * <code>sourceEnd()</code> inclusive.
+ * </p>
+ * <p>
+ * The index reflects the AST at the moment it was built, so it should be
+ * discarded if the AST is modified.
+ * </p>
+ *
+ * @see org.eclipse.dltk.core.SourceParserUtil#getNodeIndex(org.eclipse.dltk.core.ISourceModule)
+ * @since 5.0
+ */
+public class ASTNodeIndex {
+
+	private final ASTNode root;
+	private final ASTNode[] nodes;
+	private final int[] starts;
+	private final int[] ends;
+	/**
+	 * The position of the node in the traversal order, the nested node with
+	 * the same range as its parent comes later.
+	 */
+	private final int[] order;
+	/**
+	 * The maximum end offset in the subtree rooted at the given position
+	 */
+	private final int[] maxEnds;
+
+	private static class Entry {
+		final ASTNode node;
+		final int start;
+		final int end;
+		final int order;
+
+		Entry(ASTNode node, int order) {
+			this.node = node;
+			this.start = node.sourceStart();
+			this.end = node.sourceEnd();
+			this.order = order;
+		}
+	}
+
+	private static final Comparator<Entry> ENTRY_COMPARATOR = new Comparator<Entry>() {
+		public int compare(Entry e1, Entry e2) {
+			if (e1.start != e2.start) {
+				return e1.start < e2.start ? -1 : 1;
+			}
+			return e1.order < e2.order ? -1 : e1.order == e2.order ? 0 : 1;
+		}
+	};
+
+	/**
+	 * Builds the index of the nodes of the specified tree
+	 */
+	public static ASTNodeIndex build(ASTNode root) {
+		final List<Entry> entries = new ArrayList<Entry>();
+		try {
+			root.traverse(new ASTVisitor() {
+				@Override
+				public boolean visitGeneral(ASTNode node) throws Exception {
+					if (node.sourceStart() >= 0
+							&& node.sourceEnd() >= node.sourceStart()) {
+						entries.add(new Entry(node, entries.size()));
+					}
+					return true;
+				}
+			});
+		} catch (Exception e) {
+			if (DLTKCore.DEBUG) {
+				e.printStackTrace();
+			}
+		}
+		return new ASTNodeIndex(root, entries);
+	}
+
+	private ASTNodeIndex(ASTNode root, List<Entry> entries) {
+		this.root = root;
+		final Entry[] sorted = entries.toArray(new Entry[entries.size()]);
+		Arrays.sort(sorted, ENTRY_COMPARATOR);
+		final int size = sorted.length;
+		nodes = new ASTNode[size];
+		starts = new int[size];
+		ends = new int[size];
+		order = new int[size];
+		for (int i = 0; i < size; ++i) {
+			nodes[i] = sorted[i].node;
+			starts[i] = sorted[i].start;
+			ends[i] = sorted[i].end;
+			order[i] = sorted[i].order;
+		}
+		maxEnds = new int[size];
+		computeMaxEnds(0, size);
+	}
+
+	private int computeMaxEnds(int low, int high) {
+		if (low >= high) {
+			return Integer.MIN_VALUE;
+		}
+		final int mid = (low + high) >>> 1;
+		final int max = Math.max(ends[mid], Math.max(
+				computeMaxEnds(low, mid), computeMaxEnds(mid + 1, high)));
+		maxEnds[mid] = max;
+		return max;
+	}
+
+	/**
+	 * Returns the root node this index was built for
+	 */
+	public ASTNode getRoot() {
+		return root;
+	}
+
+	/**
+	 * Returns the number of the indexed nodes
+	 */
+	public int size() {
+		return nodes.length;
+	}
+
+	/**
+	 * Returns the innermost node covering the specified offset or
+	 * <code>null</code> if there is no such node.
+	 */
+	public ASTNode findInnermost(int offset) {
+		return findInnermost(offset, offset);
+	}
+
+	/**
+	 * Returns the innermost node covering the whole specified range or
+	 * <code>null</code> if there is no such node.
+	 */
+	public ASTNode findInnermost(int start, int end) {
+		final List<Integer> found = new ArrayList<Integer>();
+		collect(0, nodes.length, start, end, found);
+		int best = -1;
+		for (int i = 0, size = found.size(); i < size; ++i) {
+			final int index = found.get(i).intValue();
+			if (best < 0 || compareNesting(index, best) > 0) {
+				best = index;
+			}
+		}
+		return best >= 0 ? nodes[best] : null;
+	}
+
+	/**
+	 * Returns all the nodes covering the specified offset, from the outermost
+	 * to the innermost one.
+	 */
+	public List<ASTNode> findCovering(int offset) {
+		return findCovering(offset, offset);
+	}
+
+	/**
+	 * Returns all the nodes covering the whole specified range, from the
+	 * outermost to the innermost one.
+	 */
+	public List<ASTNode> findCovering(int start, int end) {
+		final List<Integer> found = new ArrayList<Integer>();
+		collect(0, nodes.length, start, end, found);
+		if (found.isEmpty()) {
+			return Collections.emptyList();
+		}
+		final Integer[] indexes = found.toArray(new Integer[found.size()]);
+		Arrays.sort(indexes, new Comparator<Integer>() {
+			public int compare(Integer i1, Integer i2) {
+				return compareNesting(i1.intValue(), i2.intValue());
+			}
+		});
+		final List<ASTNode> result = new ArrayList<ASTNode>(indexes.length);
+		for (int i = 0; i < indexes.length; ++i) {
+			result.add(nodes[indexes[i].intValue()]);
+		}
+		return result;
+	}
+
+	/**
+	 * Compares the nodes covering the same position: the wider node comes
+	 * first and for the same ranges the parent comes before its children.
+	 */
+	private int compareNesting(int i1, int i2) {
+		final int length1 = ends[i1] - starts[i1];
+		final int length2 = ends[i2] - starts[i2];
+		if (length1 != length2) {
+			return length1 > length2 ? -1 : 1;
+		}
+		return order[i1] < order[i2] ? -1 : order[i1] == order[i2] ? 0 : 1;
+	}
+
+	private void collect(int low, int high, int start, int end,
+			List<Integer> result) {
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if (maxEnds[mid] < end) {
+				// nothing in this subtree reaches the end of the range
+				return;
+			}
+			if (starts[mid] > start) {
+				// this node and the right subtree start after the range
+				high = mid;
+				continue;
+			}
+			if (ends[mid] >= end) {
+				result.add(Integer.valueOf(mid));
+			}
+			collect(low, mid, start, end, result);
+			low = mid + 1;
+		}
+	}
+}
@@ -17,9 +17,11 @@ import org.eclipse.core.filesystem.EFS;
 import org.eclipse.core.filesystem.IFileStore;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.dltk.core.DLTKCore;
+import org.eclipse.dltk.core.internal.environment.EFSFileHandle;
 import org.eclipse.dltk.core.internal.environment.LocalEnvironment;
 
 @SuppressWarnings("nls")
@@ -60,4 +62,17 @@ public class FileHandles {
 						+ environment.getName()));
 	}
 
+	/**
+	 * Fetches the attributes of all the files in the specified directory and
+	 * its sub directories in bulk, so the subsequent calls for them are served
+	 * from the cache. Does nothing if the handle doesn't support caching.
+	 * 
+	 * @since 5.0
+	 */
+	public static void prefetch(IFileHandle handle, IProgressMonitor monitor) {
+		if (handle instanceof EFSFileHandle) {
+			((EFSFileHandle) handle).prefetch(monitor);
+		}
+	}
+
 }
@@ -11,12 +11,11 @@
 package org.eclipse.dltk.core.internal.environment;
 
 import java.io.File;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
-import java.util.HashMap;
-import java.util.Map;
 
 import org.eclipse.core.filesystem.EFS;
 import org.eclipse.core.filesystem.IFileInfo;
@@ -36,9 +35,6 @@ import org.eclipse.dltk.core.environment.IFileStoreProvider;
 
 public class EFSFileHandle implements IFileHandle, IFileStoreProvider {
 
-	private static Map<String, Long> timestamps = new HashMap<String, Long>();
-	private static Map<String, Long> lastaccess = new HashMap<String, Long>();
-
 	private IFileStore file;
 	private IEnvironment environment;
 
@@ -47,9 +43,14 @@ public class EFSFileHandle implements IFileHandle, IFileStoreProvider {
 		this.file = file;
 	}
 
+	private IFileInfo fetchInfo() {
+		return FileInfoCache.getDefault().fetchInfo(file,
+				environment.isLocal());
+	}
+
 	public boolean exists() {
 		try {
-			return file.fetchInfo().exists();
+			return fetchInfo().exists();
 		} catch (RuntimeException e) {
 			return false;
 		}
@@ -70,10 +71,12 @@ public class EFSFileHandle implements IFileHandle, IFileStoreProvider {
 
 	public IFileHandle[] getChildren() {
 		try {
-			IFileStore[] files = file.childStores(EFS.NONE, null);
-			IFileHandle[] children = new IFileHandle[files.length];
-			for (int i = 0; i < files.length; i++)
-				children[i] = new EFSFileHandle(environment, files[i]);
+			IFileInfo[] infos = FileInfoCache.getDefault().childInfos(file,
+					environment.isLocal(), null);
+			IFileHandle[] children = new IFileHandle[infos.length];
+			for (int i = 0; i < infos.length; i++)
+				children[i] = new EFSFileHandle(environment,
+						file.getChild(infos[i].getName()));
 			return children;
 		} catch (CoreException e) {
 			if (DLTKCore.DEBUG)
@@ -82,6 +85,17 @@ public class EFSFileHandle implements IFileHandle, IFileStoreProvider {
 		}
 	}
 
+	/**
+	 * Lists this directory and all its sub directories, so the subsequent
+	 * calls for them are served from the cache.
+	 * 
+	 * @since 5.0
+	 */
+	public void prefetch(IProgressMonitor monitor) {
+		FileInfoCache.getDefault().prefetch(file, environment.isLocal(),
+				monitor);
+	}
+
 	public IEnvironment getEnvironment() {
 		return environment;
 	}
@@ -115,16 +129,16 @@ public class EFSFileHandle implements IFileHandle, IFileStoreProvider {
 	}
 
 	public boolean isDirectory() {
-		return file.fetchInfo().isDirectory();
+		return fetchInfo().isDirectory();
 	}
 
 	public boolean isFile() {
-		final IFileInfo info = file.fetchInfo();
+		final IFileInfo info = fetchInfo();
 		return info.exists() && !info.isDirectory();
 	}
 
 	public boolean isSymlink() {
-		return file.fetchInfo().getAttribute(EFS.ATTRIBUTE_SYMLINK);
+		return fetchInfo().getAttribute(EFS.ATTRIBUTE_SYMLINK);
 	}
 
 	public InputStream openInputStream(IProgressMonitor monitor)
@@ -141,7 +155,24 @@ public class EFSFileHandle implements IFileHandle, IFileStoreProvider {
 	public OutputStream openOutputStream(IProgressMonitor monitor)
 			throws IOException {
 		try {
-			return file.openOutputStream(EFS.NONE, monitor);
+			FileInfoCache.getDefault().invalidate(file);
+			return new FilterOutputStream(file.openOutputStream(EFS.NONE,
+					monitor)) {
+				@Override
+				public void write(byte[] b, int off, int len)
+						throws IOException {
+					out.write(b, off, len);
+				}
+
+				@Override
+				public void close() throws IOException {
+					try {
+						super.close();
+					} finally {
+						FileInfoCache.getDefault().invalidate(file);
+					}
+				}
+			};
 		} catch (CoreException e) {
 			if (DLTKCore.DEBUG)
 				e.printStackTrace();
@@ -166,57 +197,14 @@ public class EFSFileHandle implements IFileHandle, IFileStoreProvider {
 	}
 
 	public long lastModified() {
-		String n = toString();
-		long c = 0;
-		boolean flag = !environment.isLocal();
-		if (flag) {
-			if (timestamps.containsKey(n)) {
-				c = System.currentTimeMillis();
-				Long last = lastaccess.get(n);
-				if (last != null
-						&& (c - last.longValue()) < 1000 * 60 * 60 * 24) {
-					return timestamps.get(n);
-				}
-			}
-		}
 		PerformanceNode p = RuntimePerformanceMonitor.begin();
-		long lm = file.fetchInfo().getLastModified();
-		if (flag) {
-			timestamps.put(n, lm);
-			if (c == 0) {
-				c = System.currentTimeMillis();
-			}
-			lastaccess.put(n, c);
-		}
-		p.done("#", "Return file timestamp", 0);
+		long lm = fetchInfo().getLastModified();
+		p.done("#", "Return file timestamp", 0); //$NON-NLS-1$ //$NON-NLS-2$
 		return lm;
-
 	}
 
-	// public long lastModifiedFromCache() {
-	// if (this.environment.isLocal()) {
-	// return file.fetchInfo().getLastModified();
-	// }
-	// // Try to restore timestamp from local cache.
-	// IContentCache coreCache = ModelManager.getModelManager().getCoreCache();
-	// File asFile = coreCache.getEntryAsFile(this, "timestamp");
-	// if (asFile.exists()) {
-	// try {
-	// DataInputStream dis = new DataInputStream(new FileInputStream(
-	// asFile));
-	// long timestamp = dis.readLong();
-	// dis.close();
-	// return timestamp;
-	// } catch (IOException e) {
-	// }
-	// }
-	// long lastModified = file.fetchInfo().getLastModified();
-	// coreCache.setCacheEntryAttribute(this, "timestamp", lastModified);
-	// return lastModified;
-	// }
-
 	public long length() {
-		return file.fetchInfo().getLength();
+		return fetchInfo().getLength();
 	}
 
 	public IPath getFullPath() {
@@ -236,6 +224,11 @@ public class EFSFileHandle implements IFileHandle, IFileStoreProvider {
 
 	public void move(IFileHandle destination) throws CoreException {
 		final IFileStore destStore = FileHandles.asFileStore(destination);
-		file.move(destStore, EFS.OVERWRITE, null);
+		try {
+			file.move(destStore, EFS.OVERWRITE, null);
+		} finally {
+			FileInfoCache.getDefault().invalidate(file);
+			FileInfoCache.getDefault().invalidate(destStore);
+		}
 	}
 }
@@ -0,0 +1,365 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.internal.environment;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.eclipse.core.filesystem.EFS;
+import org.eclipse.core.filesystem.IFileInfo;
+import org.eclipse.core.filesystem.IFileStore;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.dltk.core.DLTKCore;
+
+/**
+ * Bounded cache of the file attributes and directory listings, used by the
+ * {@link EFSFileHandle} so the repeated <code>exists()</code>,
+ * <code>isDirectory()</code>, <code>lastModified()</code> and
+ * <code>getChildren()</code> calls during the scans don't hit the file system
+ * (or the network) every time.
+ *
+ * The entries expire after the short timeout, as the files could be changed
+ * outside of the workspace at any moment, the local ones sooner than the
+ * remote ones. The entries of the local files are also discarded when the
+ * workspace reports changes to the corresponding resources, and all the
+ * entries are discarded on the explicit refresh of the external folders.
+ */
+public class FileInfoCache implements IResourceChangeListener {
+
+	private static class Entry {
+		final boolean local;
+		IFileInfo info;
+		long infoTime;
+		IFileInfo[] children;
+		long childrenTime;
+
+		Entry(boolean local) {
+			this.local = local;
+		}
+
+		void setInfo(IFileInfo info, long time) {
+			this.info = info;
+			this.infoTime = time;
+		}
+	}
+
+	private static final int DEFAULT_CAPACITY = 20000;
+
+	private static final long DEFAULT_LOCAL_TIMEOUT = 2000;
+
+	private static final long DEFAULT_REMOTE_TIMEOUT = 30000;
+
+	/**
+	 * The number of the threads listing the directories in
+	 * {@link #prefetch(IFileStore, boolean, IProgressMonitor)}
+	 */
+	private static final int PREFETCH_THREADS = 4;
+
+	private static volatile FileInfoCache defaultCache = null;
+
+	public static FileInfoCache getDefault() {
+		FileInfoCache cache = defaultCache;
+		if (cache == null) {
+			synchronized (FileInfoCache.class) {
+				cache = defaultCache;
+				if (cache == null) {
+					cache = new FileInfoCache(DEFAULT_CAPACITY,
+							DEFAULT_LOCAL_TIMEOUT, DEFAULT_REMOTE_TIMEOUT);
+					try {
+						ResourcesPlugin.getWorkspace()
+								.addResourceChangeListener(cache,
+										IResourceChangeEvent.POST_CHANGE);
+					} catch (IllegalStateException e) {
+						// workspace is closed, rely on the timeout
+					}
+					defaultCache = cache;
+				}
+			}
+		}
+		return cache;
+	}
+
+	public static synchronized void shutdown() {
+		if (defaultCache != null) {
+			try {
+				ResourcesPlugin.getWorkspace().removeResourceChangeListener(
+						defaultCache);
+			} catch (IllegalStateException e) {
+				// workspace is closed
+			}
+			defaultCache = null;
+		}
+	}
+
+	private final long localTimeout;
+	private final long remoteTimeout;
+	private final Map<URI, Entry> entries;
+
+	/**
+	 * The number of the local entries, the workspace changes are checked only
+	 * if there are any. Guarded by {@link #entries}.
+	 */
+	private int localCount = 0;
+
+	@SuppressWarnings("serial")
+	public FileInfoCache(final int capacity, long localTimeout,
+			long remoteTimeout) {
+		this.localTimeout = localTimeout;
+		this.remoteTimeout = remoteTimeout;
+		this.entries = new LinkedHashMap<URI, Entry>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<URI, Entry> eldest) {
+				if (size() > capacity) {
+					if (eldest.getValue().local) {
+						--localCount;
+					}
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Returns the current time, could be overridden by tests
+	 */
+	protected long currentTime() {
+		return System.currentTimeMillis();
+	}
+
+	private long getTimeout(boolean local) {
+		return local ? localTimeout : remoteTimeout;
+	}
+
+	/**
+	 * Returns the attributes of the specified file, fetching them if not cached
+	 * or expired.
+	 */
+	public IFileInfo fetchInfo(IFileStore store, boolean local) {
+		final URI uri = store.toURI();
+		final long now = currentTime();
+		synchronized (entries) {
+			final Entry entry = entries.get(uri);
+			if (entry != null && entry.info != null
+					&& now - entry.infoTime < getTimeout(local)) {
+				return entry.info;
+			}
+		}
+		final IFileInfo info = store.fetchInfo();
+		synchronized (entries) {
+			getEntry(uri, local).setInfo(info, now);
+		}
+		return info;
+	}
+
+	/**
+	 * Returns the attributes of the files contained in the specified
+	 * directory, fetching them if not cached or expired. The attributes of the
+	 * children are cached too.
+	 */
+	public IFileInfo[] childInfos(IFileStore store, boolean local,
+			IProgressMonitor monitor) throws CoreException {
+		final URI uri = store.toURI();
+		final long now = currentTime();
+		synchronized (entries) {
+			final Entry entry = entries.get(uri);
+			if (entry != null && entry.children != null
+					&& now - entry.childrenTime < getTimeout(local)) {
+				return entry.children;
+			}
+		}
+		final IFileInfo[] children = store.childInfos(EFS.NONE, monitor);
+		synchronized (entries) {
+			final Entry entry = getEntry(uri, local);
+			entry.children = children;
+			entry.childrenTime = now;
+			for (int i = 0; i < children.length; ++i) {
+				getEntry(store.getChild(children[i].getName()).toURI(), local)
+						.setInfo(children[i], now);
+			}
+		}
+		return children;
+	}
+
+	/**
+	 * Lists the specified directory and all its sub directories, so the
+	 * subsequent requests for the whole subtree are served from the cache.
+	 * The directories of the same level are listed by several threads at
+	 * once, as most of the time is spent waiting for the file system, the
+	 * monitor is only checked for the cancellation between the levels. The
+	 * symbolic links to the directories are not followed.
+	 */
+	public void prefetch(IFileStore store, final boolean local,
+			final IProgressMonitor monitor) {
+		final ExecutorService executor = Executors.newFixedThreadPool(
+				PREFETCH_THREADS, new ThreadFactory() {
+					public Thread newThread(Runnable r) {
+						final Thread thread = new Thread(r,
+								"File Info Prefetch"); //$NON-NLS-1$
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		try {
+			List<IFileStore> level = Collections.singletonList(store);
+			while (!level.isEmpty()) {
+				if (monitor != null && monitor.isCanceled()) {
+					return;
+				}
+				final List<Callable<IFileInfo[]>> tasks = new ArrayList<Callable<IFileInfo[]>>(
+						level.size());
+				for (final IFileStore directory : level) {
+					tasks.add(new Callable<IFileInfo[]>() {
+						public IFileInfo[] call() throws CoreException {
+							return childInfos(directory, local, null);
+						}
+					});
+				}
+				final List<Future<IFileInfo[]>> results = executor
+						.invokeAll(tasks);
+				final List<IFileStore> next = new ArrayList<IFileStore>();
+				for (int i = 0; i < results.size(); ++i) {
+					final IFileInfo[] children;
+					try {
+						children = results.get(i).get();
+					} catch (ExecutionException e) {
+						if (DLTKCore.DEBUG) {
+							e.getCause().printStackTrace();
+						}
+						continue;
+					}
+					for (IFileInfo child : children) {
+						if (child.isDirectory()
+								&& !child.getAttribute(EFS.ATTRIBUTE_SYMLINK)) {
+							next.add(level.get(i).getChild(child.getName()));
+						}
+					}
+				}
+				level = next;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	// called with the lock being held
+	private Entry getEntry(URI uri, boolean local) {
+		Entry entry = entries.get(uri);
+		if (entry == null) {
+			entry = new Entry(local);
+			entries.put(uri, entry);
+			if (local) {
+				++localCount;
+			}
+		}
+		return entry;
+	}
+
+	// called with the lock being held
+	private void remove(URI uri) {
+		final Entry entry = entries.remove(uri);
+		if (entry != null && entry.local) {
+			--localCount;
+		}
+	}
+
+	/**
+	 * Discards the cached attributes of the specified file and the listing of
+	 * its parent directory.
+	 */
+	public void invalidate(IFileStore store) {
+		final IFileStore parent = store.getParent();
+		invalidate(store.toURI(), parent != null ? parent.toURI() : null);
+	}
+
+	private void invalidate(URI uri, URI parent) {
+		synchronized (entries) {
+			remove(uri);
+			if (parent != null) {
+				final Entry entry = entries.get(parent);
+				if (entry != null) {
+					entry.children = null;
+				}
+			}
+		}
+	}
+
+	public void clear() {
+		synchronized (entries) {
+			entries.clear();
+			localCount = 0;
+		}
+	}
+
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	private boolean hasLocalEntries() {
+		synchronized (entries) {
+			return localCount != 0;
+		}
+	}
+
+	/**
+	 * Discards the local entries of the changed resources. The workspace
+	 * resources are local, so the delta is not visited at all if only the
+	 * remote entries are cached.
+	 */
+	public void resourceChanged(IResourceChangeEvent event) {
+		if (!hasLocalEntries()) {
+			return;
+		}
+		final IResourceDelta delta = event.getDelta();
+		if (delta == null) {
+			return;
+		}
+		try {
+			delta.accept(new IResourceDeltaVisitor() {
+				public boolean visit(IResourceDelta delta) {
+					if (delta.getKind() != IResourceDelta.CHANGED
+							|| (delta.getFlags() & IResourceDelta.CONTENT) != 0) {
+						final IResource resource = delta.getResource();
+						final URI location = resource.getLocationURI();
+						if (location != null) {
+							final IResource parent = resource.getParent();
+							invalidate(location, parent != null ? parent
+									.getLocationURI() : null);
+						}
+					}
+					return true;
+				}
+			});
+		} catch (CoreException e) {
+			DLTKCore.error(e);
+			clear();
+		}
+	}
+}
@@ -0,0 +1,34 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.index2;
+
+/**
+ * Optional extension of the {@link IIndexer} interface, allowing indexer to
+ * process a big set of documents more efficiently.
+ * 
+ * @since 5.0
+ */
+public interface IIndexerExtension {
+
+	/**
+	 * Notifies indexer that a big set of documents is going to be indexed (e.g.
+	 * initial indexing of the library), so it can reuse resources between
+	 * documents and postpone maintenance of the secondary structures.
+	 * All the subsequent <code>indexDocument()</code> calls on this indexer
+	 * instance are part of the bulk load till the {@link #endBulkLoad()} is
+	 * called.
+	 */
+	public void beginBulkLoad();
+
+	/**
+	 * Completes the bulk load started by {@link #beginBulkLoad()}, should
+	 * always be called, even if indexing has failed.
+	 */
+	public void endBulkLoad();
+}
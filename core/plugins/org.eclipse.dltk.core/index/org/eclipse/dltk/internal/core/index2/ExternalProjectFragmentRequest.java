@@ -26,6 +26,7 @@ import org.eclipse.dltk.core.environment.IEnvironment;
 import org.eclipse.dltk.core.index2.ProjectIndexer2;
 import org.eclipse.dltk.internal.core.BuiltinSourceModule;
 import org.eclipse.dltk.internal.core.ExternalSourceModule;
+import org.eclipse.dltk.internal.core.search.processing.IParallelJob;
 
 /**
  * Request for indexing external project
@@ -33,7 +34,8 @@ import org.eclipse.dltk.internal.core.ExternalSourceModule;
  * @author michael
  * 
  */
-public class ExternalProjectFragmentRequest extends AbstractIndexRequest {
+public class ExternalProjectFragmentRequest extends AbstractIndexRequest
+		implements IParallelJob {
 
 	protected final IProjectFragment fragment;
 
@@ -53,6 +55,10 @@ public class ExternalProjectFragmentRequest extends AbstractIndexRequest {
 				fragment.getPath(), sourceModules, progressJob));
 	}
 
+	public Object getSerializationKey() {
+		return fragment.getPath();
+	}
+
 	protected IEnvironment getEnvironment() {
 		return EnvironmentManager.getEnvironment(fragment);
 	}
@@ -23,7 +23,9 @@ import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.dltk.core.ISourceModule;
 import org.eclipse.dltk.core.index2.IIndexer;
+import org.eclipse.dltk.core.index2.IIndexerExtension;
 import org.eclipse.dltk.core.index2.ProjectIndexer2;
+import org.eclipse.dltk.internal.core.search.processing.IParallelJob;
 
 /**
  * Request for re-indexing a set of source modules. First, source modules are
@@ -33,7 +35,14 @@ import org.eclipse.dltk.core.index2.ProjectIndexer2;
  * @author michael
  * 
  */
-public class SourceModulesRequest extends AbstractIndexRequest {
+public class SourceModulesRequest extends AbstractIndexRequest implements
+		IParallelJob {
+
+	/**
+	 * Minimal number of the modules to re-index, when the bulk load mode of
+	 * the indexer is used
+	 */
+	private static final int BULK_LOAD_THRESHOLD = 100;
 
 	private final IPath containerPath;
 	private final Set<ISourceModule> sourceModules;
@@ -73,12 +82,27 @@ public class SourceModulesRequest extends AbstractIndexRequest {
 			}
 		});
 
-		for (final ISourceModule sourceModule : toReindex) {
-			reportToProgress(sourceModule);
-			indexer.indexDocument(sourceModule);
+		final boolean bulkLoad = toReindex.size() >= BULK_LOAD_THRESHOLD
+				&& indexer instanceof IIndexerExtension;
+		if (bulkLoad) {
+			((IIndexerExtension) indexer).beginBulkLoad();
+		}
+		try {
+			for (final ISourceModule sourceModule : toReindex) {
+				reportToProgress(sourceModule);
+				indexer.indexDocument(sourceModule);
+			}
+		} finally {
+			if (bulkLoad) {
+				((IIndexerExtension) indexer).endBulkLoad();
+			}
 		}
 	}
 
+	public Object getSerializationKey() {
+		return containerPath;
+	}
+
 	public boolean belongsTo(String jobFamily) {
 		return jobFamily.equals(containerPath.toString());
 	}
@@ -16,7 +16,7 @@ import org.eclipse.dltk.core.DLTKFeatures.StringFeature;
 import org.eclipse.dltk.core.environment.EnvironmentManager;
 import org.eclipse.dltk.core.environment.IEnvironment;
 import org.eclipse.dltk.core.environment.IFileHandle;
-import org.eclipse.dltk.internal.core.ZipArchiveFile;
+import org.eclipse.dltk.internal.core.MappedArchiveFile;
 
 public abstract class AbstractLanguageToolkit implements IDLTKLanguageToolkit {
 
@@ -77,11 +77,14 @@ public abstract class AbstractLanguageToolkit implements IDLTKLanguageToolkit {
 	}
 
 	/**
+	 * Opens the shared memory-mapped archive, the formats it does not support
+	 * are opened with {@link java.util.zip.ZipFile}.
+	 * 
 	 * @throws IOException
 	 * @since 2.0
 	 */
 	public IArchive openArchive(File localFile) throws IOException {
-		return new ZipArchiveFile(localFile);
+		return MappedArchiveFile.open(localFile);
 	}
 
 	public String getFileType() {
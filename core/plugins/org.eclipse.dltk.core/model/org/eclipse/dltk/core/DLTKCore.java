@@ -356,6 +356,35 @@ public class DLTKCore extends Plugin {
 	 */
 	public static final String INDEXER_ENABLED = PLUGIN_ID + ".indexer"; //$NON-NLS-1$					
 
+	/**
+	 * Possible configurable option ID. Value is the maximum number of index
+	 * jobs executed in parallel, <code>"1"</code> means sequential indexing.
+	 * 
+	 * @since 5.0
+	 */
+	public static final String INDEXER_THREADS = PLUGIN_ID + ".indexer.threads"; //$NON-NLS-1$
+
+	/**
+	 * Possible configurable option ID. Value is the maximum number of modules
+	 * built in parallel, <code>"1"</code> means sequential build. Modules are
+	 * built in parallel only if all the build participants are thread safe.
+	 * 
+	 * @see org.eclipse.dltk.core.builder.IBuildParticipantExtension5
+	 * @since 5.0
+	 */
+	public static final String BUILDER_THREADS = PLUGIN_ID + ".builder.threads"; //$NON-NLS-1$
+
+	/**
+	 * Possible configurable option ID. Value is the maximum number of threads
+	 * parsing the possible matches during search, <code>"1"</code> means
+	 * sequential parsing. Possible matches are parsed in parallel only if the
+	 * match locator parser of the language is thread safe.
+	 * 
+	 * @see org.eclipse.dltk.core.search.IMatchLocatorParserExtension
+	 * @since 5.0
+	 */
+	public static final String SEARCH_THREADS = PLUGIN_ID + ".search.threads"; //$NON-NLS-1$
+
 	/**
 	 * Possible project configurable option ID. Value is the identifier of
 	 * contributed {@link org.eclipse.dltk.ast.parser.ISourceParser}.
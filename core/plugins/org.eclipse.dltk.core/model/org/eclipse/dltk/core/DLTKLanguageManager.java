@@ -34,8 +34,8 @@ import org.eclipse.dltk.core.search.SearchPatternProcessor;
 import org.eclipse.dltk.core.search.indexing.SourceIndexerRequestor;
 import org.eclipse.dltk.core.search.matching.IMatchLocator;
 import org.eclipse.dltk.core.search.matching.MatchLocator;
-import org.eclipse.dltk.core.search.matching.MatchLocatorParser;
 import org.eclipse.dltk.internal.core.InternalDLTKLanguageManager;
+import org.eclipse.dltk.internal.core.search.matching.DefaultMatchLocatorParser;
 
 public class DLTKLanguageManager {
 
@@ -327,8 +327,7 @@ public class DLTKLanguageManager {
 		if (factory != null) {
 			return factory.createMatchParser(matchLocator);
 		}
-		return new MatchLocatorParser(matchLocator) {
-		};
+		return new DefaultMatchLocatorParser(matchLocator);
 	}
 
 	public static ICalleeProcessor createCalleeProcessor(String natureID,
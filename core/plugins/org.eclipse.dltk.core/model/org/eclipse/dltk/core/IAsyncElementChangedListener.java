@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core;
+
+/**
+ * Element changed listener which is notified asynchronously, so the thread
+ * changing the model is not blocked while this listener processes the event.
+ * <p>
+ * The events are queued for each listener and delivered in order from the
+ * background thread. If the listener falls behind, the consecutive queued
+ * events of the same type are merged and delivered as the single event, so the
+ * listener should not rely on the number of notifications. When the event is
+ * delivered, the model could already contain more changes than described by
+ * the delta.
+ * </p>
+ * <p>
+ * The resource deltas are valid only during the resource change notification,
+ * so {@link IModelElementDelta#getResourceDeltas()} of the delivered deltas
+ * always returns <code>null</code>.
+ * </p>
+ * <p>
+ * This interface may be implemented by clients.
+ * </p>
+ *
+ * @see DLTKCore#addElementChangedListener(IElementChangedListener, int)
+ * @since 5.0
+ */
+public interface IAsyncElementChangedListener extends IElementChangedListener {
+}
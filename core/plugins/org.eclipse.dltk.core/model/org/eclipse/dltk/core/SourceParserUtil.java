@@ -1,5 +1,6 @@
 package org.eclipse.dltk.core;
 
+import org.eclipse.dltk.ast.ASTNode;
 import org.eclipse.dltk.ast.declarations.ModuleDeclaration;
 import org.eclipse.dltk.ast.declarations.ModuleDeclarationWrapper;
 import org.eclipse.dltk.ast.parser.ASTCacheManager;
@@ -8,6 +9,7 @@ import org.eclipse.dltk.ast.parser.IASTCache.ASTCacheEntry;
 import org.eclipse.dltk.ast.parser.IModuleDeclaration;
 import org.eclipse.dltk.ast.parser.ISourceParser;
 import org.eclipse.dltk.ast.parser.ISourceParserConstants;
+import org.eclipse.dltk.ast.utils.ASTNodeIndex;
 import org.eclipse.dltk.compiler.CharOperation;
 import org.eclipse.dltk.compiler.env.IModuleSource;
 import org.eclipse.dltk.compiler.problem.IProblemReporter;
@@ -20,6 +22,7 @@ import org.eclipse.dltk.internal.core.ModelManager;
 public class SourceParserUtil {
 	private static final String AST = "ast"; //$NON-NLS-1$
 	private static final String ERRORS = "errors"; //$NON-NLS-1$
+	private static final String AST_INDEX = "astIndex"; //$NON-NLS-1$
 
 	private static boolean useASTCaching = true;
 	private static boolean useASTPersistenceCaching = true;
@@ -163,6 +166,36 @@ public class SourceParserUtil {
 		return moduleDeclaration;
 	}
 
+	/**
+	 * Returns the index of the AST nodes of the specified module, answering
+	 * which nodes cover the given offset. The index is built on the first
+	 * request and cached together with the AST, so it is discarded when the
+	 * module is changed.
+	 * 
+	 * @return the index or <code>null</code> if the module could not be
+	 *         parsed
+	 * @since 5.0
+	 */
+	public static ASTNodeIndex getNodeIndex(ISourceModule module) {
+		final IModuleDeclaration declaration = parse(module, null);
+		if (!(declaration instanceof ASTNode)) {
+			return null;
+		}
+		final ISourceModuleInfo mifo = useASTCaching ? getCache().get(module)
+				: null;
+		if (mifo != null) {
+			final ASTNodeIndex index = (ASTNodeIndex) mifo.get(AST_INDEX);
+			if (index != null && index.getRoot() == declaration) {
+				return index;
+			}
+		}
+		final ASTNodeIndex index = ASTNodeIndex.build((ASTNode) declaration);
+		if (mifo != null) {
+			mifo.put(AST_INDEX, index);
+		}
+		return index;
+	}
+
 	public static ModuleDeclaration getModuleDeclaration(ISourceModule module) {
 		return getModuleDeclaration(module, null,
 				ISourceParserConstants.DEFAULT);
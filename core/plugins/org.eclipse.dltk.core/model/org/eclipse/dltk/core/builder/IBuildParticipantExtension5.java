@@ -0,0 +1,28 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.builder;
+
+/**
+ * Optional interface of the build participants, which could process different
+ * modules concurrently.
+ * 
+ * @since 5.0
+ */
+public interface IBuildParticipantExtension5 extends IBuildParticipant {
+
+	/**
+	 * Returns <code>true</code> if {@link #build(IBuildContext)} (and
+	 * {@link IBuildParticipantExtension4#afterBuild(IBuildContext)} and
+	 * {@link IBuildParticipantExtension2#buildExternalModule(IBuildContext)}
+	 * if implemented) could be called concurrently from the different threads
+	 * for the different modules. Modules are built in parallel only if all the
+	 * participants of the project are thread safe.
+	 */
+	boolean isThreadSafe();
+}
@@ -0,0 +1,418 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.internal.core;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.dltk.ast.ASTListNode;
+import org.eclipse.dltk.ast.ASTNode;
+import org.eclipse.dltk.ast.declarations.Argument;
+import org.eclipse.dltk.ast.declarations.Declaration;
+import org.eclipse.dltk.ast.declarations.FieldDeclaration;
+import org.eclipse.dltk.ast.declarations.MethodDeclaration;
+import org.eclipse.dltk.ast.declarations.ModuleDeclaration;
+import org.eclipse.dltk.ast.declarations.TypeDeclaration;
+import org.eclipse.dltk.ast.expressions.BooleanLiteral;
+import org.eclipse.dltk.ast.expressions.CallArgumentsList;
+import org.eclipse.dltk.ast.expressions.CallExpression;
+import org.eclipse.dltk.ast.expressions.NilLiteral;
+import org.eclipse.dltk.ast.expressions.NumericLiteral;
+import org.eclipse.dltk.ast.expressions.StringLiteral;
+import org.eclipse.dltk.ast.references.ConstantReference;
+import org.eclipse.dltk.ast.references.SimpleReference;
+import org.eclipse.dltk.ast.references.TypeReference;
+import org.eclipse.dltk.ast.references.VariableKind;
+import org.eclipse.dltk.ast.references.VariableReference;
+import org.eclipse.dltk.ast.statements.Block;
+
+/**
+ * Binary encoding of the trees built from the core AST classes.
+ *
+ * Only the exact classes listed here are supported, since the subclasses
+ * contributed by the languages have the state of their own. If the tree
+ * contains any other node (or the state not restorable with the public API)
+ * the writing fails and the tree is not cached.
+ */
+class ASTSerializer {
+
+	private static final byte NULL = 0;
+	private static final byte MODULE = 1;
+	private static final byte BLOCK = 2;
+	private static final byte LIST = 3;
+	private static final byte TYPE = 4;
+	private static final byte METHOD = 5;
+	private static final byte FIELD = 6;
+	private static final byte ARGUMENT = 7;
+	private static final byte SIMPLE_REFERENCE = 8;
+	private static final byte VARIABLE_REFERENCE = 9;
+	private static final byte TYPE_REFERENCE = 10;
+	private static final byte CONSTANT_REFERENCE = 11;
+	private static final byte CALL = 12;
+	private static final byte CALL_ARGUMENTS = 13;
+	private static final byte STRING_LITERAL = 14;
+	private static final byte NUMERIC_LITERAL = 15;
+	private static final byte BOOLEAN_LITERAL = 16;
+	private static final byte NIL_LITERAL = 17;
+
+	private static final VariableKind[] VARIABLE_KINDS = {
+			VariableKind.UNKNOWN, VariableKind.LOCAL, VariableKind.GLOBAL,
+			VariableKind.INSTANCE, VariableKind.CLASS, VariableKind.MIXIN,
+			VariableKind.ARGUMENT };
+
+	private ASTSerializer() {
+	}
+
+	/**
+	 * Thrown when the tree contains the node which could not be written
+	 */
+	static class UnsupportedNodeException extends IOException {
+		private static final long serialVersionUID = 1L;
+
+		UnsupportedNodeException(Object node) {
+			super(String.valueOf(node != null ? node.getClass() : null));
+		}
+	}
+
+	/**
+	 * Writes the node and all its children
+	 *
+	 * @throws UnsupportedNodeException
+	 *             if some node in the tree is not supported
+	 */
+	static void write(DataOutputStream output, ASTNode node)
+			throws IOException {
+		if (node == null) {
+			output.writeByte(NULL);
+			return;
+		}
+		final Class<?> clazz = node.getClass();
+		if (clazz == ModuleDeclaration.class) {
+			final ModuleDeclaration module = (ModuleDeclaration) node;
+			if (module.scope != null || !isEmpty(module.getTypeList())
+					|| !isEmpty(module.getFunctionList())
+					|| !isEmpty(module.getVariablesList())) {
+				throw new UnsupportedNodeException(node);
+			}
+			output.writeByte(MODULE);
+			writeRange(output, node);
+			writeNodes(output, module.getStatements());
+		} else if (clazz == Block.class) {
+			output.writeByte(BLOCK);
+			writeRange(output, node);
+			writeNodes(output, ((Block) node).getStatements());
+		} else if (clazz == ASTListNode.class) {
+			output.writeByte(LIST);
+			writeRange(output, node);
+			writeNodes(output, ((ASTListNode) node).getChilds());
+		} else if (clazz == CallArgumentsList.class) {
+			output.writeByte(CALL_ARGUMENTS);
+			writeRange(output, node);
+			writeNodes(output, ((CallArgumentsList) node).getChilds());
+		} else if (clazz == TypeDeclaration.class) {
+			final TypeDeclaration type = (TypeDeclaration) node;
+			final String enclosingTypeName = type.getEnclosingTypeName();
+			if (enclosingTypeName == null || enclosingTypeName.startsWith("$") //$NON-NLS-1$
+					|| !isEmpty(type.getMethodList())
+					|| !isEmpty(type.getTypeList())
+					|| !isEmpty(type.getFieldList())) {
+				throw new UnsupportedNodeException(node);
+			}
+			output.writeByte(TYPE);
+			writeDeclaration(output, type);
+			writeString(output, enclosingTypeName);
+			write(output, type.getSuperClasses());
+			output.writeInt(type.getBodyStart());
+			output.writeInt(type.getBodyEnd());
+			write(output, type.getBody());
+		} else if (clazz == MethodDeclaration.class) {
+			final MethodDeclaration method = (MethodDeclaration) node;
+			final List<?> decorators = method.getDecorators();
+			if (method.scope != null || method.getArguments() == null
+					|| decorators != null && !decorators.isEmpty()) {
+				throw new UnsupportedNodeException(node);
+			}
+			output.writeByte(METHOD);
+			writeDeclaration(output, method);
+			writeString(output, method.getDeclaringTypeName());
+			output.writeBoolean(decorators != null);
+			writeNodes(output, method.getArguments());
+			write(output, method.getBody());
+		} else if (clazz == FieldDeclaration.class) {
+			output.writeByte(FIELD);
+			writeDeclaration(output, (Declaration) node);
+		} else if (clazz == Argument.class) {
+			output.writeByte(ARGUMENT);
+			writeDeclaration(output, (Declaration) node);
+			write(output, ((Argument) node).getInitialization());
+		} else if (clazz == SimpleReference.class) {
+			output.writeByte(SIMPLE_REFERENCE);
+			writeReference(output, (SimpleReference) node);
+		} else if (clazz == VariableReference.class) {
+			final VariableReference reference = (VariableReference) node;
+			final int kind = indexOf(reference.getVariableKind());
+			if (kind < 0) {
+				throw new UnsupportedNodeException(node);
+			}
+			output.writeByte(VARIABLE_REFERENCE);
+			writeReference(output, reference);
+			output.writeByte(kind);
+		} else if (clazz == TypeReference.class) {
+			output.writeByte(TYPE_REFERENCE);
+			writeReference(output, (SimpleReference) node);
+		} else if (clazz == ConstantReference.class) {
+			output.writeByte(CONSTANT_REFERENCE);
+			writeReference(output, (SimpleReference) node);
+		} else if (clazz == CallExpression.class) {
+			final CallExpression call = (CallExpression) node;
+			if (call.getCallName().getClass() != SimpleReference.class
+					|| call.getArgs().getClass() != CallArgumentsList.class) {
+				throw new UnsupportedNodeException(node);
+			}
+			output.writeByte(CALL);
+			writeRange(output, node);
+			write(output, call.getReceiver());
+			writeReference(output, call.getCallName());
+			write(output, call.getArgs());
+		} else if (clazz == StringLiteral.class) {
+			output.writeByte(STRING_LITERAL);
+			writeRange(output, node);
+			writeString(output, ((StringLiteral) node).getValue());
+		} else if (clazz == NumericLiteral.class) {
+			output.writeByte(NUMERIC_LITERAL);
+			writeRange(output, node);
+			output.writeLong(((NumericLiteral) node).getIntValue());
+		} else if (clazz == BooleanLiteral.class) {
+			final BooleanLiteral literal = (BooleanLiteral) node;
+			if (!Boolean.toString(literal.boolValue()).equals(
+					literal.getValue())) {
+				throw new UnsupportedNodeException(node);
+			}
+			output.writeByte(BOOLEAN_LITERAL);
+			writeRange(output, node);
+			output.writeBoolean(literal.boolValue());
+		} else if (clazz == NilLiteral.class) {
+			output.writeByte(NIL_LITERAL);
+			writeRange(output, node);
+		} else {
+			throw new UnsupportedNodeException(node);
+		}
+	}
+
+	/**
+	 * Reads the node written by {@link #write(DataOutputStream, ASTNode)}
+	 */
+	static ASTNode read(ByteBuffer input) throws IOException {
+		final byte tag = input.get();
+		switch (tag) {
+		case NULL:
+			return null;
+		case MODULE: {
+			final int start = input.getInt();
+			final ModuleDeclaration module = new ModuleDeclaration(input
+					.getInt());
+			module.setStart(start);
+			for (ASTNode statement : readNodes(input)) {
+				module.addStatement(statement);
+			}
+			return module;
+		}
+		case BLOCK: {
+			final int start = input.getInt();
+			final int end = input.getInt();
+			return new Block(start, end, readNodes(input));
+		}
+		case LIST: {
+			final int start = input.getInt();
+			final int end = input.getInt();
+			return new ASTListNode(start, end, readNodes(input));
+		}
+		case CALL_ARGUMENTS: {
+			final CallArgumentsList list = new CallArgumentsList(input
+					.getInt(), input.getInt());
+			list.setChilds(readNodes(input));
+			return list;
+		}
+		case TYPE: {
+			final TypeDeclaration type = new TypeDeclaration(null, 0, 0, 0, 0);
+			readDeclaration(input, type);
+			final String enclosingTypeName = readString(input);
+			type.setEnclosingTypeName(enclosingTypeName);
+			type.setSuperClasses((ASTListNode) read(input));
+			final int bodyStart = input.getInt();
+			final int bodyEnd = input.getInt();
+			type.setBody(bodyStart, (Block) read(input), bodyEnd);
+			return type;
+		}
+		case METHOD: {
+			final MethodDeclaration method = new MethodDeclaration(null, 0, 0,
+					0, 0);
+			readDeclaration(input, method);
+			method.setDeclaringTypeName(readString(input));
+			if (input.get() != 0) {
+				method.setDecorators(new ArrayList<ASTNode>());
+			}
+			method.acceptArguments(readNodes(input));
+			method.acceptBody((Block) read(input), false);
+			return method;
+		}
+		case FIELD: {
+			final FieldDeclaration field = new FieldDeclaration(null, 0, 0, 0,
+					0);
+			readDeclaration(input, field);
+			return field;
+		}
+		case ARGUMENT: {
+			final Argument argument = new Argument();
+			readDeclaration(input, argument);
+			argument.setInitializationExpression(read(input));
+			return argument;
+		}
+		case SIMPLE_REFERENCE:
+			return new SimpleReference(input.getInt(), input.getInt(),
+					readString(input));
+		case VARIABLE_REFERENCE: {
+			final int start = input.getInt();
+			final int end = input.getInt();
+			final String name = readString(input);
+			return new VariableReference(start, end, name,
+					VARIABLE_KINDS[input.get()]);
+		}
+		case TYPE_REFERENCE:
+			return new TypeReference(input.getInt(), input.getInt(),
+					readString(input));
+		case CONSTANT_REFERENCE:
+			return new ConstantReference(input.getInt(), input.getInt(),
+					readString(input));
+		case CALL: {
+			final int start = input.getInt();
+			final int end = input.getInt();
+			final ASTNode receiver = read(input);
+			final SimpleReference name = new SimpleReference(input.getInt(),
+					input.getInt(), readString(input));
+			return new CallExpression(start, end, receiver, name,
+					(CallArgumentsList) read(input));
+		}
+		case STRING_LITERAL:
+			return new StringLiteral(input.getInt(), input.getInt(),
+					readString(input));
+		case NUMERIC_LITERAL:
+			return new NumericLiteral(input.getInt(), input.getInt(), input
+					.getLong());
+		case BOOLEAN_LITERAL:
+			return new BooleanLiteral(input.getInt(), input.getInt(), input
+					.get() != 0);
+		case NIL_LITERAL:
+			return new NilLiteral(input.getInt(), input.getInt());
+		default:
+			throw new IOException("Unknown node " + tag); //$NON-NLS-1$
+		}
+	}
+
+	private static void writeRange(DataOutputStream output, ASTNode node)
+			throws IOException {
+		output.writeInt(node.sourceStart());
+		output.writeInt(node.sourceEnd());
+	}
+
+	private static void writeNodes(DataOutputStream output, List<?> nodes)
+			throws IOException {
+		output.writeInt(nodes.size());
+		for (Object node : nodes) {
+			if (!(node instanceof ASTNode)) {
+				throw new UnsupportedNodeException(node);
+			}
+			write(output, (ASTNode) node);
+		}
+	}
+
+	private static List<ASTNode> readNodes(ByteBuffer input)
+			throws IOException {
+		final int size = input.getInt();
+		final List<ASTNode> nodes = new ArrayList<ASTNode>(size);
+		for (int i = 0; i < size; ++i) {
+			nodes.add(read(input));
+		}
+		return nodes;
+	}
+
+	private static void writeReference(DataOutputStream output,
+			SimpleReference reference) throws IOException {
+		writeRange(output, reference);
+		writeString(output, reference.getName());
+	}
+
+	private static void writeDeclaration(DataOutputStream output,
+			Declaration declaration) throws IOException {
+		final SimpleReference ref = declaration.getRef();
+		if (ref == null || ref.getClass() != SimpleReference.class) {
+			throw new UnsupportedNodeException(declaration);
+		}
+		writeRange(output, declaration);
+		writeReference(output, ref);
+		output.writeInt(declaration.getModifiers());
+		writeString(output, declaration.getComments());
+	}
+
+	private static void readDeclaration(ByteBuffer input,
+			Declaration declaration) {
+		declaration.setStart(input.getInt());
+		declaration.setEnd(input.getInt());
+		declaration.setNameStart(input.getInt());
+		declaration.setNameEnd(input.getInt());
+		declaration.setName(readString(input));
+		declaration.setModifiers(input.getInt());
+		declaration.setComments(readString(input));
+	}
+
+	private static boolean isEmpty(List<?> list) {
+		return list == null || list.isEmpty();
+	}
+
+	private static int indexOf(VariableKind kind) {
+		for (int i = 0; i < VARIABLE_KINDS.length; ++i) {
+			if (VARIABLE_KINDS[i] == kind) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Writes the string (which could be <code>null</code>) in the format
+	 * expected by {@link #readString(ByteBuffer)}
+	 */
+	static void writeString(DataOutputStream output, String value)
+			throws IOException {
+		if (value == null) {
+			output.writeInt(-1);
+		} else {
+			output.writeInt(value.length());
+			output.writeChars(value);
+		}
+	}
+
+	/**
+	 * Reads the string written by
+	 * {@link #writeString(DataOutputStream, String)}
+	 */
+	static String readString(ByteBuffer input) {
+		final int length = input.getInt();
+		if (length < 0) {
+			return null;
+		}
+		final char[] chars = new char[length];
+		input.asCharBuffer().get(chars);
+		input.position(input.position() + length * 2);
+		return new String(chars);
+	}
+}
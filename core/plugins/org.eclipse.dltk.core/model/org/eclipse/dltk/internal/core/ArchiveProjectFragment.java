@@ -77,11 +77,16 @@ public class ArchiveProjectFragment extends ProjectFragment {
 			// always create the default package
 			packageFragToTypes.put(CharOperation.NO_STRINGS, new ArrayList[] {
 					EMPTY_LIST, EMPTY_LIST });
-			for (Enumeration<? extends IArchiveEntry> e = archive
-					.getArchiveEntries(); e.hasMoreElements();) {
-				IArchiveEntry member = e.nextElement();
-				initPackageFragToTypes(packageFragToTypes, member.getName(),
-						member.isDirectory());
+			if (archive instanceof MappedArchiveFile) {
+				initPackageFragToTypes(packageFragToTypes,
+						(MappedArchiveFile) archive);
+			} else {
+				for (Enumeration<? extends IArchiveEntry> e = archive
+						.getArchiveEntries(); e.hasMoreElements();) {
+					IArchiveEntry member = e.nextElement();
+					initPackageFragToTypes(packageFragToTypes,
+							member.getName(), member.isDirectory());
+				}
 			}
 			// loop through all of referenced packages, creating package
 			// fragments if necessary
@@ -163,6 +168,44 @@ public class ArchiveProjectFragment extends ProjectFragment {
 		int lastSeparator = isDirectory ? entryName.length() - 1 : entryName
 				.lastIndexOf('/');
 		String[] pkgName = Util.splitOn('/', entryName, 0, lastSeparator);
+		String[] existing = initPackages(packageFragToTypes, pkgName);
+		if (isDirectory)
+			return;
+		addEntry(packageFragToTypes, existing,
+				existing.length == pkgName.length, entryName, lastSeparator);
+	}
+
+	/*
+	 * Uses the folder index of the archive, so the package of the entries is
+	 * resolved once per folder.
+	 */
+	private void initPackageFragToTypes(
+			HashtableOfArrayToObject packageFragToTypes,
+			MappedArchiveFile archive) {
+		for (String folder : archive.getFolders()) {
+			String[] pkgName = Util.splitOn('/', folder, 0, folder.length());
+			String[] existing = initPackages(packageFragToTypes, pkgName);
+			boolean isPackage = existing.length == pkgName.length;
+			int lastSeparator = folder.length() == 0 ? -1 : folder.length();
+			for (IArchiveEntry member : archive.getFolderEntries(folder)) {
+				if (member.isDirectory()) {
+					initPackageFragToTypes(packageFragToTypes,
+							member.getName(), true);
+				} else {
+					addEntry(packageFragToTypes, existing, isPackage,
+							member.getName(), lastSeparator);
+				}
+			}
+		}
+	}
+
+	/*
+	 * Creates the packages for the valid segments of the name, returns the
+	 * key of the deepest package, shorter than the name if some segment is not
+	 * a valid package name.
+	 */
+	private String[] initPackages(HashtableOfArrayToObject packageFragToTypes,
+			String[] pkgName) {
 		String[] existing = null;
 		int length = pkgName.length;
 		int existingLength = length;
@@ -183,21 +226,19 @@ public class ArchiveProjectFragment extends ProjectFragment {
 						EMPTY_LIST });
 			} else {
 				// non-script resource folder
-				if (!isDirectory) {
-					ArrayList[] children = (ArrayList[]) packageFragToTypes
-							.get(existing);
-					if (children[1/* NON_SCRIPT */] == EMPTY_LIST)
-						children[1/* NON_SCRIPT */] = new ArrayList();
-					children[1/* NON_SCRIPT */].add(entryName);
-				}
-				return;
+				break;
 			}
 		}
-		if (isDirectory)
-			return;
-		// add classfile info amongst children
+		return existing;
+	}
+
+	private void addEntry(HashtableOfArrayToObject packageFragToTypes,
+			String[] pkgName, boolean isPackage, String entryName,
+			int lastSeparator) {
 		ArrayList[] children = (ArrayList[]) packageFragToTypes.get(pkgName);
-		if (Util.isValidSourceModuleName(getScriptProject(), entryName)) {
+		if (isPackage
+				&& Util.isValidSourceModuleName(getScriptProject(), entryName)) {
+			// add classfile info amongst children
 			if (children[0/* SCRIPT */] == EMPTY_LIST)
 				children[0/* SCRIPT */] = new ArrayList();
 			String fileName = entryName.substring(lastSeparator + 1);
@@ -0,0 +1,364 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.internal.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.eclipse.core.runtime.ISafeRunnable;
+import org.eclipse.core.runtime.PerformanceStats;
+import org.eclipse.core.runtime.SafeRunner;
+import org.eclipse.dltk.core.ElementChangedEvent;
+import org.eclipse.dltk.core.IAsyncElementChangedListener;
+import org.eclipse.dltk.core.IElementChangedListener;
+import org.eclipse.dltk.core.IModelElementDelta;
+import org.eclipse.dltk.internal.core.util.Util;
+
+/**
+ * Delivers the element changed events to the
+ * {@link IAsyncElementChangedListener}s from the background threads.
+ *
+ * The events are queued for each listener and the listener is notified from
+ * one thread at a time, in the order the events were fired. When more than one
+ * event of the same type is waiting, they are merged into the single delta.
+ */
+public class AsyncDeltaDispatcher {
+
+	private static final int THREADS = 2;
+
+	/**
+	 * Notification statistics of the single listener
+	 */
+	public static class Statistics {
+		private final IElementChangedListener listener;
+		private final int posted;
+		private final int delivered;
+		private final int pending;
+		private final long totalLatency;
+		private final long maxLatency;
+
+		Statistics(ListenerQueue queue) {
+			this.listener = queue.listener;
+			this.posted = queue.posted;
+			this.delivered = queue.delivered;
+			this.pending = queue.pending.size();
+			this.totalLatency = queue.totalLatency;
+			this.maxLatency = queue.maxLatency;
+		}
+
+		public IElementChangedListener getListener() {
+			return listener;
+		}
+
+		/**
+		 * Returns the number of the events fired to the listener
+		 */
+		public int getPostedCount() {
+			return posted;
+		}
+
+		/**
+		 * Returns the number of the listener notifications, could be less than
+		 * the number of the posted events because of the merging.
+		 */
+		public int getDeliveredCount() {
+			return delivered;
+		}
+
+		/**
+		 * Returns the number of the events waiting for the delivery
+		 */
+		public int getPendingCount() {
+			return pending;
+		}
+
+		/**
+		 * Returns the average time in milliseconds from the moment the event
+		 * was fired until the listener has processed it.
+		 */
+		public long getAverageLatency() {
+			return delivered != 0 ? totalLatency / delivered / 1000000 : 0;
+		}
+
+		/**
+		 * Returns the maximum time in milliseconds from the moment the event
+		 * was fired until the listener has processed it.
+		 */
+		public long getMaxLatency() {
+			return maxLatency / 1000000;
+		}
+
+		@Override
+		public String toString() {
+			return listener + ": posted=" + posted + " delivered=" + delivered //$NON-NLS-1$ //$NON-NLS-2$
+					+ " pending=" + pending + " avg=" + getAverageLatency() //$NON-NLS-1$ //$NON-NLS-2$
+					+ "ms max=" + getMaxLatency() + "ms"; //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
+	private static class PendingDelta {
+		final IModelElementDelta delta;
+		final int eventType;
+		final long time;
+
+		PendingDelta(IModelElementDelta delta, int eventType, long time) {
+			this.delta = delta;
+			this.eventType = eventType;
+			this.time = time;
+		}
+	}
+
+	private class ListenerQueue implements Runnable {
+		final IElementChangedListener listener;
+		final LinkedList<PendingDelta> pending = new LinkedList<PendingDelta>();
+		boolean scheduled;
+		boolean removed;
+		int posted;
+		int delivered;
+		long totalLatency;
+		long maxLatency;
+
+		ListenerQueue(IElementChangedListener listener) {
+			this.listener = listener;
+		}
+
+		public void run() {
+			final List<PendingDelta> batch = new ArrayList<PendingDelta>();
+			synchronized (this) {
+				if (removed || pending.isEmpty()) {
+					scheduled = false;
+					notifyAll();
+					return;
+				}
+				final int eventType = pending.getFirst().eventType;
+				while (!pending.isEmpty()
+						&& pending.getFirst().eventType == eventType) {
+					batch.add(pending.removeFirst());
+				}
+			}
+			final IModelElementDelta delta = merge(batch);
+			if (delta != null) {
+				notifyListener(listener, new ElementChangedEvent(delta, batch
+						.get(0).eventType));
+			}
+			final long latency = System.nanoTime() - batch.get(0).time;
+			synchronized (this) {
+				++delivered;
+				totalLatency += latency;
+				if (latency > maxLatency) {
+					maxLatency = latency;
+				}
+				if (removed || pending.isEmpty() || !schedule(this)) {
+					scheduled = false;
+					notifyAll();
+				}
+			}
+		}
+
+		synchronized void waitForIdle() throws InterruptedException {
+			while (scheduled && !removed) {
+				wait();
+			}
+		}
+
+		/**
+		 * Discards the pending events and releases the threads waiting for
+		 * this queue to become idle.
+		 */
+		synchronized void discard() {
+			removed = true;
+			pending.clear();
+			notifyAll();
+		}
+	}
+
+	private final Map<IElementChangedListener, ListenerQueue> queues = new HashMap<IElementChangedListener, ListenerQueue>();
+	private ExecutorService executor = null;
+	private boolean shutdown = false;
+
+	private static ExecutorService createExecutor() {
+		return Executors.newFixedThreadPool(THREADS, new ThreadFactory() {
+			private int counter = 0;
+
+			public Thread newThread(Runnable r) {
+				final Thread thread = new Thread(r,
+						"Element Changed Notifier Worker-" + (++counter)); //$NON-NLS-1$
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Queues the delta for the delivery to the specified listener.
+	 */
+	public void post(IElementChangedListener listener,
+			IModelElementDelta delta, int eventType) {
+		final ListenerQueue queue;
+		synchronized (this) {
+			if (shutdown) {
+				return;
+			}
+			ListenerQueue q = queues.get(listener);
+			if (q == null) {
+				q = new ListenerQueue(listener);
+				queues.put(listener, q);
+			}
+			queue = q;
+		}
+		synchronized (queue) {
+			queue.pending.add(new PendingDelta(delta, eventType, System
+					.nanoTime()));
+			++queue.posted;
+			if (!queue.scheduled) {
+				queue.scheduled = schedule(queue);
+			}
+		}
+	}
+
+	private synchronized boolean schedule(ListenerQueue queue) {
+		if (shutdown) {
+			return false;
+		}
+		if (executor == null) {
+			executor = createExecutor();
+		}
+		executor.execute(queue);
+		return true;
+	}
+
+	/**
+	 * Discards the events not yet delivered to the specified listener.
+	 */
+	public void remove(IElementChangedListener listener) {
+		final ListenerQueue queue;
+		synchronized (this) {
+			queue = queues.remove(listener);
+		}
+		if (queue != null) {
+			queue.discard();
+		}
+	}
+
+	/**
+	 * Merges the deltas of the same type. The deltas are copied before merging
+	 * since the original ones could be already delivered to the other
+	 * listeners.
+	 */
+	private static IModelElementDelta merge(List<PendingDelta> batch) {
+		if (batch.size() == 1) {
+			return batch.get(0).delta;
+		}
+		final List<ModelElementDelta> deltas = new ArrayList<ModelElementDelta>(
+				batch.size());
+		for (PendingDelta pending : batch) {
+			deltas.add(((ModelElementDelta) pending.delta).copy());
+		}
+		return DeltaProcessor.mergeDeltas(ModelManager.getModelManager()
+				.getModel(), deltas);
+	}
+
+	private static void notifyListener(final IElementChangedListener listener,
+			final ElementChangedEvent event) {
+		long start = -1;
+		if (DeltaProcessor.VERBOSE) {
+			start = System.currentTimeMillis();
+		}
+		SafeRunner.run(new ISafeRunnable() {
+			public void handleException(Throwable exception) {
+				Util.log(exception,
+						"Exception occurred in listener of script element change notification"); //$NON-NLS-1$
+			}
+
+			public void run() throws Exception {
+				PerformanceStats stats = null;
+				if (DeltaProcessor.PERF) {
+					stats = PerformanceStats.getStats(
+							ModelManager.DELTA_LISTENER_PERF, listener);
+					stats.startRun();
+				}
+				listener.elementChanged(event);
+				if (DeltaProcessor.PERF) {
+					stats.endRun();
+				}
+			}
+		});
+		if (DeltaProcessor.VERBOSE) {
+			System.out.println("Async listener " + listener + " -> " //$NON-NLS-1$ //$NON-NLS-2$
+					+ (System.currentTimeMillis() - start) + "ms"); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Returns the notification statistics of the registered asynchronous
+	 * listeners.
+	 */
+	public List<Statistics> getStatistics() {
+		final List<ListenerQueue> copy;
+		synchronized (this) {
+			copy = new ArrayList<ListenerQueue>(queues.values());
+		}
+		final List<Statistics> result = new ArrayList<Statistics>(copy.size());
+		for (ListenerQueue queue : copy) {
+			synchronized (queue) {
+				result.add(new Statistics(queue));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Waits until all the queued events are delivered.
+	 */
+	public void waitForIdle() throws InterruptedException {
+		final List<ListenerQueue> copy;
+		synchronized (this) {
+			copy = new ArrayList<ListenerQueue>(queues.values());
+		}
+		for (ListenerQueue queue : copy) {
+			queue.waitForIdle();
+		}
+	}
+
+	public void reportStatistics() {
+		if (DeltaProcessor.VERBOSE) {
+			for (Statistics statistics : getStatistics()) {
+				System.out.println(statistics);
+			}
+		}
+	}
+
+	/**
+	 * Stops the background threads, the pending events are discarded.
+	 */
+	public void shutdown() {
+		final ExecutorService e;
+		final List<ListenerQueue> copy;
+		synchronized (this) {
+			shutdown = true;
+			e = executor;
+			executor = null;
+			copy = new ArrayList<ListenerQueue>(queues.values());
+			queues.clear();
+		}
+		// the queues scheduled but not started are dropped by the executor
+		for (ListenerQueue queue : copy) {
+			queue.discard();
+		}
+		if (e != null) {
+			e.shutdownNow();
+		}
+	}
+}
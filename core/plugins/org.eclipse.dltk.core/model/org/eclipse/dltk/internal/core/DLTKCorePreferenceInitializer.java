@@ -45,7 +45,10 @@ public class DLTKCorePreferenceInitializer extends
 				DLTKCore.CORE_ENABLE_BUILDPATH_EXCLUSION_PATTERNS,
 				DLTKCore.ENABLED);
 		defaultOptionsMap.put(DLTKCore.INDEXER_ENABLED, DLTKCore.ENABLED);
+		defaultOptionsMap.put(DLTKCore.INDEXER_THREADS, "1"); //$NON-NLS-1$
 		defaultOptionsMap.put(DLTKCore.BUILDER_ENABLED, DLTKCore.ENABLED);
+		defaultOptionsMap.put(DLTKCore.BUILDER_THREADS, "1"); //$NON-NLS-1$
+		defaultOptionsMap.put(DLTKCore.SEARCH_THREADS, "1"); //$NON-NLS-1$
 		defaultOptionsMap.put(DLTKCore.CODEASSIST_CAMEL_CASE_MATCH,
 				DLTKCore.ENABLED);
 
@@ -50,6 +50,11 @@ public class DeltaProcessingState implements IResourceChangeListener {
 	public int[] elementChangedListenerMasks = new int[5];
 	public int elementChangedListenerCount = 0;
 
+	/*
+	 * Notifies the asynchronous element changed listeners
+	 */
+	public final AsyncDeltaDispatcher asyncDispatcher = new AsyncDeltaDispatcher();
+
 	/*
 	 * Collection of pre script resource change listeners
 	 */
@@ -490,6 +495,7 @@ public class DeltaProcessingState implements IResourceChangeListener {
 				this.elementChangedListeners = newListeners;
 				this.elementChangedListenerMasks = newMasks;
 				this.elementChangedListenerCount--;
+				this.asyncDispatcher.remove(listener);
 				return;
 			}
 		}
@@ -38,6 +38,7 @@ import org.eclipse.core.runtime.SafeRunner;
 import org.eclipse.dltk.core.DLTKCore;
 import org.eclipse.dltk.core.DLTKLanguageManager;
 import org.eclipse.dltk.core.ElementChangedEvent;
+import org.eclipse.dltk.core.IAsyncElementChangedListener;
 import org.eclipse.dltk.core.IBuildpathEntry;
 import org.eclipse.dltk.core.IDLTKLanguageToolkit;
 import org.eclipse.dltk.core.IElementChangedListener;
@@ -54,6 +55,7 @@ import org.eclipse.dltk.core.ModelException;
 import org.eclipse.dltk.core.environment.EnvironmentManager;
 import org.eclipse.dltk.core.environment.IEnvironment;
 import org.eclipse.dltk.core.environment.IFileHandle;
+import org.eclipse.dltk.core.internal.environment.FileInfoCache;
 import org.eclipse.dltk.core.search.indexing.IndexManager;
 import org.eclipse.dltk.core.search.indexing.SourceIndexerRequestor;
 import org.eclipse.dltk.internal.core.builder.ScriptBuilder;
@@ -225,6 +227,10 @@ public class DeltaProcessor {
 	private final ModelUpdater modelUpdater = new ModelUpdater();
 	/* A set of IDLTKProject whose caches need to be reset */
 	private HashSet<IScriptProject> projectCachesToReset = new HashSet<IScriptProject>();
+	/*
+	 * A set of IScriptProject whose source modules caches need to be reset
+	 */
+	private HashSet<IScriptProject> sourceModuleCachesToReset = new HashSet<IScriptProject>();
 	/*
 	 * A list of IModelElement used as a scope for external archives refresh
 	 * during POST_CHANGE. This is null if no refresh is needed.
@@ -327,6 +333,8 @@ public class DeltaProcessor {
 	 */
 	public void checkExternalChanges(IModelElement[] elementsToRefresh,
 			IProgressMonitor monitor) throws ModelException {
+		// explicit refresh, file attributes should be fetched again
+		FileInfoCache.getDefault().clear();
 		try {
 			for (int i = 0, length = elementsToRefresh.length; i < length; i++) {
 				this.addForRefresh(elementsToRefresh[i]);
@@ -1254,6 +1262,9 @@ public class DeltaProcessor {
 				project = (ScriptProject) element.getScriptProject();
 				this.projectCachesToReset.add(project);
 				break;
+			case IModelElement.SOURCE_MODULE:
+				this.sourceModuleCachesToReset.add(element.getScriptProject());
+				break;
 			}
 		}
 	}
@@ -1351,6 +1362,9 @@ public class DeltaProcessor {
 			this.projectCachesToReset.add(project);
 			break;
 		}
+		case IModelElement.SOURCE_MODULE:
+			this.sourceModuleCachesToReset.add(element.getScriptProject());
+			break;
 		}
 	}
 
@@ -1463,7 +1477,7 @@ public class DeltaProcessor {
 		}
 		IModelElementDelta deltaToNotify;
 		if (customDelta == null) {
-			deltaToNotify = this.mergeDeltas(this.modelDeltas);
+			deltaToNotify = mergeDeltas(this.manager.model, this.modelDeltas);
 		} else {
 			deltaToNotify = customDelta;
 		}
@@ -1535,8 +1549,8 @@ public class DeltaProcessor {
 
 	private void fireReconcileDelta(IElementChangedListener[] listeners,
 			int[] listenerMask, int listenerCount) {
-		IModelElementDelta deltaToNotify = this
-				.mergeDeltas(this.reconcileDeltas.values());
+		IModelElementDelta deltaToNotify = mergeDeltas(this.manager.model,
+				this.reconcileDeltas.values());
 		if (DEBUG) {
 			System.out
 					.println("FIRING POST_RECONCILE Delta [" + Thread.currentThread() + "]:"); //$NON-NLS-1$//$NON-NLS-2$
@@ -1621,7 +1635,7 @@ public class DeltaProcessor {
 	/*
 	 * Merges all awaiting deltas.
 	 */
-	private IModelElementDelta mergeDeltas(Collection deltas) {
+	static IModelElementDelta mergeDeltas(Model model, Collection deltas) {
 		if (deltas.size() == 0) {
 			return null;
 		}
@@ -1633,7 +1647,7 @@ public class DeltaProcessor {
 					.println("MERGING " + deltas.size() + " DELTAS [" + Thread.currentThread() + "]"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 		}
 		Iterator iterator = deltas.iterator();
-		ModelElementDelta rootDelta = new ModelElementDelta(this.manager.model);
+		ModelElementDelta rootDelta = new ModelElementDelta(model);
 		boolean insertedTree = false;
 		while (iterator.hasNext()) {
 			ModelElementDelta delta = (ModelElementDelta) iterator.next();
@@ -1641,7 +1655,7 @@ public class DeltaProcessor {
 				System.out.println(delta.toString());
 			}
 			IModelElement element = delta.getElement();
-			if (this.manager.model.equals(element)) {
+			if (model.equals(element)) {
 				IModelElementDelta[] children = delta.getAffectedChildren();
 				for (int j = 0; j < children.length; j++) {
 					ModelElementDelta projectDelta = (ModelElementDelta) children[j];
@@ -1672,9 +1686,19 @@ public class DeltaProcessor {
 			int[] listenerMask, int listenerCount) {
 		final ElementChangedEvent extraEvent = new ElementChangedEvent(
 				deltaToNotify, eventType);
+		IModelElementDelta asyncDelta = null;
 		for (int i = 0; i < listenerCount; i++) {
 			if ((listenerMask[i] & eventType) != 0) {
 				final IElementChangedListener listener = listeners[i];
+				if (listener instanceof IAsyncElementChangedListener) {
+					if (asyncDelta == null) {
+						// without the resource deltas, invalid after this call
+						asyncDelta = ((ModelElementDelta) deltaToNotify).copy();
+					}
+					this.state.asyncDispatcher.post(listener, asyncDelta,
+							eventType);
+					continue;
+				}
 				long start = -1;
 				if (VERBOSE) {
 					System.out
@@ -1876,6 +1900,7 @@ public class DeltaProcessor {
 			this.currentDelta = null;
 			this.rootsToRefresh.clear();
 			this.projectCachesToReset.clear();
+			this.sourceModuleCachesToReset.clear();
 			this.postActions.clear();
 		}
 	}
@@ -1894,12 +1919,23 @@ public class DeltaProcessor {
 	 * their caches and their dependents
 	 */
 	private void resetProjectCaches() {
+		HashMap projectDepencies = this.state.projectDependencies;
+		if (this.sourceModuleCachesToReset.size() != 0) {
+			// the name lookups of the dependents include the modules too
+			HashSet<IScriptProject> affected = new HashSet<IScriptProject>(
+					this.sourceModuleCachesToReset);
+			for (IScriptProject project : this.sourceModuleCachesToReset) {
+				this.addDependentProjects(project, projectDepencies, affected);
+			}
+			for (IScriptProject project : affected) {
+				((ScriptProject) project).resetSourceModuleCaches();
+			}
+		}
 		if (this.projectCachesToReset.size() == 0) {
 			return;
 		}
 		ModelManager.getModelManager().resetZIPTypeCache();
 		Iterator iterator = this.projectCachesToReset.iterator();
-		HashMap projectDepencies = this.state.projectDependencies;
 		HashSet affectedDependents = new HashSet();
 		while (iterator.hasNext()) {
 			ScriptProject project = (ScriptProject) iterator.next();
@@ -9,6 +9,10 @@
  *******************************************************************************/
 package org.eclipse.dltk.internal.core;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.eclipse.dltk.core.IModelElement;
 import org.eclipse.dltk.core.IProjectFragment;
 import org.eclipse.dltk.core.IScriptFolder;
@@ -17,10 +21,27 @@ import org.eclipse.dltk.internal.core.util.LRUCache;
 
 /**
  * An LRU cache of <code>ModelElements</code>.
+ * 
+ * <p>
+ * The LRU structures are modified only while the lock of the
+ * {@link ModelManager} is held, but the values could be read without any lock
+ * with {@link #getConcurrently(Object)}. Such accesses are recorded and applied
+ * to the LRU queue on the next modification.
  */
 public class ElementCache extends OverflowingLRUCache {
+	/**
+	 * Maximum number of the recorded accesses, the ones above are ignored
+	 */
+	private static final int MAX_ACCESSED = 256;
+
 	private IModelElement spaceLimitParent = null;
 
+	private final ConcurrentHashMap<Object, Object> values = new ConcurrentHashMap<Object, Object>();
+
+	private final ConcurrentLinkedQueue<Object> accessed = new ConcurrentLinkedQueue<Object>();
+
+	private final AtomicInteger accessedCount = new AtomicInteger();
+
 	/**
 	 * Constructs a new element cache of the given size.
 	 */
@@ -83,6 +104,66 @@ public class ElementCache extends OverflowingLRUCache {
 		}
 	}
 
+	/**
+	 * Returns the value for the given key or <code>null</code>. Could be
+	 * called without holding the lock, the access is recorded and applied to
+	 * the LRU queue later by {@link #applyAccesses()}.
+	 */
+	public Object getConcurrently(Object key) {
+		final Object value = this.values.get(key);
+		if (value != null && this.accessedCount.get() < MAX_ACCESSED) {
+			this.accessedCount.incrementAndGet();
+			this.accessed.add(key);
+		}
+		return value;
+	}
+
+	/**
+	 * Returns the value for the given key without disturbing the cache
+	 * ordering. Could be called without holding the lock.
+	 */
+	public Object peekConcurrently(Object key) {
+		return this.values.get(key);
+	}
+
+	/**
+	 * Moves the entries accessed by {@link #getConcurrently(Object)} to the
+	 * head of the LRU queue. Must be called with the lock being held.
+	 */
+	public void applyAccesses() {
+		Object key;
+		while ((key = this.accessed.poll()) != null) {
+			this.accessedCount.decrementAndGet();
+			get(key);
+		}
+	}
+
+	@Override
+	public Object put(Object key, Object value) {
+		super.put(key, value);
+		// existing entry could be updated in place
+		final LRUCacheEntry entry = (LRUCacheEntry) this.fEntryTable.get(key);
+		if (entry != null) {
+			this.values.put(key, entry._fValue);
+		}
+		return value;
+	}
+
+	@Override
+	protected void privateAddEntry(LRUCacheEntry entry, boolean shuffle) {
+		super.privateAddEntry(entry, shuffle);
+		if (!shuffle && entry._fValue != null) {
+			this.values.put(entry._fKey, entry._fValue);
+		}
+	}
+
+	@Override
+	protected void privateNotifyDeletionFromCache(LRUCacheEntry entry) {
+		if (entry._fValue != null) {
+			this.values.remove(entry._fKey, entry._fValue);
+		}
+	}
+
 	/*
 	 * Returns a new instance of the receiver.
 	 */
@@ -31,6 +31,7 @@ import org.eclipse.dltk.core.ModelException;
 import org.eclipse.dltk.core.WorkingCopyOwner;
 import org.eclipse.dltk.core.environment.EnvironmentManager;
 import org.eclipse.dltk.core.environment.EnvironmentPathUtils;
+import org.eclipse.dltk.core.environment.FileHandles;
 import org.eclipse.dltk.core.environment.IEnvironment;
 import org.eclipse.dltk.core.environment.IFileHandle;
 import org.eclipse.dltk.core.internal.environment.EFSFileHandle;
@@ -72,6 +73,11 @@ public class ExternalProjectFragment extends ProjectFragment implements
 		char[][] inclusionPatterns = this.fullInclusionPatternChars();
 		char[][] exclusionPatterns = this.fullExclusionPatternChars();
 		Set realPaths = new HashSet();
+		// list the whole tree at once, the scan below is served from the cache
+		final IFileHandle root = EnvironmentPathUtils.getFile(this.fPath);
+		if (root != null) {
+			FileHandles.prefetch(root, null);
+		}
 		this.computeFolderChildren(this.fPath, !Util.isExcluded(this.fPath,
 				inclusionPatterns, exclusionPatterns, true), vChildren,
 				vForeign, newElements, inclusionPatterns, exclusionPatterns,
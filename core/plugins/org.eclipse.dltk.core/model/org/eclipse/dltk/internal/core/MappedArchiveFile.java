@@ -0,0 +1,549 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.internal.core;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+import org.eclipse.dltk.core.IArchive;
+import org.eclipse.dltk.core.IArchiveEntry;
+
+/**
+ * Read only {@link IArchive} implementation for the zip files, which maps the
+ * file into the memory and parses the central directory only once.
+ *
+ * The instances are immutable and shared between all the threads, they are
+ * obtained with {@link #open(File)} and each open is paired with
+ * {@link #close()}, which decrements the reference counter. Up to
+ * {@link #UNUSED_LIMIT} archives not used at the moment are kept open for the
+ * next requests, the least recently used ones above that limit are released.
+ * The shared instance is discarded when the size or the modification time of
+ * the file changes or on {@link #flush()} and released when its last user
+ * closes it. The stored entries are read directly from the mapped buffer, the
+ * deflated ones are inflated on the fly.
+ *
+ * Archives not supported by this implementation (ZIP64, spanned, encrypted or
+ * bigger than 2Gb) are opened with {@link ZipArchiveFile}.
+ *
+ * The mapping can't be unmapped explicitly, the released instance drops its
+ * buffer, so the mapping is reclaimed by the garbage collector unless the
+ * streams opened before still use it.
+ */
+public class MappedArchiveFile implements IArchive {
+
+	public static class Entry implements IArchiveEntry {
+		private final String name;
+		private final int method;
+		private final long compressedSize;
+		private final long size;
+		private final int headerOffset;
+
+		Entry(String name, int method, long compressedSize, long size,
+				int headerOffset) {
+			this.name = name;
+			this.method = method;
+			this.compressedSize = compressedSize;
+			this.size = size;
+			this.headerOffset = headerOffset;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public boolean isDirectory() {
+			return name.endsWith("/"); //$NON-NLS-1$
+		}
+
+		public long getSize() {
+			return size;
+		}
+
+		/**
+		 * Returns the compressed size of the entry data
+		 */
+		public long getCompressedSize() {
+			return compressedSize;
+		}
+
+		/**
+		 * Returns <code>true</code> if the entry data are stored without
+		 * compression
+		 */
+		public boolean isStored() {
+			return method == STORED;
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+
+	private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+	private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+	private static final int END_SIGNATURE = 0x06054b50;
+
+	private static final int LOCAL_HEADER_SIZE = 30;
+	private static final int CENTRAL_HEADER_SIZE = 46;
+	private static final int END_SIZE = 22;
+	private static final int MAX_COMMENT_SIZE = 0xFFFF;
+
+	private static final int STORED = 0;
+	private static final int DEFLATED = 8;
+
+	private static final int FLAG_ENCRYPTED = 1;
+
+	/**
+	 * The maximum number of the archives kept open while not used
+	 */
+	public static final int UNUSED_LIMIT = 16;
+
+	/**
+	 * absolute path -> shared instance, in the access order. Guards the
+	 * reference counters of the instances.
+	 */
+	private static final Map<String, MappedArchiveFile> archives = new LinkedHashMap<String, MappedArchiveFile>(
+			16, 0.75f, true);
+
+	/**
+	 * Returns the shared instance for the specified file, parsing it if it
+	 * was not opened before or was changed since. Falls back to the
+	 * {@link ZipArchiveFile} if the archive format is not supported. The
+	 * returned archive should be closed when it is not needed anymore.
+	 */
+	public static IArchive open(File file) throws IOException {
+		final String key = file.getAbsolutePath();
+		final long length = file.length();
+		final long lastModified = file.lastModified();
+		synchronized (archives) {
+			final MappedArchiveFile archive = archives.get(key);
+			if (archive != null) {
+				if (archive.isSame(length, lastModified)) {
+					++archive.references;
+					return archive;
+				}
+				discard(archive);
+			}
+		}
+		final MappedArchiveFile archive;
+		try {
+			archive = new MappedArchiveFile(file, key, length, lastModified);
+		} catch (UnsupportedFormatException e) {
+			if (ModelManager.ZIP_ACCESS_VERBOSE) {
+				System.out
+						.println("(" + Thread.currentThread() + ") [MappedArchiveFile.open(File)] " + e.getMessage() + ": " + file); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			}
+			return new ZipArchiveFile(file);
+		}
+		synchronized (archives) {
+			final MappedArchiveFile existing = archives.get(key);
+			if (existing != null) {
+				if (existing.isSame(length, lastModified)) {
+					// opened by another thread meanwhile
+					archive.release();
+					++existing.references;
+					return existing;
+				}
+				discard(existing);
+			}
+			archive.references = 1;
+			archive.cached = true;
+			archives.put(key, archive);
+			trim();
+		}
+		return archive;
+	}
+
+	/**
+	 * Discards all the shared instances, the ones being used are released when
+	 * closed.
+	 */
+	public static void flush() {
+		synchronized (archives) {
+			for (MappedArchiveFile archive : archives.values()) {
+				archive.cached = false;
+				if (archive.references == 0) {
+					archive.release();
+				}
+			}
+			archives.clear();
+		}
+	}
+
+	// called with the lock being held
+	private static void discard(MappedArchiveFile archive) {
+		archives.remove(archive.key);
+		archive.cached = false;
+		if (archive.references == 0) {
+			archive.release();
+		}
+	}
+
+	/*
+	 * Releases the least recently used archives not used at the moment, which
+	 * are above the limit. Called with the lock being held.
+	 */
+	private static void trim() {
+		int unused = 0;
+		for (MappedArchiveFile archive : archives.values()) {
+			if (archive.references == 0) {
+				++unused;
+			}
+		}
+		for (Iterator<MappedArchiveFile> i = archives.values().iterator(); unused > UNUSED_LIMIT
+				&& i.hasNext();) {
+			final MappedArchiveFile archive = i.next();
+			if (archive.references == 0) {
+				i.remove();
+				archive.cached = false;
+				archive.release();
+				--unused;
+			}
+		}
+	}
+
+	@SuppressWarnings("serial")
+	private static class UnsupportedFormatException extends ZipException {
+		UnsupportedFormatException(String message) {
+			super(message);
+		}
+	}
+
+	private final String name;
+	private final String key;
+	private final long length;
+	private final long lastModified;
+	/**
+	 * the mapped file, <code>null</code> when released
+	 */
+	private volatile ByteBuffer buffer;
+	private final Map<String, Entry> entries;
+
+	/**
+	 * the number of the users, guarded by {@link #archives}
+	 */
+	private int references = 0;
+
+	/**
+	 * if this instance is in {@link #archives}, guarded by it
+	 */
+	private boolean cached = false;
+
+	/**
+	 * folder name (without trailing slash, empty for the root) -> entries
+	 * directly contained in it
+	 */
+	private final Map<String, List<Entry>> folders;
+
+	private MappedArchiveFile(File file, String key, long length,
+			long lastModified) throws IOException {
+		if (length > Integer.MAX_VALUE) {
+			throw new UnsupportedFormatException("Archive is too big"); //$NON-NLS-1$
+		}
+		this.name = file.getPath();
+		this.key = key;
+		this.length = length;
+		this.lastModified = lastModified;
+		final FileInputStream stream = new FileInputStream(file);
+		try {
+			final FileChannel channel = stream.getChannel();
+			this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+					channel.size());
+		} finally {
+			stream.close();
+		}
+		this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+		final int end = findEnd();
+		final int diskNumber = buffer.getShort(end + 4) & 0xFFFF;
+		final int count = buffer.getShort(end + 10) & 0xFFFF;
+		final long directoryOffset = buffer.getInt(end + 16) & 0xFFFFFFFFL;
+		if (diskNumber != 0 || count == 0xFFFF
+				|| directoryOffset == 0xFFFFFFFFL) {
+			throw new UnsupportedFormatException("Unsupported archive format"); //$NON-NLS-1$
+		}
+		this.entries = new LinkedHashMap<String, Entry>(count * 4 / 3 + 1);
+		this.folders = new HashMap<String, List<Entry>>();
+		int offset = (int) directoryOffset;
+		for (int i = 0; i < count; ++i) {
+			offset = readEntry(offset);
+		}
+	}
+
+	private boolean isSame(long length, long lastModified) {
+		return this.length == length && this.lastModified == lastModified;
+	}
+
+	private void release() {
+		buffer = null;
+	}
+
+	private int findEnd() throws ZipException {
+		final int limit = Math.max(0, buffer.limit() - END_SIZE
+				- MAX_COMMENT_SIZE);
+		for (int offset = buffer.limit() - END_SIZE; offset >= limit; --offset) {
+			if (buffer.getInt(offset) == END_SIGNATURE) {
+				return offset;
+			}
+		}
+		throw new ZipException("End of central directory not found"); //$NON-NLS-1$
+	}
+
+	private int readEntry(int offset) throws ZipException {
+		if (offset + CENTRAL_HEADER_SIZE > buffer.limit()
+				|| buffer.getInt(offset) != CENTRAL_HEADER_SIGNATURE) {
+			throw new ZipException("Invalid central directory header"); //$NON-NLS-1$
+		}
+		final int flags = buffer.getShort(offset + 8) & 0xFFFF;
+		final int method = buffer.getShort(offset + 10) & 0xFFFF;
+		final long compressedSize = buffer.getInt(offset + 20) & 0xFFFFFFFFL;
+		final long size = buffer.getInt(offset + 24) & 0xFFFFFFFFL;
+		final int nameLength = buffer.getShort(offset + 28) & 0xFFFF;
+		final int extraLength = buffer.getShort(offset + 30) & 0xFFFF;
+		final int commentLength = buffer.getShort(offset + 32) & 0xFFFF;
+		final long headerOffset = buffer.getInt(offset + 42) & 0xFFFFFFFFL;
+		if ((flags & FLAG_ENCRYPTED) != 0) {
+			throw new UnsupportedFormatException("Encrypted entries"); //$NON-NLS-1$
+		}
+		if (compressedSize == 0xFFFFFFFFL || size == 0xFFFFFFFFL
+				|| headerOffset == 0xFFFFFFFFL) {
+			throw new UnsupportedFormatException("Unsupported archive format"); //$NON-NLS-1$
+		}
+		if (method != STORED && method != DEFLATED) {
+			throw new UnsupportedFormatException(
+					"Unsupported compression method"); //$NON-NLS-1$
+		}
+		final String entryName = readName(offset + CENTRAL_HEADER_SIZE,
+				nameLength);
+		final Entry entry = new Entry(entryName, method, compressedSize, size,
+				(int) headerOffset);
+		entries.put(entryName, entry);
+		final int lastSeparator = entry.isDirectory() ? entryName
+				.lastIndexOf('/', entryName.length() - 2) : entryName
+				.lastIndexOf('/');
+		final String folder = lastSeparator >= 0 ? entryName.substring(0,
+				lastSeparator) : ""; //$NON-NLS-1$
+		List<Entry> children = folders.get(folder);
+		if (children == null) {
+			children = new ArrayList<Entry>();
+			folders.put(folder, children);
+		}
+		children.add(entry);
+		return offset + CENTRAL_HEADER_SIZE + nameLength + extraLength
+				+ commentLength;
+	}
+
+	private String readName(int offset, int nameLength) throws ZipException {
+		final byte[] bytes = new byte[nameLength];
+		final ByteBuffer source = buffer.duplicate();
+		source.position(offset);
+		source.get(bytes);
+		try {
+			return new String(bytes, "UTF-8"); //$NON-NLS-1$
+		} catch (UnsupportedEncodingException e) {
+			throw new ZipException(e.getMessage());
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public Enumeration<? extends IArchiveEntry> getArchiveEntries() {
+		return Collections.enumeration(entries.values());
+	}
+
+	public IArchiveEntry getArchiveEntry(String entryName) {
+		return entries.get(entryName);
+	}
+
+	/**
+	 * Returns the names of all the folders containing entries, the root
+	 * folder is represented by the empty string.
+	 */
+	public Set<String> getFolders() {
+		return Collections.unmodifiableSet(folders.keySet());
+	}
+
+	/**
+	 * Returns the entries (files and folders) directly contained in the
+	 * specified folder
+	 *
+	 * @param folder
+	 *            the folder name without the trailing slash, the empty string
+	 *            for the root
+	 */
+	public List<? extends IArchiveEntry> getFolderEntries(String folder) {
+		final List<Entry> children = folders.get(folder);
+		if (children == null) {
+			return Collections.emptyList();
+		}
+		return Collections.unmodifiableList(children);
+	}
+
+	/**
+	 * Returns the data of the stored entry without copying or
+	 * <code>null</code> if the entry is compressed. The returned buffer is
+	 * read only.
+	 */
+	public ByteBuffer getStoredContent(IArchiveEntry entry) throws IOException {
+		final Entry e = (Entry) entry;
+		return e.isStored() ? getData(e) : null;
+	}
+
+	public InputStream getInputStream(IArchiveEntry entry) throws IOException {
+		final Entry e = (Entry) entry;
+		final ByteBuffer data = getData(e);
+		if (e.isStored()) {
+			return new ByteBufferInputStream(data, false);
+		}
+		final Inflater inflater = new Inflater(true);
+		final int bufferSize = (int) Math.max(64,
+				Math.min(e.getCompressedSize() + 1, 8192));
+		return new InflaterInputStream(new ByteBufferInputStream(data, true),
+				inflater, bufferSize) {
+			private boolean closed = false;
+
+			@Override
+			public void close() throws IOException {
+				if (!closed) {
+					closed = true;
+					inflater.end();
+					super.close();
+				}
+			}
+		};
+	}
+
+	private ByteBuffer getData(Entry entry) throws ZipException {
+		final ByteBuffer buffer = this.buffer;
+		if (buffer == null) {
+			throw new ZipException("Archive is closed: " + name); //$NON-NLS-1$
+		}
+		final int offset = entry.headerOffset;
+		if (offset + LOCAL_HEADER_SIZE > buffer.limit()
+				|| buffer.getInt(offset) != LOCAL_HEADER_SIGNATURE) {
+			throw new ZipException("Invalid local header: " + entry.getName()); //$NON-NLS-1$
+		}
+		final int nameLength = buffer.getShort(offset + 26) & 0xFFFF;
+		final int extraLength = buffer.getShort(offset + 28) & 0xFFFF;
+		final int start = offset + LOCAL_HEADER_SIZE + nameLength
+				+ extraLength;
+		final long end = start + entry.getCompressedSize();
+		if (end > buffer.limit()) {
+			throw new ZipException("Truncated entry: " + entry.getName()); //$NON-NLS-1$
+		}
+		final ByteBuffer data = buffer.asReadOnlyBuffer();
+		data.position(start);
+		data.limit((int) end);
+		return data.slice();
+	}
+
+	/**
+	 * Decrements the reference counter, the instance is released when it is
+	 * not used anymore and was discarded or is above the
+	 * {@link #UNUSED_LIMIT}.
+	 */
+	public void close() throws IOException {
+		synchronized (archives) {
+			if (references == 0) {
+				return;
+			}
+			if (--references == 0) {
+				if (cached) {
+					trim();
+				} else {
+					release();
+				}
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "MappedArchiveFile[" + name + "]"; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * Input stream over the buffer, used by the threads independently.
+	 */
+	private static class ByteBufferInputStream extends InputStream {
+		private final ByteBuffer data;
+		/**
+		 * the inflater in the "nowrap" mode requires the extra dummy byte
+		 * after the compressed data
+		 */
+		private boolean dummyByte;
+
+		ByteBufferInputStream(ByteBuffer data, boolean dummyByte) {
+			this.data = data;
+			this.dummyByte = dummyByte;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (data.hasRemaining()) {
+				return data.get() & 0xFF;
+			}
+			if (dummyByte) {
+				dummyByte = false;
+				return 0;
+			}
+			return -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			if (!data.hasRemaining()) {
+				if (dummyByte) {
+					dummyByte = false;
+					b[off] = 0;
+					return 1;
+				}
+				return -1;
+			}
+			final int count = Math.min(len, data.remaining());
+			data.get(b, off, count);
+			return count;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			final int count = (int) Math.max(0, Math.min(n, data.remaining()));
+			data.position(data.position() + count);
+			return count;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return data.remaining();
+		}
+	}
+}
@@ -10,14 +10,22 @@
 package org.eclipse.dltk.internal.core;
 
 import java.text.NumberFormat;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.dltk.core.DLTKCore;
 import org.eclipse.dltk.core.IModelElement;
+import org.eclipse.dltk.core.RuntimePerformanceMonitor;
 
 /**
  * The cache ofscriptelements to their respective info.
+ * 
+ * <p>
+ * {@link #getInfo(IModelElement)} and {@link #peekAtInfo(IModelElement)} could
+ * be called concurrently without any lock, modifications should be done while
+ * holding the lock of the {@link ModelManager}.
  */
 public class ModelCache {
 	public static final int DEFAULT_PROJECT_SIZE = 5; // average 25552 bytes
@@ -39,14 +47,31 @@ public class ModelCache {
 	public static final int DEFAULT_CHILDREN_SIZE = 500 * 20; // average 20
 	// children per
 	// openable
+
+	/**
+	 * Language name used to report the statistics to the
+	 * {@link RuntimePerformanceMonitor}
+	 */
+	private static final String STATISTICS_NAME = "ModelCache"; //$NON-NLS-1$
+	private static final String HITS = "Info cache hits"; //$NON-NLS-1$
+	private static final String MISSES = "Info cache misses"; //$NON-NLS-1$
+	private static final String LOCK_WAITS = "Info lock waits"; //$NON-NLS-1$
+
+	/**
+	 * Number of events accumulated before they are reported to the
+	 * {@link RuntimePerformanceMonitor}, so it's global monitor is not acquired
+	 * on every lookup.
+	 */
+	private static final int REPORT_INTERVAL = 1000;
+
 	/**
 	 * Active script Model Info
 	 */
-	protected ModelInfo modelInfo;
+	protected volatile ModelInfo modelInfo;
 	/**
 	 * Cache of open projects.
 	 */
-	protected HashMap projectCache;
+	protected Map projectCache;
 	/**
 	 * Cache of open package fragment roots.
 	 */
@@ -64,6 +89,11 @@ public class ModelCache {
 	 */
 	protected Map childrenCache;
 
+	private final AtomicInteger hits = new AtomicInteger();
+	private final AtomicInteger misses = new AtomicInteger();
+	private final AtomicInteger lockWaits = new AtomicInteger();
+	private final AtomicLong lockWaitTime = new AtomicLong();
+
 	public ModelCache() {
 		// set the size of the caches in function of the maximum amount of
 		// memory available
@@ -79,7 +109,7 @@ public class ModelCache {
 		// for
 		// most
 		// JInterpreter
-		this.projectCache = new HashMap(DEFAULT_PROJECT_SIZE); // NB: Don't use
+		this.projectCache = new ConcurrentHashMap(DEFAULT_PROJECT_SIZE); // NB: Don't use
 		// a LRUCache
 		// for projects
 		// as they are
@@ -92,28 +122,38 @@ public class ModelCache {
 		this.pkgCache = new ElementCache((int) (DEFAULT_PKG_SIZE * ratio));
 		this.openableCache = new ElementCache(
 				(int) (DEFAULT_OPENABLE_SIZE * ratio));
-		this.childrenCache = new HashMap((int) (DEFAULT_CHILDREN_SIZE * ratio));
+		this.childrenCache = new ConcurrentHashMap(
+				(int) (DEFAULT_CHILDREN_SIZE * ratio));
 	}
 
 	/**
 	 * Returns the info for the element.
 	 */
 	public Object getInfo(IModelElement element) {
+		final Object info;
 		switch (element.getElementType()) {
 		case IModelElement.SCRIPT_MODEL:
-			return this.modelInfo;
+			info = this.modelInfo;
+			break;
 		case IModelElement.SCRIPT_PROJECT:
-			return this.projectCache.get(element);
+			info = this.projectCache.get(element);
+			break;
 		case IModelElement.PROJECT_FRAGMENT:
-			return this.rootCache.get(element);
+			info = this.rootCache.getConcurrently(element);
+			break;
 		case IModelElement.SCRIPT_FOLDER:
-			return this.pkgCache.get(element);
+			info = this.pkgCache.getConcurrently(element);
+			break;
 		case IModelElement.SOURCE_MODULE:
 		case IModelElement.BINARY_MODULE:
-			return this.openableCache.get(element);
+			info = this.openableCache.getConcurrently(element);
+			break;
 		default:
-			return this.childrenCache.get(element);
+			info = this.childrenCache.get(element);
 		}
+		count(info != null ? this.hits : this.misses, info != null ? HITS
+				: MISSES);
+		return info;
 	}
 
 	/**
@@ -126,21 +166,68 @@ public class ModelCache {
 		case IModelElement.SCRIPT_PROJECT:
 			return this.projectCache.get(element);
 		case IModelElement.PROJECT_FRAGMENT:
-			return this.rootCache.peek(element);
+			return this.rootCache.peekConcurrently(element);
 		case IModelElement.SCRIPT_FOLDER:
-			return this.pkgCache.peek(element);
+			return this.pkgCache.peekConcurrently(element);
 		case IModelElement.SOURCE_MODULE:
 		case IModelElement.BINARY_MODULE:
-			return this.openableCache.peek(element);
+			return this.openableCache.peekConcurrently(element);
 		default:
 			return this.childrenCache.get(element);
 		}
 	}
 
+	/**
+	 * Applies the accesses done without lock to the LRU caches, called before
+	 * modifications with the lock being held.
+	 */
+	private void applyAccesses() {
+		this.rootCache.applyAccesses();
+		this.pkgCache.applyAccesses();
+		this.openableCache.applyAccesses();
+	}
+
+	/**
+	 * Records the time spent waiting for the lock guarding modifications of
+	 * this cache.
+	 */
+	protected void recordLockWait(long nanos) {
+		this.lockWaitTime.addAndGet(nanos);
+		count(this.lockWaits, LOCK_WAITS);
+	}
+
+	private void count(AtomicInteger counter, String kind) {
+		if (counter.incrementAndGet() >= REPORT_INTERVAL) {
+			report(counter, kind);
+		}
+	}
+
+	private void report(AtomicInteger counter, String kind) {
+		final int value = counter.getAndSet(0);
+		if (value > 0 && RuntimePerformanceMonitor.RUNTIME_PERFORMANCE) {
+			// the time is reported in milliseconds like other entries
+			final long time = counter == this.lockWaits ? this.lockWaitTime
+					.getAndSet(0) / 1000000 : 0;
+			RuntimePerformanceMonitor.updateData(STATISTICS_NAME, kind, time,
+					value);
+		}
+	}
+
+	/**
+	 * Reports the accumulated statistics to the
+	 * {@link RuntimePerformanceMonitor}
+	 */
+	public void reportStatistics() {
+		report(this.hits, HITS);
+		report(this.misses, MISSES);
+		report(this.lockWaits, LOCK_WAITS);
+	}
+
 	/**
 	 * Remember the info for the element.
 	 */
 	protected void putInfo(IModelElement element, Object info) {
+		applyAccesses();
 		switch (element.getElementType()) {
 		case IModelElement.SCRIPT_MODEL:
 			this.modelInfo = (ModelInfo) info;
@@ -173,6 +260,7 @@ public class ModelCache {
 	 * Removes the info of the element from the cache.
 	 */
 	protected void removeInfo(IModelElement element) {
+		applyAccesses();
 		switch (element.getElementType()) {
 		case IModelElement.SCRIPT_MODEL:
 			this.modelInfo = null;
@@ -223,6 +311,12 @@ public class ModelCache {
 		buffer.append("]: "); //$NON-NLS-1$
 		buffer.append(nf.format(this.openableCache.fillingRatio()));
 		buffer.append("%\n"); //$NON-NLS-1$
+		buffer.append(prefix);
+		buffer.append("Lookups: "); //$NON-NLS-1$
+		buffer.append(this.hits.get());
+		buffer.append(" hits, "); //$NON-NLS-1$
+		buffer.append(this.misses.get());
+		buffer.append(" misses since last report\n"); //$NON-NLS-1$
 		return buffer.toString();
 	}
 
@@ -65,7 +65,30 @@ public class ModelElementDelta extends SimpleDelta implements IModelElementDelta
 	public ModelElementDelta(IModelElement element) {
 		this.changedElement = element;
 	}
-	
+
+	/**
+	 * Returns the deep copy of this delta tree, so it could be merged with
+	 * other deltas without modifying the deltas already delivered to the
+	 * listeners. The resource deltas are not copied, since they are valid only
+	 * during the resource change notification.
+	 */
+	protected ModelElementDelta copy() {
+		ModelElementDelta copy = new ModelElementDelta(this.changedElement);
+		copy.kind = this.kind;
+		copy.changeFlags = this.changeFlags;
+		copy.movedFromHandle = this.movedFromHandle;
+		copy.movedToHandle = this.movedToHandle;
+		int length = this.affectedChildren.length;
+		if (length != 0) {
+			copy.affectedChildren = new IModelElementDelta[length];
+			for (int i = 0; i < length; i++) {
+				copy.affectedChildren[i] = ((ModelElementDelta) this.affectedChildren[i])
+						.copy();
+			}
+		}
+		return copy;
+	}
+
 	/**
 	 * Creates the nested deltas resulting from an add operation.
 	 * Convenience method for creating add deltas.
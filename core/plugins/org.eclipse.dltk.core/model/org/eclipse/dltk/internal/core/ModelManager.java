@@ -89,9 +89,11 @@ import org.eclipse.dltk.core.WorkingCopyOwner;
 import org.eclipse.dltk.core.caching.IContentCache;
 import org.eclipse.dltk.core.environment.EnvironmentPathUtils;
 import org.eclipse.dltk.core.environment.IFileHandle;
+import org.eclipse.dltk.core.internal.environment.FileInfoCache;
 import org.eclipse.dltk.core.search.indexing.IndexManager;
 import org.eclipse.dltk.internal.core.builder.ScriptBuilder;
 import org.eclipse.dltk.internal.core.caching.DLTKCoreCache;
+import org.eclipse.dltk.internal.core.hierarchy.SubTypeCache;
 import org.eclipse.dltk.internal.core.search.DLTKWorkspaceScope;
 import org.eclipse.dltk.internal.core.search.ProjectIndexerManager;
 import org.eclipse.dltk.internal.core.util.Messages;
@@ -444,7 +446,7 @@ public class ModelManager implements ISaveParticipant {
 	/**
 	 * Returns the info for the element.
 	 */
-	public synchronized Object getInfo(IModelElement element) {
+	public Object getInfo(IModelElement element) {
 		HashMap tempCache = (HashMap) this.temporaryCache.get();
 		if (tempCache != null) {
 			Object result = tempCache.get(element);
@@ -458,7 +460,7 @@ public class ModelManager implements ISaveParticipant {
 	/**
 	 * Returns the info for this element without disturbing the cache ordering.
 	 */
-	protected synchronized Object peekAtInfo(IModelElement element) {
+	protected Object peekAtInfo(IModelElement element) {
 		HashMap tempCache = (HashMap) this.temporaryCache.get();
 		if (tempCache != null) {
 			Object result = tempCache.get(element);
@@ -474,59 +476,63 @@ public class ModelManager implements ISaveParticipant {
 	 * from the cache. Returns the info for the given element, or null if it was
 	 * closed.
 	 */
-	public synchronized Object removeInfoAndChildren(ModelElement element)
+	public Object removeInfoAndChildren(ModelElement element)
 			throws ModelException {
-		Object info = this.cache.peekAtInfo(element);
-		if (info != null) {
-			boolean wasVerbose = false;
-			try {
-				if (VERBOSE) {
-					String elementType;
-					switch (element.getElementType()) {
-					case IModelElement.SCRIPT_PROJECT:
-						elementType = "project"; //$NON-NLS-1$
-						break;
-					case IModelElement.PROJECT_FRAGMENT:
-						elementType = "root"; //$NON-NLS-1$
-						break;
-					case IModelElement.SCRIPT_FOLDER:
-						elementType = "folder"; //$NON-NLS-1$
-						break;
-					case IModelElement.BINARY_MODULE:
-						elementType = "binary module"; //$NON-NLS-1$
-						break;
-					case IModelElement.SOURCE_MODULE:
-						elementType = "source module"; //$NON-NLS-1$
-						break;
-					default:
-						elementType = "element"; //$NON-NLS-1$
+		final long start = System.nanoTime();
+		synchronized (this) {
+			this.cache.recordLockWait(System.nanoTime() - start);
+			Object info = this.cache.peekAtInfo(element);
+			if (info != null) {
+				boolean wasVerbose = false;
+				try {
+					if (VERBOSE) {
+						String elementType;
+						switch (element.getElementType()) {
+						case IModelElement.SCRIPT_PROJECT:
+							elementType = "project"; //$NON-NLS-1$
+							break;
+						case IModelElement.PROJECT_FRAGMENT:
+							elementType = "root"; //$NON-NLS-1$
+							break;
+						case IModelElement.SCRIPT_FOLDER:
+							elementType = "folder"; //$NON-NLS-1$
+							break;
+						case IModelElement.BINARY_MODULE:
+							elementType = "binary module"; //$NON-NLS-1$
+							break;
+						case IModelElement.SOURCE_MODULE:
+							elementType = "source module"; //$NON-NLS-1$
+							break;
+						default:
+							elementType = "element"; //$NON-NLS-1$
+						}
+						System.out
+								.println(Thread.currentThread()
+										+ " CLOSING " + elementType + " " + element.toStringWithAncestors()); //$NON-NLS-1$//$NON-NLS-2$
+						wasVerbose = true;
+						VERBOSE = false;
 					}
-					System.out
-							.println(Thread.currentThread()
-									+ " CLOSING " + elementType + " " + element.toStringWithAncestors()); //$NON-NLS-1$//$NON-NLS-2$
-					wasVerbose = true;
-					VERBOSE = false;
-				}
-				element.closing(info);
-				if (element instanceof IParent
-						&& info instanceof ModelElementInfo) {
-					IModelElement[] children = ((ModelElementInfo) info)
-							.getChildren();
-					for (int i = 0, size = children.length; i < size; ++i) {
-						ModelElement child = (ModelElement) children[i];
-						child.close();
+					element.closing(info);
+					if (element instanceof IParent
+							&& info instanceof ModelElementInfo) {
+						IModelElement[] children = ((ModelElementInfo) info)
+								.getChildren();
+						for (int i = 0, size = children.length; i < size; ++i) {
+							ModelElement child = (ModelElement) children[i];
+							child.close();
+						}
 					}
+					this.cache.removeInfo(element);
+					if (wasVerbose) {
+						System.out.println(this.cache.toStringFillingRation("-> ")); //$NON-NLS-1$
+					}
+				} finally {
+					ModelManager.VERBOSE = wasVerbose;
 				}
-				this.cache.removeInfo(element);
-				if (wasVerbose) {
-					System.out.println(this.cache.toStringFillingRation("-> ")); //$NON-NLS-1$
-				}
-			} finally {
-				ModelManager.VERBOSE = wasVerbose;
+				return info;
 			}
-			return info;
+			return null;
 		}
-		return null;
 	}
 
 	/*
@@ -536,51 +542,54 @@ public class ModelManager implements ISaveParticipant {
 	 * added to the cache. If it is the case, another thread has opened the
 	 * element (or one of its ancestors). So returns without updating the cache.
 	 */
-	protected synchronized void putInfos(IModelElement openedElement,
-			Map newElements) {
-		// remove children
-		Object existingInfo = this.cache.peekAtInfo(openedElement);
-		if (openedElement instanceof IParent
-				&& existingInfo instanceof ModelElementInfo) {
-			IModelElement[] children = ((ModelElementInfo) existingInfo)
-					.getChildren();
-			for (int i = 0, size = children.length; i < size; ++i) {
-				ModelElement child = (ModelElement) children[i];
-				try {
-					child.close();
-				} catch (ModelException e) {
-					// ignore
+	protected void putInfos(IModelElement openedElement, Map newElements) {
+		final long start = System.nanoTime();
+		synchronized (this) {
+			this.cache.recordLockWait(System.nanoTime() - start);
+			// remove children
+			Object existingInfo = this.cache.peekAtInfo(openedElement);
+			if (openedElement instanceof IParent
+					&& existingInfo instanceof ModelElementInfo) {
+				IModelElement[] children = ((ModelElementInfo) existingInfo)
+						.getChildren();
+				for (int i = 0, size = children.length; i < size; ++i) {
+					ModelElement child = (ModelElement) children[i];
+					try {
+						child.close();
+					} catch (ModelException e) {
+						// ignore
+					}
 				}
 			}
-		}
-		// Need to put any ArchiveProjectFragment in first.
-		// This is due to the way the LRU cache flushes entries.
-		// When a BinaryFolder is flused from the LRU cache, the entire
-		// archive is flushed by removing the ArchiveProjectFragment and all of
-		// its
-		// children (see ElementCache.close()). If we flush the BinaryFolder
-		// when its ArchiveProjectFragment is not in the cache and the root is
-		// about to be
-		// added (during the 'while' loop), we will end up in an inconsist
-		// state.
-		// Subsequent resolution against package in the archive would fail as a
-		// result.
-		for (Iterator it = newElements.entrySet().iterator(); it.hasNext();) {
-			Map.Entry entry = (Map.Entry) it.next();
-			IModelElement element = (IModelElement) entry.getKey();
-			if (element instanceof ArchiveProjectFragment
-					|| element instanceof ExternalScriptFolder) {
-				Object info = entry.getValue();
-				it.remove();
+			// Need to put any ArchiveProjectFragment in first.
+			// This is due to the way the LRU cache flushes entries.
+			// When a BinaryFolder is flused from the LRU cache, the entire
+			// archive is flushed by removing the ArchiveProjectFragment and all of
+			// its
+			// children (see ElementCache.close()). If we flush the BinaryFolder
+			// when its ArchiveProjectFragment is not in the cache and the root is
+			// about to be
+			// added (during the 'while' loop), we will end up in an inconsist
+			// state.
+			// Subsequent resolution against package in the archive would fail as a
+			// result.
+			for (Iterator it = newElements.entrySet().iterator(); it.hasNext();) {
+				Map.Entry entry = (Map.Entry) it.next();
+				IModelElement element = (IModelElement) entry.getKey();
+				if (element instanceof ArchiveProjectFragment
+						|| element instanceof ExternalScriptFolder) {
+					Object info = entry.getValue();
+					it.remove();
+					this.cache.putInfo(element, info);
+				}
+			}
+			Iterator iterator = newElements.keySet().iterator();
+			while (iterator.hasNext()) {
+				IModelElement element = (IModelElement) iterator.next();
+				Object info = newElements.get(element);
 				this.cache.putInfo(element, info);
 			}
 		}
-		Iterator iterator = newElements.keySet().iterator();
-		while (iterator.hasNext()) {
-			IModelElement element = (IModelElement) iterator.next();
-			Object info = newElements.get(element);
-			this.cache.putInfo(element, info);
-		}
 	}
 
 	/**
@@ -1115,10 +1124,12 @@ public class ModelManager implements ISaveParticipant {
 		return info.useCount;
 	}
 
-	public synchronized String intern(String s) {
+	public String intern(String s) {
 		// make sure to copy the string (so that it doesn't hold on the
 		// underlying char[] that might be much bigger than necessary)
-		return (String) this.stringSymbols.add(s);
+		synchronized (this.stringSymbols) {
+			return (String) this.stringSymbols.add(s);
+		}
 	}
 
 	public void startup() throws CoreException {
@@ -1133,6 +1144,10 @@ public class ModelManager implements ISaveParticipant {
 			this.propertyListener = new IEclipsePreferences.IPreferenceChangeListener() {
 				public void preferenceChange(PreferenceChangeEvent event) {
 					ModelManager.this.optionsCache = null;
+					if (DLTKCore.INDEXER_THREADS.equals(event.getKey())
+							&& indexManager != null) {
+						indexManager.setWorkerCount(getIndexerThreads());
+					}
 				}
 			};
 			installPreferenceChangeListener(DLTKCore.PLUGIN_ID,
@@ -1218,8 +1233,21 @@ public class ModelManager implements ISaveParticipant {
 		getPluginPreferences(pluginId).addPreferenceChangeListener(listener);
 	}
 
+	private int getIndexerThreads() {
+		final String value = getOption(DLTKCore.INDEXER_THREADS);
+		if (value != null) {
+			try {
+				return Integer.parseInt(value);
+			} catch (NumberFormatException e) {
+				// fall thru
+			}
+		}
+		return 1;
+	}
+
 	private void startIndexing() {
 		if (indexManager != null) {
+			indexManager.setWorkerCount(getIndexerThreads());
 			indexManager.reset();
 			// create contributed indexers in a job, so
 			// dltk.core initialization completes earlier.
@@ -1447,15 +1475,23 @@ public class ModelManager implements ISaveParticipant {
 		}
 		IWorkspace workspace = ResourcesPlugin.getWorkspace();
 		workspace.removeResourceChangeListener(this.deltaState);
+		this.deltaState.asyncDispatcher.reportStatistics();
+		this.deltaState.asyncDispatcher.shutdown();
 		DLTKContentTypeManager.uninstallListener();
 		workspace.removeSaveParticipant(DLTKCore.getDefault());
 
 		if (sourceModuleInfoCache != null) {
 			sourceModuleInfoCache.stop();
 		}
+		if (this.cache != null) {
+			this.cache.reportStatistics();
+		}
 		if (this.indexManager != null) { // no more indexing
 			this.indexManager.shutdown();
 		}
+		SubTypeCache.shutdown();
+		MappedArchiveFile.flush();
+		FileInfoCache.shutdown();
 		// wait for the initialization job to finish
 		try {
 			Job.getJobManager().join(DLTKCore.PLUGIN_ID, null);
@@ -2215,7 +2251,7 @@ public class ModelManager implements ISaveParticipant {
 		if (toolkit != null) {
 			return toolkit.openArchive(localFile);
 		} else {
-			return new ZipArchiveFile(localFile);
+			return MappedArchiveFile.open(localFile);
 		}
 	}
 
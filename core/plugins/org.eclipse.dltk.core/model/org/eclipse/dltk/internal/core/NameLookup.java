@@ -13,6 +13,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 import org.eclipse.core.resources.IResource;
@@ -130,6 +131,20 @@ public class NameLookup {
 	 */
 	protected HashMap typesInWorkingCopies;
 
+	/*
+	 * The package names sorted for the prefix lookups or null if not
+	 * available, e.g. when working copies add packages not known to the
+	 * project.
+	 */
+	private NameLookupTable pkgFragmentsTable;
+
+	/*
+	 * The project cache this name lookup was created from or null
+	 */
+	private ProjectElementInfo.ProjectCache projectCache;
+
+	private boolean hasWorkingCopyPackages;
+
 	public long timeSpentInSeekTypesInSourcePackage = 0;
 	public long timeSpentInSeekTypesInBinaryPackage = 0;
 
@@ -210,6 +225,7 @@ public class NameLookup {
 				Object existing = this.scriptFolders.get(pkgName);
 				if (existing == null) {
 					this.scriptFolders.put(pkgName, root);
+					this.hasWorkingCopyPackages = true;
 					// cache whether each package and its including packages
 					// (see
 					// https://bugs.eclipse.org/bugs/show_bug.cgi?id=119161)
@@ -251,6 +267,17 @@ public class NameLookup {
 		}
 	}
 
+	NameLookup(ProjectElementInfo.ProjectCache cache,
+			ISourceModule[] workingCopies) {
+		this(cache.allProjectFragmentCache, cache.allPkgFragmentsCache,
+				cache.isPackageCache, workingCopies,
+				cache.rootToResolvedEntries);
+		this.projectCache = cache;
+		if (!this.hasWorkingCopyPackages) {
+			this.pkgFragmentsTable = cache.pkgFragmentsTable;
+		}
+	}
+
 	/**
 	 * Returns true if:
 	 * <ul>
@@ -279,6 +306,10 @@ public class NameLookup {
 	 */
 	private void findAllTypes(String prefix, boolean partialMatch,
 			int acceptFlags, IModelElementRequestor requestor) {
+		if (partialMatch && this.projectCache != null) {
+			findAllSourceTypes(prefix, acceptFlags, requestor);
+			return;
+		}
 		int count = this.projectFragments.length;
 		for (int i = 0; i < count; i++) {
 			if (requestor.isCanceled())
@@ -301,6 +332,51 @@ public class NameLookup {
 		}
 	}
 
+	/**
+	 * Finds the types in the project, which simple name starts with the
+	 * specified (lower case) prefix, using the precomputed table of the source
+	 * modules, so only the modules with the matching names are visited.
+	 */
+	private void findAllSourceTypes(String prefix, int acceptFlags,
+			IModelElementRequestor requestor) {
+		int firstDot = prefix.indexOf('.');
+		if (this.typesInWorkingCopies != null) {
+			Iterator iterator = this.typesInWorkingCopies.keySet().iterator();
+			while (iterator.hasNext()) {
+				if (requestor.isCanceled())
+					return;
+				IScriptFolder pkg = (IScriptFolder) iterator.next();
+				if (isProjectFragment(pkg.getParent())) {
+					seekTypesInWorkingCopies(prefix, pkg, firstDot, true, null,
+							acceptFlags, requestor);
+				}
+			}
+		}
+		String cuPrefix = firstDot == -1 ? prefix : prefix.substring(0,
+				firstDot);
+		for (Object cu : this.projectCache.getSourceModulesTable().findPrefix(
+				cuPrefix)) {
+			if (requestor.isCanceled())
+				return;
+			try {
+				IType[] types = ((ISourceModule) cu).getTypes();
+				for (int j = 0, typeLength = types.length; j < typeLength; j++)
+					seekTypesInTopLevelType(prefix, firstDot, types[j],
+							requestor, acceptFlags);
+			} catch (ModelException e) {
+				// cu doesn't exist -> ignore
+			}
+		}
+	}
+
+	private boolean isProjectFragment(IModelElement element) {
+		for (int i = 0; i < this.projectFragments.length; i++) {
+			if (this.projectFragments[i].equals(element))
+				return true;
+		}
+		return false;
+	}
+
 	/**
 	 * Returns the <code>ISourceModule</code> which defines the type named
 	 * <code>qualifiedTypeName</code>, or <code>null</code> if none exists. The
@@ -482,6 +558,28 @@ public class NameLookup {
 	public IScriptFolder[] findScriptFolders(String name, boolean partialMatch) {
 		if (partialMatch) {
 			String[] splittedName = Util.splitOn('.', name, 0, name.length());
+			if (this.pkgFragmentsTable != null) {
+				List<Object> pkgNames = this.pkgFragmentsTable
+						.findPrefix(splittedName);
+				if (pkgNames.isEmpty())
+					return null;
+				ArrayList<IScriptFolder> pkgs = new ArrayList<IScriptFolder>(
+						pkgNames.size());
+				for (Object pkgName : pkgNames) {
+					Object value = this.scriptFolders.get((String[]) pkgName);
+					if (value instanceof IProjectFragment) {
+						pkgs.add(((IProjectFragment) value)
+								.getScriptFolder(toPath((String[]) pkgName)));
+					} else {
+						IProjectFragment[] roots = (IProjectFragment[]) value;
+						for (int j = 0, length2 = roots.length; j < length2; j++) {
+							pkgs.add(roots[j]
+									.getScriptFolder(toPath((String[]) pkgName)));
+						}
+					}
+				}
+				return pkgs.toArray(new IScriptFolder[pkgs.size()]);
+			}
 			IScriptFolder[] oneFragment = null;
 			ArrayList pkgs = null;
 			Object[][] keys = this.scriptFolders.keyTable;
@@ -847,6 +945,27 @@ public class NameLookup {
 		 * Util.verbose(" -> partial match:" + partialMatch); //$NON-NLS-1$ }
 		 */if (partialMatch) {
 			String[] splittedName = Util.splitOn('.', name, 0, name.length());
+			if (this.pkgFragmentsTable != null) {
+				for (Object pkgName : this.pkgFragmentsTable
+						.findPrefix(splittedName)) {
+					if (requestor.isCanceled())
+						return;
+					Object value = this.scriptFolders.get((String[]) pkgName);
+					if (value instanceof IProjectFragment) {
+						requestor.acceptScriptFolder(((IProjectFragment) value)
+								.getScriptFolder(toPath((String[]) pkgName)));
+					} else {
+						IProjectFragment[] roots = (IProjectFragment[]) value;
+						for (int j = 0, length2 = roots.length; j < length2; j++) {
+							if (requestor.isCanceled())
+								return;
+							requestor.acceptScriptFolder(roots[j]
+									.getScriptFolder(toPath((String[]) pkgName)));
+						}
+					}
+				}
+				return;
+			}
 			Object[][] keys = this.scriptFolders.keyTable;
 			for (int i = 0, length = keys.length; i < length; i++) {
 				if (requestor.isCanceled())
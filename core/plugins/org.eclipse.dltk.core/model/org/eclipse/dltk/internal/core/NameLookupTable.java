@@ -0,0 +1,186 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.internal.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.eclipse.dltk.compiler.CharOperation;
+
+/**
+ * Immutable table of the lower case names, sorted for the binary search, so
+ * the prefix lookups performed by the {@link NameLookup} don't scan all the
+ * script folders and source modules of the project.
+ *
+ * The values are returned in the order they were added, so the results are
+ * ordered like the buildpath.
+ */
+public class NameLookupTable {
+
+	/**
+	 * Separator of the segments in the qualified names
+	 */
+	public static final char SEPARATOR = '/';
+
+	public static class Builder {
+		private final List<char[]> names = new ArrayList<char[]>();
+		private final List<Object> values = new ArrayList<Object>();
+
+		/**
+		 * Adds the value with the specified name, it is converted to lower
+		 * case.
+		 */
+		public void add(String name, Object value) {
+			names.add(name.toLowerCase().toCharArray());
+			values.add(value);
+		}
+
+		/**
+		 * Adds the value with the specified qualified name, the segments are
+		 * converted to lower case.
+		 */
+		public void add(String[] segments, Object value) {
+			names.add(toKey(segments));
+			values.add(value);
+		}
+
+		public NameLookupTable build() {
+			final Integer[] positions = new Integer[names.size()];
+			for (int i = 0; i < positions.length; ++i) {
+				positions[i] = Integer.valueOf(i);
+			}
+			Arrays.sort(positions, new Comparator<Integer>() {
+				public int compare(Integer o1, Integer o2) {
+					final int result = NameLookupTable.compare(
+							names.get(o1.intValue()), names.get(o2.intValue()));
+					return result != 0 ? result : o1.compareTo(o2);
+				}
+			});
+			final char[][] sortedNames = new char[positions.length][];
+			final int[] sortedPositions = new int[positions.length];
+			for (int i = 0; i < positions.length; ++i) {
+				final int position = positions[i].intValue();
+				sortedNames[i] = names.get(position);
+				sortedPositions[i] = position;
+			}
+			return new NameLookupTable(sortedNames, sortedPositions,
+					values.toArray());
+		}
+	}
+
+	private static final int[] NO_MATCHES = new int[0];
+
+	/**
+	 * sorted names
+	 */
+	private final char[][] names;
+
+	/**
+	 * position of the value in the {@link #values} for every name
+	 */
+	private final int[] positions;
+
+	/**
+	 * values in the order they were added
+	 */
+	private final Object[] values;
+
+	private NameLookupTable(char[][] names, int[] positions, Object[] values) {
+		this.names = names;
+		this.positions = positions;
+		this.values = values;
+	}
+
+	/**
+	 * Returns the values, which names start with the specified prefix ignoring
+	 * the case.
+	 */
+	public List<Object> findPrefix(String prefix) {
+		return select(find(prefix.toLowerCase().toCharArray()));
+	}
+
+	/**
+	 * Returns the values, which qualified names start with the specified
+	 * segments ignoring the case. All the segments except the last one should
+	 * match completely, the last one is matched as a prefix.
+	 */
+	public List<Object> findPrefix(String[] segments) {
+		return select(find(toKey(segments)));
+	}
+
+	public int size() {
+		return values.length;
+	}
+
+	private List<Object> select(int[] matches) {
+		if (matches.length == 0) {
+			return Collections.emptyList();
+		}
+		final List<Object> result = new ArrayList<Object>(matches.length);
+		for (int i = 0; i < matches.length; ++i) {
+			result.add(values[matches[i]]);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the sorted positions of the values, which names start with the
+	 * specified lower case prefix.
+	 */
+	private int[] find(char[] prefix) {
+		int low = 0;
+		int high = names.length;
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if (compare(names[mid], prefix) < 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		int end = low;
+		while (end < names.length
+				&& CharOperation.prefixEquals(prefix, names[end])) {
+			++end;
+		}
+		if (end == low) {
+			return NO_MATCHES;
+		}
+		final int[] matches = new int[end - low];
+		System.arraycopy(positions, low, matches, 0, matches.length);
+		Arrays.sort(matches);
+		return matches;
+	}
+
+	static char[] toKey(String[] segments) {
+		final StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < segments.length; ++i) {
+			if (i != 0) {
+				sb.append(SEPARATOR);
+			}
+			sb.append(segments[i].toLowerCase());
+		}
+		final char[] key = new char[sb.length()];
+		sb.getChars(0, key.length, key, 0);
+		return key;
+	}
+
+	static int compare(char[] a, char[] b) {
+		final int length = Math.min(a.length, b.length);
+		for (int i = 0; i < length; ++i) {
+			if (a[i] != b[i]) {
+				return a[i] - b[i];
+			}
+		}
+		return a.length - b.length;
+	}
+}
@@ -0,0 +1,390 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.internal.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+import org.eclipse.core.resources.IResource;
+import org.eclipse.dltk.ast.ASTNode;
+import org.eclipse.dltk.ast.parser.IASTCache;
+import org.eclipse.dltk.ast.parser.IModuleDeclaration;
+import org.eclipse.dltk.ast.parser.SourceParserManager;
+import org.eclipse.dltk.compiler.problem.DefaultProblem;
+import org.eclipse.dltk.compiler.problem.DefaultProblemIdentifier;
+import org.eclipse.dltk.compiler.problem.IProblem;
+import org.eclipse.dltk.compiler.problem.ProblemCollector;
+import org.eclipse.dltk.compiler.problem.ProblemSeverity;
+import org.eclipse.dltk.core.DLTKCore;
+import org.eclipse.dltk.core.DLTKLanguageManager;
+import org.eclipse.dltk.core.IDLTKLanguageToolkit;
+import org.eclipse.dltk.core.ISourceModule;
+import org.eclipse.dltk.core.environment.EnvironmentPathUtils;
+import org.eclipse.dltk.core.environment.IFileHandle;
+import org.eclipse.dltk.internal.core.ASTSerializer.UnsupportedNodeException;
+
+/**
+ * The {@link IASTCache} persisting the module declarations built from the
+ * core AST classes on disk, so the modules are not parsed again after the
+ * restart. It is contributed for all the languages, the trees with the
+ * language specific nodes are just not stored.
+ *
+ * Every entry is stored in a separate file, keyed by the module path, the
+ * modification stamps of the underlying file and the version of the parser.
+ * The files are never overwritten: the new stamp or parser version produces
+ * the new file and the old files of the module are removed, since the
+ * memory-mapped file could not be deleted or replaced on some platforms until
+ * it is unmapped. Files of {@link #MAP_THRESHOLD} and more are mapped.
+ * Working copies are never cached.
+ */
+public class PersistentASTCache implements IASTCache {
+
+	private static final int MAGIC = 0x44415354; // DAST
+
+	private static final int FORMAT_VERSION = 1;
+
+	/**
+	 * Files smaller than this are read into the heap, since mapping has
+	 * significant setup cost
+	 */
+	private static final int MAP_THRESHOLD = 64 * 1024;
+
+	private static final String EXTENSION = ".ast"; //$NON-NLS-1$
+
+	private final File directory;
+
+	public PersistentASTCache() {
+		this(DLTKCore.getDefault().getStateLocation().append("astcache") //$NON-NLS-1$
+				.toFile());
+	}
+
+	public PersistentASTCache(File directory) {
+		this.directory = directory;
+	}
+
+	public ASTCacheEntry restoreModule(ISourceModule module) {
+		if (module.isWorkingCopy()) {
+			return null;
+		}
+		final long[] stamps = getStamps(module);
+		if (stamps == null) {
+			return null;
+		}
+		final String version = getParserVersion(module);
+		if (version == null) {
+			return null;
+		}
+		return restore(module.getPath().toString(), stamps[0], stamps[1],
+				version);
+	}
+
+	public void storeModule(ISourceModule module,
+			IModuleDeclaration moduleDeclaration, ProblemCollector problems) {
+		if (module.isWorkingCopy() || !(moduleDeclaration instanceof ASTNode)) {
+			return;
+		}
+		final long[] stamps = getStamps(module);
+		if (stamps == null) {
+			return;
+		}
+		final String version = getParserVersion(module);
+		if (version == null) {
+			return;
+		}
+		store(module.getPath().toString(), stamps[0], stamps[1], version,
+				moduleDeclaration, problems);
+	}
+
+	/**
+	 * Returns the modification stamps of the file containing the module or
+	 * <code>null</code> if not available. The resources are identified by
+	 * both the workspace modification stamp and the local time stamp, since
+	 * the former starts again when the resource is recreated, the external
+	 * files by the modification time and the length.
+	 */
+	private static long[] getStamps(ISourceModule module) {
+		final IResource resource = module.getResource();
+		if (resource != null) {
+			final long stamp = resource.getModificationStamp();
+			final long localStamp = resource.getLocalTimeStamp();
+			if (stamp == IResource.NULL_STAMP
+					|| localStamp == IResource.NULL_STAMP) {
+				return null;
+			}
+			return new long[] { stamp, localStamp };
+		}
+		final IFileHandle file = EnvironmentPathUtils.getFile(module, false);
+		if (file != null) {
+			final long lastModified = file.lastModified();
+			if (lastModified != 0) {
+				return new long[] { lastModified, file.length() };
+			}
+		}
+		return null;
+	}
+
+	private static String getParserVersion(ISourceModule module) {
+		final IDLTKLanguageToolkit toolkit = DLTKLanguageManager
+				.getLanguageToolkit(module);
+		if (toolkit == null) {
+			return null;
+		}
+		return SourceParserManager.getInstance().getSourceParserVersion(
+				module.getScriptProject().getProject(), toolkit.getNatureId());
+	}
+
+	/**
+	 * Restores the entry stored for the specified key or returns
+	 * <code>null</code>
+	 */
+	public ASTCacheEntry restore(String path, long stamp, long localStamp,
+			String version) {
+		final File file = getFile(path, stamp, localStamp, version);
+		if (!file.isFile()) {
+			return null;
+		}
+		try {
+			final ByteBuffer input = read(file);
+			if (input.getInt() != MAGIC || input.getInt() != FORMAT_VERSION
+					|| !version.equals(ASTSerializer.readString(input))
+					|| !path.equals(ASTSerializer.readString(input))
+					|| input.getLong() != stamp
+					|| input.getLong() != localStamp) {
+				return null;
+			}
+			final ASTCacheEntry entry = new ASTCacheEntry();
+			entry.problems = readProblems(input);
+			entry.module = (IModuleDeclaration) ASTSerializer.read(input);
+			return entry;
+		} catch (Exception e) {
+			// corrupted or truncated. If still mapped the deletion may fail,
+			// then it is retried the next time.
+			if (DLTKCore.DEBUG) {
+				e.printStackTrace();
+			}
+			file.delete();
+			return null;
+		}
+	}
+
+	/**
+	 * Stores the module declaration for the specified key, if it consists of
+	 * the supported nodes only.
+	 */
+	public void store(String path, long stamp, long localStamp,
+			String version, IModuleDeclaration module,
+			ProblemCollector problems) {
+		final File file = getFile(path, stamp, localStamp, version);
+		if (file.exists()) {
+			// the same key, so the same content
+			return;
+		}
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try {
+			final DataOutputStream output = new DataOutputStream(bytes);
+			output.writeInt(MAGIC);
+			output.writeInt(FORMAT_VERSION);
+			ASTSerializer.writeString(output, version);
+			ASTSerializer.writeString(output, path);
+			output.writeLong(stamp);
+			output.writeLong(localStamp);
+			if (!writeProblems(output, problems)) {
+				return;
+			}
+			ASTSerializer.write(output, (ASTNode) module);
+			output.flush();
+		} catch (UnsupportedNodeException e) {
+			return;
+		} catch (IOException e) {
+			DLTKCore.error("Error saving AST to the cache: " + path, e); //$NON-NLS-1$
+			return;
+		}
+		try {
+			write(file, bytes);
+		} catch (IOException e) {
+			DLTKCore.error("Error saving AST to the cache: " + path, e); //$NON-NLS-1$
+			return;
+		}
+		removeOthers(file);
+	}
+
+	/**
+	 * Removes all the stored entries. The files still mapped may be left.
+	 */
+	public void clear() {
+		final File[] modules = directory.listFiles();
+		if (modules != null) {
+			for (File module : modules) {
+				final File[] files = module.listFiles();
+				if (files != null) {
+					for (File file : files) {
+						file.delete();
+					}
+				}
+				module.delete();
+			}
+		}
+	}
+
+	/**
+	 * Returns the file for the specified key. The files of the module are
+	 * placed in the directory of its own, so the stale ones are found without
+	 * listing the whole cache.
+	 */
+	private File getFile(String path, long stamp, long localStamp,
+			String version) {
+		final File folder = new File(directory, Integer.toHexString(path
+				.hashCode())
+				+ '_' + path.length());
+		return new File(folder, Long.toHexString(stamp) + '_'
+				+ Long.toHexString(localStamp) + '_'
+				+ Integer.toHexString(version.hashCode()) + EXTENSION);
+	}
+
+	/**
+	 * Removes the other entries of the same module, the ones which could not
+	 * be removed now (being mapped) are removed with the next store.
+	 */
+	private static void removeOthers(File file) {
+		final File[] files = file.getParentFile().listFiles();
+		if (files != null) {
+			for (File other : files) {
+				if (!other.equals(file)
+						&& other.getName().endsWith(EXTENSION)) {
+					other.delete();
+				}
+			}
+		}
+	}
+
+	private static ByteBuffer read(File file) throws IOException {
+		final FileInputStream stream = new FileInputStream(file);
+		try {
+			final FileChannel channel = stream.getChannel();
+			final long size = channel.size();
+			if (size >= MAP_THRESHOLD) {
+				return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			}
+			final ByteBuffer buffer = ByteBuffer.allocate((int) size);
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer) < 0) {
+					throw new IOException("Unexpected end of file"); //$NON-NLS-1$
+				}
+			}
+			buffer.flip();
+			return buffer;
+		} finally {
+			stream.close();
+		}
+	}
+
+	private static void write(File file, ByteArrayOutputStream bytes)
+			throws IOException {
+		final File folder = file.getParentFile();
+		if (!folder.isDirectory() && !folder.mkdirs()) {
+			throw new IOException("Can't create " + folder); //$NON-NLS-1$
+		}
+		// write to the temporary file first, so readers never see partial
+		// content. The target does not exist, so renaming works everywhere.
+		final File temp = File.createTempFile("ast", ".tmp", folder); //$NON-NLS-1$ //$NON-NLS-2$
+		try {
+			final FileOutputStream output = new FileOutputStream(temp);
+			try {
+				bytes.writeTo(output);
+			} finally {
+				output.close();
+			}
+			// if stored concurrently with the same key, either file wins
+			temp.renameTo(file);
+		} finally {
+			temp.delete();
+		}
+	}
+
+	/**
+	 * @return <code>false</code> if the problems could not be stored
+	 */
+	private static boolean writeProblems(DataOutputStream output,
+			ProblemCollector problems) throws IOException {
+		if (problems == null) {
+			output.writeInt(-1);
+			return true;
+		}
+		final List<IProblem> values = problems.getProblems();
+		output.writeInt(values.size());
+		for (IProblem problem : values) {
+			if (problem.isTask()) {
+				// tasks are reported by the parsers rarely, don't bother
+				return false;
+			}
+			ASTSerializer.writeString(output, problem
+					.getOriginatingFileName());
+			ASTSerializer.writeString(output, problem.getMessage());
+			ASTSerializer.writeString(output, DefaultProblemIdentifier
+					.encode(problem.getID()));
+			final String[] arguments = problem.getArguments();
+			if (arguments == null) {
+				output.writeInt(-1);
+			} else {
+				output.writeInt(arguments.length);
+				for (String argument : arguments) {
+					ASTSerializer.writeString(output, argument);
+				}
+			}
+			final ProblemSeverity severity = problem.getSeverity();
+			output.writeInt(severity != null ? severity.ordinal() : -1);
+			output.writeInt(problem.getSourceStart());
+			output.writeInt(problem.getSourceEnd());
+			output.writeInt(problem.getSourceLineNumber());
+			output.writeInt(problem instanceof DefaultProblem ? ((DefaultProblem) problem)
+					.getColumn()
+					: 0);
+		}
+		return true;
+	}
+
+	private static ProblemCollector readProblems(ByteBuffer input) {
+		final int count = input.getInt();
+		if (count < 0) {
+			return null;
+		}
+		final ProblemSeverity[] severities = ProblemSeverity.values();
+		final ProblemCollector problems = new ProblemCollector();
+		for (int i = 0; i < count; ++i) {
+			final String fileName = ASTSerializer.readString(input);
+			final String message = ASTSerializer.readString(input);
+			final String id = ASTSerializer.readString(input);
+			final int argumentCount = input.getInt();
+			String[] arguments = null;
+			if (argumentCount >= 0) {
+				arguments = new String[argumentCount];
+				for (int j = 0; j < argumentCount; ++j) {
+					arguments[j] = ASTSerializer.readString(input);
+				}
+			}
+			final int severity = input.getInt();
+			final int start = input.getInt();
+			final int end = input.getInt();
+			final int line = input.getInt();
+			final int column = input.getInt();
+			problems.reportProblem(new DefaultProblem(fileName, message,
+					DefaultProblemIdentifier.decode(id), arguments,
+					severity >= 0 ? severities[severity] : null, start, end,
+					line, column));
+		}
+		return problems;
+	}
+}
@@ -33,11 +33,13 @@ class ProjectElementInfo extends OpenableElementInfo {
 		ProjectCache(IProjectFragment[] allProjectFragmentCache,
 				HashtableOfArrayToObject allPkgFragmentsCache,
 				HashtableOfArrayToObject isPackageCache,
+				NameLookupTable pkgFragmentsTable,
 				Map<IProjectFragment, BuildpathEntry> rootToResolvedEntries) {
 			this.allProjectFragmentCache = allProjectFragmentCache;
 			this.allPkgFragmentsCache = allPkgFragmentsCache;
 			this.rootToResolvedEntries = rootToResolvedEntries;
 			this.isPackageCache = isPackageCache;
+			this.pkgFragmentsTable = pkgFragmentsTable;
 		}
 
 		/*
@@ -57,7 +59,53 @@ class ProjectElementInfo extends OpenableElementInfo {
 		 */
 		public HashtableOfArrayToObject isPackageCache;
 
+		/*
+		 * The names of all package fragments in this project (String[]) sorted
+		 * for the prefix lookups.
+		 */
+		public NameLookupTable pkgFragmentsTable;
+
+		/*
+		 * The source modules of the source project fragments sorted by name
+		 * for the prefix lookups, computed on demand. Discarded when source
+		 * modules are added or removed.
+		 */
+		private volatile NameLookupTable sourceModulesTable;
+
 		public Map<IProjectFragment, BuildpathEntry> rootToResolvedEntries;
+
+		NameLookupTable getSourceModulesTable() {
+			NameLookupTable table = this.sourceModulesTable;
+			if (table == null) {
+				NameLookupTable.Builder builder = new NameLookupTable.Builder();
+				for (int i = 0, length = this.allProjectFragmentCache.length; i < length; i++) {
+					IProjectFragment root = this.allProjectFragmentCache[i];
+					try {
+						if (root.getKind() != IProjectFragment.K_SOURCE) {
+							continue;
+						}
+						IModelElement[] frags = root.getChildren();
+						for (int j = 0, length2 = frags.length; j < length2; j++) {
+							ISourceModule[] modules = ((IScriptFolder) frags[j])
+									.getSourceModules();
+							for (int k = 0; k < modules.length; k++) {
+								builder.add(modules[k].getElementName(),
+										modules[k]);
+							}
+						}
+					} catch (ModelException e) {
+						// root or package doesn't exist: ignore
+					}
+				}
+				table = builder.build();
+				this.sourceModulesTable = table;
+			}
+			return table;
+		}
+
+		void resetSourceModulesTable() {
+			this.sourceModulesTable = null;
+		}
 	}
 
 	ProjectCache projectCache;
@@ -75,6 +123,16 @@ class ProjectElementInfo extends OpenableElementInfo {
 		this.projectCache = null;
 	}
 
+	/*
+	 * Reset the source modules cache, keeping the package fragments ones
+	 */
+	void resetSourceModuleCaches() {
+		ProjectCache cache = this.projectCache;
+		if (cache != null) {
+			cache.resetSourceModulesTable();
+		}
+	}
+
 	void setForeignResources(Object[] resources) {
 
 		this.foreignResources = resources;
@@ -226,9 +284,7 @@ class ProjectElementInfo extends OpenableElementInfo {
 	NameLookup newNameLookup(ScriptProject project,
 			ISourceModule[] workingCopies) {
 		ProjectCache cache = getProjectCache(project);
-		return new NameLookup(cache.allProjectFragmentCache,
-				cache.allPkgFragmentsCache, cache.isPackageCache,
-				workingCopies, cache.rootToResolvedEntries);
+		return new NameLookup(cache, workingCopies);
 	}
 
 	ProjectCache getProjectCache(ScriptProject project) {
@@ -247,6 +303,7 @@ class ProjectElementInfo extends OpenableElementInfo {
 			}
 			HashtableOfArrayToObject fragmentsCache = new HashtableOfArrayToObject();
 			HashtableOfArrayToObject isPackageCache = new HashtableOfArrayToObject();
+			NameLookupTable.Builder fragmentsTable = new NameLookupTable.Builder();
 			for (int i = 0, length = roots.length; i < length; i++) {
 				IProjectFragment root = roots[i];
 				IModelElement[] frags = null;
@@ -274,6 +331,7 @@ class ProjectElementInfo extends OpenableElementInfo {
 					Object existing = fragmentsCache.get(pkgName);
 					if (existing == null) {
 						fragmentsCache.put(pkgName, root);
+						fragmentsTable.add(pkgName, pkgName);
 						// cache whether each package and its including packages
 						// (see
 						// https://bugs.eclipse.org/bugs/show_bug.cgi?id=119161)
@@ -294,7 +352,7 @@ class ProjectElementInfo extends OpenableElementInfo {
 				}
 			}
 			cache = new ProjectCache(roots, fragmentsCache, isPackageCache,
-					reverseMap);
+					fragmentsTable.build(), reverseMap);
 			this.projectCache = cache;
 		}
 		return cache;
@@ -1056,6 +1056,18 @@ public class ScriptProject extends Openable implements IScriptProject,
 		}
 	}
 
+	/*
+	 * Resets this project's source modules caches, after the source modules
+	 * were added or removed
+	 */
+	public void resetSourceModuleCaches() {
+		ProjectElementInfo info = (ProjectElementInfo) ModelManager
+				.getModelManager().peekAtInfo(this);
+		if (info != null) {
+			info.resetSourceModuleCaches();
+		}
+	}
+
 	public void resetResolvedBuildpath() {
 		try {
 			getPerProjectInfo().resetResolvedBuildpath();
@@ -11,10 +11,13 @@ package org.eclipse.dltk.internal.core;
 
 import java.lang.ref.ReferenceQueue;
 import java.lang.ref.SoftReference;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
@@ -26,39 +29,73 @@ import org.eclipse.core.resources.IResourceDeltaVisitor;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.dltk.annotations.Internal;
 import org.eclipse.dltk.core.DLTKCore;
+import org.eclipse.dltk.core.DLTKLanguageManager;
+import org.eclipse.dltk.core.IDLTKLanguageToolkit;
 import org.eclipse.dltk.core.ISourceModule;
 import org.eclipse.dltk.core.ISourceModuleInfoCache;
+import org.eclipse.dltk.core.RuntimePerformanceMonitor;
 
 /**
  * Used to cache some source module information. All information related to
  * source module are removed, then source module are changed.
+ * 
+ * Lookups don't acquire any locks: entries are kept in the concurrent map and
+ * stamped with the value of the global access clock. When the capacity is
+ * exceeded, the least recently used entries are evicted in a batch (under the
+ * separate lock).
  */
 public class SourceModuleInfoCache implements ISourceModuleInfoCache,
 		IResourceChangeListener, IResourceDeltaVisitor {
 	@Internal
 	final int capacity = ModelCache.DEFAULT_ROOT_SIZE * 50;
 
+	/** Number of the entries evicted at once */
+	private final int evictionBatch = Math.max(1, capacity / 10);
+
 	private final ReferenceQueue<ISourceModuleInfo> queue = new ReferenceQueue<ISourceModuleInfo>();
 
-	@SuppressWarnings("serial")
-	private final Map<ISourceModule, CacheReference> map = new LinkedHashMap<ISourceModule, CacheReference>(
-			16, 0.9f, true) {
-		protected boolean removeEldestEntry(
-				Map.Entry<ISourceModule, CacheReference> eldest) {
-			return size() > capacity;
-		}
-	};
+	private final ConcurrentMap<ISourceModule, CacheReference> map = new ConcurrentHashMap<ISourceModule, CacheReference>(
+			capacity, 0.9f, 16);
+
+	/** Number of entries in the {@link #map}, as its size() is expensive */
+	private final AtomicInteger entryCount = new AtomicInteger();
+
+	private final AtomicLong clock = new AtomicLong();
+
+	private final Object evictionLock = new Object();
+
+	private static final String HITS = "SourceModuleInfoCache hits"; //$NON-NLS-1$
+	private static final String MISSES = "SourceModuleInfoCache misses"; //$NON-NLS-1$
+	private static final String EVICTIONS = "SourceModuleInfoCache evictions"; //$NON-NLS-1$
+
+	/**
+	 * Number of the events accumulated before they are passed to the
+	 * {@link RuntimePerformanceMonitor}, so it's global monitor is not acquired
+	 * on every lookup.
+	 */
+	private static final int REPORT_INTERVAL = 100;
+
+	private final ConcurrentMap<String, Counters> counters = new ConcurrentHashMap<String, Counters>();
+
+	private static class Counters {
+		final AtomicInteger hits = new AtomicInteger();
+		final AtomicInteger misses = new AtomicInteger();
+		final AtomicInteger evictions = new AtomicInteger();
+	}
 
 	private static class CacheReference extends
 			SoftReference<ISourceModuleInfo> {
 		final long modificationStamp;
 		final ISourceModule module;
+		final String natureId;
+		volatile long lastAccess;
 
 		public CacheReference(ISourceModule module, ISourceModuleInfo referent,
-				ReferenceQueue<? super ISourceModuleInfo> q) {
+				ReferenceQueue<? super ISourceModuleInfo> q, String natureId) {
 			super(referent, q);
 			this.module = module;
 			this.modificationStamp = getModificationStamp(module);
+			this.natureId = natureId;
 		}
 
 		private static long getModificationStamp(ISourceModule module) {
@@ -82,6 +119,7 @@ public class SourceModuleInfoCache implements ISourceModuleInfoCache,
 
 	public void stop() {
 		DLTKCore.removePreProcessingResourceChangedListener(this);
+		reportCounters();
 	}
 
 	private void expungeStaleEntries() {
@@ -90,25 +128,131 @@ public class SourceModuleInfoCache implements ISourceModuleInfoCache,
 				System.out.println("[Cache] expunge "
 						+ r.module.getElementName());
 			}
-			map.remove(r.module);
+			if (removeEntry(r)) {
+				count(r.natureId, EVICTIONS);
+			}
 		}
 	}
 
-	public synchronized ISourceModuleInfo get(ISourceModule module) {
+	public ISourceModuleInfo get(ISourceModule module) {
 		expungeStaleEntries();
-		final CacheReference ref = map.get(module);
-		if (ref != null) {
-			final ISourceModuleInfo info = ref.get();
-			if (info != null && ref.isValid(module)) {
+		for (;;) {
+			final CacheReference ref = map.get(module);
+			if (ref != null) {
+				final ISourceModuleInfo info = ref.get();
+				if (info != null && ref.isValid(module)) {
+					ref.lastAccess = clock.incrementAndGet();
+					count(ref.natureId, HITS);
+					return info;
+				}
+				removeEntry(ref);
+			}
+			final ISourceModuleInfo info = new SourceModuleInfo();
+			final CacheReference newRef = new CacheReference(module, info,
+					queue, getNatureId(module));
+			newRef.lastAccess = clock.incrementAndGet();
+			if (map.putIfAbsent(module, newRef) == null) {
+				entryCount.incrementAndGet();
+				count(newRef.natureId, MISSES);
+				evictIfNeeded();
 				return info;
 			}
+			// concurrently added by another thread, use it
+		}
+	}
+
+	/**
+	 * Removes the least recently used entries when the capacity is exceeded.
+	 * Every scan of the map evicts {@link #evictionBatch} entries more than
+	 * needed, so the map is scanned once per that many insertions rather than
+	 * on every insertion.
+	 */
+	private void evictIfNeeded() {
+		if (entryCount.get() <= capacity) {
+			return;
+		}
+		synchronized (evictionLock) {
+			if (entryCount.get() <= capacity) {
+				// evicted by another thread
+				return;
+			}
+			// take a snapshot, as the access times change concurrently
+			final CacheReference[] refs = map.values().toArray(
+					new CacheReference[0]);
+			final int evictCount = Math.min(refs.length, entryCount.get()
+					- capacity + evictionBatch);
+			if (evictCount <= 0) {
+				return;
+			}
+			final long[] accesses = new long[refs.length];
+			for (int i = 0; i < refs.length; ++i) {
+				accesses[i] = refs[i].lastAccess;
+			}
+			final long[] sorted = accesses.clone();
+			Arrays.sort(sorted);
+			final long threshold = sorted[evictCount - 1];
+			int evicted = 0;
+			for (int i = 0; i < refs.length && evicted < evictCount; ++i) {
+				if (accesses[i] <= threshold && removeEntry(refs[i])) {
+					count(refs[i].natureId, EVICTIONS);
+					++evicted;
+				}
+			}
 		}
-		final ISourceModuleInfo info = new SourceModuleInfo();
-		map.put(module, new CacheReference(module, info, queue));
-		return info;
 	}
 
-	public synchronized void resourceChanged(IResourceChangeEvent event) {
+	private boolean removeEntry(CacheReference ref) {
+		if (map.remove(ref.module, ref)) {
+			entryCount.decrementAndGet();
+			return true;
+		}
+		return false;
+	}
+
+	private static String getNatureId(ISourceModule module) {
+		final IDLTKLanguageToolkit toolkit = DLTKLanguageManager
+				.getLanguageToolkit(module);
+		return toolkit != null ? toolkit.getNatureId() : DLTKCore.PLUGIN_ID;
+	}
+
+	private void count(String natureId, String kind) {
+		Counters c = counters.get(natureId);
+		if (c == null) {
+			final Counters newCounters = new Counters();
+			c = counters.putIfAbsent(natureId, newCounters);
+			if (c == null) {
+				c = newCounters;
+			}
+		}
+		final AtomicInteger counter = kind == HITS ? c.hits
+				: kind == MISSES ? c.misses : c.evictions;
+		if (counter.incrementAndGet() >= REPORT_INTERVAL) {
+			report(natureId, kind, counter);
+		}
+	}
+
+	private static void report(String natureId, String kind,
+			AtomicInteger counter) {
+		final int value = counter.getAndSet(0);
+		if (value != 0) {
+			RuntimePerformanceMonitor.updateData(natureId, kind, 0, value);
+		}
+	}
+
+	/**
+	 * Passes all the accumulated hit/miss/eviction counters to the
+	 * {@link RuntimePerformanceMonitor}
+	 */
+	public void reportCounters() {
+		for (Map.Entry<String, Counters> entry : counters.entrySet()) {
+			final Counters c = entry.getValue();
+			report(entry.getKey(), HITS, c.hits);
+			report(entry.getKey(), MISSES, c.misses);
+			report(entry.getKey(), EVICTIONS, c.evictions);
+		}
+	}
+
+	public void resourceChanged(IResourceChangeEvent event) {
 		expungeStaleEntries();
 		final IResourceDelta delta = event.getDelta();
 		try {
@@ -162,43 +306,53 @@ public class SourceModuleInfoCache implements ISourceModuleInfoCache,
 
 	@Internal
 	static class SourceModuleInfo implements ISourceModuleInfo {
-		private Map<Object, Object> map;
+		private volatile Map<Object, Object> map;
 
-		public synchronized Object get(String key) {
-			if (map == null) {
+		public Object get(String key) {
+			final Map<Object, Object> m = map;
+			if (m == null) {
 				return null;
 			}
-			return map.get(key);
+			return m.get(key);
 		}
 
-		public synchronized void put(String key, Object value) {
-			if (map == null) {
-				map = new HashMap<Object, Object>();
+		public void put(String key, Object value) {
+			if (value == null) {
+				remove(key);
+				return;
+			}
+			Map<Object, Object> m = map;
+			if (m == null) {
+				synchronized (this) {
+					m = map;
+					if (m == null) {
+						m = new ConcurrentHashMap<Object, Object>(4, 0.75f, 1);
+						map = m;
+					}
+				}
 			}
-			map.put(key, value);
+			m.put(key, value);
 		}
 
-		public synchronized void remove(String key) {
-			if (map != null) {
-				map.remove(key);
+		public void remove(String key) {
+			final Map<Object, Object> m = map;
+			if (m != null) {
+				m.remove(key);
 			}
 		}
 
-		public synchronized boolean isEmpty() {
-			return this.map == null || this.map.isEmpty();
+		public boolean isEmpty() {
+			final Map<Object, Object> m = map;
+			return m == null || m.isEmpty();
 		}
 	}
 
-	/**
-	 * Not synchronized here, as it's called only from
-	 * {@link #resourceChanged(IResourceChangeEvent)} which is already
-	 * synchronized.
-	 */
 	private void removeByProject(IProject project) {
-		for (Iterator<ISourceModule> i = map.keySet().iterator(); i.hasNext();) {
-			final ISourceModule module = i.next();
-			if (project.equals(module.getScriptProject().getProject())) {
-				i.remove();
+		for (Iterator<CacheReference> i = map.values().iterator(); i
+				.hasNext();) {
+			final CacheReference ref = i.next();
+			if (project.equals(ref.module.getScriptProject().getProject())) {
+				removeEntry(ref);
 			}
 		}
 	}
@@ -207,24 +361,29 @@ public class SourceModuleInfoCache implements ISourceModuleInfoCache,
 		remove(DLTKCore.createSourceModuleFrom(file));
 	}
 
-	public synchronized void remove(ISourceModule module) {
+	public void remove(ISourceModule module) {
 		if (DEBUG) {
 			System.out.println("[Cache] remove " + module.getElementName()); //$NON-NLS-1$
 		}
-		map.remove(module);
+		final CacheReference ref = map.get(module);
+		if (ref != null) {
+			removeEntry(ref);
+		}
 	}
 
 	private static final boolean DEBUG = false;
 
-	public synchronized void clear() {
+	public void clear() {
 		// clear out reference queue.
 		while (queue.poll() != null)
 			;
-		map.clear();
+		for (CacheReference ref : map.values()) {
+			removeEntry(ref);
+		}
 	}
 
-	public synchronized int size() {
-		return map.size();
+	public int size() {
+		return entryCount.get();
 	}
 
 	public int capacity() {
@@ -13,6 +13,12 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
@@ -39,6 +45,7 @@ import org.eclipse.dltk.core.builder.IBuildParticipantExtension;
 import org.eclipse.dltk.core.builder.IBuildParticipantExtension2;
 import org.eclipse.dltk.core.builder.IBuildParticipantExtension3;
 import org.eclipse.dltk.core.builder.IBuildParticipantExtension4;
+import org.eclipse.dltk.core.builder.IBuildParticipantExtension5;
 import org.eclipse.dltk.core.builder.IBuildParticipantFilter;
 import org.eclipse.dltk.core.builder.IBuildState;
 import org.eclipse.dltk.core.builder.IProjectChange;
@@ -51,6 +58,11 @@ public class StandardScriptBuilder implements IScriptBuilder {
 
 	private static final int WORK_BUILD = 100;
 
+	/**
+	 * Minimal number of modules to be built in parallel
+	 */
+	private static final int PARALLEL_BUILD_THRESHOLD = 10;
+
 	public void prepare(IBuildChange change, IBuildState state,
 			IProgressMonitor monitor) throws CoreException {
 		if (participants != null) {
@@ -102,6 +114,12 @@ public class StandardScriptBuilder implements IScriptBuilder {
 		if (extensions != null) {
 			final List<ISourceModule> externalElements = change
 					.getExternalModules(IProjectChange.DEFAULT);
+			final int threads = getParallelThreads(externalElements.size());
+			if (threads > 1) {
+				buildExternalElementsInParallel(extensions, externalElements,
+						buildType, threads, monitor);
+				return;
+			}
 			int remainingWork = externalElements.size();
 			for (final ISourceModule module : externalElements) {
 				if (monitor.isCanceled())
@@ -129,6 +147,51 @@ public class StandardScriptBuilder implements IScriptBuilder {
 		}
 	}
 
+	private void buildExternalElementsInParallel(
+			final List<IBuildParticipantExtension2> extensions,
+			List<ISourceModule> externalElements, int buildType, int threads,
+			IProgressMonitor monitor) {
+		final ExecutorService executor = getExecutor(threads);
+		final int size = externalElements.size();
+		final Future<?>[] futures = new Future<?>[size];
+		int submitted = 0;
+		try {
+			for (int i = 0; i < size; ++i) {
+				if (monitor.isCanceled()) {
+					return;
+				}
+				for (final int limit = Math.min(size, i + getWindow(threads)); submitted < limit; ++submitted) {
+					final ISourceModule module = externalElements.get(submitted);
+					final ExternalModuleBuildContext context = new ExternalModuleBuildContext(
+							module, buildType);
+					futures[submitted] = executor.submit(new Runnable() {
+						public void run() {
+							try {
+								for (int j = 0; j < extensions.size(); ++j) {
+									extensions.get(j).buildExternalModule(
+											context);
+								}
+							} catch (CoreException e) {
+								DLTKCore.error(
+										NLS.bind(
+												Messages.StandardScriptBuilder_errorBuildingExternalModule,
+												module.getElementName()), e);
+							}
+						}
+					});
+				}
+				monitor.subTask(NLS.bind(
+						Messages.ValidatorBuilder_buildExternalModuleSubTask,
+						String.valueOf(size - i), externalElements.get(i)
+								.getElementName()));
+				waitFor(futures[i]);
+				futures[i] = null;
+			}
+		} finally {
+			cancel(futures);
+		}
+	}
+
 	/**
 	 * @return
 	 */
@@ -182,10 +245,15 @@ public class StandardScriptBuilder implements IScriptBuilder {
 		if (participants.length == 0) {
 			return;
 		}
-		int counter = 0;
 		if (reporters == null) {
 			reporters = new ArrayList<IProblemReporter>(modules.size());
 		}
+		final int threads = getParallelThreads(modules.size());
+		if (threads > 1) {
+			buildNatureModulesInParallel(buildType, modules, threads, monitor);
+			return;
+		}
+		int counter = 0;
 		for (Iterator<ISourceModule> j = modules.iterator(); j.hasNext();) {
 			if (monitor.isCanceled())
 				return;
@@ -205,6 +273,178 @@ public class StandardScriptBuilder implements IScriptBuilder {
 		}
 	}
 
+	/**
+	 * Builds the modules using the worker pool. Participants are filtered and
+	 * the progress is reported on the builder thread, problems are collected
+	 * in the per module reporters as usual and converted to markers in
+	 * {@link #endBuild(IScriptProject, IBuildState, IProgressMonitor)}. Only
+	 * the {@link #getWindow(int) window} of modules following the one being
+	 * waited for is submitted to the pool, so the contexts of the whole
+	 * project are never kept in memory at once.
+	 */
+	private void buildNatureModulesInParallel(int buildType,
+			List<ISourceModule> modules, int threads, IProgressMonitor monitor) {
+		final ExecutorService executor = getExecutor(threads);
+		final int size = modules.size();
+		final SourceModuleBuildContext[] contexts = new SourceModuleBuildContext[size];
+		final Future<?>[] futures = new Future<?>[size];
+		int submitted = 0;
+		try {
+			for (int i = 0; i < size; ++i) {
+				if (monitor.isCanceled()) {
+					return;
+				}
+				for (final int limit = Math.min(size, i + getWindow(threads)); submitted < limit; ++submitted) {
+					final SourceModuleBuildContext context = new SourceModuleBuildContext(
+							problemFactory, modules.get(submitted), buildType);
+					contexts[submitted] = context;
+					final IBuildParticipant[] selected = context.reporter != null ? selectParticipants(context)
+							: null;
+					if (selected != null) {
+						futures[submitted] = executor.submit(new Runnable() {
+							public void run() {
+								buildModule(context, selected);
+							}
+						});
+					}
+				}
+				final SourceModuleBuildContext context = contexts[i];
+				monitor.subTask(NLS.bind(
+						Messages.ValidatorBuilder_buildModuleSubTask,
+						String.valueOf(size - i), context.getSourceModule()
+								.getElementName()));
+				if (futures[i] != null) {
+					waitFor(futures[i]);
+					futures[i] = null;
+				}
+				if (context.reporter != null) {
+					reporters.add(context.reporter);
+				}
+				contexts[i] = null;
+				monitor.worked(1);
+			}
+		} finally {
+			cancel(futures);
+		}
+	}
+
+	/**
+	 * Returns the number of modules submitted to the pool ahead of the one
+	 * being waited for, enough to keep all the threads busy.
+	 */
+	private static int getWindow(int threads) {
+		return threads * 2;
+	}
+
+	/**
+	 * Returns the number of threads to build the specified number of modules,
+	 * <code>1</code> if modules should be built sequentially.
+	 */
+	private int getParallelThreads(int moduleCount) {
+		if (moduleCount < PARALLEL_BUILD_THRESHOLD) {
+			return 1;
+		}
+		for (IBuildParticipant participant : participants) {
+			if (!(participant instanceof IBuildParticipantExtension5 && ((IBuildParticipantExtension5) participant)
+					.isThreadSafe())) {
+				return 1;
+			}
+		}
+		final String value = DLTKCore.getOption(DLTKCore.BUILDER_THREADS);
+		if (value != null) {
+			try {
+				return Math.min(Integer.parseInt(value), moduleCount);
+			} catch (NumberFormatException e) {
+				// fall thru
+			}
+		}
+		return 1;
+	}
+
+	private ExecutorService executor = null;
+
+	/**
+	 * Returns the worker pool of the current build, it is created on the first
+	 * call and shared by the external and the project modules.
+	 */
+	private ExecutorService getExecutor(int threads) {
+		if (executor == null) {
+			executor = Executors.newFixedThreadPool(threads,
+					new ThreadFactory() {
+						private int counter = 0;
+
+						public Thread newThread(Runnable r) {
+							final Thread thread = new Thread(r,
+									"Script Builder Worker-" + (++counter)); //$NON-NLS-1$
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+		}
+		return executor;
+	}
+
+	/**
+	 * Waits for the modules being built by the workers and stops the pool, so
+	 * the participants are not called after their endBuild().
+	 */
+	private void shutdownExecutor() {
+		if (executor != null) {
+			executor.shutdown();
+			boolean interrupted = false;
+			try {
+				for (;;) {
+					try {
+						executor.awaitTermination(Long.MAX_VALUE,
+								TimeUnit.MILLISECONDS);
+						break;
+					} catch (InterruptedException e) {
+						interrupted = true;
+					}
+				}
+			} finally {
+				if (interrupted) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			executor = null;
+		}
+	}
+
+	/**
+	 * Cancels the modules not built yet, e.g. if the build was canceled.
+	 */
+	private static void cancel(Future<?>[] futures) {
+		for (Future<?> future : futures) {
+			if (future != null) {
+				future.cancel(false);
+			}
+		}
+	}
+
+	private static void waitFor(Future<?> future) {
+		boolean interrupted = false;
+		try {
+			for (;;) {
+				try {
+					future.get();
+					return;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				} catch (ExecutionException e) {
+					DLTKCore.error(
+							Messages.StandardScriptBuilder_errorBuildingModule,
+							e.getCause());
+					return;
+				}
+			}
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
 	/**
 	 * Calls {@link IBuildParticipantExtension#beginBuild(int)} for all
 	 * {@link #participants}. Returns <code>true</code> if it was called for
@@ -248,13 +488,29 @@ public class StandardScriptBuilder implements IScriptBuilder {
 	}
 
 	private void buildModule(IBuildContext context) {
+		final IBuildParticipant[] selected = selectParticipants(context);
+		if (selected != null) {
+			buildModule(context, selected);
+		}
+	}
+
+	/**
+	 * Returns participants selected by {@link #filters} for the specified
+	 * context or <code>null</code> if there are none
+	 */
+	private IBuildParticipant[] selectParticipants(IBuildContext context) {
 		IBuildParticipant[] selected = participants;
 		for (IBuildParticipantFilter filter : filters) {
 			selected = filter.filter(selected, context);
 			if (selected == null || selected.length == 0) {
-				return;
+				return null;
 			}
 		}
+		return selected;
+	}
+
+	private void buildModule(IBuildContext context,
+			IBuildParticipant[] selected) {
 		try {
 			for (int k = 0; k < selected.length; ++k) {
 				selected[k].build(context);
@@ -352,6 +608,7 @@ public class StandardScriptBuilder implements IScriptBuilder {
 
 	public void endBuild(IScriptProject project, IBuildState state,
 			IProgressMonitor monitor) {
+		shutdownExecutor();
 		if (endBuildNeeded) {
 			monitor.subTask(Messages.ValidatorBuilder_finalizeBuild);
 			final IProgressMonitor finalizeMonitor = new SubTaskProgressMonitor(
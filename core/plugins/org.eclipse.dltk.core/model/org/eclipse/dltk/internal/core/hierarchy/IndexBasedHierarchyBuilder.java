@@ -15,6 +15,7 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 import org.eclipse.core.resources.IFile;
@@ -23,6 +24,7 @@ import org.eclipse.core.runtime.SubProgressMonitor;
 import org.eclipse.dltk.compiler.CharOperation;
 import org.eclipse.dltk.compiler.util.HashtableOfObject;
 import org.eclipse.dltk.compiler.util.HashtableOfObjectToInt;
+import org.eclipse.dltk.core.IDLTKLanguageToolkit;
 import org.eclipse.dltk.core.IModelElement;
 import org.eclipse.dltk.core.IProjectFragment;
 import org.eclipse.dltk.core.IScriptProject;
@@ -33,6 +35,7 @@ import org.eclipse.dltk.core.ModelException;
 import org.eclipse.dltk.core.search.DLTKSearchParticipant;
 import org.eclipse.dltk.core.search.IDLTKSearchConstants;
 import org.eclipse.dltk.core.search.IDLTKSearchScope;
+import org.eclipse.dltk.core.search.SearchEngine;
 import org.eclipse.dltk.core.search.SearchParticipant;
 import org.eclipse.dltk.core.search.SearchPattern;
 import org.eclipse.dltk.core.search.indexing.IIndexConstants;
@@ -44,6 +47,7 @@ import org.eclipse.dltk.internal.core.Member;
 import org.eclipse.dltk.internal.core.ModelManager;
 import org.eclipse.dltk.internal.core.Openable;
 import org.eclipse.dltk.internal.core.ScriptProject;
+import org.eclipse.dltk.internal.core.hierarchy.SubTypeCache.SubTypeReference;
 import org.eclipse.dltk.internal.core.search.IndexQueryRequestor;
 import org.eclipse.dltk.internal.core.search.SubTypeSearchJob;
 import org.eclipse.dltk.internal.core.search.matching.SuperTypeReferencePattern;
@@ -517,16 +521,9 @@ public class IndexBasedHierarchyBuilder extends HierarchyBuilder {
 					AccessRuleSet access) {
 				SuperTypeReferencePattern record = (SuperTypeReferencePattern) indexRecord;
 				boolean isLocalOrAnonymous = record.enclosingTypeName == IIndexConstants.ONE_ZERO;
-				pathRequestor.acceptPath(documentPath, isLocalOrAnonymous);
-				char[] typeName = record.simpleName;
-
-				if (!isLocalOrAnonymous // local or anonymous types cannot have
-										// subtypes outside the cu that define
-										// them
-						&& !foundSuperNames.containsKey(typeName)) {
-					foundSuperNames.put(typeName, typeName);
-					queue.add(typeName);
-				}
+				acceptSubType(documentPath, record.simpleName,
+						isLocalOrAnonymous, pathRequestor, queue,
+						foundSuperNames);
 				return true;
 			}
 		};
@@ -541,6 +538,38 @@ public class IndexBasedHierarchyBuilder extends HierarchyBuilder {
 				new DLTKSearchParticipant(), // java search only
 				scope, searchRequestor);
 
+		/*
+		 * references to the super types are cached for the whole workspace
+		 * and filtered with the scope here
+		 */
+		final IDLTKLanguageToolkit toolkit = scope.getLanguageToolkit();
+		final SubTypeCache cache = toolkit != null ? SubTypeCache.getDefault()
+				: null;
+		final List<SubTypeReference> collected = new ArrayList<SubTypeReference>();
+		SuperTypeReferencePattern workspacePattern = null;
+		SubTypeSearchJob workspaceJob = null;
+		if (cache != null) {
+			workspacePattern = new SuperTypeReferencePattern(null, null,
+					superRefKind, SearchPattern.R_EXACT_MATCH
+							| SearchPattern.R_CASE_SENSITIVE, toolkit);
+			MatchLocator.setFocus(workspacePattern, type);
+			workspaceJob = new SubTypeSearchJob(workspacePattern,
+					new DLTKSearchParticipant(),
+					SearchEngine.createWorkspaceScope(toolkit),
+					new IndexQueryRequestor() {
+						public boolean acceptIndexMatch(String documentPath,
+								SearchPattern indexRecord,
+								SearchParticipant participant,
+								AccessRuleSet access) {
+							SuperTypeReferencePattern record = (SuperTypeReferencePattern) indexRecord;
+							collected.add(new SubTypeReference(documentPath,
+									record.simpleName,
+									record.enclosingTypeName == IIndexConstants.ONE_ZERO));
+							return true;
+						}
+					});
+		}
+
 		int ticks = 0;
 		queue.add(type.getElementName().toCharArray());
 		try {
@@ -556,19 +585,48 @@ public class IndexBasedHierarchyBuilder extends HierarchyBuilder {
 					currentTypeName = null;
 				}
 
-				// search all index references to a given supertype
-				pattern.superSimpleName = currentTypeName;
-				indexManager.performConcurrentJob(job, waitingPolicy, null); // no
-																				// sub
-																				// progress
-																				// monitor
-																				// since
-																				// its
-																				// too
-																				// costly
-																				// for
-																				// deep
-																				// hierarchies
+				if (cache != null && currentTypeName != null) {
+					final String superTypeName = new String(currentTypeName);
+					SubTypeReference[] subTypes = cache.get(
+							toolkit.getNatureId(), superTypeName);
+					if (subTypes == null) {
+						final int generation = cache.getGeneration();
+						collected.clear();
+						workspacePattern.superSimpleName = currentTypeName;
+						final boolean complete = indexManager
+								.performConcurrentJob(workspaceJob,
+										waitingPolicy, null);
+						subTypes = collected
+								.toArray(new SubTypeReference[collected
+										.size()]);
+						if (complete) {
+							cache.put(toolkit.getNatureId(), superTypeName,
+									subTypes, generation);
+						}
+					}
+					for (SubTypeReference subType : subTypes) {
+						if (scope.encloses(subType.documentPath)) {
+							acceptSubType(subType.documentPath,
+									subType.typeName,
+									subType.isLocalOrAnonymous, pathRequestor,
+									queue, foundSuperNames);
+						}
+					}
+				} else {
+					// search all index references to a given supertype
+					pattern.superSimpleName = currentTypeName;
+					indexManager.performConcurrentJob(job, waitingPolicy, null); // no
+																					// sub
+																					// progress
+																					// monitor
+																					// since
+																					// its
+																					// too
+																					// costly
+																					// for
+																					// deep
+																					// hierarchies
+				}
 				if (progressMonitor != null && ++ticks <= MAXTICKS) {
 					progressMonitor.worked(1);
 				}
@@ -580,6 +638,22 @@ public class IndexBasedHierarchyBuilder extends HierarchyBuilder {
 			}
 		} finally {
 			job.finished();
+			if (workspaceJob != null) {
+				workspaceJob.finished();
+			}
+		}
+	}
+
+	private static void acceptSubType(String documentPath, char[] typeName,
+			boolean isLocalOrAnonymous, IPathRequestor pathRequestor,
+			Queue queue, HashtableOfObject foundSuperNames) {
+		pathRequestor.acceptPath(documentPath, isLocalOrAnonymous);
+		if (!isLocalOrAnonymous // local or anonymous types cannot have
+								// subtypes outside the cu that define
+								// them
+				&& !foundSuperNames.containsKey(typeName)) {
+			foundSuperNames.put(typeName, typeName);
+			queue.add(typeName);
 		}
 	}
 }
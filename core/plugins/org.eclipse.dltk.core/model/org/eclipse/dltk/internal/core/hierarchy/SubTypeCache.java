@@ -0,0 +1,395 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.internal.core.hierarchy;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.dltk.compiler.CharOperation;
+import org.eclipse.dltk.core.DLTKCore;
+import org.eclipse.dltk.core.ElementChangedEvent;
+import org.eclipse.dltk.core.IElementChangedListener;
+import org.eclipse.dltk.core.IModelElement;
+import org.eclipse.dltk.core.IModelElementDelta;
+import org.eclipse.dltk.core.ISourceModule;
+import org.eclipse.dltk.core.search.indexing.IIndexConstants;
+
+/**
+ * Workspace level cache of the super type references found in the indexes,
+ * used by
+ * {@link IndexBasedHierarchyBuilder#searchAllPossibleSubTypes(org.eclipse.dltk.core.IType, org.eclipse.dltk.core.search.IDLTKSearchScope, Map, org.eclipse.dltk.internal.core.IPathRequestor, int, org.eclipse.core.runtime.IProgressMonitor)}
+ * so the walk over the deep hierarchies doesn't query the indexes again and
+ * again.
+ *
+ * The references are keyed by the simple name of the super type (the way they
+ * are stored in the indexes) and the language nature. The cache is maintained
+ * incrementally: the indexes report the documents removed from them and the
+ * super type names added to them, so only the affected names are discarded.
+ * Buildpath and project changes discard everything.
+ *
+ * The content is saved on shutdown and restored on the next start. The file is
+ * deleted once loaded, so the stale data is never read after a crash.
+ */
+public class SubTypeCache implements IElementChangedListener {
+
+	/**
+	 * The type declared in the document, which references the super type
+	 */
+	public static class SubTypeReference {
+		public final String documentPath;
+		public final char[] typeName;
+		public final boolean isLocalOrAnonymous;
+
+		public SubTypeReference(String documentPath, char[] typeName,
+				boolean isLocalOrAnonymous) {
+			this.documentPath = documentPath;
+			this.typeName = typeName;
+			this.isLocalOrAnonymous = isLocalOrAnonymous;
+		}
+	}
+
+	private static final int MAGIC = 0x44535443; // DSTC
+
+	private static final int FORMAT_VERSION = 1;
+
+	private static final String FILE_NAME = "subtypes.cache"; //$NON-NLS-1$
+
+	private static final int DEFAULT_CAPACITY = 5000;
+
+	/*
+	 * delta flags of the projects and fragments invalidating the whole cache
+	 */
+	private static final int BUILDPATH_FLAGS = IModelElementDelta.F_BUILDPATH_CHANGED
+			| IModelElementDelta.F_RESOLVED_BUILDPATH_CHANGED
+			| IModelElementDelta.F_ADDED_TO_BUILDPATH
+			| IModelElementDelta.F_REMOVED_FROM_BUILDPATH
+			| IModelElementDelta.F_ARCHIVE_CONTENT_CHANGED
+			| IModelElementDelta.F_OPENED | IModelElementDelta.F_CLOSED;
+
+	private static volatile SubTypeCache defaultCache = null;
+
+	/**
+	 * Returns the shared instance, restoring the previously saved content on
+	 * the first call.
+	 */
+	public static SubTypeCache getDefault() {
+		SubTypeCache cache = defaultCache;
+		if (cache == null) {
+			synchronized (SubTypeCache.class) {
+				cache = defaultCache;
+				if (cache == null) {
+					cache = new SubTypeCache(DEFAULT_CAPACITY);
+					cache.load(getFile());
+					DLTKCore.addElementChangedListener(cache,
+							ElementChangedEvent.POST_CHANGE);
+					defaultCache = cache;
+				}
+			}
+		}
+		return cache;
+	}
+
+	/**
+	 * Saves the shared instance if it was used during this session
+	 */
+	public static void shutdown() {
+		final SubTypeCache cache;
+		synchronized (SubTypeCache.class) {
+			cache = defaultCache;
+			// late notifications should not restore the saved content
+			defaultCache = new SubTypeCache(0);
+		}
+		if (cache != null) {
+			DLTKCore.removeElementChangedListener(cache);
+			cache.save(getFile());
+		}
+	}
+
+	private static File getFile() {
+		return DLTKCore.getDefault().getStateLocation().append(FILE_NAME)
+				.toFile();
+	}
+
+	/**
+	 * super type name -> nature id -> references
+	 */
+	private final Map<String, Map<String, SubTypeReference[]>> references;
+
+	/**
+	 * document path -> super type names, referenced from this document
+	 */
+	private final Map<String, Set<String>> documents = new HashMap<String, Set<String>>();
+
+	private int generation = 0;
+
+	@SuppressWarnings("serial")
+	public SubTypeCache(final int capacity) {
+		this.references = new LinkedHashMap<String, Map<String, SubTypeReference[]>>(
+				16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(
+					Map.Entry<String, Map<String, SubTypeReference[]>> eldest) {
+				if (size() > capacity) {
+					forgetDocuments(eldest.getKey(), eldest.getValue());
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Returns the current generation of the cache, it is changed every time
+	 * something is discarded. It should be obtained before the index query
+	 * and passed to the {@link #put(String, String, SubTypeReference[], int)}
+	 */
+	public synchronized int getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * Returns the references to the specified super type or <code>null</code>
+	 * if they are not cached
+	 */
+	public synchronized SubTypeReference[] get(String natureId,
+			String superTypeName) {
+		final Map<String, SubTypeReference[]> natures = references
+				.get(superTypeName);
+		return natures != null ? natures.get(natureId) : null;
+	}
+
+	/**
+	 * Stores the references to the specified super type, if nothing has
+	 * changed since the specified generation.
+	 */
+	public synchronized void put(String natureId, String superTypeName,
+			SubTypeReference[] subTypes, int queryGeneration) {
+		if (queryGeneration != generation) {
+			return;
+		}
+		Map<String, SubTypeReference[]> natures = references
+				.get(superTypeName);
+		if (natures == null) {
+			natures = new HashMap<String, SubTypeReference[]>(2);
+			references.put(superTypeName, natures);
+		}
+		natures.put(natureId, subTypes);
+		for (SubTypeReference reference : subTypes) {
+			Set<String> names = documents.get(reference.documentPath);
+			if (names == null) {
+				names = new HashSet<String>();
+				documents.put(reference.documentPath, names);
+			}
+			names.add(superTypeName);
+		}
+	}
+
+	/**
+	 * Called when the super type reference is added to the index
+	 *
+	 * @param indexKey
+	 *            the key of the {@link IIndexConstants#SUPER_REF} entry
+	 */
+	public void superTypeReferenceAdded(char[] indexKey) {
+		final int separator = CharOperation.indexOf(IIndexConstants.SEPARATOR,
+				indexKey);
+		final String superTypeName = separator >= 0 ? new String(indexKey, 0,
+				separator) : new String(indexKey);
+		synchronized (this) {
+			++generation;
+			final Map<String, SubTypeReference[]> natures = references
+					.remove(superTypeName);
+			if (natures != null) {
+				forgetDocuments(superTypeName, natures);
+			}
+		}
+	}
+
+	/**
+	 * Called when the document is removed from the index or from the model
+	 */
+	public synchronized void documentRemoved(String documentPath) {
+		++generation;
+		final Set<String> names = documents.remove(documentPath);
+		if (names != null) {
+			for (String superTypeName : names) {
+				final Map<String, SubTypeReference[]> natures = references
+						.remove(superTypeName);
+				if (natures != null) {
+					forgetDocuments(superTypeName, natures);
+				}
+			}
+		}
+	}
+
+	public synchronized void clear() {
+		++generation;
+		references.clear();
+		documents.clear();
+	}
+
+	public synchronized int size() {
+		return references.size();
+	}
+
+	private void forgetDocuments(String superTypeName,
+			Map<String, SubTypeReference[]> natures) {
+		for (SubTypeReference[] subTypes : natures.values()) {
+			for (SubTypeReference reference : subTypes) {
+				final Set<String> names = documents
+						.get(reference.documentPath);
+				if (names != null) {
+					names.remove(superTypeName);
+					if (names.isEmpty()) {
+						documents.remove(reference.documentPath);
+					}
+				}
+			}
+		}
+	}
+
+	public void elementChanged(ElementChangedEvent event) {
+		processDelta(event.getDelta());
+	}
+
+	private void processDelta(IModelElementDelta delta) {
+		final IModelElement element = delta.getElement();
+		switch (element.getElementType()) {
+		case IModelElement.SCRIPT_MODEL:
+			break;
+		case IModelElement.SCRIPT_PROJECT:
+		case IModelElement.PROJECT_FRAGMENT:
+			if (delta.getKind() != IModelElementDelta.CHANGED
+					|| (delta.getFlags() & BUILDPATH_FLAGS) != 0) {
+				clear();
+				return;
+			}
+			break;
+		case IModelElement.SOURCE_MODULE:
+			// content changes are reported by the indexer
+			if (delta.getKind() == IModelElementDelta.REMOVED
+					&& !((ISourceModule) element).isWorkingCopy()) {
+				documentRemoved(element.getPath().toString());
+			}
+			return;
+		}
+		for (IModelElementDelta child : delta.getAffectedChildren()) {
+			processDelta(child);
+		}
+	}
+
+	/**
+	 * Saves the content to the specified file
+	 */
+	public synchronized void save(File file) {
+		try {
+			final DataOutputStream output = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(file)));
+			try {
+				output.writeInt(MAGIC);
+				output.writeInt(FORMAT_VERSION);
+				output.writeInt(references.size());
+				for (Map.Entry<String, Map<String, SubTypeReference[]>> entry : references
+						.entrySet()) {
+					output.writeUTF(entry.getKey());
+					output.writeInt(entry.getValue().size());
+					for (Map.Entry<String, SubTypeReference[]> nature : entry
+							.getValue().entrySet()) {
+						output.writeUTF(nature.getKey());
+						final SubTypeReference[] subTypes = nature.getValue();
+						output.writeInt(subTypes.length);
+						for (SubTypeReference reference : subTypes) {
+							output.writeUTF(reference.documentPath);
+							output.writeUTF(new String(reference.typeName));
+							output.writeBoolean(reference.isLocalOrAnonymous);
+						}
+					}
+				}
+			} finally {
+				output.close();
+			}
+		} catch (IOException e) {
+			DLTKCore.error("Error saving the sub type cache", e); //$NON-NLS-1$
+			file.delete();
+		}
+	}
+
+	/**
+	 * Loads the content previously saved to the specified file and deletes
+	 * the file.
+	 */
+	public synchronized void load(File file) {
+		if (!file.isFile()) {
+			return;
+		}
+		try {
+			final DataInputStream input = new DataInputStream(
+					new BufferedInputStream(new FileInputStream(file)));
+			try {
+				if (input.readInt() != MAGIC
+						|| input.readInt() != FORMAT_VERSION) {
+					return;
+				}
+				final int count = input.readInt();
+				for (int i = 0; i < count; ++i) {
+					final String superTypeName = input.readUTF();
+					final int natureCount = input.readInt();
+					for (int j = 0; j < natureCount; ++j) {
+						final String natureId = input.readUTF();
+						final SubTypeReference[] subTypes = new SubTypeReference[input
+								.readInt()];
+						for (int k = 0; k < subTypes.length; ++k) {
+							final String documentPath = input.readUTF();
+							final char[] typeName = input.readUTF()
+									.toCharArray();
+							subTypes[k] = new SubTypeReference(documentPath,
+									typeName, input.readBoolean());
+						}
+						put(natureId, superTypeName, subTypes, generation);
+					}
+				}
+			} finally {
+				input.close();
+			}
+		} catch (IOException e) {
+			// corrupted, start from scratch
+			if (DLTKCore.DEBUG) {
+				e.printStackTrace();
+			}
+			clear();
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Override
+	public synchronized String toString() {
+		final StringBuilder sb = new StringBuilder("SubTypeCache["); //$NON-NLS-1$
+		for (Iterator<String> i = references.keySet().iterator(); i.hasNext();) {
+			sb.append(i.next());
+			if (i.hasNext()) {
+				sb.append(',');
+			}
+		}
+		sb.append(']');
+		return sb.toString();
+	}
+}
@@ -17,6 +17,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
@@ -50,6 +51,7 @@ import org.eclipse.dltk.core.search.SearchEngine;
 import org.eclipse.dltk.core.search.indexing.IIndexConstants;
 import org.eclipse.dltk.internal.core.OverflowingLRUCache;
 import org.eclipse.dltk.internal.core.mixin.IInternalMixinElement;
+import org.eclipse.dltk.internal.core.mixin.KnownKeysCache;
 import org.eclipse.dltk.internal.core.mixin.MixinCache;
 import org.eclipse.dltk.internal.core.mixin.MixinManager;
 import org.eclipse.dltk.internal.core.util.LRUCache;
@@ -77,9 +79,10 @@ public class MixinModel {
 			REQUEST_CACHE_LIMIT);
 
 	// true if exists, false if doesn't
-	private Map<String, Boolean> knownKeysCache = new HashMap<String, Boolean>();
+	private final KnownKeysCache knownKeysCache = new KnownKeysCache(
+			KEYS_CACHE_LIMIT);
 	// boolean, for the atomicity of it
-	public boolean removes = true;
+	public volatile boolean removes = true;
 
 	private final IDLTKLanguageToolkit toolkit;
 
@@ -94,6 +97,12 @@ public class MixinModel {
 	 */
 	private Set<ISourceModule> modulesToReparse = new HashSet<ISourceModule>();
 
+	/**
+	 * modules being parsed at the moment, other threads reporting the same
+	 * module wait for the latch instead of parsing it again.
+	 */
+	private final Map<ISourceModule, CountDownLatch> modulesInProgress = new HashMap<ISourceModule, CountDownLatch>();
+
 	/**
 	 * Creates workspace instance
 	 * 
@@ -135,11 +144,11 @@ public class MixinModel {
 		if (DLTKCore.VERBOSE) {
 			System.out.println("MixinModel.get(" + key + ')'); //$NON-NLS-1$
 		}
+		if (knownKeysCache.get(key) == Boolean.FALSE) {
+			return null;
+		}
 		MixinElement element = null;
 		synchronized (this) {
-			if (knownKeysCache.get(key) == Boolean.FALSE) {
-				return null;
-			}
 			element = (MixinElement) cache.get(key);
 			if (element == null) {
 				if (!removes) {
@@ -270,7 +279,7 @@ public class MixinModel {
 			IProgressMonitor monitor) {
 		PerformanceNode p = RuntimePerformanceMonitor.begin();
 		RequestCacheEntry entry;
-		synchronized (this) {
+		synchronized (requestCache) {
 			entry = (RequestCacheEntry) requestCache.get(pattern);
 			if (entry != null && entry.expireTime >= System.currentTimeMillis())
 				return entry;
@@ -296,7 +305,7 @@ public class MixinModel {
 			entry.keys.addAll(strs);
 		}
 		if (!monitor.isCanceled()) {
-			synchronized (this) {
+			synchronized (requestCache) {
 				requestCache.put(pattern, entry);
 			}
 		}
@@ -338,17 +347,12 @@ public class MixinModel {
 			if (e != null && e.sourceModules.size() > 0) {
 				return true;
 			}
-			Boolean cached = knownKeysCache.get(key);
-			if (cached != null)
-				return cached;
 		}
+		Boolean cached = knownKeysCache.get(key);
+		if (cached != null)
+			return cached;
 		boolean exists = get(key) != null;
-		synchronized (this) {
-			if (knownKeysCache.size() > KEYS_CACHE_LIMIT) {
-				knownKeysCache.clear();
-			}
-			knownKeysCache.put(key, exists);
-		}
+		knownKeysCache.put(key, exists);
 		return exists;
 	}
 
@@ -360,7 +364,7 @@ public class MixinModel {
 		}
 		ISourceModule[] containedModules = findModules(element.getKey());
 		if (containedModules.length == 0) {
-			synchronized (cache) {
+			synchronized (this) {
 				cache.remove(element.key);
 				cache.resetSpaceLimit(CACHE_LIMIT, element);
 			}
@@ -383,30 +387,119 @@ public class MixinModel {
 		}
 	}
 
-	// TODO long-running operation. shouldn't be synchronized
-	public synchronized void reportModule(ISourceModule sourceModule) {
-			if (!elementToMixinCache.containsKey(sourceModule)) {
-				elementToMixinCache.put(sourceModule,
-						new ArrayList<MixinElement>());
-			} else {
-				// Module already in model. So we do not to rebuild it.
-				if (!modulesToReparse.remove(sourceModule)) {
-					return;
+	/**
+	 * Parses the module and adds it's elements to the model. Parsing is done
+	 * without holding the model lock, the collected elements are added
+	 * afterwards in a short synchronized block. If the caller already holds
+	 * the model lock the module is parsed inline, waiting for another thread
+	 * then would deadlock as that thread needs the lock to add the elements.
+	 */
+	public void reportModule(ISourceModule sourceModule) {
+		final boolean nested = Thread.holdsLock(this);
+		for (;;) {
+			final CountDownLatch pending;
+			final CountDownLatch latch;
+			synchronized (this) {
+				pending = modulesInProgress.get(sourceModule);
+				if (pending != null && nested) {
+					// supersede the other thread, it skips its results
+					latch = new CountDownLatch(1);
+					modulesInProgress.put(sourceModule, latch);
+				} else if (pending == null) {
+					if (!elementToMixinCache.containsKey(sourceModule)) {
+						elementToMixinCache.put(sourceModule,
+								new ArrayList<MixinElement>());
+					} else {
+						// Module already in model. So we do not to rebuild it.
+						if (!modulesToReparse.remove(sourceModule)) {
+							return;
+						}
+						// We need to reparse module if some elements are moved
+						// from it.
+					}
+					latch = new CountDownLatch(1);
+					modulesInProgress.put(sourceModule, latch);
+				} else {
+					latch = null;
 				}
-				// We need to reparse module if some elements are moved from it.
 			}
+			if (latch == null) {
+				// parsed by another thread, wait and check again
+				awaitLatch(pending);
+				continue;
+			}
+			try {
+				final List<ElementInfo> infos = parseModule(sourceModule);
+				if (infos != null) {
+					synchronized (this) {
+						// skip results if module was removed while parsing or
+						// it was parsed by the nested call meanwhile
+						if (modulesInProgress.get(sourceModule) == latch
+								&& elementToMixinCache.containsKey(sourceModule)) {
+							this.currentModule = sourceModule;
+							try {
+								for (ElementInfo info : infos) {
+									mixinRequestor.reportElement(info);
+								}
+							} finally {
+								this.currentModule = null;
+							}
+						}
+					}
+				}
+			} finally {
+				synchronized (this) {
+					if (modulesInProgress.get(sourceModule) == latch) {
+						modulesInProgress.remove(sourceModule);
+					}
+				}
+				latch.countDown();
+			}
+			return;
+		}
+	}
+
+	// long-running operation, called without lock being held
+	private List<ElementInfo> parseModule(ISourceModule sourceModule) {
 		try {
-			IMixinParser mixinParser = MixinManager
+			final IMixinParser mixinParser = MixinManager
 					.getMixinParser(sourceModule);
-			if (mixinParser != null) {
-				this.currentModule = sourceModule;
-				mixinParser.setRequirestor(mixinRequestor);
+			if (mixinParser == null) {
+				return null;
+			}
+			final List<ElementInfo> infos = new ArrayList<ElementInfo>();
+			// parser instances are shared, so they could not be called
+			// concurrently
+			synchronized (mixinParser) {
+				mixinParser.setRequirestor(new IMixinRequestor() {
+					public void reportElement(ElementInfo info) {
+						final ElementInfo copy = new ElementInfo();
+						copy.key = info.key;
+						copy.object = info.object;
+						infos.add(copy);
+					}
+				});
 				mixinParser.parserSourceModule(true, sourceModule);
-				this.currentModule = null;
 			}
+			return infos;
 		} catch (CoreException e) {
 			DLTKCore.error("Error in reportModule", e); //$NON-NLS-1$
-			return;
+			return null;
+		}
+	}
+
+	private static void awaitLatch(CountDownLatch latch) {
+		boolean interrupted = false;
+		for (;;) {
+			try {
+				latch.await();
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
 		}
 	}
 
@@ -455,13 +548,19 @@ public class MixinModel {
 	private IMixinChangedListener changedListener = new IMixinChangedListener() {
 		public void elementChanged(ElementChangedEvent event) {
 			IModelElementDelta delta = event.getDelta();
+			final List<ISourceModule> added = new ArrayList<ISourceModule>();
 			synchronized (MixinModel.this) {
-				processDelta(delta);
+				processDelta(delta, added);
+			}
+			// parse added modules without holding the lock
+			for (ISourceModule module : added) {
+				reportModule(module);
 			}
 		}
 
 		// called with lock being held
-		private void processDelta(IModelElementDelta delta) {
+		private void processDelta(IModelElementDelta delta,
+				List<ISourceModule> added) {
 			IModelElement element = delta.getElement();
 			if (delta.getKind() == IModelElementDelta.REMOVED
 					|| delta.getKind() == IModelElementDelta.CHANGED
@@ -511,16 +610,18 @@ public class MixinModel {
 			if (delta.getKind() == IModelElementDelta.ADDED) {
 				if (element.getElementType() == IModelElement.SOURCE_MODULE) {
 					if (modulesToReparse.add((ISourceModule) element)) {
-						reportModule((ISourceModule) element);
+						added.add((ISourceModule) element);
 					}
 				}
 				knownKeysCache.clear();
-				requestCache.flush();
+				synchronized (requestCache) {
+					requestCache.flush();
+				}
 			}
 
 			if ((delta.getFlags() & IModelElementDelta.F_CHILDREN) != 0) {
 				for (IModelElementDelta child : delta.getAffectedChildren()) {
-					processDelta(child);
+					processDelta(child, added);
 				}
 			} else if (delta.getKind() == IModelElementDelta.REMOVED
 					&& element.getElementType() == IModelElement.SCRIPT_FOLDER) {
@@ -656,18 +757,19 @@ public class MixinModel {
 		}
 	}
 
-	// called with lock being held
 	private void removeFromRequestCache(ISourceModule element) {
-		// Clear requests cache.
-		@SuppressWarnings("unchecked")
-		Enumeration<RequestCacheEntry> enumeration = this.requestCache
-				.elements();
-		while (enumeration.hasMoreElements()) {
-			RequestCacheEntry entry = enumeration.nextElement();
-			if (entry.modules != null) {
-				if (entry.modules.contains(element)) {
-					// we can do it now
-					this.requestCache.remove(entry.prefix);
+		synchronized (requestCache) {
+			// Clear requests cache.
+			@SuppressWarnings("unchecked")
+			Enumeration<RequestCacheEntry> enumeration = this.requestCache
+					.elements();
+			while (enumeration.hasMoreElements()) {
+				RequestCacheEntry entry = enumeration.nextElement();
+				if (entry.modules != null) {
+					if (entry.modules.contains(element)) {
+						// we can do it now
+						this.requestCache.remove(entry.prefix);
+					}
 				}
 			}
 		}
@@ -804,29 +906,35 @@ public class MixinModel {
 
 		public Object[] getObjects(ISourceModule module) {
 			this.validate();
+			final Object[] objs;
 			synchronized (MixinModel.this) {
 				List<Object> list = this.sourceModuleToObject.get(module);
 				if (list == null)
 					return NO_OBJECTS;
-				Object[] objs = list.toArray();
-				for (Object obj : objs) {
-					notifyInitializeListener(this, module, obj);
-				}
-				return objs;
+				objs = list.toArray();
 			}
+			// listeners could query the model, so they are called without
+			// the lock
+			for (Object obj : objs) {
+				notifyInitializeListener(this, module, obj);
+			}
+			return objs;
 		}
 
 		public Object[] getAllObjects() {
 			this.validate();
+			final ISourceModule[] modules;
 			synchronized (MixinModel.this) {
-				Set<Object> objects = new HashSet<Object>();
-				for (ISourceModule module : sourceModules) {
-					for (Object obj : this.getObjects(module)) {
-						objects.add(obj);
-					}
+				modules = sourceModules.toArray(new ISourceModule[sourceModules
+						.size()]);
+			}
+			Set<Object> objects = new HashSet<Object>();
+			for (ISourceModule module : modules) {
+				for (Object obj : this.getObjects(module)) {
+					objects.add(obj);
 				}
-				return objects.toArray();
 			}
+			return objects.toArray();
 		}
 
 		public boolean isFinal() {
@@ -949,15 +1057,19 @@ public class MixinModel {
 		removes = false;
 	}
 
-	public synchronized void clearKeysCache(String key) {
+	public void clearKeysCache(String key) {
 		knownKeysCache.remove(key);
-		requestCache.remove(key);
+		synchronized (requestCache) {
+			requestCache.remove(key);
+		}
 		// MixinElement e = (MixinElement)this.cache.get(key);
 	}
 
-	public synchronized void clearKeysCache() {
+	public void clearKeysCache() {
 		knownKeysCache.clear();
-		requestCache.flush();
+		synchronized (requestCache) {
+			requestCache.flush();
+		}
 	}
 
 	// // Mixin object initialize listeners code
@@ -972,7 +1084,7 @@ public class MixinModel {
 				.remove(mixinObjectInitializeListener);
 	}
 
-	// called with lock being help
+	// called without the lock being held
 	private void notifyInitializeListener(IMixinElement element,
 			ISourceModule module, Object o) {
 		Object[] listeners = mixinObjectInitializeListeners.getListeners();
@@ -987,7 +1099,9 @@ public class MixinModel {
 		elementToMixinCache.clear();
 		knownKeysCache.clear();
 		modulesToReparse.clear();
-		requestCache.flush();
+		synchronized (requestCache) {
+			requestCache.flush();
+		}
 	}
 
 	public String getNature() {
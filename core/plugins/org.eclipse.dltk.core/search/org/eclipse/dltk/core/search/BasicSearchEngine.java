@@ -869,6 +869,27 @@ public class BasicSearchEngine {
 			final IRestrictedAccessTypeRequestor nameRequestor,
 			int waitingPolicy, IProgressMonitor progressMonitor)
 			throws ModelException {
+		searchAllTypeNames(packageName, packageMatchRule, typeName,
+				typeMatchRule, searchFor, scope, nameRequestor, waitingPolicy,
+				null, progressMonitor);
+	}
+
+	/**
+	 * Searches for all top-level types and member types in the given scope,
+	 * stopping as soon as the specified budget is exhausted. The requestor is
+	 * expected to count the reported types with
+	 * {@link SearchBudget#consume()}.
+	 * 
+	 * @param budget
+	 *            the limits of the search or <code>null</code>
+	 * @since 5.0
+	 */
+	public void searchAllTypeNames(final char[] packageName,
+			final int packageMatchRule, char[] typeName,
+			final int typeMatchRule, int searchFor, IDLTKSearchScope scope,
+			final IRestrictedAccessTypeRequestor nameRequestor,
+			int waitingPolicy, final SearchBudget budget,
+			IProgressMonitor progressMonitor) throws ModelException {
 
 		if (VERBOSE) {
 			Util.verbose("BasicSearchEngine.searchAllTypeNames(char[], char[], int, int, IJavaSearchScope, IRestrictedAccessTypeRequestor, int, IProgressMonitor)"); //$NON-NLS-1$
@@ -998,10 +1019,14 @@ public class BasicSearchEngine {
 							record.simpleName, record.enclosingTypeNames,
 							record.superTypes, documentPath, accessRestriction);
 				}
-				return true;
+				// stop the index query when the budget is exhausted
+				return budget == null || !budget.isExhausted();
 			}
 		};
 
+		if (budget != null) {
+			progressMonitor = budget.wrap(progressMonitor);
+		}
 		try {
 			if (progressMonitor != null) {
 				progressMonitor.beginTask(Messages.engine_searching, 100);
@@ -1017,6 +1042,9 @@ public class BasicSearchEngine {
 			if (copies != null) {
 				for (int i = 0; i < copiesLength; i++) {
 					ISourceModule workingCopy = copies[i];
+					if (budget != null && budget.isExhausted()) {
+						break;
+					}
 					if (!scope.encloses(workingCopy)) {
 						continue;
 					}
@@ -1058,6 +1086,11 @@ public class BasicSearchEngine {
 					// }
 				}
 			}
+		} catch (OperationCanceledException e) {
+			// cut off by the budget, keep the results reported so far
+			if (budget == null || !budget.isExhausted()) {
+				throw e;
+			}
 		} finally {
 			if (progressMonitor != null) {
 				progressMonitor.done();
@@ -0,0 +1,30 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.search;
+
+import org.eclipse.dltk.core.search.matching.MatchLocator;
+
+/**
+ * Optional interface to be implemented by {@link IMatchLocatorParser}
+ * implementations.
+ * 
+ * @since 5.0
+ */
+public interface IMatchLocatorParserExtension {
+
+	/**
+	 * Returns <code>true</code> if different instances of this parser created
+	 * for the same {@link MatchLocator} could parse the possible matches
+	 * concurrently. <code>parse()</code> is called from the worker threads
+	 * then, and should only update the node set of the possible match being
+	 * parsed. <code>parseBodies()</code> is still called on the searching
+	 * thread.
+	 */
+	boolean isThreadSafe();
+}
@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.search;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.ProgressMonitorWrapper;
+
+/**
+ * Limits the number of results and the time spent by a search, so interactive
+ * clients (e.g. type selection dialogs) could show the first results
+ * immediately instead of waiting for the complete search.
+ * 
+ * Matches are delivered to the requestor incrementally as usual, when the
+ * limit is reached or the time is over, the search stops silently. Clients
+ * could check {@link #isExhausted()} afterwards to find out if there are more
+ * results available.
+ * 
+ * @see SearchEngine#searchAllTypeNames(char[], int, char[], int, int,
+ *      IDLTKSearchScope, TypeNameMatchRequestor, int, SearchBudget,
+ *      org.eclipse.core.runtime.IProgressMonitor)
+ * @since 5.0
+ */
+public class SearchBudget {
+
+	private final int resultLimit;
+	private final long deadline;
+	private final AtomicInteger resultCount = new AtomicInteger();
+	private volatile boolean exhausted = false;
+
+	/**
+	 * Creates the budget
+	 * 
+	 * @param resultLimit
+	 *            the maximum number of the results, <code>0</code> means
+	 *            unlimited
+	 * @param timeLimit
+	 *            the time in milliseconds the search is allowed to take since
+	 *            the creation of this object, <code>0</code> means unlimited
+	 */
+	public SearchBudget(int resultLimit, long timeLimit) {
+		this.resultLimit = resultLimit;
+		this.deadline = timeLimit > 0 ? System.currentTimeMillis() + timeLimit
+				: 0;
+	}
+
+	/**
+	 * Counts the next result. Returns <code>false</code> if the budget is
+	 * exhausted and the result should not be reported.
+	 */
+	public boolean consume() {
+		if (isExhausted()) {
+			return false;
+		}
+		final int count = resultCount.incrementAndGet();
+		if (resultLimit > 0 && count >= resultLimit) {
+			exhausted = true;
+			return count == resultLimit;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns <code>true</code> if the result limit is reached or the time is
+	 * over.
+	 */
+	public boolean isExhausted() {
+		if (!exhausted && deadline != 0
+				&& System.currentTimeMillis() >= deadline) {
+			exhausted = true;
+		}
+		return exhausted;
+	}
+
+	/**
+	 * Returns the number of the results accepted by {@link #consume()}
+	 */
+	public int getResultCount() {
+		final int count = resultCount.get();
+		return resultLimit > 0 ? Math.min(count, resultLimit) : count;
+	}
+
+	/**
+	 * Returns the progress monitor reporting cancellation when this budget is
+	 * exhausted, so the search stops at the next cancellation check.
+	 */
+	public IProgressMonitor wrap(IProgressMonitor monitor) {
+		return new ProgressMonitorWrapper(monitor != null ? monitor
+				: new NullProgressMonitor()) {
+			@Override
+			public boolean isCanceled() {
+				return super.isCanceled() || isExhausted();
+			}
+		};
+	}
+
+	@Override
+	public String toString() {
+		return "SearchBudget[results=" + getResultCount() + ", limit=" //$NON-NLS-1$ //$NON-NLS-2$
+				+ resultLimit + ", exhausted=" + exhausted + "]"; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}
@@ -689,6 +689,42 @@ public class SearchEngine {
 				waitingPolicy, progressMonitor);
 	}
 
+	/**
+	 * Searches for all top-level types and member types in the given scope
+	 * like
+	 * {@link #searchAllTypeNames(char[], int, char[], int, int, IDLTKSearchScope, TypeNameMatchRequestor, int, IProgressMonitor)}
+	 * but stops as soon as the specified budget is exhausted. Matches are
+	 * reported to the requestor as soon as they are found, so the clients
+	 * could display them incrementally.
+	 * 
+	 * @param budget
+	 *            the maximum number of matches and the time limit of the
+	 *            search or <code>null</code> for the unlimited search
+	 * @see SearchBudget#isExhausted()
+	 * @since 5.0
+	 */
+	public void searchAllTypeNames(final char[] packageName,
+			final int packageMatchRule, final char[] typeName,
+			final int typeMatchRule, int searchFor, IDLTKSearchScope scope,
+			final TypeNameMatchRequestor nameMatchRequestor, int waitingPolicy,
+			final SearchBudget budget, IProgressMonitor progressMonitor)
+			throws ModelException {
+		final TypeNameMatchRequestor limitedRequestor = budget == null ? nameMatchRequestor
+				: new TypeNameMatchRequestor() {
+					@Override
+					public void acceptTypeNameMatch(TypeNameMatch match) {
+						if (budget.consume()) {
+							nameMatchRequestor.acceptTypeNameMatch(match);
+						}
+					}
+				};
+		TypeNameMatchRequestorWrapper requestorWrapper = new TypeNameMatchRequestorWrapper(
+				limitedRequestor, scope);
+		this.basicEngine.searchAllTypeNames(packageName, packageMatchRule,
+				typeName, typeMatchRule, searchFor, scope, requestorWrapper,
+				waitingPolicy, budget, progressMonitor);
+	}
+
 	/**
 	 * Searches for all top-level types and member types in the given scope
 	 * matching any of the given qualifications and type names in a case
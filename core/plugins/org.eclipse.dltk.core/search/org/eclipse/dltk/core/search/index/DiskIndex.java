@@ -9,18 +9,22 @@
  *******************************************************************************/
 package org.eclipse.dltk.core.search.index;
 
-import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
-import java.io.ByteArrayInputStream;
-import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.io.UTFDataFormatException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.regex.Pattern;
 
+import org.eclipse.core.runtime.Platform;
 import org.eclipse.dltk.compiler.CharOperation;
 import org.eclipse.dltk.compiler.util.HashtableOfIntValues;
 import org.eclipse.dltk.compiler.util.HashtableOfObject;
@@ -32,10 +36,23 @@ import org.eclipse.dltk.internal.core.util.Messages;
 import org.eclipse.dltk.internal.core.util.SimpleWordSet;
 import org.eclipse.dltk.internal.core.util.Util;
 
+/**
+ * Index stored on disk. The file content is memory mapped (or read into the
+ * heap on Windows, where mapped files can't be deleted), so queries don't
+ * perform any I/O and could run concurrently. Document number arrays are
+ * sorted and stored as variable length deltas.
+ *
+ * Files in the previous format with the fixed size document numbers are still
+ * readable and are rewritten in the current format on the next save.
+ */
 public class DiskIndex {
 
 	String fileName;
 
+	private ByteBuffer buffer; // read only content of the index file
+
+	private boolean legacyFormat;
+
 	private int headerInfoOffset;
 
 	private int numberOfChunks;
@@ -53,7 +70,8 @@ public class DiskIndex {
 
 	private int cacheUserCount;
 
-	private String[][] cachedChunks; // decompressed chunks of document names
+	private volatile AtomicReferenceArray<String[]> cachedChunks; // decompressed
+	// chunks of document names
 
 	private HashtableOfObject categoryTables; // category name ->
 	// HashtableOfObject(words ->
@@ -63,7 +81,15 @@ public class DiskIndex {
 	private char[] cachedCategoryName;
 	char separator = Index.DEFAULT_SEPARATOR;
 
-	public static final String SIGNATURE = "DLTK INDEX VERSION 1.014"; //$NON-NLS-1$
+	public static final String SIGNATURE = "DLTK INDEX VERSION 1.015"; //$NON-NLS-1$
+
+	/**
+	 * Signature of the format with the fixed size document numbers
+	 */
+	private static final String LEGACY_SIGNATURE = "DLTK INDEX VERSION 1.014"; //$NON-NLS-1$
+
+	private static final boolean MAP_FILES = !Platform.OS_WIN32.equals(Platform
+			.getOS());
 
 	public final static boolean DEBUG = false;
 
@@ -73,6 +99,8 @@ public class DiskIndex {
 
 	private static final int CHUNK_SIZE = 100;
 
+	private static final int LARGE_ARRAY_SIZE = 256;
+
 	static class IntList {
 
 		int size;
@@ -194,8 +222,7 @@ public class DiskIndex {
 		if (key == null) {
 			for (int i = 0, l = categories.length; i < l; i++) {
 				HashtableOfObject wordsToDocNumbers = readCategoryTable(
-						categories[i], true); // cache if key is null since
-				// its a definite match
+						categories[i]);
 				if (wordsToDocNumbers != null) {
 					char[][] words = wordsToDocNumbers.keyTable;
 					if (results == null)
@@ -214,7 +241,7 @@ public class DiskIndex {
 			case SearchPattern.R_EXACT_MATCH | SearchPattern.R_CASE_SENSITIVE:
 				for (int i = 0, l = categories.length; i < l; i++) {
 					HashtableOfObject wordsToDocNumbers = readCategoryTable(
-							categories[i], false);
+							categories[i]);
 					if (wordsToDocNumbers != null
 							&& wordsToDocNumbers.containsKey(key))
 						results = addQueryResult(results, key,
@@ -224,7 +251,7 @@ public class DiskIndex {
 			case SearchPattern.R_PREFIX_MATCH | SearchPattern.R_CASE_SENSITIVE:
 				for (int i = 0, l = categories.length; i < l; i++) {
 					HashtableOfObject wordsToDocNumbers = readCategoryTable(
-							categories[i], false);
+							categories[i]);
 					if (wordsToDocNumbers != null) {
 						char[][] words = wordsToDocNumbers.keyTable;
 						for (int j = 0, m = words.length; j < m; j++) {
@@ -246,7 +273,7 @@ public class DiskIndex {
 										: 0);
 				for (int i = 0, l = categories.length; i < l; i++) {
 					HashtableOfObject wordsToDocNumbers = readCategoryTable(
-							categories[i], false);
+							categories[i]);
 					if (wordsToDocNumbers != null) {
 						char[][] words = wordsToDocNumbers.keyTable;
 						for (int j = 0, m = words.length; j < m; j++) {
@@ -274,7 +301,7 @@ public class DiskIndex {
 			default:
 				for (int i = 0, l = categories.length; i < l; i++) {
 					HashtableOfObject wordsToDocNumbers = readCategoryTable(
-							categories[i], false);
+							categories[i]);
 					if (wordsToDocNumbers != null) {
 						char[][] words = wordsToDocNumbers.keyTable;
 						for (int j = 0, m = words.length; j < m; j++) {
@@ -297,21 +324,18 @@ public class DiskIndex {
 
 	private void cacheDocumentNames() throws IOException {
 		// will need all document names so get them now
-		this.cachedChunks = new String[this.numberOfChunks][];
-		DataInputStream stream = new DataInputStream(new BufferedInputStream(
-				new FileInputStream(getIndexFile()),
-				this.numberOfChunks > 5 ? 4096 : 2048));
-		try {
-			stream.skip(this.chunkOffsets[0]);
-			for (int i = 0; i < this.numberOfChunks; i++) {
-				int size = i == this.numberOfChunks - 1 ? this.sizeOfLastChunk
-						: CHUNK_SIZE;
-				readChunk(this.cachedChunks[i] = new String[size], stream, 0,
-						size);
-			}
-		} finally {
-			stream.close();
+		AtomicReferenceArray<String[]> chunks = new AtomicReferenceArray<String[]>(
+				this.numberOfChunks);
+		ByteBuffer in = this.buffer.duplicate();
+		in.position(this.chunkOffsets[0]);
+		for (int i = 0; i < this.numberOfChunks; i++) {
+			int size = i == this.numberOfChunks - 1 ? this.sizeOfLastChunk
+					: CHUNK_SIZE;
+			String[] chunk = new String[size];
+			readChunk(chunk, in, 0, size);
+			chunks.set(i, chunk);
 		}
+		this.cachedChunks = chunks;
 	}
 
 	private String[] computeDocumentNames(String[] onDiskNames,
@@ -485,18 +509,23 @@ public class DiskIndex {
 		File indexFile = getIndexFile();
 		if (indexFile.exists()) {
 			if (reuseExistingFile) {
-				RandomAccessFile file = new RandomAccessFile(this.fileName, "r"); //$NON-NLS-1$
+				ByteBuffer content = readFile(indexFile);
 				try {
-					String signature = file.readUTF();
-					if (!signature.equals(SIGNATURE))
+					String signature = new String(readUTF(content));
+					if (signature.equals(LEGACY_SIGNATURE))
+						this.legacyFormat = true;
+					else if (!signature.equals(SIGNATURE))
 						throw new IOException(Messages.exception_wrongFormat);
 
-					this.headerInfoOffset = file.readInt();
-					if (this.headerInfoOffset > 0) // file is empty if its not
+					this.headerInfoOffset = content.getInt();
+					if (this.headerInfoOffset > 0) { // file is empty if its not
 						// set
-						readHeaderInfo(file);
-				} finally {
-					file.close();
+						this.buffer = content;
+						readHeaderInfo();
+					}
+				} catch (BufferUnderflowException e) {
+					// truncated file
+					throw new IOException(Messages.exception_wrongFormat);
 				}
 				return;
 			}
@@ -571,15 +600,16 @@ public class DiskIndex {
 		if (wordsToDocs == null)
 			wordsToDocs = new HashtableOfObject(3);
 
-		HashtableOfObject oldWordsToDocs = onDisk.readCategoryTable(
-				categoryName, true);
+		HashtableOfObject oldWordsToDocs = onDisk
+				.readCategoryTable(categoryName);
 		if (oldWordsToDocs != null) {
 			char[][] oldWords = oldWordsToDocs.keyTable;
 			Object[] oldArrayOffsets = oldWordsToDocs.valueTable;
 			nextWord: for (int i = 0, l = oldWords.length; i < l; i++) {
 				char[] oldWord = oldWords[i];
 				if (oldWord != null) {
-					int[] oldDocNumbers = (int[]) oldArrayOffsets[i];
+					int[] oldDocNumbers = onDisk
+							.readDocumentNumbers(oldArrayOffsets[i]);
 					int length = oldDocNumbers.length;
 					int[] mappedNumbers = new int[length];
 					int count = 0;
@@ -639,7 +669,7 @@ public class DiskIndex {
 		docNames = computeDocumentNames(docNames, positions, indexedDocuments,
 				memoryIndex);
 		if (docNames.length == 0) {
-			if (previousLength == 0)
+			if (previousLength == 0 && !this.legacyFormat)
 				return this; // nothing to do... memory index contained
 			// deleted documents that had never been saved
 
@@ -715,162 +745,102 @@ public class DiskIndex {
 		}
 
 		newDiskIndex.fileName = this.fileName;
+		newDiskIndex.buffer = readFile(newDiskIndex.getIndexFile());
 		return newDiskIndex;
 	}
 
-	private synchronized String[] readAllDocumentNames() throws IOException {
+	private String[] readAllDocumentNames() throws IOException {
 		if (this.numberOfChunks <= 0)
 			return new String[0];
 
-		DataInputStream stream = new DataInputStream(new BufferedInputStream(
-				new FileInputStream(getIndexFile()),
-				this.numberOfChunks > 5 ? 4096 : 2048));
-		try {
-			stream.skip(this.chunkOffsets[0]);
-			int lastIndex = this.numberOfChunks - 1;
-			String[] docNames = new String[lastIndex * CHUNK_SIZE
-					+ sizeOfLastChunk];
-			for (int i = 0; i < this.numberOfChunks; i++)
-				readChunk(docNames, stream, i * CHUNK_SIZE,
-						i < lastIndex ? CHUNK_SIZE : sizeOfLastChunk);
-			return docNames;
-		} finally {
-			stream.close();
-		}
+		ByteBuffer in = this.buffer.duplicate();
+		in.position(this.chunkOffsets[0]);
+		int lastIndex = this.numberOfChunks - 1;
+		String[] docNames = new String[lastIndex * CHUNK_SIZE
+				+ sizeOfLastChunk];
+		for (int i = 0; i < this.numberOfChunks; i++)
+			readChunk(docNames, in, i * CHUNK_SIZE,
+					i < lastIndex ? CHUNK_SIZE : sizeOfLastChunk);
+		return docNames;
 	}
 
-	private synchronized HashtableOfObject readCategoryTable(
-			char[] categoryName, boolean readDocNumbers) throws IOException {
+	private HashtableOfObject readCategoryTable(char[] categoryName)
+			throws IOException {
 		// result will be null if categoryName is unknown
 		int offset = this.categoryOffsets.get(categoryName);
 		if (offset == HashtableOfIntValues.NO_VALUE)
 			return null;
 
-		if (this.categoryTables == null) {
-			this.categoryTables = new HashtableOfObject(3);
-		} else {
-			HashtableOfObject cachedTable = (HashtableOfObject) this.categoryTables
-					.get(categoryName);
-			if (cachedTable != null) {
-				if (readDocNumbers) { // must cache remaining document number
-					// arrays
-					Object[] arrayOffsets = cachedTable.valueTable;
-					for (int i = 0, l = arrayOffsets.length; i < l; i++)
-						if (arrayOffsets[i] instanceof Integer)
-							arrayOffsets[i] = readDocumentNumbers(arrayOffsets[i]);
-				}
-				return cachedTable;
+		synchronized (this) {
+			if (this.categoryTables != null) {
+				HashtableOfObject cachedTable = (HashtableOfObject) this.categoryTables
+						.get(categoryName);
+				if (cachedTable != null)
+					return cachedTable;
 			}
 		}
 
-		DataInputStream stream = new DataInputStream(new BufferedInputStream(
-				new FileInputStream(getIndexFile()), 2048));
-		HashtableOfObject categoryTable = null;
-		char[][] matchingWords = null;
-		int count = 0;
-		int firstOffset = -1;
-		try {
-			stream.skip(offset);
-			int size = stream.readInt();
-			try {
-				if (size < 0) { // DEBUG
-					System.err
-							.println("-------------------- DEBUG --------------------"); //$NON-NLS-1$
-					System.err.println("file = " + getIndexFile()); //$NON-NLS-1$
-					System.err.println("offset = " + offset); //$NON-NLS-1$
-					System.err.println("size = " + size); //$NON-NLS-1$
-					System.err
-							.println("--------------------   END   --------------------"); //$NON-NLS-1$
-				}
-				categoryTable = new HashtableOfObject(size);
-			} catch (OutOfMemoryError oom) {
-				// DEBUG
-				oom.printStackTrace();
-				System.err
-						.println("-------------------- DEBUG --------------------"); //$NON-NLS-1$
-				System.err.println("file = " + getIndexFile()); //$NON-NLS-1$
-				System.err.println("offset = " + offset); //$NON-NLS-1$
-				System.err.println("size = " + size); //$NON-NLS-1$
-				System.err
-						.println("--------------------   END   --------------------"); //$NON-NLS-1$
-				throw oom;
-			}
-			int largeArraySize = 256;
-			for (int i = 0; i < size; i++) {
-				char[] word = Util.readUTF(stream);
-				int arrayOffset = stream.readInt();
+		// the table is decoded without holding the lock, so concurrent queries
+		// could decode the same table, only one of them will be cached
+		ByteBuffer in = this.buffer.duplicate();
+		in.position(offset);
+		int size = in.getInt();
+		if (size < 0)
+			throw new IOException(Messages.exception_wrongFormat);
+		HashtableOfObject categoryTable = new HashtableOfObject(size);
+		for (int i = 0; i < size; i++) {
+			char[] word = readUTF(in);
+			if (this.legacyFormat) {
+				int arrayOffset = in.getInt();
 				// if arrayOffset is:
 				// <= 0 then the array size == 1 with the value -> -arrayOffset
 				// > 1 & < 256 then the size of the array is > 1 & < 256, the
 				// document array follows immediately
-				// 256 if the array size >= 256 followed by another int which is
-				// the offset to the array (written prior to the table)
+				// 256 if the array size >= 256 followed by another int which
+				// is the offset to the array (written prior to the table)
 				if (arrayOffset <= 0) {
-					categoryTable.put(word, new int[] { -arrayOffset }); // store
-					// 1
-					// element
-					// array
-					// by
-					// negating
-					// documentNumber
-				} else if (arrayOffset < largeArraySize) {
+					categoryTable.put(word, new int[] { -arrayOffset });
+				} else if (arrayOffset < LARGE_ARRAY_SIZE) {
 					categoryTable.put(word,
-							readDocumentArray(stream, arrayOffset));
-					// read in-lined array providing size
+							readLegacyDocumentArray(in, arrayOffset));
 				} else {
-					arrayOffset = stream.readInt(); // read actual offset
-					if (readDocNumbers) {
-						if (matchingWords == null)
-							matchingWords = new char[size][];
-						if (count == 0)
-							firstOffset = arrayOffset;
-						matchingWords[count++] = word;
-					}
-					categoryTable.put(word, new Integer(arrayOffset)); // offset
-					// to
-					// array
-					// in
-					// the
-					// file
+					// offset to array in the file, read on demand
+					categoryTable.put(word, new Integer(in.getInt()));
+				}
+			} else {
+				// see writeCategoryTable()
+				int arraySize = readVarInt(in);
+				if (arraySize == 0) {
+					// offset to array in the file, read on demand
+					categoryTable.put(word, new Integer(in.getInt()));
+				} else {
+					categoryTable.put(word, readDocumentArray(in, arraySize));
 				}
 			}
+		}
+		synchronized (this) {
+			if (this.categoryTables == null)
+				this.categoryTables = new HashtableOfObject(3);
 			this.categoryTables.put(categoryName, categoryTable);
 			// cache the table as long as its not too big
 			// in practise, some tables can be greater than 500K when the
 			// contain more than 10K elements
 			this.cachedCategoryName = categoryTable.elementSize < 10000 ? categoryName
 					: null;
-		} finally {
-			stream.close();
-		}
-
-		if (matchingWords != null && count > 0) {
-			stream = new DataInputStream(new BufferedInputStream(
-					new FileInputStream(getIndexFile()), 2048));
-			try {
-				stream.skip(firstOffset);
-				for (int i = 0; i < count; i++)
-					// each array follows the previous one
-					categoryTable.put(matchingWords[i],
-							readDocumentArray(stream, stream.readInt()));
-			} finally {
-				stream.close();
-			}
 		}
 		return categoryTable;
 	}
 
-	private void readChunk(String[] docNames, DataInputStream stream,
-			int index, int size) throws IOException {
-		String current = stream.readUTF();
+	private void readChunk(String[] docNames, ByteBuffer in, int index,
+			int size) throws IOException {
+		String current = new String(readUTF(in));
 		docNames[index++] = current;
 		for (int i = 1; i < size; i++) {
-			int start = stream.readUnsignedByte(); // number of identical
-			// characters at the
-			// beginning
-			int end = stream.readUnsignedByte(); // number of identical
-			// characters at the end
-			String next = stream.readUTF();
+			int start = in.get() & 0xFF; // number of identical characters at
+			// the beginning
+			int end = in.get() & 0xFF; // number of identical characters at the
+			// end
+			String next = new String(readUTF(in));
 			if (start > 0) {
 				if (end > 0) {
 					int length = current.length();
@@ -888,100 +858,100 @@ public class DiskIndex {
 		}
 	}
 
-	private int[] readDocumentArray(DataInputStream stream, int arraySize)
-			throws IOException {
+	private static int[] readDocumentArray(ByteBuffer in, int arraySize) {
+		// sorted document numbers, each one is stored as the difference to the
+		// previous one
+		int[] result = new int[arraySize];
+		int previous = 0;
+		for (int i = 0; i < arraySize; i++)
+			result[i] = previous += readVarInt(in);
+		return result;
+	}
+
+	private int[] readLegacyDocumentArray(ByteBuffer in, int arraySize) {
 		int[] result = new int[arraySize];
 		switch (this.documentReferenceSize) {
 		case 1:
 			for (int i = 0; i < arraySize; i++)
-				result[i] = stream.readUnsignedByte();
+				result[i] = in.get() & 0xFF;
 			break;
 		case 2:
 			for (int i = 0; i < arraySize; i++)
-				result[i] = stream.readUnsignedShort();
+				result[i] = in.getShort() & 0xFFFF;
 			break;
 		default:
 			for (int i = 0; i < arraySize; i++)
-				result[i] = stream.readInt();
+				result[i] = in.getInt();
 			break;
 		}
 		return result;
 	}
 
-	synchronized String readDocumentName(int docNumber) throws IOException {
-		if (this.cachedChunks == null)
-			this.cachedChunks = new String[this.numberOfChunks][];
+	String readDocumentName(int docNumber) throws IOException {
+		AtomicReferenceArray<String[]> chunks = this.cachedChunks;
+		if (chunks == null)
+			this.cachedChunks = chunks = new AtomicReferenceArray<String[]>(
+					this.numberOfChunks);
 
 		int chunkNumber = docNumber / CHUNK_SIZE;
-		String[] chunk = this.cachedChunks[chunkNumber];
+		String[] chunk = chunks.get(chunkNumber);
 		if (chunk == null) {
 			boolean isLastChunk = chunkNumber == this.numberOfChunks - 1;
-			int start = this.chunkOffsets[chunkNumber];
-			int numberOfBytes = (isLastChunk ? this.startOfCategoryTables
-					: this.chunkOffsets[chunkNumber + 1]) - start;
-			if (numberOfBytes < 0)
-				throw new IllegalArgumentException();
-			byte[] bytes = new byte[numberOfBytes];
-			FileInputStream file = new FileInputStream(getIndexFile());
-			try {
-				file.skip(start);
-				if (file.read(bytes, 0, numberOfBytes) != numberOfBytes)
-					throw new IOException();
-			} finally {
-				file.close();
-			}
-			DataInputStream stream = new DataInputStream(
-					new ByteArrayInputStream(bytes));
 			int numberOfNames = isLastChunk ? this.sizeOfLastChunk : CHUNK_SIZE;
-			chunk = this.cachedChunks[chunkNumber] = new String[numberOfNames];
-			readChunk(chunk, stream, 0, numberOfNames);
+			ByteBuffer in = this.buffer.duplicate();
+			in.position(this.chunkOffsets[chunkNumber]);
+			chunk = new String[numberOfNames];
+			readChunk(chunk, in, 0, numberOfNames);
+			chunks.set(chunkNumber, chunk);
 		}
 		return chunk[docNumber - (chunkNumber * CHUNK_SIZE)];
 	}
 
-	synchronized int[] readDocumentNumbers(Object arrayOffset)
-			throws IOException {
+	int[] readDocumentNumbers(Object arrayOffset) throws IOException {
 		// arrayOffset is either a cached array of docNumbers or an Integer
 		// offset in the file
 		if (arrayOffset instanceof int[])
 			return (int[]) arrayOffset;
 
-		DataInputStream stream = new DataInputStream(new BufferedInputStream(
-				new FileInputStream(getIndexFile()), 2048));
-		try {
-			stream.skip(((Integer) arrayOffset).intValue());
-			return readDocumentArray(stream, stream.readInt());
-		} finally {
-			stream.close();
-		}
+		ByteBuffer in = this.buffer.duplicate();
+		in.position(((Integer) arrayOffset).intValue());
+		if (this.legacyFormat)
+			return readLegacyDocumentArray(in, in.getInt());
+		return readDocumentArray(in, readVarInt(in));
 	}
 
-	private void readHeaderInfo(RandomAccessFile file) throws IOException {
-		file.seek(this.headerInfoOffset);
+	private void readHeaderInfo() throws IOException {
+		ByteBuffer in = this.buffer.duplicate();
+		in.position(this.headerInfoOffset);
 
 		// must be same order as writeHeaderInfo()
-		this.numberOfChunks = file.readInt();
-		this.sizeOfLastChunk = file.readUnsignedByte();
-		this.documentReferenceSize = file.readUnsignedByte();
-		this.separator = (char) file.readUnsignedByte();
+		this.numberOfChunks = in.getInt();
+		this.sizeOfLastChunk = in.get() & 0xFF;
+		this.documentReferenceSize = in.get() & 0xFF;
+		this.separator = (char) (in.get() & 0xFF);
 
 		this.chunkOffsets = new int[this.numberOfChunks];
 		for (int i = 0; i < this.numberOfChunks; i++)
-			this.chunkOffsets[i] = file.readInt();
+			this.chunkOffsets[i] = in.getInt();
 
-		this.startOfCategoryTables = file.readInt();
+		this.startOfCategoryTables = in.getInt();
 
-		int size = file.readInt();
+		int size = in.getInt();
 		this.categoryOffsets = new HashtableOfIntValues(size);
 		for (int i = 0; i < size; i++)
-			this.categoryOffsets.put(Util.readUTF(file), file.readInt()); // cache
-		// offset
-		// to
-		// category
-		// table
+			this.categoryOffsets.put(readUTF(in), in.getInt()); // cache offset
+		// to category table
 		this.categoryTables = new HashtableOfObject(3);
 	}
 
+	/**
+	 * Returns <code>true</code> if the file is in the previous format and
+	 * should be rewritten
+	 */
+	boolean isLegacyFormat() {
+		return this.legacyFormat;
+	}
+
 	synchronized void startQuery() {
 		this.cacheUserCount++;
 	}
@@ -1091,13 +1061,11 @@ public class DiskIndex {
 		// the table (the offset to each array is remembered)
 		// then the number of word->int[] pairs in the table is written
 		// for each word -> int[] pair, the word is written followed by:
-		// an int <= 0 if the array size == 1
-		// an int > 1 & < 256 for the size of the array if its > 1 & < 256, the
-		// document array follows immediately
-		// 256 if the array size >= 256 followed by another int which is the
-		// offset to the array (written prior to the table)
+		// the variable length size of the array if its < 256, the document
+		// array follows immediately
+		// 0 if the array size >= 256 followed by an int which is the offset
+		// to the array (written prior to the table)
 
-		int largeArraySize = 256;
 		Object[] values = wordsToDocs.valueTable;
 		for (int i = 0, l = values.length; i < l; i++) {
 			Object o = values[i];
@@ -1105,7 +1073,7 @@ public class DiskIndex {
 				if (o instanceof IntList)
 					o = values[i] = ((IntList) values[i]).asArray();
 				int[] documentNumbers = (int[]) o;
-				if (documentNumbers.length >= largeArraySize) {
+				if (documentNumbers.length >= LARGE_ARRAY_SIZE) {
 					values[i] = new Integer(stream.size());
 					writeDocumentNumbers(documentNumbers, stream);
 				}
@@ -1124,24 +1092,12 @@ public class DiskIndex {
 			if (o != null) {
 				Util.writeUTF(stream, words[i]);
 				if (o instanceof int[]) {
-					int[] documentNumbers = (int[]) o;
-					if (documentNumbers.length == 1)
-						stream.writeInt(-documentNumbers[0]); // store an
-					// array of 1
-					// element by
-					// negating the
-					// documentNumber
-					// (can be zero)
-					else
-						writeDocumentNumbers(documentNumbers, stream);
+					writeDocumentNumbers((int[]) o, stream);
 				} else {
-					stream.writeInt(largeArraySize); // mark to identify that
-					// an offset follows
+					writeVarInt(0, stream); // mark to identify that an
+					// offset follows
 					stream.writeInt(((Integer) o).intValue()); // offset in the
-					// file of the
-					// array of
-					// document
-					// numbers
+					// file of the array of document numbers
 				}
 			}
 		}
@@ -1149,24 +1105,15 @@ public class DiskIndex {
 
 	private void writeDocumentNumbers(int[] documentNumbers,
 			DataOutputStream stream) throws IOException {
-		// must store length as a positive int to detect in-lined array of 1
-		// element
+		// must store length as a positive int to detect an offset to the
+		// array
 		int length = documentNumbers.length;
-		stream.writeInt(length);
+		writeVarInt(length, stream);
 		Util.sort(documentNumbers);
-		switch (this.documentReferenceSize) {
-		case 1:
-			for (int i = 0; i < length; i++)
-				stream.writeByte(documentNumbers[i]);
-			break;
-		case 2:
-			for (int i = 0; i < length; i++)
-				stream.writeShort(documentNumbers[i]);
-			break;
-		default:
-			for (int i = 0; i < length; i++)
-				stream.writeInt(documentNumbers[i]);
-			break;
+		int previous = 0;
+		for (int i = 0; i < length; i++) {
+			writeVarInt(documentNumbers[i] - previous, stream);
+			previous = documentNumbers[i];
 		}
 	}
 
@@ -1209,4 +1156,102 @@ public class DiskIndex {
 			}
 		}
 	}
+
+	private static ByteBuffer readFile(File file) throws IOException {
+		FileInputStream stream = new FileInputStream(file);
+		try {
+			FileChannel channel = stream.getChannel();
+			long size = channel.size();
+			if (MAP_FILES)
+				return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			ByteBuffer result = ByteBuffer.allocate((int) size);
+			while (result.hasRemaining())
+				if (channel.read(result) < 0)
+					throw new EOFException();
+			result.flip();
+			return result;
+		} finally {
+			stream.close();
+		}
+	}
+
+	private static void writeVarInt(int value, DataOutputStream stream)
+			throws IOException {
+		while ((value & ~0x7F) != 0) {
+			stream.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		stream.writeByte(value);
+	}
+
+	private static int readVarInt(ByteBuffer in) {
+		int value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = in.get();
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+
+	/**
+	 * Reads the string written by {@link Util#writeUTF(java.io.OutputStream, char[])}
+	 * or {@link DataOutputStream#writeUTF(String)}
+	 */
+	private static char[] readUTF(ByteBuffer in) throws UTFDataFormatException {
+		int utflen = in.getShort() & 0xFFFF;
+		char str[] = new char[utflen];
+		int count = 0;
+		int strlen = 0;
+		while (count < utflen) {
+			int c = in.get() & 0xFF;
+			int char2, char3;
+			switch (c >> 4) {
+			case 0:
+			case 1:
+			case 2:
+			case 3:
+			case 4:
+			case 5:
+			case 6:
+			case 7:
+				// xxxxxxx
+				count++;
+				str[strlen++] = (char) c;
+				break;
+			case 12:
+			case 13:
+				// 110x xxxx 10xx xxxx
+				count += 2;
+				if (count > utflen)
+					throw new UTFDataFormatException();
+				char2 = in.get();
+				if ((char2 & 0xC0) != 0x80)
+					throw new UTFDataFormatException();
+				str[strlen++] = (char) (((c & 0x1F) << 6) | (char2 & 0x3F));
+				break;
+			case 14:
+				// 1110 xxxx 10xx xxxx 10xx xxxx
+				count += 3;
+				if (count > utflen)
+					throw new UTFDataFormatException();
+				char2 = in.get();
+				char3 = in.get();
+				if (((char2 & 0xC0) != 0x80) || ((char3 & 0xC0) != 0x80))
+					throw new UTFDataFormatException();
+				str[strlen++] = (char) (((c & 0x0F) << 12)
+						| ((char2 & 0x3F) << 6) | ((char3 & 0x3F) << 0));
+				break;
+			default:
+				// 10xx xxxx, 1111 xxxx
+				throw new UTFDataFormatException();
+			}
+		}
+		if (strlen < utflen) {
+			System.arraycopy(str, 0, str = new char[strlen], 0, strlen);
+		}
+		return str;
+	}
 }
@@ -82,6 +82,49 @@ public class EntryResult {
 		return names;
 	}
 
+	/**
+	 * Receives the document names from
+	 * {@link EntryResult#acceptDocumentNames(Index, IDocumentNameRequestor)}
+	 * 
+	 * @since 5.0
+	 */
+	public interface IDocumentNameRequestor {
+		/**
+		 * Accepts the document name, returns <code>false</code> to stop
+		 */
+		boolean acceptDocumentName(String documentName);
+	}
+
+	/**
+	 * Passes the names of the documents containing this entry to the
+	 * requestor until it returns <code>false</code>. Unlike
+	 * {@link #getDocumentNames(Index)} the names stored in a single disk index
+	 * table are read one by one, so the remaining names are never decoded if
+	 * the requestor stops early.
+	 * 
+	 * @return <code>false</code> if stopped by the requestor
+	 * @since 5.0
+	 */
+	public boolean acceptDocumentNames(Index index,
+			IDocumentNameRequestor requestor) throws java.io.IOException {
+		if (this.documentTables != null && this.documentTables.length == 1
+				&& this.documentNames == null) {
+			int[] numbers = index.diskIndex
+					.readDocumentNumbers(this.documentTables[0].get(word));
+			for (int i = 0, l = numbers.length; i < l; i++)
+				if (!requestor.acceptDocumentName(index.diskIndex
+						.readDocumentName(numbers[i])))
+					return false;
+			return true;
+		}
+		// names from several tables are merged to remove duplicates
+		String[] names = getDocumentNames(index);
+		for (int i = 0, l = names.length; i < l; i++)
+			if (!requestor.acceptDocumentName(names[i]))
+				return false;
+		return true;
+	}
+
 	public boolean isEmpty() {
 		return this.documentTables == null && this.documentNames == null;
 	}
@@ -19,7 +19,9 @@ import org.eclipse.dltk.compiler.util.SimpleSet;
 import org.eclipse.dltk.core.DLTKCore;
 import org.eclipse.dltk.core.search.IDLTKSearchScope;
 import org.eclipse.dltk.core.search.SearchPattern;
+import org.eclipse.dltk.core.search.indexing.IIndexConstants;
 import org.eclipse.dltk.core.search.indexing.ReadWriteMonitor;
+import org.eclipse.dltk.internal.core.hierarchy.SubTypeCache;
 
 /**
  * An <code>Index</code> maps document names to their referenced words in
@@ -125,6 +127,9 @@ public class Index {
 			System.out.println("DEBUG INDEX: Add Index Entry:" + new String( category ) + " " + new String( key ) + " path:" + containerRelativePath ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 		}
 		this.memoryIndex.addIndexEntry(category, key, containerRelativePath);
+		if (CharOperation.equals(category, IIndexConstants.SUPER_REF)) {
+			SubTypeCache.getDefault().superTypeReferenceAdded(key);
+		}
 	}
 
 	public File getIndexFile() {
@@ -135,7 +140,9 @@ public class Index {
 	}
 
 	public boolean hasChanged() {
-		return this.memoryIndex.hasChanged();
+		// index files in the previous format are rewritten on the next save
+		return this.memoryIndex.hasChanged() || this.diskIndex != null
+				&& this.diskIndex.isLegacyFormat();
 	}
 
 	/**
@@ -206,6 +213,8 @@ public class Index {
 
 	public void remove(String containerRelativePath) {
 		this.memoryIndex.remove(containerRelativePath);
+		SubTypeCache.getDefault().documentRemoved(
+				this.containerPath + this.separator + containerRelativePath);
 	}
 
 	public void save() throws IOException {
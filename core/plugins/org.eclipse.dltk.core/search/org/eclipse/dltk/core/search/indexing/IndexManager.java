@@ -45,6 +45,7 @@ import org.eclipse.dltk.core.search.index.MixinIndex;
 import org.eclipse.dltk.internal.core.Model;
 import org.eclipse.dltk.internal.core.ModelManager;
 import org.eclipse.dltk.internal.core.ScriptProject;
+import org.eclipse.dltk.internal.core.hierarchy.SubTypeCache;
 import org.eclipse.dltk.internal.core.search.PatternSearchJob;
 import org.eclipse.dltk.internal.core.search.ProjectIndexerManager;
 import org.eclipse.dltk.internal.core.search.processing.IJob;
@@ -616,6 +617,7 @@ public class IndexManager extends JobManager implements IIndexConstants {
 			}
 			this.indexes.put(indexLocation, index);
 			index.monitor = monitor;
+			SubTypeCache.getDefault().clear();
 			return index;
 		} catch (IOException e) {
 			// The file could not be created. Possible reason: the project has
@@ -655,6 +657,7 @@ public class IndexManager extends JobManager implements IIndexConstants {
 		if (o instanceof Index) {
 			final Index index = (Index) o;
 			index.monitor = null;
+			SubTypeCache.getDefault().clear();
 			if (index.isRebuildable()) {
 				this.updateIndexState(indexLocation, null);
 			}
@@ -696,6 +699,7 @@ public class IndexManager extends JobManager implements IIndexConstants {
 				this.indexes.remove(locations[i]);
 			}
 			this.removeIndexesState(locations);
+			SubTypeCache.getDefault().clear();
 		}
 	}
 
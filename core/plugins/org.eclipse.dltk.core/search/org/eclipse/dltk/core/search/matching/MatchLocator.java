@@ -13,8 +13,18 @@
 package org.eclipse.dltk.core.search.matching;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.Assert;
@@ -50,6 +60,7 @@ import org.eclipse.dltk.core.search.FieldDeclarationMatch;
 import org.eclipse.dltk.core.search.FieldReferenceMatch;
 import org.eclipse.dltk.core.search.IDLTKSearchScope;
 import org.eclipse.dltk.core.search.IMatchLocatorParser;
+import org.eclipse.dltk.core.search.IMatchLocatorParserExtension;
 import org.eclipse.dltk.core.search.MethodDeclarationMatch;
 import org.eclipse.dltk.core.search.MethodReferenceMatch;
 import org.eclipse.dltk.core.search.SearchDocument;
@@ -103,6 +114,11 @@ public class MatchLocator implements IMatchLocator, ITypeRequestor {
 		}
 	}
 
+	/**
+	 * Minimal number of the possible matches to parse them in parallel
+	 */
+	private static final int PARALLEL_LOCATE_THRESHOLD = 10;
+
 	// permanent state
 	public SearchPattern pattern;
 
@@ -490,6 +506,12 @@ public class MatchLocator implements IMatchLocator, ITypeRequestor {
 			PossibleMatch[] possibleMatches, int start, int length)
 			throws CoreException {
 		initialize(scriptProject, length);
+		final int threads = getParallelThreads(length);
+		if (threads > 1) {
+			locateMatchesInParallel(scriptProject, possibleMatches, start,
+					length, threads);
+			return;
+		}
 		// create and resolve binding (equivalent to beginCompilation() in
 		// Compiler)
 		for (int i = start, maxUnits = start + length; i < maxUnits; i++) {
@@ -510,6 +532,145 @@ public class MatchLocator implements IMatchLocator, ITypeRequestor {
 		}
 	}
 
+	/**
+	 * Parses the possible matches using the worker pool, every worker takes
+	 * its own parser instance. The method bodies of the parsed units are
+	 * matched, processed and reported on the calling thread in the original
+	 * order, so the requestor receives the same results as with the
+	 * sequential location.
+	 */
+	private void locateMatchesInParallel(IScriptProject scriptProject,
+			PossibleMatch[] possibleMatches, int start, int length, int threads)
+			throws CoreException {
+		final String natureId = DLTKLanguageManager.getLanguageToolkit(
+				scriptProject).getNatureId();
+		final BlockingQueue<IMatchLocatorParser> parsers = new ArrayBlockingQueue<IMatchLocatorParser>(
+				threads);
+		for (int i = 0; i < threads; ++i) {
+			parsers.add(DLTKLanguageManager.createMatchParser(natureId, this));
+		}
+		final ExecutorService executor = createExecutor(threads);
+		try {
+			final List<Future<ModuleDeclaration>> futures = new ArrayList<Future<ModuleDeclaration>>(
+					length);
+			for (int i = start, maxUnits = start + length; i < maxUnits; i++) {
+				final PossibleMatch possibleMatch = possibleMatches[i];
+				futures.add(executor.submit(new Callable<ModuleDeclaration>() {
+					public ModuleDeclaration call() throws Exception {
+						if (isCanceled()) {
+							return null;
+						}
+						final IMatchLocatorParser parser = parsers.take();
+						try {
+							return parse(parser, possibleMatch);
+						} finally {
+							parsers.add(parser);
+						}
+					}
+				}));
+			}
+			for (int i = 0; i < length; i++) {
+				final PossibleMatch possibleMatch = possibleMatches[start + i];
+				try {
+					if (isCanceled())
+						throw new OperationCanceledException();
+					final ModuleDeclaration parsedUnit = waitFor(futures.get(i));
+					if (parsedUnit != null) {
+						getMethodBodies(parsedUnit, possibleMatch.nodeSet);
+						possibleMatch.parsedUnit = parsedUnit;
+					}
+					worked();
+					process(possibleMatch);
+				} finally {
+					// don't keep the processed units
+					futures.set(i, null);
+					possibleMatch.cleanUp();
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private ModuleDeclaration parse(IMatchLocatorParser parser,
+			PossibleMatch possibleMatch) {
+		if (BasicSearchEngine.VERBOSE)
+			System.out
+					.println("Parsing " + possibleMatch.openable.toStringWithAncestors()); //$NON-NLS-1$
+		try {
+			parser.setNodeSet(possibleMatch.nodeSet);
+			return parser.parse(possibleMatch);
+		} finally {
+			parser.setNodeSet(null);
+		}
+	}
+
+	private boolean isCanceled() {
+		return this.progressMonitor != null
+				&& this.progressMonitor.isCanceled();
+	}
+
+	/**
+	 * Returns the number of threads to parse the specified number of possible
+	 * matches, <code>1</code> if the parser of the current project is not
+	 * thread safe.
+	 */
+	private int getParallelThreads(int possibleMatchSize) {
+		if (possibleMatchSize < PARALLEL_LOCATE_THRESHOLD
+				|| !(this.parser instanceof IMatchLocatorParserExtension && ((IMatchLocatorParserExtension) this.parser)
+						.isThreadSafe())) {
+			return 1;
+		}
+		final String value = DLTKCore.getOption(DLTKCore.SEARCH_THREADS);
+		if (value != null) {
+			try {
+				return Math.min(Integer.parseInt(value), possibleMatchSize);
+			} catch (NumberFormatException e) {
+				// fall thru
+			}
+		}
+		return 1;
+	}
+
+	private static ExecutorService createExecutor(int threads) {
+		return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			private int counter = 0;
+
+			public Thread newThread(Runnable r) {
+				final Thread thread = new Thread(r,
+						"Match Locator Worker-" + (++counter)); //$NON-NLS-1$
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	private static ModuleDeclaration waitFor(Future<ModuleDeclaration> future) {
+		boolean interrupted = false;
+		try {
+			for (;;) {
+				try {
+					return future.get();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				} catch (ExecutionException e) {
+					final Throwable cause = e.getCause();
+					if (cause instanceof RuntimeException) {
+						throw (RuntimeException) cause;
+					} else if (cause instanceof Error) {
+						throw (Error) cause;
+					}
+					DLTKCore.error(cause);
+					return null;
+				}
+			}
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
 	private boolean parse(PossibleMatch possibleMatch) {
 		if (this.progressMonitor != null && this.progressMonitor.isCanceled())
 			throw new OperationCanceledException();
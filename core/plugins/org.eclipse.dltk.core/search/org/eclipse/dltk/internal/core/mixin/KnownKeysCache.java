@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.internal.core.mixin;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of the mixin key existence, split into the segments with
+ * separate locks, so lookups never wait for the mixin model lock. Each segment
+ * holds at most its share of the limit and evicts its least recently used
+ * keys.
+ */
+public class KnownKeysCache {
+	private static final int SEGMENTS = 16;
+
+	private final Map<String, Boolean>[] segments;
+
+	@SuppressWarnings({ "unchecked", "serial" })
+	public KnownKeysCache(int limit) {
+		segments = new Map[SEGMENTS];
+		final int segmentLimit = Math.max(1, limit / SEGMENTS);
+		for (int i = 0; i < SEGMENTS; ++i) {
+			segments[i] = new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(
+						Map.Entry<String, Boolean> eldest) {
+					return size() > segmentLimit;
+				}
+			};
+		}
+	}
+
+	private Map<String, Boolean> segmentFor(String key) {
+		int h = key.hashCode();
+		h ^= (h >>> 20) ^ (h >>> 12);
+		h ^= (h >>> 7) ^ (h >>> 4);
+		return segments[h & (SEGMENTS - 1)];
+	}
+
+	public Boolean get(String key) {
+		final Map<String, Boolean> segment = segmentFor(key);
+		synchronized (segment) {
+			return segment.get(key);
+		}
+	}
+
+	public void put(String key, Boolean value) {
+		final Map<String, Boolean> segment = segmentFor(key);
+		synchronized (segment) {
+			segment.put(key, value);
+		}
+	}
+
+	public void remove(String key) {
+		final Map<String, Boolean> segment = segmentFor(key);
+		synchronized (segment) {
+			segment.remove(key);
+		}
+	}
+
+	public void clear() {
+		for (Map<String, Boolean> segment : segments) {
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of the cached keys
+	 */
+	public int size() {
+		int size = 0;
+		for (Map<String, Boolean> segment : segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+}
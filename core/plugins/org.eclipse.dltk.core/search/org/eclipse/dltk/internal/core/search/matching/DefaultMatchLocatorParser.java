@@ -0,0 +1,32 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.internal.core.search.matching;
+
+import org.eclipse.dltk.core.search.IMatchLocatorParserExtension;
+import org.eclipse.dltk.core.search.matching.MatchLocator;
+import org.eclipse.dltk.core.search.matching.MatchLocatorParser;
+
+/**
+ * The match locator parser used for the languages without the search factory.
+ * It only takes the module declarations from the
+ * {@link org.eclipse.dltk.core.SourceParserUtil} cache, so the possible
+ * matches could be parsed concurrently.
+ */
+public class DefaultMatchLocatorParser extends MatchLocatorParser implements
+		IMatchLocatorParserExtension {
+
+	public DefaultMatchLocatorParser(MatchLocator locator) {
+		super(locator);
+	}
+
+	public boolean isThreadSafe() {
+		return true;
+	}
+
+}
@@ -84,8 +84,9 @@ public abstract class InternalSearchPattern {
 	 * Query a given index for matching entries. Assumes the sender has opened
 	 * the index and will close when finished.
 	 */
-	public void findIndexMatches(Index index, IndexQueryRequestor requestor,
-			SearchParticipant participant, IDLTKSearchScope scope,
+	public void findIndexMatches(Index index,
+			final IndexQueryRequestor requestor,
+			final SearchParticipant participant, final IDLTKSearchScope scope,
 			IProgressMonitor monitor) throws IOException {
 		if (participant.isSkipped(index)) {
 			return;
@@ -103,6 +104,15 @@ public abstract class InternalSearchPattern {
 			final SearchPattern decodedResult = pattern.getBlankPattern();
 			final String containerPath = index.getContainerPath();
 			final char separator = index.separator;
+			// document names are decoded lazily, so nothing more is read when
+			// the requestor cancels the query
+			final EntryResult.IDocumentNameRequestor nameRequestor = new EntryResult.IDocumentNameRequestor() {
+				public boolean acceptDocumentName(String documentName) {
+					acceptMatch(documentName, containerPath, separator,
+							decodedResult, requestor, participant, scope);
+					return true;
+				}
+			};
 			for (int i = 0, l = entries.length; i < l; i++) {
 				if (monitor != null && monitor.isCanceled())
 					throw new OperationCanceledException();
@@ -111,10 +121,7 @@ public abstract class InternalSearchPattern {
 				decodedResult.decodeIndexKey(entry.getWord());
 				if (pattern.matchesDecodedKey(decodedResult)) {
 					// TODO (kent) some clients may not need the document names
-					String[] names = entry.getDocumentNames(index);
-					for (int j = 0, n = names.length; j < n; j++)
-						acceptMatch(names[j], containerPath, separator,
-								decodedResult, requestor, participant, scope);
+					entry.acceptDocumentNames(index, nameRequestor);
 				}
 			}
 		} finally {
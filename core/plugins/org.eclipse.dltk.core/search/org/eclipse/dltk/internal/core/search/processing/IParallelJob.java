@@ -0,0 +1,27 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.internal.core.search.processing;
+
+/**
+ * Job which could be executed by the {@link JobManager} on a worker thread,
+ * concurrently with other jobs of this kind.
+ * 
+ * Jobs returning equal serialization keys (e.g. the path of the container
+ * whose index is written) are never executed concurrently and are executed
+ * in the order they were requested. Jobs not implementing this interface act
+ * as barriers: they are executed only when no parallel job is running.
+ */
+public interface IParallelJob extends IJob {
+
+	/**
+	 * Answers the key identifying the resource this job writes to, jobs with
+	 * equal keys are executed sequentially.
+	 */
+	Object getSerializationKey();
+}
@@ -9,6 +9,13 @@
  *******************************************************************************/
 package org.eclipse.dltk.internal.core.search.processing;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.OperationCanceledException;
@@ -44,6 +51,47 @@ public abstract class JobManager implements Runnable {
 
 	private int awaitingClients = 0;
 
+	/*
+	 * maximum number of parallel jobs executed at the same time, 1 means all
+	 * jobs are executed sequentially by the processing thread
+	 */
+	private int workerCount = 1;
+	/* pool executing the parallel jobs, created on demand */
+	private ExecutorService workers;
+	/* parallel jobs currently executed by the workers */
+	private final List<IParallelJob> runningJobs = new ArrayList<IParallelJob>();
+
+	/**
+	 * Answers the maximum number of jobs executed concurrently.
+	 * 
+	 * @since 5.0
+	 */
+	public synchronized int getWorkerCount() {
+		return this.workerCount;
+	}
+
+	/**
+	 * Sets the maximum number of jobs executed concurrently. Only jobs
+	 * implementing {@link IParallelJob} are executed in parallel, all the other
+	 * jobs are still executed one at a time by the processing thread.
+	 * 
+	 * @since 5.0
+	 */
+	public synchronized void setWorkerCount(int count) {
+		if (count < 1) {
+			count = 1;
+		}
+		if (this.workerCount != count) {
+			this.workerCount = count;
+			if (this.workers != null) {
+				// running jobs are completed by the old pool
+				this.workers.shutdown();
+				this.workers = null;
+			}
+			this.notifyAll();
+		}
+	}
+
 	/**
 	 * Invoked exactly once, in background, before starting processing any job
 	 */
@@ -57,7 +105,8 @@ public abstract class JobManager implements Runnable {
 	public synchronized int awaitingJobsCount() {
 		// pretend busy in case concurrent job attempts performing before
 		// activated
-		return this.activated ? this.jobEnd - this.jobStart + 1 : 1;
+		return this.activated ? this.jobEnd - this.jobStart + 1
+				+ this.runningJobs.size() : 1;
 	}
 
 	/**
@@ -71,6 +120,106 @@ public abstract class JobManager implements Runnable {
 		return null;
 	}
 
+	/**
+	 * Answers if the specified job could be started now: sequential jobs wait
+	 * until all the parallel jobs are completed, parallel jobs wait for a free
+	 * worker and for the completion of the running job with the same
+	 * serialization key.
+	 */
+	private boolean canStart(IJob job) {
+		if (this.workerCount > 1 && job instanceof IParallelJob) {
+			if (this.runningJobs.size() >= this.workerCount) {
+				return false;
+			}
+			final Object key = ((IParallelJob) job).getSerializationKey();
+			for (IParallelJob running : this.runningJobs) {
+				final Object runningKey = running.getSerializationKey();
+				if (key == null ? runningKey == null : key.equals(runningKey)) {
+					return false;
+				}
+			}
+			return true;
+		}
+		return this.runningJobs.isEmpty();
+	}
+
+	/**
+	 * Removes the parallel job from the queue and submits it to the workers.
+	 * Should be called only when the job is the current one.
+	 */
+	private void startParallelJob(final IParallelJob job) {
+		if (this.workers == null) {
+			this.workers = Executors.newFixedThreadPool(this.workerCount,
+					new WorkerThreadFactory(processName()));
+		}
+		this.runningJobs.add(job);
+		moveToNextJob();
+		if (VERBOSE)
+			Util.verbose("STARTING parallel background job - " + job); //$NON-NLS-1$
+		this.workers.execute(new Runnable() {
+			public void run() {
+				try {
+					job.execute(null);
+				} catch (RuntimeException e) {
+					Util.log(e, "Background Indexer Job Failure"); //$NON-NLS-1$
+				} finally {
+					synchronized (JobManager.this) {
+						runningJobs.remove(job);
+						if (VERBOSE)
+							Util.verbose("FINISHED parallel background job - " + job); //$NON-NLS-1$
+						JobManager.this.notifyAll();
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Cancels the running parallel jobs of the specified family and waits until
+	 * they are completed.
+	 */
+	private void discardRunningJobs(String jobFamily) {
+		List<IParallelJob> discarded = new ArrayList<IParallelJob>();
+		synchronized (this) {
+			for (IParallelJob job : this.runningJobs) {
+				if (jobFamily == null || job.belongsTo(jobFamily)) {
+					job.cancel();
+					discarded.add(job);
+				}
+			}
+		}
+		for (IParallelJob job : discarded) {
+			synchronized (this) {
+				while (this.runningJobs.contains(job)) {
+					if (VERBOSE)
+						Util.verbose("-> waiting end of parallel background job - " + job); //$NON-NLS-1$
+					try {
+						this.wait(50);
+					} catch (InterruptedException e) {
+						// ignore
+					}
+				}
+			}
+		}
+	}
+
+	private static class WorkerThreadFactory implements ThreadFactory {
+		private final String name;
+		private final AtomicInteger counter = new AtomicInteger();
+
+		WorkerThreadFactory(String name) {
+			this.name = name;
+		}
+
+		public Thread newThread(Runnable r) {
+			final Thread thread = new Thread(r, name + " Worker-" //$NON-NLS-1$
+					+ counter.incrementAndGet());
+			thread.setDaemon(true);
+			thread.setPriority(Thread.NORM_PRIORITY - 1);
+			return thread;
+		}
+	}
+
 	public void disable() {
 		this.enableCount--;
 		if (VERBOSE)
@@ -109,6 +258,7 @@ public abstract class JobManager implements Runnable {
 					}
 				}
 			}
+			discardRunningJobs(jobFamily);
 
 			// flush and compact awaiting jobs
 			int loc = -1;
@@ -436,7 +586,8 @@ public abstract class JobManager implements Runnable {
 						// must check for new job inside this sync block to
 						// avoid timing hole
 						if ((job = currentJob()) == null) {
-							hideProgress();
+							if (this.runningJobs.isEmpty())
+								hideProgress();
 							if (idlingStart < 0)
 								idlingStart = System.currentTimeMillis();
 							else
@@ -444,8 +595,18 @@ public abstract class JobManager implements Runnable {
 										- idlingStart);
 							this.wait(); // wait until a new job is posted (or
 							// reenabled:38901)
+						} else if (!canStart(job)) {
+							// wait until the conflicting jobs are completed
+							this.wait();
+							continue;
 						} else {
 							idlingStart = -1;
+							if (job instanceof IParallelJob
+									&& this.workerCount > 1) {
+								showProgress();
+								startParallelJob((IParallelJob) job);
+								continue;
+							}
 						}
 					}
 					if (job == null) {
@@ -534,6 +695,12 @@ public abstract class JobManager implements Runnable {
 		disable();
 		discardJobs(null); // will wait until current executing job has
 		// completed
+		synchronized (this) {
+			if (this.workers != null) {
+				this.workers.shutdown();
+				this.workers = null;
+			}
+		}
 		Thread thread = this.processingThread;
 		try {
 			if (thread != null) { // see
@@ -566,6 +733,7 @@ public abstract class JobManager implements Runnable {
 		buffer.append("Enable count:").append(this.enableCount).append('\n'); //$NON-NLS-1$
 		int numJobs = this.jobEnd - this.jobStart + 1;
 		buffer.append("Jobs in queue:").append(numJobs).append('\n'); //$NON-NLS-1$
+		buffer.append("Running parallel jobs:").append(this.runningJobs.size()).append('\n'); //$NON-NLS-1$
 		for (int i = 0; i < numJobs && i < 15; i++) {
 			buffer
 					.append(i)
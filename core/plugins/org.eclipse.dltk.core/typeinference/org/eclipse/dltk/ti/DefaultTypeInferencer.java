@@ -197,6 +197,26 @@ public class DefaultTypeInferencer implements ITypeInferencer {
 		initStdGoals();
 	}
 
+	/**
+	 * Sets the cache of goal results shared between the evaluations, e.g.
+	 * {@link GoalResultCache#getDefault()}, <code>null</code> disables caching.
+	 * 
+	 * @since 5.0
+	 */
+	public void setResultCache(GoalResultCache cache) {
+		engine.setResultCache(cache);
+	}
+
+	/**
+	 * Enables parallel initialization of the independent subgoals, the
+	 * registered evaluators should be thread safe.
+	 * 
+	 * @since 5.0
+	 */
+	public void setParallelEvaluation(boolean value) {
+		engine.setParallelEvaluation(value);
+	}
+
 	public void registerEvaluator(Class goalClass, Class evaluatorClass) {
 		Assert.isLegal((IGoal.class.isAssignableFrom(goalClass)));
 		Assert.isLegal(GoalEvaluator.class.isAssignableFrom(evaluatorClass));
@@ -12,8 +12,16 @@ package org.eclipse.dltk.ti;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.dltk.ti.goals.GoalEvaluator;
@@ -26,6 +34,14 @@ import org.eclipse.dltk.ti.statistics.IEvaluationStatisticsRequestor;
  * allows pruning: before evaluating every goal(except root goal) could be
  * pruned by provided prunner.
  * 
+ * Results of completely evaluated goals could be shared between engines via
+ * {@link GoalResultCache}. Optionally the independent subgoals could be
+ * initialized in parallel (see {@link #setParallelEvaluation(boolean)}), in
+ * this mode {@link GoalEvaluator#init()} of the new evaluators and
+ * {@link GoalEvaluator#produceResult()} of the evaluators without subgoals are
+ * called on the worker threads, so they should be thread safe. All the other
+ * evaluator calls are done on the calling thread.
+ * 
  * This class isn't thread safe.
  */
 public class GoalEngine {
@@ -38,12 +54,19 @@ public class GoalEngine {
 
 	private IEvaluationStatisticsRequestor statisticsRequestor;
 
+	private GoalResultCache resultCache;
+	private boolean parallelEvaluation;
+
+	private static ExecutorService executor;
+
 	private static class EvaluatorState {
 		public long timeCreated;
 		public int totalSubgoals;
 		public int successfulSubgoals;
 		public int subgoalsLeft;
 		public List<IGoal> subgoals = new ArrayList<IGoal>();
+		/* some of the subgoals were pruned or recursive */
+		public boolean incomplete;
 
 		public EvaluatorState(int subgoalsLeft) {
 			this.subgoalsLeft = subgoalsLeft;
@@ -57,6 +80,17 @@ public class GoalEngine {
 		private IGoal goal;
 		private GoalEvaluator creator;
 
+		/* values computed in advance by the parallel evaluation */
+		private boolean prepared;
+		private boolean prune;
+		private GoalEvaluator evaluator;
+		private Future<?> future;
+		private IGoal[] newGoals;
+		private long initTime;
+		private boolean hasResult;
+		private Object result;
+		private long resultTime;
+
 		public WorkingPair(IGoal goal, GoalEvaluator parent) {
 			this.goal = goal;
 			this.creator = parent;
@@ -68,12 +102,65 @@ public class GoalEngine {
 		public GoalEvaluator creator;
 		public GoalState state;
 		public Object result;
+		public boolean incomplete;
 	}
 
 	public GoalEngine(IGoalEvaluatorFactory evaluatorFactory) {
 		this.evaluatorFactory = evaluatorFactory;
 	}
 
+	/**
+	 * Sets the cache used to lookup and store goal results, <code>null</code>
+	 * disables caching.
+	 * 
+	 * @since 5.0
+	 */
+	public void setResultCache(GoalResultCache resultCache) {
+		this.resultCache = resultCache;
+	}
+
+	/**
+	 * @since 5.0
+	 */
+	public GoalResultCache getResultCache() {
+		return resultCache;
+	}
+
+	/**
+	 * Enables initialization of the independent subgoals on the worker
+	 * threads.
+	 * 
+	 * @since 5.0
+	 */
+	public void setParallelEvaluation(boolean value) {
+		this.parallelEvaluation = value;
+	}
+
+	/**
+	 * @since 5.0
+	 */
+	public boolean isParallelEvaluation() {
+		return parallelEvaluation;
+	}
+
+	private static synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			// at least two workers, as the evaluators could wait for I/O
+			executor = Executors.newFixedThreadPool(Math.max(2, Runtime
+					.getRuntime().availableProcessors()), new ThreadFactory() {
+				private int counter = 0;
+
+				public Thread newThread(Runnable r) {
+					final Thread thread = new Thread(r,
+							"GoalEngine Worker-" + (++counter)); //$NON-NLS-1$
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return executor;
+	}
+
 	private void storeGoal(IGoal goal, GoalState state, Object result,
 			GoalEvaluator creator) {
 		GoalEvaluationState es = new GoalEvaluationState();
@@ -103,6 +190,8 @@ public class GoalEngine {
 		if (state == GoalState.WAITING) {
 			state = GoalState.RECURSIVE;
 		}
+		final boolean incomplete = state != GoalState.DONE
+				|| subGoalState.incomplete;
 
 		t = System.currentTimeMillis();
 		IGoal[] newGoals = evaluator.subGoalDone(subGoal, result, state);
@@ -122,6 +211,9 @@ public class GoalEngine {
 		if (state == GoalState.DONE && result != null) {
 			ev.successfulSubgoals++;
 		}
+		if (incomplete) {
+			ev.incomplete = true;
+		}
 		if (ev.subgoalsLeft == 0) {
 			t = System.currentTimeMillis();
 			Object newRes = evaluator.produceResult();
@@ -131,6 +223,10 @@ public class GoalEngine {
 			Assert.isNotNull(st);
 			st.state = GoalState.DONE;
 			st.result = newRes;
+			st.incomplete = ev.incomplete;
+			if (!ev.incomplete && resultCache != null) {
+				resultCache.put(evaluator.getGoal(), newRes);
+			}
 			if (st.creator != null) {
 				notifyEvaluator(st.creator, evaluator.getGoal());
 			}
@@ -154,7 +250,6 @@ public class GoalEngine {
 
 	public Object evaluateGoal(IGoal rootGoal, IPruner pruner,
 			IEvaluationStatisticsRequestor statisticsRequestor) {
-		long time = 0;
 
 		if (statisticsRequestor == null) {
 			statisticsRequestor = new IEvaluationStatisticsRequestor() {
@@ -189,7 +284,23 @@ public class GoalEngine {
 		}
 		workingQueue.add(new WorkingPair(rootGoal, null));
 		statisticsRequestor.evaluationStarted(rootGoal);
+		try {
+			evaluateWorkingQueue(pruner);
+		} finally {
+			cancelWorkingQueue();
+		}
+		GoalEvaluationState s = goalStates.get(rootGoal);
+
+		Assert.isTrue(s.state == GoalState.DONE);
+		return s.result;
+	}
+
+	private void evaluateWorkingQueue(IPruner pruner) {
+		long time = 0;
 		while (!workingQueue.isEmpty()) {
+			if (parallelEvaluation && !workingQueue.getFirst().prepared) {
+				prepareWorkingQueue(pruner);
+			}
 			WorkingPair pair = workingQueue.getFirst();
 			workingQueue.removeFirst();
 			if (DEBUG) {
@@ -197,66 +308,199 @@ public class GoalEngine {
 			}
 			GoalEvaluationState state = goalStates.get(pair.goal);
 			if (state != null && pair.creator != null) {
+				cancel(pair);
+				notifyEvaluator(pair.creator, pair.goal);
+				continue;
+			}
+			if (resultCache != null) {
+				final Object cached = resultCache.get(pair.goal);
+				if (cached != GoalResultCache.NOT_CACHED) {
+					cancel(pair);
+					storeGoal(pair.goal, GoalState.DONE, cached, pair.creator);
+					if (pair.creator != null) {
+						notifyEvaluator(pair.creator, pair.goal);
+					}
+					continue;
+				}
+			}
+			boolean prune = pair.prune;
+			if (!prune && pruner != null && pair.creator != null) {
+				// check again, as the time limit could be reached already
+				prune = pruner.prune(pair.goal,
+						getEvaluatorStatistics(pair.creator));
+			}
+			if (prune) {
+				cancel(pair);
+				storeGoal(pair.goal, GoalState.PRUNED, null, pair.creator);
 				notifyEvaluator(pair.creator, pair.goal);
 			} else {
-				boolean prune = false;
-				if (pruner != null && pair.creator != null) {
-					prune = pruner.prune(pair.goal,
-							getEvaluatorStatistics(pair.creator));
+				GoalEvaluator evaluator = pair.evaluator;
+				if (evaluator == null) {
+					evaluator = evaluatorFactory.createEvaluator(pair.goal);
+				}
+				Assert.isNotNull(evaluator);
+				if (DEBUG) {
+					System.out.println(" evaluator=" + evaluator); //$NON-NLS-1$
 				}
-				if (prune) {
-					storeGoal(pair.goal, GoalState.PRUNED, null, pair.creator);
-					notifyEvaluator(pair.creator, pair.goal);
+				statisticsRequestor.goalEvaluatorAssigned(pair.goal, evaluator);
+				IGoal[] newGoals;
+				if (pair.future != null) {
+					waitFor(pair.future);
+					newGoals = pair.newGoals;
+					time = pair.initTime;
 				} else {
-					GoalEvaluator evaluator = evaluatorFactory
-							.createEvaluator(pair.goal);
-					Assert.isNotNull(evaluator);
-					if (DEBUG) {
-						System.out.println(" evaluator=" + evaluator); //$NON-NLS-1$
-					}
-					statisticsRequestor.goalEvaluatorAssigned(pair.goal,
-							evaluator);
 					time = System.currentTimeMillis();
-					IGoal[] newGoals = evaluator.init();
+					newGoals = evaluator.init();
 					if (newGoals == null) {
 						newGoals = IGoal.NO_GOALS;
 					}
-					if (DEBUG) {
-						for (IGoal n : newGoals) {
-							System.out.println("- " + n); //$NON-NLS-1$
-						}
+					time = System.currentTimeMillis() - time;
+				}
+				if (DEBUG) {
+					for (IGoal n : newGoals) {
+						System.out.println("- " + n); //$NON-NLS-1$
+					}
+				}
+				statisticsRequestor.evaluatorInitialized(evaluator, newGoals,
+						time);
+				if (newGoals.length > 0) {
+					for (int i = 0; i < newGoals.length; i++) {
+						workingQueue.add(new WorkingPair(newGoals[i],
+								evaluator));
 					}
-					statisticsRequestor.evaluatorInitialized(evaluator,
-							newGoals, System.currentTimeMillis() - time);
-					if (newGoals.length > 0) {
-						for (int i = 0; i < newGoals.length; i++) {
-							workingQueue.add(new WorkingPair(newGoals[i],
-									evaluator));
-						}
-						EvaluatorState evaluatorState = new EvaluatorState(
-								newGoals.length);
-						evaluatorState.subgoals.addAll(Arrays.asList(newGoals));
-						putEvaluatorState(evaluator, evaluatorState);
-						storeGoal(pair.goal, GoalState.WAITING, null,
-								pair.creator);
+					EvaluatorState evaluatorState = new EvaluatorState(
+							newGoals.length);
+					evaluatorState.subgoals.addAll(Arrays.asList(newGoals));
+					putEvaluatorState(evaluator, evaluatorState);
+					storeGoal(pair.goal, GoalState.WAITING, null, pair.creator);
+				} else {
+					Object result;
+					if (pair.hasResult) {
+						result = pair.result;
+						time = pair.resultTime;
 					} else {
 						time = System.currentTimeMillis();
-						Object result = evaluator.produceResult();
-						statisticsRequestor.evaluatorProducedResult(evaluator,
-								result, System.currentTimeMillis() - time);
-						storeGoal(pair.goal, GoalState.DONE, result,
-								pair.creator);
-						if (pair.creator != null) {
-							notifyEvaluator(pair.creator, pair.goal);
-						}
+						result = evaluator.produceResult();
+						time = System.currentTimeMillis() - time;
+					}
+					statisticsRequestor.evaluatorProducedResult(evaluator,
+							result, time);
+					storeGoal(pair.goal, GoalState.DONE, result, pair.creator);
+					if (resultCache != null) {
+						resultCache.put(pair.goal, result);
+					}
+					if (pair.creator != null) {
+						notifyEvaluator(pair.creator, pair.goal);
 					}
 				}
 			}
 		}
-		GoalEvaluationState s = goalStates.get(rootGoal);
+	}
 
-		Assert.isTrue(s.state == GoalState.DONE);
-		return s.result;
+	/**
+	 * Cancels the initialization of the goal started in advance, as its
+	 * results are not needed anymore.
+	 */
+	private static void cancel(WorkingPair pair) {
+		if (pair.future != null) {
+			pair.future.cancel(false);
+			pair.future = null;
+		}
+	}
+
+	private void cancelWorkingQueue() {
+		for (WorkingPair pair : workingQueue) {
+			cancel(pair);
+		}
+	}
+
+	/**
+	 * Creates evaluators for the not yet prepared goals of the working queue
+	 * and initializes them on the worker threads. The results are applied
+	 * later in the queue order, so the evaluation order is the same as in the
+	 * sequential mode.
+	 */
+	private void prepareWorkingQueue(IPruner pruner) {
+		final List<WorkingPair> pending = new ArrayList<WorkingPair>();
+		final Set<IGoal> goals = new HashSet<IGoal>();
+		for (WorkingPair pair : workingQueue) {
+			if (pair.prepared) {
+				continue;
+			}
+			pair.prepared = true;
+			if (pair.creator == null || goalStates.containsKey(pair.goal)
+					|| !goals.add(pair.goal)) {
+				// already evaluated or will be resolved as a duplicate
+				continue;
+			}
+			if (resultCache != null
+					&& resultCache.get(pair.goal) != GoalResultCache.NOT_CACHED) {
+				continue;
+			}
+			if (pruner != null) {
+				pair.prune = pruner.prune(pair.goal,
+						getEvaluatorStatistics(pair.creator));
+				if (pair.prune) {
+					continue;
+				}
+			}
+			pending.add(pair);
+		}
+		if (pending.size() < 2) {
+			// nothing to parallelize, initialize on the calling thread
+			return;
+		}
+		final ExecutorService service = getExecutor();
+		for (final WorkingPair pair : pending) {
+			final GoalEvaluator evaluator = evaluatorFactory
+					.createEvaluator(pair.goal);
+			Assert.isNotNull(evaluator);
+			pair.evaluator = evaluator;
+			pair.future = service.submit(new Callable<Object>() {
+				public Object call() throws Exception {
+					long t = System.currentTimeMillis();
+					IGoal[] newGoals = evaluator.init();
+					if (newGoals == null) {
+						newGoals = IGoal.NO_GOALS;
+					}
+					pair.initTime = System.currentTimeMillis() - t;
+					pair.newGoals = newGoals;
+					if (newGoals.length == 0) {
+						t = System.currentTimeMillis();
+						pair.result = evaluator.produceResult();
+						pair.resultTime = System.currentTimeMillis() - t;
+						pair.hasResult = true;
+					}
+					return null;
+				}
+			});
+		}
+	}
+
+	private static void waitFor(Future<?> future) {
+		boolean interrupted = false;
+		try {
+			for (;;) {
+				try {
+					future.get();
+					return;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				} catch (ExecutionException e) {
+					final Throwable cause = e.getCause();
+					if (cause instanceof RuntimeException) {
+						throw (RuntimeException) cause;
+					} else if (cause instanceof Error) {
+						throw (Error) cause;
+					}
+					throw new RuntimeException(cause);
+				}
+			}
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
 	}
 
 	private void reset() {
@@ -0,0 +1,185 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.ti;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.dltk.core.DLTKCore;
+import org.eclipse.dltk.core.ElementChangedEvent;
+import org.eclipse.dltk.core.IElementChangedListener;
+import org.eclipse.dltk.core.IModelElement;
+import org.eclipse.dltk.core.IModelElementDelta;
+import org.eclipse.dltk.core.ISourceModule;
+import org.eclipse.dltk.ti.goals.IGoal;
+
+/**
+ * Thread safe cache of goal results shared between {@link GoalEngine}
+ * instances, so hover, completion and highlighting don't re-infer the same
+ * expressions again and again.
+ *
+ * Only results of complete evaluations (no pruned or recursive subgoals) are
+ * stored. Since goals of one module could depend on declarations and method
+ * bodies of the other ones, any change of the script model discards all the
+ * cached results. The reconciled working copies only discard the results of
+ * the goals evaluated in their modules, the other modules see the changes
+ * when they are saved.
+ *
+ * @since 5.0
+ */
+public class GoalResultCache implements IElementChangedListener {
+
+	/**
+	 * Value returned by {@link #get(IGoal)} when there is no cached result
+	 */
+	public static final Object NOT_CACHED = new Object();
+
+	private static final Object NULL_RESULT = new Object();
+
+	private static final int DEFAULT_CAPACITY = 2000;
+
+	/*
+	 * delta flags which don't affect type inference results
+	 */
+	private static final int IGNORED_FLAGS = IModelElementDelta.F_CHILDREN
+			| IModelElementDelta.F_PRIMARY_WORKING_COPY
+			| IModelElementDelta.F_OPENED | IModelElementDelta.F_CLOSED;
+
+	private static GoalResultCache defaultCache = null;
+
+	/**
+	 * Returns the shared instance, which is invalidated by the model changes.
+	 */
+	public static synchronized GoalResultCache getDefault() {
+		if (defaultCache == null) {
+			defaultCache = new GoalResultCache(DEFAULT_CAPACITY);
+			DLTKCore.addElementChangedListener(defaultCache,
+					ElementChangedEvent.POST_CHANGE
+							| ElementChangedEvent.POST_RECONCILE);
+		}
+		return defaultCache;
+	}
+
+	private final Map<IGoal, Object> results;
+
+	private int hits;
+	private int misses;
+
+	@SuppressWarnings("serial")
+	public GoalResultCache(final int capacity) {
+		this.results = new LinkedHashMap<IGoal, Object>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<IGoal, Object> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * Returns the cached result of the goal or {@link #NOT_CACHED}
+	 */
+	public synchronized Object get(IGoal goal) {
+		final Object result = results.get(goal);
+		if (result == null) {
+			++misses;
+			return NOT_CACHED;
+		}
+		++hits;
+		return result == NULL_RESULT ? null : result;
+	}
+
+	public synchronized void put(IGoal goal, Object result) {
+		results.put(goal, result != null ? result : NULL_RESULT);
+	}
+
+	public synchronized void clear() {
+		results.clear();
+	}
+
+	/**
+	 * Removes the results of the goals evaluated in the specified module and
+	 * the goals without the module context.
+	 */
+	public synchronized void clear(ISourceModule module) {
+		final ISourceModule primary = module.getPrimary();
+		for (Iterator<IGoal> i = results.keySet().iterator(); i.hasNext();) {
+			final ISourceModule goalModule = getSourceModule(i.next());
+			if (goalModule == null || primary.equals(goalModule.getPrimary())) {
+				i.remove();
+			}
+		}
+	}
+
+	private static ISourceModule getSourceModule(IGoal goal) {
+		final Object context = goal.getContext();
+		if (context instanceof ISourceModuleContext) {
+			return ((ISourceModuleContext) context).getSourceModule();
+		}
+		return null;
+	}
+
+	public synchronized int size() {
+		return results.size();
+	}
+
+	public synchronized int getHits() {
+		return hits;
+	}
+
+	public synchronized int getMisses() {
+		return misses;
+	}
+
+	public void elementChanged(ElementChangedEvent event) {
+		if (event.getType() == ElementChangedEvent.POST_RECONCILE) {
+			final Set<ISourceModule> modules = new HashSet<ISourceModule>();
+			collectAffectedModules(event.getDelta(), modules);
+			for (ISourceModule module : modules) {
+				clear(module);
+			}
+		} else if (isAffected(event.getDelta())) {
+			clear();
+		}
+	}
+
+	private static void collectAffectedModules(IModelElementDelta delta,
+			Set<ISourceModule> modules) {
+		if (delta.getElement().getElementType() == IModelElement.SOURCE_MODULE) {
+			if (isAffected(delta)) {
+				modules.add((ISourceModule) delta.getElement());
+			}
+			return;
+		}
+		for (IModelElementDelta child : delta.getAffectedChildren()) {
+			collectAffectedModules(child, modules);
+		}
+	}
+
+	private static boolean isAffected(IModelElementDelta delta) {
+		if (delta.getKind() != IModelElementDelta.CHANGED
+				|| (delta.getFlags() & ~IGNORED_FLAGS) != 0) {
+			return true;
+		}
+		for (IModelElementDelta child : delta.getAffectedChildren()) {
+			if (isAffected(child)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return "GoalResultCache[size=" + size() + ", hits=" + getHits() //$NON-NLS-1$ //$NON-NLS-2$
+				+ ", misses=" + getMisses() + "]"; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}
@@ -11,6 +11,7 @@ package org.eclipse.dltk.dbgp;
 
 import org.eclipse.dltk.dbgp.exceptions.DbgpException;
 import org.eclipse.dltk.dbgp.internal.DbgpTransactionManager;
+import org.eclipse.dltk.dbgp.internal.utils.DbgpXmlEntityParser;
 import org.w3c.dom.Element;
 
 public class DbgpBaseCommands {
@@ -43,6 +44,21 @@ public class DbgpBaseCommands {
 		return communicator.communicate(request);
 	}
 
+	/**
+	 * Sends the <code>property_get</code> or <code>context_get</code> request
+	 * and returns the top level properties of the response.
+	 *
+	 * @since 5.0
+	 */
+	protected IDbgpProperty[] communicateProperties(DbgpRequest request)
+			throws DbgpException {
+		if (communicator instanceof IDbgpCommunicatorExtension) {
+			return ((IDbgpCommunicatorExtension) communicator)
+					.communicateProperties(request);
+		}
+		return DbgpXmlEntityParser.parseProperties(communicate(request));
+	}
+
 	protected void send(DbgpRequest request) throws DbgpException {
 		communicator.send(request);
 	}
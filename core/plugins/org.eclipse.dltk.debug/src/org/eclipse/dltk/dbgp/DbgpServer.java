@@ -1,16 +1,21 @@
 package org.eclipse.dltk.dbgp;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.dltk.dbgp.internal.DbgpChannelEngine;
 import org.eclipse.dltk.dbgp.internal.DbgpDebugingEngine;
+import org.eclipse.dltk.dbgp.internal.DbgpSelector;
 import org.eclipse.dltk.dbgp.internal.DbgpSession;
 import org.eclipse.dltk.dbgp.internal.DbgpWorkingThread;
+import org.eclipse.dltk.dbgp.internal.IDbgpDebugingEngine;
 import org.eclipse.dltk.debug.core.DLTKDebugPlugin;
 
 public class DbgpServer extends DbgpWorkingThread {
@@ -19,6 +24,8 @@ public class DbgpServer extends DbgpWorkingThread {
 
 	private final int clientTimeout;
 
+	private boolean nonBlocking = false;
+
 	public static int findAvailablePort(int fromPort, int toPort) {
 		if (fromPort > toPort) {
 			throw new IllegalArgumentException(
@@ -81,14 +88,24 @@ public class DbgpServer extends DbgpWorkingThread {
 
 	protected void workingCycle() throws Exception, IOException {
 		try {
-			server = new ServerSocket(port);
+			if (nonBlocking) {
+				final ServerSocketChannel channel = ServerSocketChannel.open();
+				channel.socket().bind(new InetSocketAddress(port));
+				server = channel.socket();
+			} else {
+				server = new ServerSocket(port);
+			}
 			synchronized (stateLock) {
 				state = STATE_STARTED;
 				stateLock.notifyAll();
 			}
 			while (!server.isClosed()) {
 				final Socket client = server.accept();
-				client.setSoTimeout(clientTimeout);
+				if (client.getChannel() == null) {
+					// the channel reads ignore it, the init packet wait of
+					// the session is limited instead
+					client.setSoTimeout(clientTimeout);
+				}
 				createSession(client);
 			}
 		} finally {
@@ -105,11 +122,14 @@ public class DbgpServer extends DbgpWorkingThread {
 	private static final class DbgpSessionJob extends Job {
 		private final Socket client;
 		private final IDbgpServerListener listener;
+		private final int clientTimeout;
 
-		private DbgpSessionJob(Socket client, IDbgpServerListener listener) {
+		private DbgpSessionJob(Socket client, IDbgpServerListener listener,
+				int clientTimeout) {
 			super(Messages.DbgpServer_acceptingDebuggingEngineConnection);
 			this.client = client;
 			this.listener = listener;
+			this.clientTimeout = clientTimeout;
 			setSystem(true);
 		}
 
@@ -118,10 +138,17 @@ public class DbgpServer extends DbgpWorkingThread {
 		}
 
 		protected IStatus run(IProgressMonitor monitor) {
-			DbgpDebugingEngine engine = null;
+			IDbgpDebugingEngine engine = null;
 			try {
-				engine = new DbgpDebugingEngine(client);
-				DbgpSession session = new DbgpSession(engine);
+				final DbgpSession session;
+				if (client.getChannel() != null) {
+					engine = new DbgpChannelEngine(client.getChannel(),
+							DbgpSelector.getDefault());
+					session = new DbgpSession(engine, clientTimeout);
+				} else {
+					engine = new DbgpDebugingEngine(client);
+					session = new DbgpSession(engine);
+				}
 				listener.clientConnected(session);
 			} catch (Exception e) {
 				DLTKDebugPlugin.log(e);
@@ -133,7 +160,7 @@ public class DbgpServer extends DbgpWorkingThread {
 	}
 
 	private void createSession(final Socket client) {
-		Job job = new DbgpSessionJob(client, listener);
+		Job job = new DbgpSessionJob(client, listener, clientTimeout);
 		job.schedule();
 	}
 
@@ -165,6 +192,17 @@ public class DbgpServer extends DbgpWorkingThread {
 		super.requestTermination();
 	}
 
+	/**
+	 * Specifies if the accepted connections should be served by the shared
+	 * {@link DbgpSelector} thread instead of the threads of their own. Should
+	 * be called before the server is started.
+	 *
+	 * @since 5.0
+	 */
+	public void setNonBlocking(boolean nonBlocking) {
+		this.nonBlocking = nonBlocking;
+	}
+
 	private IDbgpServerListener listener;
 
 	public void setListener(IDbgpServerListener listener) {
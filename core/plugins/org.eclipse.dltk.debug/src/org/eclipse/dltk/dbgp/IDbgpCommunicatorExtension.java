@@ -0,0 +1,28 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.dbgp;
+
+import org.eclipse.dltk.dbgp.exceptions.DbgpException;
+
+/**
+ * Optional extension of the {@link IDbgpCommunicator}.
+ *
+ * @since 5.0
+ */
+public interface IDbgpCommunicatorExtension {
+
+	/**
+	 * Sends the <code>property_get</code> or <code>context_get</code> request
+	 * and returns the top level properties of the response, decoded without
+	 * building the DOM if possible.
+	 */
+	IDbgpProperty[] communicateProperties(DbgpRequest request)
+			throws DbgpException;
+}
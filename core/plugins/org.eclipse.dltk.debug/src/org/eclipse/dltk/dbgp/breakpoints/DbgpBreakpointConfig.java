@@ -128,4 +128,36 @@ public class DbgpBreakpointConfig {
 	public void setLineNo(int value) {
 		lineno = value;
 	}
+
+	/**
+	 * @since 5.0
+	 */
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof DbgpBreakpointConfig)) {
+			return false;
+		}
+		final DbgpBreakpointConfig other = (DbgpBreakpointConfig) obj;
+		return enabled == other.enabled && temporary == other.temporary
+				&& hitValue == other.hitValue
+				&& hitCondition == other.hitCondition
+				&& lineno == other.lineno
+				&& (expression == null ? other.expression == null : expression
+						.equals(other.expression));
+	}
+
+	/**
+	 * @since 5.0
+	 */
+	public int hashCode() {
+		int result = enabled ? 1 : 0;
+		result = 31 * result + (temporary ? 1 : 0);
+		result = 31 * result + hitValue;
+		result = 31 * result + hitCondition;
+		result = 31 * result + lineno;
+		result = 31 * result + (expression != null ? expression.hashCode() : 0);
+		return result;
+	}
 }
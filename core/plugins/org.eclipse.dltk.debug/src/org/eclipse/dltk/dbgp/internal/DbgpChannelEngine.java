@@ -0,0 +1,398 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.dbgp.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.LinkedList;
+
+import org.eclipse.core.runtime.ListenerList;
+import org.eclipse.dltk.core.DLTKCore;
+import org.eclipse.dltk.dbgp.DbgpRequest;
+import org.eclipse.dltk.dbgp.IDbgpRawListener;
+import org.eclipse.dltk.dbgp.IDbgpRawPacket;
+import org.eclipse.dltk.dbgp.exceptions.DbgpException;
+import org.eclipse.dltk.dbgp.internal.packets.DbgpNotifyPacket;
+import org.eclipse.dltk.dbgp.internal.packets.DbgpPacket;
+import org.eclipse.dltk.dbgp.internal.packets.DbgpPacketDecoder;
+import org.eclipse.dltk.dbgp.internal.packets.DbgpResponseFuture;
+import org.eclipse.dltk.dbgp.internal.packets.DbgpResponsePacket;
+import org.eclipse.dltk.dbgp.internal.packets.DbgpResponseTable;
+import org.eclipse.dltk.dbgp.internal.packets.DbgpStreamPacket;
+import org.eclipse.dltk.dbgp.internal.packets.IDbgpPacketHandler;
+import org.eclipse.dltk.debug.core.DLTKDebugPlugin;
+import org.eclipse.dltk.debug.core.ExtendedDebugEventDetails;
+import org.eclipse.dltk.internal.debug.core.model.DebugEventHelper;
+import org.eclipse.osgi.util.NLS;
+
+/**
+ * The debugging engine connection served by the {@link DbgpSelector} instead
+ * of the threads of its own. The selector thread only splits the received
+ * bytes into the packets, they are decoded in order by the decoder threads.
+ * The responses are delivered to the {@link DbgpResponseFuture}s keyed by the
+ * transaction id. The notify and stream packets are pushed to the registered
+ * {@link IDbgpPacketHandler}s in order by the dispatcher threads, until the
+ * first handler is registered they are queued for the blocking
+ * {@link #getNotifyPacket()} and {@link #getStreamPacket()} methods.
+ *
+ * @since 5.0
+ */
+public class DbgpChannelEngine extends DbgpTermination implements
+		IDbgpDebugingEngine {
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private final SocketChannel channel;
+	private final DbgpSelector selector;
+	private final int id;
+
+	private final DbgpResponseTable responses = new DbgpResponseTable();
+
+	// accessed by the selector thread only
+	private final ByteBuffer readBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+	private int packetSize = 0;
+	private byte[] packetXml = null;
+	private int packetOffset = 0;
+
+	private final LinkedList<ByteBuffer> writeQueue = new LinkedList<ByteBuffer>();
+
+	private final Object packetsLock = new Object();
+	// used by one decoder thread at a time, see decodePackets()
+	private final DbgpPacketDecoder decoder = new DbgpPacketDecoder();
+	private final LinkedList<DbgpRawPacket> receivedPackets = new LinkedList<DbgpRawPacket>();
+	private boolean decoding = false;
+	private final LinkedList<DbgpPacket> notifyPackets = new LinkedList<DbgpPacket>();
+	private final LinkedList<DbgpPacket> streamPackets = new LinkedList<DbgpPacket>();
+	private final LinkedList<DbgpPacket> dispatchQueue = new LinkedList<DbgpPacket>();
+	private final ListenerList handlers = new ListenerList();
+	private boolean dispatching = false;
+
+	private final Object terminatedLock = new Object();
+	private boolean terminated = false;
+
+	private final ListenerList listeners = new ListenerList();
+
+	public DbgpChannelEngine(SocketChannel channel, DbgpSelector selector)
+			throws IOException {
+		this.channel = channel;
+		this.selector = selector;
+		this.id = DbgpDebugingEngine.nextId();
+		channel.configureBlocking(false);
+		selector.register(this);
+		DebugEventHelper.fireExtendedEvent(this,
+				ExtendedDebugEventDetails.DGBP_NEW_CONNECTION);
+	}
+
+	SocketChannel getChannel() {
+		return channel;
+	}
+
+	/**
+	 * Reads the available bytes, called by the selector thread.
+	 */
+	void read() throws IOException {
+		if (channel.read(readBuffer) < 0) {
+			throw new EOFException();
+		}
+		readBuffer.flip();
+		try {
+			while (readBuffer.hasRemaining()) {
+				if (packetXml == null) {
+					final int b = readBuffer.get();
+					if (b == 0) {
+						if (packetSize == 0) {
+							throw new IOException(
+									Messages.DbgpRawPacket_zeroPacketSize);
+						}
+						packetXml = new byte[packetSize];
+						packetOffset = 0;
+					} else if (b >= '0' && b <= '9') {
+						packetSize = packetSize * 10 + (b - '0');
+					} else {
+						throw new IOException(NLS.bind(
+								Messages.DbgpRawPacket_invalidCharInPacketSize,
+								Integer.toString(b)));
+					}
+				} else if (packetOffset < packetXml.length) {
+					final int length = Math.min(readBuffer.remaining(),
+							packetXml.length - packetOffset);
+					readBuffer.get(packetXml, packetOffset, length);
+					packetOffset += length;
+				} else {
+					if (readBuffer.get() != 0) {
+						throw new IOException(
+								Messages.DbgpRawPacket_noTerminationByte);
+					}
+					final DbgpRawPacket packet = new DbgpRawPacket(packetSize,
+							packetXml);
+					packetXml = null;
+					packetSize = 0;
+					received(packet);
+				}
+			}
+		} finally {
+			readBuffer.clear();
+		}
+	}
+
+	/**
+	 * Queues the packet for decoding, the packets of the connection are
+	 * decoded by one decoder thread at a time in the order of receiving.
+	 */
+	private void received(DbgpRawPacket packet) {
+		synchronized (packetsLock) {
+			receivedPackets.addLast(packet);
+			if (!decoding) {
+				decoding = true;
+				selector.decode(new Runnable() {
+					public void run() {
+						decodePackets();
+					}
+				});
+			}
+		}
+	}
+
+	private void decodePackets() {
+		for (;;) {
+			final DbgpRawPacket packet;
+			synchronized (packetsLock) {
+				if (receivedPackets.isEmpty()) {
+					decoding = false;
+					return;
+				}
+				packet = receivedPackets.removeFirst();
+			}
+			try {
+				packetReceived(packet);
+			} catch (DbgpException e) {
+				synchronized (packetsLock) {
+					receivedPackets.clear();
+					decoding = false;
+				}
+				close(e);
+				return;
+			}
+		}
+	}
+
+	private void packetReceived(DbgpRawPacket raw) throws DbgpException {
+		firePacketReceived(raw);
+		final DbgpPacket packet = decoder.decode(raw.getXml());
+		if (packet instanceof DbgpResponsePacket) {
+			responses.put((DbgpResponsePacket) packet);
+		} else if (packet instanceof DbgpStreamPacket
+				|| packet instanceof DbgpNotifyPacket) {
+			synchronized (packetsLock) {
+				if (handlers.isEmpty()) {
+					if (packet instanceof DbgpStreamPacket) {
+						streamPackets.addLast(packet);
+					} else {
+						notifyPackets.addLast(packet);
+					}
+					packetsLock.notifyAll();
+				} else {
+					dispatch(packet);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Queues the packet for the handlers, should be called with the
+	 * <code>packetsLock</code> held.
+	 */
+	private void dispatch(DbgpPacket packet) {
+		dispatchQueue.addLast(packet);
+		if (!dispatching) {
+			dispatching = true;
+			selector.dispatch(new Runnable() {
+				public void run() {
+					dispatchPackets();
+				}
+			});
+		}
+	}
+
+	private void dispatchPackets() {
+		for (;;) {
+			final DbgpPacket packet;
+			synchronized (packetsLock) {
+				if (dispatchQueue.isEmpty()) {
+					dispatching = false;
+					return;
+				}
+				packet = dispatchQueue.removeFirst();
+			}
+			final Object[] list = handlers.getListeners();
+			for (int i = 0; i < list.length; ++i) {
+				try {
+					((IDbgpPacketHandler) list[i]).handlePacket(packet);
+				} catch (RuntimeException e) {
+					DLTKDebugPlugin.log(e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Registers the handler of the notify and stream packets, the packets
+	 * received before are passed to it too.
+	 */
+	public void addPacketHandler(IDbgpPacketHandler handler) {
+		synchronized (packetsLock) {
+			handlers.add(handler);
+			while (!notifyPackets.isEmpty()) {
+				dispatch(notifyPackets.removeFirst());
+			}
+			while (!streamPackets.isEmpty()) {
+				dispatch(streamPackets.removeFirst());
+			}
+		}
+	}
+
+	/**
+	 * Writes the queued requests, called by the selector thread. Returns
+	 * <code>true</code> if everything is written.
+	 */
+	boolean write() throws IOException {
+		synchronized (writeQueue) {
+			while (!writeQueue.isEmpty()) {
+				final ByteBuffer buffer = writeQueue.getFirst();
+				channel.write(buffer);
+				if (buffer.hasRemaining()) {
+					return false;
+				}
+				writeQueue.removeFirst();
+			}
+			return true;
+		}
+	}
+
+	public void sendCommand(DbgpRequest command) throws IOException {
+		firePacketSent(command);
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		command.writeTo(output);
+		output.write(0);
+		synchronized (terminatedLock) {
+			if (terminated) {
+				throw new IOException(Messages.DbgpChannelEngine_connectionClosed);
+			}
+		}
+		synchronized (writeQueue) {
+			writeQueue.addLast(ByteBuffer.wrap(output.toByteArray()));
+		}
+		selector.requestWrite(this);
+	}
+
+	public DbgpResponsePacket getResponsePacket(int transactionId, int timeout)
+			throws IOException, InterruptedException {
+		return responses.waitPacket(transactionId, timeout);
+	}
+
+	public DbgpResponseFuture getResponseFuture(int transactionId) {
+		return responses.getFuture(transactionId);
+	}
+
+	private DbgpPacket waitPacket(LinkedList<DbgpPacket> queue)
+			throws InterruptedException {
+		synchronized (packetsLock) {
+			while (queue.isEmpty()) {
+				if (isTerminated()) {
+					throw new InterruptedException(
+							Messages.DbgpChannelEngine_connectionClosed);
+				}
+				packetsLock.wait();
+			}
+			return queue.removeFirst();
+		}
+	}
+
+	public DbgpNotifyPacket getNotifyPacket() throws IOException,
+			InterruptedException {
+		return (DbgpNotifyPacket) waitPacket(notifyPackets);
+	}
+
+	public DbgpStreamPacket getStreamPacket() throws IOException,
+			InterruptedException {
+		return (DbgpStreamPacket) waitPacket(streamPackets);
+	}
+
+	private boolean isTerminated() {
+		synchronized (terminatedLock) {
+			return terminated;
+		}
+	}
+
+	/**
+	 * Closes the connection and notifies the termination listeners, the
+	 * subsequent calls are ignored.
+	 */
+	void close(Exception e) {
+		synchronized (terminatedLock) {
+			if (terminated) {
+				return;
+			}
+			terminated = true;
+			terminatedLock.notifyAll();
+		}
+		try {
+			channel.close();
+		} catch (IOException ex) {
+			if (DLTKCore.DEBUG) {
+				ex.printStackTrace();
+			}
+		}
+		responses.terminate();
+		synchronized (packetsLock) {
+			packetsLock.notifyAll();
+		}
+		fireObjectTerminated(e);
+	}
+
+	// IDbgpTermination
+	public void requestTermination() {
+		close(null);
+	}
+
+	public void waitTerminated() throws InterruptedException {
+		synchronized (terminatedLock) {
+			while (!terminated) {
+				terminatedLock.wait();
+			}
+		}
+	}
+
+	protected void firePacketReceived(IDbgpRawPacket content) {
+		Object[] list = listeners.getListeners();
+
+		for (int i = 0; i < list.length; ++i) {
+			((IDbgpRawListener) list[i]).dbgpPacketReceived(id, content);
+		}
+	}
+
+	protected void firePacketSent(IDbgpRawPacket content) {
+		Object[] list = listeners.getListeners();
+
+		for (int i = 0; i < list.length; ++i) {
+			((IDbgpRawListener) list[i]).dbgpPacketSent(id, content);
+		}
+	}
+
+	public void addRawListener(IDbgpRawListener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeRawListenr(IDbgpRawListener listener) {
+		listeners.remove(listener);
+	}
+}
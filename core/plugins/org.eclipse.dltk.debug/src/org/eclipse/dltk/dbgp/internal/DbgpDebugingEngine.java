@@ -22,6 +22,7 @@ import org.eclipse.dltk.dbgp.IDbgpRawPacket;
 import org.eclipse.dltk.dbgp.internal.packets.DbgpNotifyPacket;
 import org.eclipse.dltk.dbgp.internal.packets.DbgpPacketReceiver;
 import org.eclipse.dltk.dbgp.internal.packets.DbgpPacketSender;
+import org.eclipse.dltk.dbgp.internal.packets.DbgpResponseFuture;
 import org.eclipse.dltk.dbgp.internal.packets.DbgpResponsePacket;
 import org.eclipse.dltk.dbgp.internal.packets.DbgpStreamPacket;
 import org.eclipse.dltk.dbgp.internal.packets.IDbgpRawLogger;
@@ -44,11 +45,18 @@ public class DbgpDebugingEngine extends DbgpTermination implements
 	private static int lastId = 0;
 	private static final Object idLock = new Object();
 
-	public DbgpDebugingEngine(Socket socket) throws IOException {
-		this.socket = socket;
+	/**
+	 * Returns the next connection id shared by the engine implementations
+	 */
+	static int nextId() {
 		synchronized (idLock) {
-			id = ++lastId;
+			return ++lastId;
 		}
+	}
+
+	public DbgpDebugingEngine(Socket socket) throws IOException {
+		this.socket = socket;
+		id = nextId();
 
 		receiver = new DbgpPacketReceiver(new BufferedInputStream(socket
 				.getInputStream()));
@@ -94,6 +102,10 @@ public class DbgpDebugingEngine extends DbgpTermination implements
 		return receiver.getResponsePacket(transactionId, timeout);
 	}
 
+	public DbgpResponseFuture getResponseFuture(int transactionId) {
+		return receiver.getResponseTable().getFuture(transactionId);
+	}
+
 	public void sendCommand(DbgpRequest command) throws IOException {
 		sender.sendCommand(command);
 	}
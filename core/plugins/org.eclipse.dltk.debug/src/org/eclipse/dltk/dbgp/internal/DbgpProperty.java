@@ -10,6 +10,7 @@
 package org.eclipse.dltk.dbgp.internal;
 
 import org.eclipse.dltk.dbgp.IDbgpProperty;
+import org.eclipse.dltk.dbgp.internal.utils.Base64Helper;
 
 public class DbgpProperty implements IDbgpProperty {
 
@@ -21,7 +22,13 @@ public class DbgpProperty implements IDbgpProperty {
 
 	private final String type;
 
-	private final String value;
+	private String value;
+
+	/**
+	 * The base64 encoded value as it was received from the debugging engine,
+	 * decoded on the first access, since most of the values are never shown.
+	 */
+	private final String encodedValue;
 
 	private final boolean constant;
 
@@ -41,10 +48,29 @@ public class DbgpProperty implements IDbgpProperty {
 			String value, int childrenCount, boolean hasChildren,
 			boolean constant, String key, String address,
 			IDbgpProperty[] availableChildren, int page, int pageSize) {
+		this(name, fullName, type, value, false, childrenCount, hasChildren,
+				constant, key, address, availableChildren, page, pageSize);
+	}
+
+	/**
+	 * @param base64
+	 *            <code>true</code> if the value is base64 encoded and should be
+	 *            decoded when requested
+	 * @since 5.0
+	 */
+	public DbgpProperty(String name, String fullName, String type,
+			String value, boolean base64, int childrenCount,
+			boolean hasChildren, boolean constant, String key, String address,
+			IDbgpProperty[] availableChildren, int page, int pageSize) {
 		this.name = name;
 		this.fullName = fullName;
 		this.type = type;
-		this.value = value;
+		if (base64) {
+			this.encodedValue = value;
+		} else {
+			this.encodedValue = null;
+			this.value = value;
+		}
 		this.address = address;
 		this.childrenCount = childrenCount;
 		this.availableChildren = availableChildren;
@@ -68,7 +94,12 @@ public class DbgpProperty implements IDbgpProperty {
 	}
 
 	public String getValue() {
-		return value;
+		String result = value;
+		if (result == null && encodedValue != null) {
+			result = Base64Helper.decodeString(encodedValue);
+			value = result;
+		}
+		return result;
 	}
 
 	public boolean hasChildren() {
@@ -89,7 +120,7 @@ public class DbgpProperty implements IDbgpProperty {
 
 	public String toString() {
 		return "DbgpProperty (Name: " + name + "; Full name: " + fullName //$NON-NLS-1$ //$NON-NLS-2$
-				+ "; Type: " + type + "; Value: " + value + " Address: " + address + ")"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+				+ "; Type: " + type + "; Value: " + getValue() + " Address: " + address + ")"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
 	}
 
 	public String getKey() {
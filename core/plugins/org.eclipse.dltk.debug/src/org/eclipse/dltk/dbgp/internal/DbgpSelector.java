@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.dbgp.internal;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.eclipse.dltk.debug.core.DLTKDebugPlugin;
+
+/**
+ * The single thread serving the connections of all the
+ * {@link DbgpChannelEngine}s: it reads the received packets and writes the
+ * queued requests, so the connection does not need the threads of its own.
+ * The packets are decoded by the small shared pool of the decoder threads,
+ * which never block. The notify and stream packets are handled in the
+ * separate pool of the dispatcher threads, which are started on demand: the
+ * handlers may wait for the responses to their own requests, so they can't
+ * hold the threads decoding these responses.
+ *
+ * @since 5.0
+ */
+public class DbgpSelector implements Runnable {
+
+	private static final int DECODER_THREADS = 2;
+
+	private static DbgpSelector instance;
+
+	/**
+	 * Returns the shared selector, starting it on the first call
+	 */
+	public static synchronized DbgpSelector getDefault() throws IOException {
+		if (instance == null) {
+			instance = new DbgpSelector();
+			final Thread thread = new Thread(instance, "DBGP - Selector"); //$NON-NLS-1$
+			thread.setDaemon(true);
+			thread.start();
+		}
+		return instance;
+	}
+
+	private final Selector selector;
+	private final Queue<Runnable> pendingChanges = new ConcurrentLinkedQueue<Runnable>();
+	private final ExecutorService decoder;
+	private final ExecutorService dispatcher;
+
+	private static class DaemonThreadFactory implements ThreadFactory {
+		private final String name;
+		private int count = 0;
+
+		DaemonThreadFactory(String name) {
+			this.name = name;
+		}
+
+		public synchronized Thread newThread(Runnable r) {
+			final Thread thread = new Thread(r, name + (++count));
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
+	private DbgpSelector() throws IOException {
+		selector = Selector.open();
+		decoder = Executors.newFixedThreadPool(DECODER_THREADS,
+				new DaemonThreadFactory("DBGP - Decoder Worker-")); //$NON-NLS-1$
+		dispatcher = Executors.newCachedThreadPool(new DaemonThreadFactory(
+				"DBGP - Dispatcher Worker-")); //$NON-NLS-1$
+	}
+
+	private void change(Runnable change) {
+		pendingChanges.add(change);
+		selector.wakeup();
+	}
+
+	/**
+	 * Starts reading the connection of the specified engine
+	 */
+	void register(final DbgpChannelEngine engine) {
+		change(new Runnable() {
+			public void run() {
+				try {
+					engine.getChannel().register(selector,
+							SelectionKey.OP_READ, engine);
+				} catch (ClosedChannelException e) {
+					engine.close(e);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Requests the queued packets of the specified engine to be written
+	 */
+	void requestWrite(final DbgpChannelEngine engine) {
+		change(new Runnable() {
+			public void run() {
+				final SelectionKey key = engine.getChannel().keyFor(selector);
+				if (key != null && key.isValid()) {
+					key.interestOps(SelectionKey.OP_READ
+							| SelectionKey.OP_WRITE);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Executes the task in the decoder thread, the task should not block
+	 */
+	void decode(Runnable task) {
+		decoder.execute(task);
+	}
+
+	/**
+	 * Executes the task in the dispatcher thread, the task may block
+	 */
+	void dispatch(Runnable task) {
+		dispatcher.execute(task);
+	}
+
+	public void run() {
+		for (;;) {
+			try {
+				selector.select();
+			} catch (IOException e) {
+				DLTKDebugPlugin.log(e);
+				return;
+			}
+			Runnable change;
+			while ((change = pendingChanges.poll()) != null) {
+				change.run();
+			}
+			final Iterator<SelectionKey> i = selector.selectedKeys().iterator();
+			while (i.hasNext()) {
+				final SelectionKey key = i.next();
+				i.remove();
+				final DbgpChannelEngine engine = (DbgpChannelEngine) key
+						.attachment();
+				try {
+					if (key.isReadable()) {
+						engine.read();
+					}
+					if (key.isValid() && key.isWritable()) {
+						if (engine.write()) {
+							key.interestOps(SelectionKey.OP_READ);
+						}
+					}
+				} catch (CancelledKeyException e) {
+					// the connection is closed by the other thread
+				} catch (Exception e) {
+					key.cancel();
+					engine.close(e);
+				}
+			}
+		}
+	}
+}
@@ -82,6 +82,18 @@ public class DbgpSession extends DbgpTermination implements IDbgpSession,
 
 	public DbgpSession(IDbgpDebugingEngine engine) throws DbgpException,
 			IOException {
+		this(engine, 0);
+	}
+
+	/**
+	 * @param engine
+	 * @param timeout
+	 *            the time in milliseconds to wait for the init packet,
+	 *            <code>0</code> to wait forever
+	 * @since 5.0
+	 */
+	public DbgpSession(IDbgpDebugingEngine engine, int timeout)
+			throws DbgpException, IOException {
 		if (engine == null) {
 			throw new IllegalArgumentException();
 		}
@@ -89,7 +101,8 @@ public class DbgpSession extends DbgpTermination implements IDbgpSession,
 		this.engine = engine;
 
 		try {
-			DbgpResponsePacket responsePacket = engine.getResponsePacket(-1, 0);
+			DbgpResponsePacket responsePacket = engine.getResponsePacket(-1,
+					timeout);
 			if (responsePacket == null) {
 				throw new DbgpException();
 			}
@@ -118,8 +131,15 @@ public class DbgpSession extends DbgpTermination implements IDbgpSession,
 		this.spawnpointCommands = new DbgpSpawnpointCommands(communicator, this);
 
 		// Starting all
-		this.notificationManager.start();
-		this.streamManager.start();
+		if (engine instanceof DbgpChannelEngine) {
+			// the packets are pushed by the selector, no threads needed
+			((DbgpChannelEngine) engine)
+					.addPacketHandler(this.notificationManager);
+			((DbgpChannelEngine) engine).addPacketHandler(this.streamManager);
+		} else {
+			this.notificationManager.start();
+			this.streamManager.start();
+		}
 	}
 
 	public IDbgpSessionInfo getInfo() {
@@ -14,6 +14,7 @@ import java.io.IOException;
 import org.eclipse.dltk.dbgp.DbgpRequest;
 import org.eclipse.dltk.dbgp.IDbgpRawListener;
 import org.eclipse.dltk.dbgp.internal.packets.DbgpNotifyPacket;
+import org.eclipse.dltk.dbgp.internal.packets.DbgpResponseFuture;
 import org.eclipse.dltk.dbgp.internal.packets.DbgpResponsePacket;
 import org.eclipse.dltk.dbgp.internal.packets.DbgpStreamPacket;
 
@@ -29,6 +30,14 @@ public interface IDbgpDebugingEngine extends IDbgpTermination {
 
 	DbgpStreamPacket getStreamPacket() throws IOException, InterruptedException;
 
+	/**
+	 * Returns the future of the response with the specified transaction id,
+	 * so the request could be sent without waiting for the response.
+	 *
+	 * @since 5.0
+	 */
+	DbgpResponseFuture getResponseFuture(int transactionId);
+
 	// Listeners
 	void addRawListener(IDbgpRawListener listener);
 
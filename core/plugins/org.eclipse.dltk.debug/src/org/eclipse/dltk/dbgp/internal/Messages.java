@@ -4,6 +4,7 @@ import org.eclipse.osgi.util.NLS;
 
 public class Messages extends NLS {
 	private static final String BUNDLE_NAME = "org.eclipse.dltk.dbgp.internal.messages"; //$NON-NLS-1$
+	public static String DbgpChannelEngine_connectionClosed;
 	public static String DbgpRawPacket_cantReadPacketBody;
 	public static String DbgpRawPacket_invalidCharInPacketSize;
 	public static String DbgpRawPacket_noTerminationByte;
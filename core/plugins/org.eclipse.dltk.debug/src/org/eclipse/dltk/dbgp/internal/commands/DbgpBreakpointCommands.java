@@ -39,17 +39,17 @@ public class DbgpBreakpointCommands extends DbgpBaseCommands implements
 
 	private static final String BREAKPOINT_TAG = "breakpoint"; //$NON-NLS-1$
 
-	final String LINE_BREAKPOINT = "line"; //$NON-NLS-1$
+	public static final String LINE_BREAKPOINT = "line"; //$NON-NLS-1$
 
-	final String CALL_BREAKPOINT = "call"; //$NON-NLS-1$
+	public static final String CALL_BREAKPOINT = "call"; //$NON-NLS-1$
 
-	final String RETURN_BREAKPOINT = "return"; //$NON-NLS-1$
+	public static final String RETURN_BREAKPOINT = "return"; //$NON-NLS-1$
 
-	final String EXCEPTION_BREAKPOINT = "exception"; //$NON-NLS-1$
+	public static final String EXCEPTION_BREAKPOINT = "exception"; //$NON-NLS-1$
 
-	final String CONDITIONAL_BREAKPOINT = "conditional"; //$NON-NLS-1$
+	public static final String CONDITIONAL_BREAKPOINT = "conditional"; //$NON-NLS-1$
 
-	final String WATCH_BREAKPOINT = "watch"; //$NON-NLS-1$
+	public static final String WATCH_BREAKPOINT = "watch"; //$NON-NLS-1$
 
 	protected IDbgpBreakpoint[] parseBreakpointsResponse(Element response) {
 		List list = new ArrayList();
@@ -66,13 +66,35 @@ public class DbgpBreakpointCommands extends DbgpBaseCommands implements
 
 	protected String parseSetBreakpointResponse(Element response)
 			throws DbgpException {
+		return parseBreakpointId(response);
+	}
+
+	/**
+	 * Returns the id of the breakpoint from the response to the
+	 * <code>breakpoint_set</code> request
+	 *
+	 * @since 5.0
+	 */
+	public static String parseBreakpointId(Element response) {
 		return response.getAttribute("id"); //$NON-NLS-1$
 	}
 
 	protected String setBreakpoint(String type, URI uri, Integer lineNumber,
 			String function, String exception, DbgpBreakpointConfig info)
 			throws DbgpException {
+		return parseSetBreakpointResponse(communicate(createSetRequest(type,
+				uri, lineNumber, function, exception, info)));
+	}
 
+	/**
+	 * Creates the <code>breakpoint_set</code> request, so it could be sent
+	 * as the part of the {@link DbgpRequestBatch}.
+	 *
+	 * @since 5.0
+	 */
+	public static DbgpRequest createSetRequest(String type, URI uri,
+			Integer lineNumber, String function, String exception,
+			DbgpBreakpointConfig info) {
 		DbgpRequest request = createRequest(BREAKPOINT_SET_COMMAND);
 		request.addOption("-t", type); //$NON-NLS-1$
 
@@ -107,7 +129,7 @@ public class DbgpBreakpointCommands extends DbgpBaseCommands implements
 			}
 		}
 
-		return parseSetBreakpointResponse(communicate(request));
+		return request;
 	}
 
 	public DbgpBreakpointCommands(IDbgpCommunicator communicator) {
@@ -169,13 +191,28 @@ public class DbgpBreakpointCommands extends DbgpBaseCommands implements
 			return;
 		}
 
+		communicate(createRemoveRequest(id));
+	}
+
+	/**
+	 * @since 5.0
+	 */
+	public static DbgpRequest createRemoveRequest(String id) {
 		DbgpRequest request = createRequest(BREAKPOINT_REMOVE_COMMAND);
 		request.addOption("-d", id); //$NON-NLS-1$
-		communicate(request);
+		return request;
 	}
 
 	public void updateBreakpoint(String id, DbgpBreakpointConfig config)
 			throws DbgpException {
+		communicate(createUpdateRequest(id, config));
+	}
+
+	/**
+	 * @since 5.0
+	 */
+	public static DbgpRequest createUpdateRequest(String id,
+			DbgpBreakpointConfig config) {
 		DbgpRequest request = createRequest(BREAKPOINT_UPDATE_COMMAND);
 		request.addOption("-d", id); //$NON-NLS-1$
 		request.addOption("-s", config.getStateString()); //$NON-NLS-1$
@@ -197,7 +234,7 @@ public class DbgpBreakpointCommands extends DbgpBaseCommands implements
 			request.setData(expression);
 		}
 
-		communicate(request);
+		return request;
 	}
 
 	public IDbgpBreakpoint[] getBreakpoints() throws DbgpException {
@@ -84,7 +84,7 @@ public class DbgpContextCommands extends DbgpBaseCommands implements
 			throws DbgpException {
 		DbgpRequest request = createRequest(CONTEXT_GET);
 		request.addOption("-d", stackDepth); //$NON-NLS-1$
-		return parseContextPropertiesResponse(communicate(request));
+		return communicateProperties(request);
 	}
 
 	public IDbgpProperty[] getContextProperties(int stackDepth, int contextId)
@@ -92,6 +92,6 @@ public class DbgpContextCommands extends DbgpBaseCommands implements
 		DbgpRequest request = createRequest(CONTEXT_GET);
 		request.addOption("-d", stackDepth); //$NON-NLS-1$
 		request.addOption("-c", contextId); //$NON-NLS-1$
-		return parseContextPropertiesResponse(communicate(request));
+		return communicateProperties(request);
 	}
 }
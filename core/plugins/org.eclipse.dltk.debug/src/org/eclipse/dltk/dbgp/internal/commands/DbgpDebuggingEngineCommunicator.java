@@ -12,16 +12,23 @@ package org.eclipse.dltk.dbgp.internal.commands;
 import java.io.IOException;
 import java.util.IdentityHashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.eclipse.dltk.dbgp.DbgpBaseCommands;
 import org.eclipse.dltk.dbgp.DbgpRequest;
 import org.eclipse.dltk.dbgp.IDbgpCommunicator;
+import org.eclipse.dltk.dbgp.IDbgpCommunicatorExtension;
+import org.eclipse.dltk.dbgp.IDbgpProperty;
 import org.eclipse.dltk.dbgp.exceptions.DbgpException;
 import org.eclipse.dltk.dbgp.exceptions.DbgpIOException;
 import org.eclipse.dltk.dbgp.exceptions.DbgpOpertionCanceledException;
 import org.eclipse.dltk.dbgp.exceptions.DbgpTimeoutException;
 import org.eclipse.dltk.dbgp.internal.IDbgpDebugingEngine;
+import org.eclipse.dltk.dbgp.internal.packets.DbgpResponseFuture;
 import org.eclipse.dltk.dbgp.internal.packets.DbgpResponsePacket;
+import org.eclipse.dltk.dbgp.internal.utils.DbgpXmlEntityParser;
 import org.eclipse.dltk.dbgp.internal.utils.DbgpXmlParser;
 import org.eclipse.dltk.debug.core.DLTKDebugPlugin;
 import org.eclipse.dltk.debug.core.DLTKDebugPreferenceConstants;
@@ -29,7 +36,8 @@ import org.eclipse.dltk.debug.core.DebugOption;
 import org.eclipse.dltk.debug.core.IDebugOptions;
 import org.w3c.dom.Element;
 
-public class DbgpDebuggingEngineCommunicator implements IDbgpCommunicator {
+public class DbgpDebuggingEngineCommunicator implements IDbgpCommunicator,
+		IDbgpCommunicatorExtension {
 	private final int timeout;
 
 	private final IDbgpDebugingEngine engine;
@@ -60,6 +68,24 @@ public class DbgpDebuggingEngineCommunicator implements IDbgpCommunicator {
 	private final Map activeRequests = new IdentityHashMap();
 
 	public Element communicate(DbgpRequest request) throws DbgpException {
+		return checkResponse(communicateResponse(request));
+	}
+
+	/**
+	 * @since 5.0
+	 */
+	public IDbgpProperty[] communicateProperties(DbgpRequest request)
+			throws DbgpException {
+		final DbgpResponsePacket packet = communicateResponse(request);
+		if (packet != null && packet.getProperties() != null) {
+			// decoded without the DOM, such responses have no errors
+			return packet.getProperties();
+		}
+		return DbgpXmlEntityParser.parseProperties(checkResponse(packet));
+	}
+
+	private DbgpResponsePacket communicateResponse(DbgpRequest request)
+			throws DbgpException {
 		try {
 			final DbgpResponsePacket packet;
 			final int requestId = Integer.parseInt(request
@@ -84,33 +110,104 @@ public class DbgpDebuggingEngineCommunicator implements IDbgpCommunicator {
 				}
 			}
 
-			if (packet == null) {
-				throw new DbgpTimeoutException();
-			}
+			return packet;
+		} catch (InterruptedException e) {
+			throw new DbgpOpertionCanceledException(e);
+		} catch (IOException e) {
+			throw new DbgpIOException(e);
+		}
+	}
 
-			Element response = packet.getContent();
+	private static Element checkResponse(DbgpResponsePacket packet)
+			throws DbgpException {
+		if (packet == null) {
+			throw new DbgpTimeoutException();
+		}
 
-			DbgpException e = DbgpXmlParser.checkError(response);
-			if (e != null) {
-				throw e;
-			}
+		Element response = packet.getContent();
+
+		DbgpException e = DbgpXmlParser.checkError(response);
+		if (e != null) {
+			throw e;
+		}
 
-			return response;
+		return response;
+	}
+
+	/**
+	 * Sends all the requests without waiting for the responses and then
+	 * collects the responses matching them by the transaction id, so the
+	 * whole batch takes about the single round trip. The sync requests of the
+	 * other threads are not interleaved with the batch.
+	 *
+	 * @return the response {@link Element} or the {@link DbgpException} for
+	 *         each of the requests
+	 * @throws DbgpException
+	 *             if the connection is broken
+	 * @since 5.0
+	 */
+	public Object[] communicate(DbgpRequest[] requests) throws DbgpException {
+		final Object[] results = new Object[requests.length];
+		final boolean sync = !options.get(DebugOption.DBGP_ASYNC);
+		try {
+			if (sync) {
+				beginSyncRequest(requests);
+			}
+			try {
+				final DbgpResponseFuture[] futures = new DbgpResponseFuture[requests.length];
+				for (int i = 0; i < requests.length; ++i) {
+					futures[i] = engine.getResponseFuture(Integer
+							.parseInt(requests[i]
+									.getOption(DbgpBaseCommands.ID_OPTION)));
+					sendRequest(requests[i]);
+				}
+				for (int i = 0; i < requests.length; ++i) {
+					try {
+						results[i] = checkResponse(waitResponse(futures[i]));
+					} catch (DbgpIOException e) {
+						throw e;
+					} catch (DbgpOpertionCanceledException e) {
+						throw e;
+					} catch (DbgpException e) {
+						results[i] = e;
+					}
+				}
+			} finally {
+				if (sync) {
+					endSyncRequest(requests);
+				}
+			}
 		} catch (InterruptedException e) {
 			throw new DbgpOpertionCanceledException(e);
 		} catch (IOException e) {
 			throw new DbgpIOException(e);
 		}
+		return results;
+	}
+
+	private DbgpResponsePacket waitResponse(DbgpResponseFuture future)
+			throws InterruptedException {
+		try {
+			if (timeout > 0) {
+				return future.get(timeout, TimeUnit.MILLISECONDS);
+			} else {
+				return future.get();
+			}
+		} catch (TimeoutException e) {
+			return null;
+		} catch (ExecutionException e) {
+			throw (InterruptedException) e.getCause();
+		}
 	}
 
-	private void endSyncRequest(DbgpRequest request) {
+	private void endSyncRequest(Object request) {
 		synchronized (activeRequests) {
 			activeRequests.remove(request);
 			activeRequests.notifyAll();
 		}
 	}
 
-	private void beginSyncRequest(DbgpRequest request)
+	private void beginSyncRequest(Object request)
 			throws InterruptedException {
 		synchronized (activeRequests) {
 			while (!activeRequests.isEmpty()) {
@@ -59,7 +59,7 @@ public class DbgpPropertyCommands extends DbgpBaseCommands implements
 		if (page != null) {
 			request.addOption("-p", page); //$NON-NLS-1$
 		}
-		return parsePropertyResponse(communicate(request));
+		return communicateProperties(request)[0];
 	}
 
 	public IDbgpProperty getPropertyByKey(String name, String key)
@@ -67,7 +67,7 @@ public class DbgpPropertyCommands extends DbgpBaseCommands implements
 		DbgpRequest request = createRequest(PROPERTY_GET_COMMAND);
 		request.addOption("-n", name); //$NON-NLS-1$
 		request.addOption("-k", key); //$NON-NLS-1$
-		return parsePropertyResponse(communicate(request));
+		return communicateProperties(request)[0];
 	}
 
 	public IDbgpProperty getProperty(String name) throws DbgpException {
@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.dbgp.internal.commands;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.dltk.dbgp.DbgpRequest;
+import org.eclipse.dltk.dbgp.IDbgpCommunicator;
+import org.eclipse.dltk.dbgp.exceptions.DbgpException;
+import org.eclipse.dltk.dbgp.exceptions.DbgpIOException;
+import org.eclipse.dltk.dbgp.exceptions.DbgpOpertionCanceledException;
+import org.eclipse.dltk.debug.core.DLTKDebugPlugin;
+import org.w3c.dom.Element;
+
+/**
+ * The requests to the single session executed together. If the session is
+ * connected to the debugging engine directly, all the requests are sent
+ * before waiting for the first response, otherwise they are executed one by
+ * one. The handlers are called in the order the requests were added, after
+ * all the responses are received.
+ *
+ * @since 5.0
+ */
+public class DbgpRequestBatch {
+
+	public interface IResponseHandler {
+		/**
+		 * Called when the successful response to the request is received
+		 */
+		void responseReceived(Element response) throws Exception;
+
+		/**
+		 * Called when the debugging engine returned the error or the
+		 * {@link #responseReceived(Element)} failed
+		 */
+		void requestFailed(Exception e);
+	}
+
+	private final IDbgpCommunicator communicator;
+	private final List<DbgpRequest> requests = new ArrayList<DbgpRequest>();
+	private final List<IResponseHandler> handlers = new ArrayList<IResponseHandler>();
+
+	public DbgpRequestBatch(IDbgpCommunicator communicator) {
+		this.communicator = communicator;
+	}
+
+	/**
+	 * Adds the request to this batch
+	 *
+	 * @param handler
+	 *            the handler of the response or <code>null</code> if the
+	 *            response is not needed, then the errors are just logged
+	 */
+	public void add(DbgpRequest request, IResponseHandler handler) {
+		requests.add(request);
+		handlers.add(handler);
+	}
+
+	public int size() {
+		return requests.size();
+	}
+
+	public boolean isEmpty() {
+		return requests.isEmpty();
+	}
+
+	/**
+	 * Executes the requests added so far and calls their handlers. The batch
+	 * could be reused after that.
+	 *
+	 * @throws DbgpException
+	 *             if the connection is broken, the handlers of the remaining
+	 *             requests are not called then
+	 */
+	public void execute() throws DbgpException {
+		if (requests.isEmpty()) {
+			return;
+		}
+		final DbgpRequest[] array = requests.toArray(new DbgpRequest[requests
+				.size()]);
+		final IResponseHandler[] handlerArray = handlers
+				.toArray(new IResponseHandler[handlers.size()]);
+		requests.clear();
+		handlers.clear();
+		final Object[] results;
+		if (communicator instanceof DbgpDebuggingEngineCommunicator) {
+			results = ((DbgpDebuggingEngineCommunicator) communicator)
+					.communicate(array);
+		} else {
+			results = new Object[array.length];
+			for (int i = 0; i < array.length; ++i) {
+				try {
+					results[i] = communicator.communicate(array[i]);
+				} catch (DbgpIOException e) {
+					throw e;
+				} catch (DbgpOpertionCanceledException e) {
+					throw e;
+				} catch (DbgpException e) {
+					results[i] = e;
+				}
+			}
+		}
+		for (int i = 0; i < results.length; ++i) {
+			final IResponseHandler handler = handlerArray[i];
+			if (results[i] instanceof Element) {
+				if (handler != null) {
+					try {
+						handler.responseReceived((Element) results[i]);
+					} catch (Exception e) {
+						handler.requestFailed(e);
+					}
+				}
+			} else if (handler != null) {
+				handler.requestFailed((Exception) results[i]);
+			} else {
+				DLTKDebugPlugin.log((Exception) results[i]);
+			}
+		}
+	}
+}
@@ -17,9 +17,11 @@ import org.eclipse.dltk.dbgp.internal.DbgpNotification;
 import org.eclipse.dltk.dbgp.internal.DbgpWorkingThread;
 import org.eclipse.dltk.dbgp.internal.IDbgpDebugingEngine;
 import org.eclipse.dltk.dbgp.internal.packets.DbgpNotifyPacket;
+import org.eclipse.dltk.dbgp.internal.packets.DbgpPacket;
+import org.eclipse.dltk.dbgp.internal.packets.IDbgpPacketHandler;
 
 public class DbgpNotificationManager extends DbgpWorkingThread implements
-		IDbgpNotificationManager {
+		IDbgpNotificationManager, IDbgpPacketHandler {
 	private final ListenerList listeners = new ListenerList();
 
 	private final IDbgpDebugingEngine engine;
@@ -34,16 +36,21 @@ public class DbgpNotificationManager extends DbgpWorkingThread implements
 	protected void workingCycle() throws Exception {
 		try {
 			while (!Thread.interrupted()) {
-				DbgpNotifyPacket packet = engine.getNotifyPacket();
-
-				fireDbgpNotify(new DbgpNotification(packet.getName(), packet
-						.getContent()));
+				handlePacket(engine.getNotifyPacket());
 			}
 		} catch (InterruptedException e) {
 			// OK, interrupted
 		}
 	}
 
+	public void handlePacket(DbgpPacket packet) {
+		if (packet instanceof DbgpNotifyPacket) {
+			final DbgpNotifyPacket notify = (DbgpNotifyPacket) packet;
+			fireDbgpNotify(new DbgpNotification(notify.getName(), notify
+					.getContent()));
+		}
+	}
+
 	public DbgpNotificationManager(IDbgpDebugingEngine engine) {
 		super("DBGP - Notification Manager"); //$NON-NLS-1$
 		if (engine == null) {
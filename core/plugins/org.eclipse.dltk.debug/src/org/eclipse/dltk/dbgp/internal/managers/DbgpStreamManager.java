@@ -13,10 +13,12 @@ import org.eclipse.core.runtime.ListenerList;
 import org.eclipse.dltk.dbgp.IDbgpStreamListener;
 import org.eclipse.dltk.dbgp.internal.DbgpWorkingThread;
 import org.eclipse.dltk.dbgp.internal.IDbgpDebugingEngine;
+import org.eclipse.dltk.dbgp.internal.packets.DbgpPacket;
 import org.eclipse.dltk.dbgp.internal.packets.DbgpStreamPacket;
+import org.eclipse.dltk.dbgp.internal.packets.IDbgpPacketHandler;
 
 public class DbgpStreamManager extends DbgpWorkingThread implements
-		IDbgpStreamManager {
+		IDbgpStreamManager, IDbgpPacketHandler {
 	private final ListenerList listeners = new ListenerList();
 
 	private final IDbgpDebugingEngine engine;
@@ -42,19 +44,24 @@ public class DbgpStreamManager extends DbgpWorkingThread implements
 	protected void workingCycle() throws Exception {
 		try {
 			while (!Thread.interrupted()) {
-				final DbgpStreamPacket packet = engine.getStreamPacket();
-
-				if (packet.isStderr()) {
-					fireStderrReceived(packet.getTextContent());
-				} else if (packet.isStdout()) {
-					fireStdoutReceived(packet.getTextContent());
-				}
+				handlePacket(engine.getStreamPacket());
 			}
 		} catch (InterruptedException e) {
 			// OK, interrupted
 		}
 	}
 
+	public void handlePacket(DbgpPacket packet) {
+		if (packet instanceof DbgpStreamPacket) {
+			final DbgpStreamPacket stream = (DbgpStreamPacket) packet;
+			if (stream.isStderr()) {
+				fireStderrReceived(stream.getTextContent());
+			} else if (stream.isStdout()) {
+				fireStdoutReceived(stream.getTextContent());
+			}
+		}
+	}
+
 	public DbgpStreamManager(IDbgpDebugingEngine engine, String name) {
 		super(name);
 
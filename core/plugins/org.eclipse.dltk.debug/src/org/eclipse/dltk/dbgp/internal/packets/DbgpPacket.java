@@ -22,6 +22,16 @@ public class DbgpPacket {
 		this.content = content;
 	}
 
+	/**
+	 * Creates the packet decoded without building its DOM, so the
+	 * {@link #getContent()} returns <code>null</code>.
+	 *
+	 * @since 5.0
+	 */
+	protected DbgpPacket() {
+		this.content = null;
+	}
+
 	public Element getContent() {
 		return this.content;
 	}
@@ -0,0 +1,541 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.dbgp.internal.packets;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.eclipse.dltk.compiler.util.Util;
+import org.eclipse.dltk.dbgp.IDbgpProperty;
+import org.eclipse.dltk.dbgp.exceptions.DbgpProtocolException;
+import org.eclipse.dltk.dbgp.internal.DbgpProperty;
+import org.eclipse.dltk.dbgp.internal.utils.Base64Helper;
+import org.eclipse.dltk.dbgp.internal.utils.DbgpXmlParser;
+import org.w3c.dom.Element;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Decodes the XML of the received packets into the packet models.
+ * <p>
+ * The root element is looked up in the raw bytes first. The stream packets and
+ * the <code>property_get</code> and <code>context_get</code> responses are
+ * decoded with the SAX parser without building the DOM, the properties are
+ * decoded straight into the {@link DbgpProperty} trees. The other packets are
+ * parsed once into the DOM, since it is what the commands consume, and the
+ * root attributes are read from it. The SAX parser is created once and reused
+ * for the subsequent packets, so the decoder should not be used by several
+ * threads at once.
+ * </p>
+ *
+ * @since 5.0
+ */
+public class DbgpPacketDecoder {
+
+	private static final String INIT_TAG = "init"; //$NON-NLS-1$
+	private static final String RESPONSE_TAG = "response"; //$NON-NLS-1$
+	private static final String STREAM_TAG = "stream"; //$NON-NLS-1$
+	private static final String NOTIFY_TAG = "notify"; //$NON-NLS-1$
+
+	private static final String ATTR_TRANSACTION_ID = "transaction_id"; //$NON-NLS-1$
+	private static final String ATTR_NAME = "name"; //$NON-NLS-1$
+	private static final String ATTR_TYPE = "type"; //$NON-NLS-1$
+	private static final String ATTR_COMMAND = "command"; //$NON-NLS-1$
+
+	private static final String PROPERTY_GET_COMMAND = "property_get"; //$NON-NLS-1$
+	private static final String CONTEXT_GET_COMMAND = "context_get"; //$NON-NLS-1$
+
+	private static class StreamHandler extends DefaultHandler {
+		String tag;
+		String type;
+		final StringBuilder text = new StringBuilder();
+		int depth;
+
+		void reset() {
+			tag = null;
+			type = null;
+			text.setLength(0);
+			depth = 0;
+		}
+
+		@Override
+		public void startElement(String uri, String localName, String qName,
+				Attributes attributes) {
+			if (depth++ == 0) {
+				tag = qName;
+				type = attributes.getValue(ATTR_TYPE);
+			}
+		}
+
+		@Override
+		public void endElement(String uri, String localName, String qName) {
+			--depth;
+		}
+
+		@Override
+		public void characters(char[] ch, int start, int length) {
+			if (depth == 1) {
+				text.append(ch, start, length);
+			}
+		}
+	}
+
+	private static final String TAG_PROPERTY = "property"; //$NON-NLS-1$
+	private static final String TAG_NAME = "name"; //$NON-NLS-1$
+	private static final String TAG_FULLNAME = "fullname"; //$NON-NLS-1$
+	private static final String TAG_VALUE = "value"; //$NON-NLS-1$
+	private static final String TAG_ERROR = "error"; //$NON-NLS-1$
+
+	private static final String ATTR_FULLNAME = "fullname"; //$NON-NLS-1$
+	private static final String ATTR_CHILDREN = "children"; //$NON-NLS-1$
+	private static final String ATTR_NUMCHILDREN = "numchildren"; //$NON-NLS-1$
+	private static final String ATTR_CONSTANT = "constant"; //$NON-NLS-1$
+	private static final String ATTR_KEY = "key"; //$NON-NLS-1$
+	private static final String ATTR_PAGE = "page"; //$NON-NLS-1$
+	private static final String ATTR_PAGE_SIZE = "pagesize"; //$NON-NLS-1$
+	private static final String ATTR_ADDRESS = "address"; //$NON-NLS-1$
+	private static final String ATTR_ENCODING = "encoding"; //$NON-NLS-1$
+
+	private static final String ENCODING_NONE = "none"; //$NON-NLS-1$
+	private static final String ENCODING_BASE64 = "base64"; //$NON-NLS-1$
+
+	private static final IDbgpProperty[] NO_CHILDREN = new IDbgpProperty[0];
+
+	/**
+	 * The property element being decoded, the values are taken the same way
+	 * as in the DbgpXmlEntityParser.parseProperty().
+	 */
+	private static class PropertyFrame {
+		final String name;
+		final String fullName;
+		final String type;
+		final boolean hasChildren;
+		final int childrenCount;
+		final boolean constant;
+		final String key;
+		final String address;
+		final int page;
+		final int pageSize;
+		String childName;
+		String childFullName;
+		String value;
+		String valueEncoding;
+		final List<IDbgpProperty> children = new ArrayList<IDbgpProperty>();
+
+		PropertyFrame(Attributes attributes) {
+			name = getAttribute(attributes, ATTR_NAME);
+			fullName = getAttribute(attributes, ATTR_FULLNAME);
+			type = getAttribute(attributes, ATTR_TYPE);
+			final String children = attributes.getValue(ATTR_CHILDREN);
+			hasChildren = children != null && makeBoolean(children);
+			final String numChildren = attributes.getValue(ATTR_NUMCHILDREN);
+			childrenCount = numChildren != null ? Integer
+					.parseInt(numChildren) : -1;
+			final String constantValue = attributes.getValue(ATTR_CONSTANT);
+			constant = constantValue != null && makeBoolean(constantValue);
+			key = attributes.getValue(ATTR_KEY);
+			address = attributes.getValue(ATTR_ADDRESS);
+			final String pageValue = attributes.getValue(ATTR_PAGE);
+			page = pageValue != null ? Integer.parseInt(pageValue) : 0;
+			final String pageSizeValue = attributes.getValue(ATTR_PAGE_SIZE);
+			pageSize = pageSizeValue != null ? Integer.parseInt(pageSizeValue)
+					: -1;
+		}
+
+		IDbgpProperty create(String content, String encoding)
+				throws UnsupportedPacketException {
+			final String valueContent;
+			final String contentEncoding;
+			if (value != null) {
+				valueContent = value;
+				contentEncoding = valueEncoding;
+			} else {
+				valueContent = content;
+				contentEncoding = encoding;
+			}
+			final boolean base64 = ENCODING_BASE64.equals(contentEncoding);
+			if (!base64) {
+				checkEncoding(contentEncoding);
+			}
+			final IDbgpProperty[] availableChildren = hasChildren
+					&& !children.isEmpty() ? children
+					.toArray(new IDbgpProperty[children.size()]) : NO_CHILDREN;
+			final int count = childrenCount < 0 ? availableChildren.length
+					: childrenCount;
+			return new DbgpProperty(childName != null ? childName : name,
+					childFullName != null ? childFullName : fullName, type,
+					valueContent, base64, count, hasChildren, constant, key,
+					address, availableChildren, page, pageSize);
+		}
+	}
+
+	/**
+	 * Thrown when the packet can't be decoded the same way as the DOM is, so
+	 * it is decoded into the DOM instead.
+	 */
+	@SuppressWarnings("serial")
+	private static class UnsupportedPacketException extends SAXException {
+	}
+
+	private static String getAttribute(Attributes attributes, String name) {
+		final String value = attributes.getValue(name);
+		return value != null ? value : Util.EMPTY_STRING;
+	}
+
+	private static boolean makeBoolean(String value) {
+		return Integer.parseInt(value) != 0;
+	}
+
+	private static void checkEncoding(String encoding)
+			throws UnsupportedPacketException {
+		if (encoding != null && !ENCODING_NONE.equals(encoding)) {
+			throw new UnsupportedPacketException();
+		}
+	}
+
+	/**
+	 * The open element, the first text of the element is kept, as the first
+	 * text node is taken from the DOM.
+	 */
+	private static class ElementFrame {
+		final String tag;
+		final String encoding;
+		final PropertyFrame property;
+		final StringBuilder text = new StringBuilder();
+		boolean textDone;
+
+		ElementFrame(String tag, String encoding, PropertyFrame property) {
+			this.tag = tag;
+			this.encoding = encoding;
+			this.property = property;
+		}
+	}
+
+	/**
+	 * Decodes the properties of the <code>property_get</code> and
+	 * <code>context_get</code> responses. The responses with the errors are
+	 * left to the DOM, so the commands report the errors as before.
+	 */
+	private static class PropertyHandler extends DefaultHandler {
+		int transactionId;
+		final List<IDbgpProperty> properties = new ArrayList<IDbgpProperty>();
+		final List<ElementFrame> elements = new ArrayList<ElementFrame>();
+
+		void reset() {
+			transactionId = 0;
+			properties.clear();
+			elements.clear();
+		}
+
+		@Override
+		public void startElement(String uri, String localName, String qName,
+				Attributes attributes) throws SAXException {
+			if (TAG_ERROR.equals(qName)) {
+				throw new UnsupportedPacketException();
+			}
+			try {
+				if (elements.isEmpty()) {
+					if (!RESPONSE_TAG.equals(qName)
+							|| !isPropertyCommand(attributes
+									.getValue(ATTR_COMMAND))) {
+						throw new UnsupportedPacketException();
+					}
+					transactionId = Integer.parseInt(attributes
+							.getValue(ATTR_TRANSACTION_ID));
+					elements.add(new ElementFrame(qName, null, null));
+					return;
+				}
+				final ElementFrame parent = elements.get(elements.size() - 1);
+				if (parent.text.length() != 0) {
+					parent.textDone = true;
+				}
+				// only the properties and their child elements are expected
+				if (parent.property == null && elements.size() != 1) {
+					throw new UnsupportedPacketException();
+				}
+				final PropertyFrame property = TAG_PROPERTY.equals(qName) ? new PropertyFrame(
+						attributes)
+						: null;
+				elements.add(new ElementFrame(qName, attributes
+						.getValue(ATTR_ENCODING), property));
+			} catch (NumberFormatException e) {
+				throw new UnsupportedPacketException();
+			}
+		}
+
+		@Override
+		public void endElement(String uri, String localName, String qName)
+				throws SAXException {
+			final ElementFrame element = elements.remove(elements.size() - 1);
+			if (elements.isEmpty()) {
+				return;
+			}
+			final ElementFrame parent = elements.get(elements.size() - 1);
+			final String content = element.text.toString();
+			if (element.property != null) {
+				final IDbgpProperty property = element.property.create(
+						content, element.encoding);
+				if (parent.property != null) {
+					parent.property.children.add(property);
+				} else {
+					properties.add(property);
+				}
+			} else if (parent.property != null) {
+				final PropertyFrame frame = parent.property;
+				if (TAG_VALUE.equals(element.tag)) {
+					if (frame.value == null) {
+						frame.value = content;
+						frame.valueEncoding = element.encoding;
+					}
+				} else if (TAG_NAME.equals(element.tag)) {
+					if (frame.childName == null) {
+						frame.childName = decodeValue(content,
+								element.encoding);
+					}
+				} else if (TAG_FULLNAME.equals(element.tag)) {
+					if (frame.childFullName == null) {
+						frame.childFullName = decodeValue(content,
+								element.encoding);
+					}
+				}
+			}
+		}
+
+		private static String decodeValue(String content, String encoding)
+				throws UnsupportedPacketException {
+			if (ENCODING_BASE64.equals(encoding)) {
+				return Base64Helper.decodeString(content);
+			}
+			checkEncoding(encoding);
+			return content;
+		}
+
+		@Override
+		public void characters(char[] ch, int start, int length) {
+			final ElementFrame element = elements.get(elements.size() - 1);
+			if (!element.textDone) {
+				element.text.append(ch, start, length);
+			}
+		}
+	}
+
+	private final StreamHandler handler = new StreamHandler();
+	private final PropertyHandler propertyHandler = new PropertyHandler();
+	private SAXParser parser;
+
+	/**
+	 * Decodes the packet. Returns the {@link DbgpResponsePacket} (for the init
+	 * packet with the <code>-1</code> transaction id), the
+	 * {@link DbgpStreamPacket}, the {@link DbgpNotifyPacket} or
+	 * <code>null</code> if the packet is of the unknown type.
+	 */
+	public DbgpPacket decode(byte[] xml) throws DbgpProtocolException {
+		final int root = findRoot(xml);
+		final String rootTag = root < 0 ? null : getName(xml, root);
+		if (STREAM_TAG.equals(rootTag)) {
+			final DbgpStreamPacket packet = decodeStream(xml);
+			if (packet != null) {
+				return packet;
+			}
+		} else if (RESPONSE_TAG.equals(rootTag)
+				&& isPropertyCommand(getRootAttribute(xml, root, ATTR_COMMAND))) {
+			final DbgpResponsePacket packet = decodeProperties(xml);
+			if (packet != null) {
+				return packet;
+			}
+		}
+		final Element element = DbgpXmlParser.parseXml(xml)
+				.getDocumentElement();
+		final String tag = element.getTagName();
+		if (RESPONSE_TAG.equals(tag)) {
+			return new DbgpResponsePacket(element, Integer.parseInt(element
+					.getAttribute(ATTR_TRANSACTION_ID)));
+		} else if (NOTIFY_TAG.equals(tag)) {
+			return new DbgpNotifyPacket(element, element.getAttribute(ATTR_NAME));
+		} else if (INIT_TAG.equals(tag)) {
+			return new DbgpResponsePacket(element, -1);
+		} else if (STREAM_TAG.equals(tag)) {
+			return new DbgpStreamPacket(element.getAttribute(ATTR_TYPE),
+					DbgpXmlParser.parseBase64Content(element), element);
+		}
+		return null;
+	}
+
+	/**
+	 * Decodes the stream packet without building the DOM, returns
+	 * <code>null</code> if the root element is not the stream one.
+	 */
+	private DbgpStreamPacket decodeStream(byte[] xml)
+			throws DbgpProtocolException {
+		handler.reset();
+		parse(xml, handler);
+		if (!STREAM_TAG.equals(handler.tag)) {
+			// the root was guessed wrong
+			return null;
+		}
+		return new DbgpStreamPacket(handler.type, Base64Helper
+				.decodeString(handler.text.toString()));
+	}
+
+	/**
+	 * Decodes the <code>property_get</code> or <code>context_get</code>
+	 * response without building the DOM, returns <code>null</code> if it
+	 * should be decoded into the DOM.
+	 */
+	private DbgpResponsePacket decodeProperties(byte[] xml)
+			throws DbgpProtocolException {
+		propertyHandler.reset();
+		try {
+			if (!parse(xml, propertyHandler)) {
+				return null;
+			}
+			final List<IDbgpProperty> properties = propertyHandler.properties;
+			return new DbgpResponsePacket(propertyHandler.transactionId,
+					properties.toArray(new IDbgpProperty[properties.size()]),
+					xml);
+		} finally {
+			propertyHandler.reset();
+		}
+	}
+
+	/**
+	 * Parses the packet with the shared SAX parser, returns
+	 * <code>false</code> if the handler can't decode it.
+	 */
+	private boolean parse(byte[] xml, DefaultHandler contentHandler)
+			throws DbgpProtocolException {
+		try {
+			if (parser == null) {
+				parser = SAXParserFactory.newInstance().newSAXParser();
+			}
+			try {
+				parser.parse(new ByteArrayInputStream(xml), contentHandler);
+			} finally {
+				parser.reset();
+			}
+			return true;
+		} catch (UnsupportedPacketException e) {
+			return false;
+		} catch (SAXException e) {
+			throw new DbgpProtocolException(e);
+		} catch (ParserConfigurationException e) {
+			throw new DbgpProtocolException(e);
+		} catch (IOException e) {
+			throw new DbgpProtocolException(e);
+		}
+	}
+
+	private static boolean isPropertyCommand(String command) {
+		return PROPERTY_GET_COMMAND.equals(command)
+				|| CONTEXT_GET_COMMAND.equals(command);
+	}
+
+	/**
+	 * Returns the offset of the root element name found by skipping the XML
+	 * declaration, the processing instructions and the comments, or
+	 * <code>-1</code> if there is no element. The document is not validated,
+	 * it is done by the parser.
+	 */
+	private static int findRoot(byte[] xml) {
+		int i = 0;
+		while (i < xml.length) {
+			if (xml[i] != '<') {
+				++i;
+				continue;
+			}
+			if (i + 3 < xml.length && xml[i + 1] == '!' && xml[i + 2] == '-'
+					&& xml[i + 3] == '-') {
+				i += 4;
+				while (i + 2 < xml.length
+						&& !(xml[i] == '-' && xml[i + 1] == '-' && xml[i + 2] == '>')) {
+					++i;
+				}
+				continue;
+			}
+			if (i + 1 < xml.length && (xml[i + 1] == '?' || xml[i + 1] == '!')) {
+				while (i < xml.length && xml[i] != '>') {
+					++i;
+				}
+				continue;
+			}
+			return i + 1;
+		}
+		return -1;
+	}
+
+	private static boolean isWhitespace(byte b) {
+		return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+	}
+
+	/**
+	 * Returns the name starting at the offset.
+	 */
+	private static String getName(byte[] xml, int start) {
+		int i = start;
+		while (i < xml.length && xml[i] != '>' && xml[i] != '/'
+				&& xml[i] != '=' && !isWhitespace(xml[i])) {
+			++i;
+		}
+		return toString(xml, start, i);
+	}
+
+	private static String toString(byte[] xml, int start, int end) {
+		final char[] chars = new char[end - start];
+		for (int j = 0; j < chars.length; ++j) {
+			chars[j] = (char) xml[start + j];
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * Returns the value of the root element attribute or <code>null</code> if
+	 * there is no such attribute. The entity references in the value are not
+	 * resolved, so it is only used to guess the way to decode the packet.
+	 */
+	private static String getRootAttribute(byte[] xml, int root, String name) {
+		int i = root;
+		while (i < xml.length && xml[i] != '>' && xml[i] != '/'
+				&& !isWhitespace(xml[i])) {
+			++i;
+		}
+		while (i < xml.length) {
+			while (i < xml.length && isWhitespace(xml[i])) {
+				++i;
+			}
+			if (i >= xml.length || xml[i] == '>' || xml[i] == '/') {
+				return null;
+			}
+			final String attribute = getName(xml, i);
+			i += attribute.length();
+			while (i < xml.length && (isWhitespace(xml[i]) || xml[i] == '=')) {
+				++i;
+			}
+			if (i >= xml.length || xml[i] != '"' && xml[i] != '\'') {
+				return null;
+			}
+			final byte quote = xml[i++];
+			final int start = i;
+			while (i < xml.length && xml[i] != quote) {
+				++i;
+			}
+			if (attribute.equals(name)) {
+				return toString(xml, start, i);
+			}
+			++i;
+		}
+		return null;
+	}
+}
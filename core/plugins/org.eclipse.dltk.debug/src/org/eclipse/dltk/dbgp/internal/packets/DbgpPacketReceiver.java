@@ -10,68 +10,12 @@
 package org.eclipse.dltk.dbgp.internal.packets;
 
 import java.io.InputStream;
-import java.util.HashMap;
 import java.util.LinkedList;
 
 import org.eclipse.dltk.dbgp.internal.DbgpRawPacket;
 import org.eclipse.dltk.dbgp.internal.DbgpWorkingThread;
-import org.eclipse.dltk.dbgp.internal.utils.DbgpXmlPacketParser;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
 
 public class DbgpPacketReceiver extends DbgpWorkingThread {
-	private static class ResponcePacketWaiter {
-		private static final int MIN_TIMEOUT = 5;
-		private final HashMap map;
-		private boolean terminated;
-
-		public ResponcePacketWaiter() {
-			map = new HashMap();
-			terminated = false;
-		}
-
-		public synchronized void put(DbgpResponsePacket packet) {
-			int id = packet.getTransactionId();
-			map.put(new Integer(id), packet);
-			notifyAll();
-		}
-
-		public synchronized DbgpResponsePacket waitPacket(int id, int timeout)
-				throws InterruptedException {
-			Integer key = new Integer(id);
-			long endTime = 0;
-			if (timeout > 0) {
-				endTime = System.currentTimeMillis() + timeout;
-			}
-			while (!terminated && !map.containsKey(key)) {
-				long current = System.currentTimeMillis();
-				if (endTime != 0 && current >= endTime) {
-					break;
-				}
-				if (endTime == 0)
-					wait();
-				else
-					wait(endTime - current);
-			}
-
-			if (map.containsKey(key)) {
-				return (DbgpResponsePacket) map.remove(key);
-			}
-
-			if (terminated) {
-				throw new InterruptedException(
-						Messages.DbgpPacketReceiver_responsePacketWaiterTerminated);
-			}
-
-			return null;
-		}
-
-		public synchronized void terminate() {
-			terminated = true;
-			notifyAll();
-		}
-	}
-
 	private static class PacketWaiter {
 		private final LinkedList queue;
 		private boolean terminated;
@@ -105,16 +49,12 @@ public class DbgpPacketReceiver extends DbgpWorkingThread {
 		}
 	}
 
-	private static final String INIT_TAG = "init"; //$NON-NLS-1$
-	private static final String RESPONSE_TAG = "response"; //$NON-NLS-1$
-	private static final String STREAM_TAG = "stream"; //$NON-NLS-1$
-	private static final String NOTIFY_TAG = "notify"; //$NON-NLS-1$
-
-	private final ResponcePacketWaiter responseWaiter;
+	private final DbgpResponseTable responses;
 	private final PacketWaiter notifyWaiter;
 	private final PacketWaiter streamWaiter;
 
 	private final InputStream input;
+	private final DbgpPacketDecoder decoder = new DbgpPacketDecoder();
 	private IDbgpRawLogger logger;
 
 	protected void workingCycle() throws Exception {
@@ -126,30 +66,22 @@ public class DbgpPacketReceiver extends DbgpWorkingThread {
 					logger.log(packet);
 				}
 
-				addDocument(packet.getParsedXml());
+				addPacket(decoder.decode(packet.getXml()));
 			}
 		} finally {
-			responseWaiter.terminate();
+			responses.terminate();
 			notifyWaiter.terminate();
 			streamWaiter.terminate();
 		}
 	}
 
-	protected void addDocument(Document doc) {
-		Element element = (Element) doc.getFirstChild();
-		String tag = element.getTagName();
-
-		// TODO: correct init tag handling without this hack
-		if (tag.equals(INIT_TAG)) {
-			responseWaiter.put(new DbgpResponsePacket(element, -1));
-		} else if (tag.equals(RESPONSE_TAG)) {
-			DbgpResponsePacket packet = DbgpXmlPacketParser
-					.parseResponsePacket(element);
-			responseWaiter.put(packet);
-		} else if (tag.equals(STREAM_TAG)) {
-			streamWaiter.put(DbgpXmlPacketParser.parseStreamPacket(element));
-		} else if (tag.equals(NOTIFY_TAG)) {
-			notifyWaiter.put(DbgpXmlPacketParser.parseNotifyPacket(element));
+	protected void addPacket(DbgpPacket packet) {
+		if (packet instanceof DbgpResponsePacket) {
+			responses.put((DbgpResponsePacket) packet);
+		} else if (packet instanceof DbgpStreamPacket) {
+			streamWaiter.put(packet);
+		} else if (packet instanceof DbgpNotifyPacket) {
+			notifyWaiter.put(packet);
 		}
 	}
 
@@ -163,7 +95,14 @@ public class DbgpPacketReceiver extends DbgpWorkingThread {
 
 	public DbgpResponsePacket getResponsePacket(int transactionId, int timeout)
 			throws InterruptedException {
-		return responseWaiter.waitPacket(transactionId, timeout);
+		return responses.waitPacket(transactionId, timeout);
+	}
+
+	/**
+	 * @since 5.0
+	 */
+	public DbgpResponseTable getResponseTable() {
+		return responses;
 	}
 
 	public DbgpPacketReceiver(InputStream input) {
@@ -176,7 +115,7 @@ public class DbgpPacketReceiver extends DbgpWorkingThread {
 		this.input = input;
 		this.notifyWaiter = new PacketWaiter();
 		this.streamWaiter = new PacketWaiter();
-		this.responseWaiter = new ResponcePacketWaiter();
+		this.responses = new DbgpResponseTable();
 	}
 
 	public void setLogger(IDbgpRawLogger logger) {
@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.dbgp.internal.packets;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The response to the request with the particular transaction id, completed
+ * when the response packet is received or failed when the connection is
+ * terminated. The request could not be cancelled, since the debugging engine
+ * will answer it anyway.
+ *
+ * @since 5.0
+ */
+public class DbgpResponseFuture implements Future<DbgpResponsePacket> {
+
+	private final int transactionId;
+	private DbgpResponsePacket packet;
+	private boolean terminated;
+
+	public DbgpResponseFuture(int transactionId) {
+		this.transactionId = transactionId;
+	}
+
+	public int getTransactionId() {
+		return transactionId;
+	}
+
+	/**
+	 * Completes this future with the received packet. Returns
+	 * <code>false</code> if it is already done.
+	 */
+	public synchronized boolean complete(DbgpResponsePacket packet) {
+		if (isDone()) {
+			return false;
+		}
+		this.packet = packet;
+		notifyAll();
+		return true;
+	}
+
+	/**
+	 * Fails this future if the response was not received yet
+	 */
+	public synchronized void terminate() {
+		if (!isDone()) {
+			terminated = true;
+			notifyAll();
+		}
+	}
+
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		return false;
+	}
+
+	public boolean isCancelled() {
+		return false;
+	}
+
+	public synchronized boolean isDone() {
+		return packet != null || terminated;
+	}
+
+	public synchronized DbgpResponsePacket get() throws InterruptedException,
+			ExecutionException {
+		while (!isDone()) {
+			wait();
+		}
+		return getResult();
+	}
+
+	public synchronized DbgpResponsePacket get(long timeout, TimeUnit unit)
+			throws InterruptedException, ExecutionException, TimeoutException {
+		final long endTime = System.nanoTime() + unit.toNanos(timeout);
+		while (!isDone()) {
+			final long remaining = endTime - System.nanoTime();
+			if (remaining <= 0) {
+				throw new TimeoutException();
+			}
+			TimeUnit.NANOSECONDS.timedWait(this, remaining);
+		}
+		return getResult();
+	}
+
+	private DbgpResponsePacket getResult() throws ExecutionException {
+		if (packet == null) {
+			throw new ExecutionException(new InterruptedException(
+					Messages.DbgpPacketReceiver_responsePacketWaiterTerminated));
+		}
+		return packet;
+	}
+}
@@ -9,18 +9,77 @@
  *******************************************************************************/
 package org.eclipse.dltk.dbgp.internal.packets;
 
+import org.eclipse.dltk.dbgp.IDbgpProperty;
+import org.eclipse.dltk.dbgp.exceptions.DbgpProtocolException;
+import org.eclipse.dltk.dbgp.internal.utils.DbgpXmlParser;
 import org.w3c.dom.Element;
 
 public class DbgpResponsePacket extends DbgpPacket {
 	private final int transactionId;
 
+	private final IDbgpProperty[] properties;
+
+	/**
+	 * The raw XML of the packet decoded without the DOM, kept to build the DOM
+	 * on request.
+	 */
+	private byte[] xml;
+
+	private Element content;
+
 	public DbgpResponsePacket(Element element, int transactionId) {
 		super(element);
 
 		this.transactionId = transactionId;
+		this.properties = null;
+	}
+
+	/**
+	 * Creates the response packet with the properties decoded without building
+	 * the DOM. The DOM is built from the raw XML by the first
+	 * {@link #getContent()} call.
+	 *
+	 * @since 5.0
+	 */
+	public DbgpResponsePacket(int transactionId, IDbgpProperty[] properties,
+			byte[] xml) {
+		this.transactionId = transactionId;
+		this.properties = properties;
+		this.xml = xml;
 	}
 
 	public int getTransactionId() {
 		return transactionId;
 	}
+
+	/**
+	 * Returns the top level properties of the <code>property_get</code> or
+	 * <code>context_get</code> response decoded without building the DOM or
+	 * <code>null</code> if the packet was decoded into the DOM.
+	 *
+	 * @since 5.0
+	 */
+	public IDbgpProperty[] getProperties() {
+		return properties;
+	}
+
+	@Override
+	public Element getContent() {
+		final Element element = super.getContent();
+		if (element != null) {
+			return element;
+		}
+		synchronized (this) {
+			if (content == null) {
+				try {
+					content = DbgpXmlParser.parseXml(xml).getDocumentElement();
+				} catch (DbgpProtocolException e) {
+					// the same XML was decoded already
+					throw new IllegalStateException(e);
+				}
+				xml = null;
+			}
+			return content;
+		}
+	}
 }
@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.dbgp.internal.packets;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The pending responses of the connection keyed by the transaction id. The
+ * future is created either by the request waiting for the response or by the
+ * response received first, so the order does not matter. The table forgets
+ * the future once it is both requested and completed.
+ *
+ * @since 5.0
+ */
+public class DbgpResponseTable {
+
+	private final Map<Integer, DbgpResponseFuture> futures = new HashMap<Integer, DbgpResponseFuture>();
+	private boolean terminated;
+
+	/**
+	 * Returns the future of the response with the specified transaction id.
+	 */
+	public synchronized DbgpResponseFuture getFuture(int transactionId) {
+		final Integer key = new Integer(transactionId);
+		DbgpResponseFuture future = futures.get(key);
+		if (future != null) {
+			if (future.isDone()) {
+				futures.remove(key);
+			}
+			return future;
+		}
+		future = new DbgpResponseFuture(transactionId);
+		if (terminated) {
+			future.terminate();
+		} else {
+			futures.put(key, future);
+		}
+		return future;
+	}
+
+	public synchronized void put(DbgpResponsePacket packet) {
+		final Integer key = new Integer(packet.getTransactionId());
+		DbgpResponseFuture future = futures.get(key);
+		if (future == null || future.isDone()) {
+			// kept until requested
+			future = new DbgpResponseFuture(packet.getTransactionId());
+			futures.put(key, future);
+		} else {
+			futures.remove(key);
+		}
+		future.complete(packet);
+	}
+
+	/**
+	 * Waits for the response with the specified transaction id, returns
+	 * <code>null</code> if it is not received during the specified timeout in
+	 * milliseconds, the zero timeout means to wait forever.
+	 *
+	 * @throws InterruptedException
+	 *             if the connection is terminated
+	 */
+	public DbgpResponsePacket waitPacket(int transactionId, int timeout)
+			throws InterruptedException {
+		final DbgpResponseFuture future = getFuture(transactionId);
+		try {
+			if (timeout > 0) {
+				return future.get(timeout, TimeUnit.MILLISECONDS);
+			} else {
+				return future.get();
+			}
+		} catch (TimeoutException e) {
+			return null;
+		} catch (ExecutionException e) {
+			throw (InterruptedException) e.getCause();
+		}
+	}
+
+	public synchronized void terminate() {
+		terminated = true;
+		// the responses already received are still available
+		for (DbgpResponseFuture future : futures.values()) {
+			future.terminate();
+		}
+	}
+}
@@ -22,7 +22,23 @@ public class DbgpStreamPacket extends DbgpPacket {
 
 	public DbgpStreamPacket(String type, String textContent, Element content) {
 		super(content);
-		
+		validate(type, textContent);
+		this.type = type;
+		this.textContent = textContent;
+	}
+
+	/**
+	 * Creates the stream packet decoded without building its DOM.
+	 *
+	 * @since 5.0
+	 */
+	public DbgpStreamPacket(String type, String textContent) {
+		validate(type, textContent);
+		this.type = type;
+		this.textContent = textContent;
+	}
+
+	private static void validate(String type, String textContent) {
 		if (!STDERR.equalsIgnoreCase(type) && !STDOUT.equalsIgnoreCase(type)) {
 			throw new IllegalArgumentException(Messages.DbgpStreamPacket_invalidTypeValue);
 		}
@@ -30,9 +46,6 @@ public class DbgpStreamPacket extends DbgpPacket {
 		if (textContent == null) {
 			throw new IllegalArgumentException(Messages.DbgpStreamPacket_contentCannotBeNull);
 		}
-
-		this.type = type;
-		this.textContent = textContent;
 	}
 
 	public boolean isStdout() {
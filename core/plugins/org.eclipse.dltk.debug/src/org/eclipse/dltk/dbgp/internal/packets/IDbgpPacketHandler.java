@@ -0,0 +1,24 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.dbgp.internal.packets;
+
+/**
+ * Receives the notify and stream packets pushed by the connection, instead of
+ * waiting for them in the dedicated thread.
+ *
+ * @since 5.0
+ */
+public interface IDbgpPacketHandler {
+
+	/**
+	 * Handles the packet. The packets of the same connection are handled
+	 * sequentially in the order they were received.
+	 */
+	void handlePacket(DbgpPacket packet);
+}
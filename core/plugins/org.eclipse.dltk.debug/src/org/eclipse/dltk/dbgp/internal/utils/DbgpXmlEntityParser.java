@@ -227,15 +227,12 @@ public class DbgpXmlEntityParser extends DbgpXmlParser {
 			address = property.getAttribute(ATTR_ADDRESS);
 		}
 
-		// Value
-		String value = ""; //$NON-NLS-1$
-
+		// Value, base64 encoded one is decoded on demand
 		Element[] list = getChildElements(property, "value"); //$NON-NLS-1$
-		if (list.length == 0) {
-			value = getEncodedValue(property);
-		} else {
-			value = getEncodedValue(list[0]);
-		}
+		final Element valueElement = list.length == 0 ? property : list[0];
+		final boolean base64 = isBase64Encoded(valueElement);
+		final String value = base64 ? parseContent(valueElement)
+				: getEncodedValue(valueElement);
 
 		// Children
 		IDbgpProperty[] availableChildren = NO_CHILDREN;
@@ -254,9 +251,23 @@ public class DbgpXmlEntityParser extends DbgpXmlParser {
 			childrenCount = availableChildren.length;
 		}
 
-		return new DbgpProperty(name, fullName, type, value, childrenCount,
-				hasChildren, constant, key, address, availableChildren, page,
-				pagesize);
+		return new DbgpProperty(name, fullName, type, value, base64,
+				childrenCount, hasChildren, constant, key, address,
+				availableChildren, page, pagesize);
+	}
+
+	/**
+	 * Returns the properties which are the child elements of the response.
+	 *
+	 * @since 5.0
+	 */
+	public static IDbgpProperty[] parseProperties(Element response) {
+		final Element[] elements = getChildElements(response, TAG_PROPERTY);
+		final IDbgpProperty[] properties = new IDbgpProperty[elements.length];
+		for (int i = 0; i < elements.length; ++i) {
+			properties[i] = parseProperty(elements[i]);
+		}
+		return properties;
 	}
 
 	private static final String ATTR_REASON = "reason"; //$NON-NLS-1$
@@ -386,6 +397,10 @@ public class DbgpXmlEntityParser extends DbgpXmlParser {
 
 	private static final String ATTR_ENCODING = "encoding"; //$NON-NLS-1$
 
+	private static boolean isBase64Encoded(Element element) {
+		return ENCODING_BASE64.equals(element.getAttribute(ATTR_ENCODING));
+	}
+
 	protected static String getEncodedValue(Element element) {
 		String encoding = ENCODING_NONE;
 		if (element.hasAttribute(ATTR_ENCODING)) {
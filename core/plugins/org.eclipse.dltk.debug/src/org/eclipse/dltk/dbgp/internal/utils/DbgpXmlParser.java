@@ -52,35 +52,39 @@ public class DbgpXmlParser {
 		return Integer.parseInt(s) == 0 ? false : true;
 	}
 
+	/**
+	 * The document builders are expensive to create, so each thread parsing
+	 * the packets keeps its own one. It is reset right after the parsing, so
+	 * the state of the packet is not kept until the next one.
+	 */
+	private static final ThreadLocal<DocumentBuilder> builders = new ThreadLocal<DocumentBuilder>();
+
+	protected static DocumentBuilder getDocumentBuilder()
+			throws ParserConfigurationException {
+		DocumentBuilder builder = builders.get();
+		if (builder == null) {
+			builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+			builders.set(builder);
+		}
+		return builder;
+	}
+
 	public static Document parseXml(byte[] xml) throws DbgpProtocolException {
+		final DocumentBuilder builder;
 		try {
-			DocumentBuilderFactory factory = DocumentBuilderFactory
-					.newInstance();
-
-			DocumentBuilder builder = factory.newDocumentBuilder();
-
-			// builder.setErrorHandler(new ErrorHandler() {
-			// public void error(SAXParseException exception)
-			// throws SAXException {
-			// }
-			//
-			// public void fatalError(SAXParseException exception)
-			// throws SAXException {
-			// }
-			//
-			// public void warning(SAXParseException exception)
-			// throws SAXException {
-			// }
-			// });
-
-			InputSource source = new InputSource(new ByteArrayInputStream(xml));
-			return builder.parse(source);
+			builder = getDocumentBuilder();
 		} catch (ParserConfigurationException e) {
 			throw new DbgpProtocolException(e);
+		}
+		try {
+			InputSource source = new InputSource(new ByteArrayInputStream(xml));
+			return builder.parse(source);
 		} catch (SAXException e) {
 			throw new DbgpProtocolException(e);
 		} catch (IOException e) {
 			throw new DbgpProtocolException(e);
+		} finally {
+			builder.reset();
 		}
 	}
 
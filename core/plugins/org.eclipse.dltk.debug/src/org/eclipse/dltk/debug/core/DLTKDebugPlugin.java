@@ -83,7 +83,9 @@ public class DLTKDebugPlugin extends Plugin {
 
 	public synchronized IDbgpService getDbgpService() {
 		if (dbgpService == null) {
-			dbgpService = new DbgpService(getPreferencePort());
+			dbgpService = new DbgpService(getPreferencePort(),
+					getPluginPreferences().getBoolean(
+							DLTKDebugPreferenceConstants.PREF_DBGP_NON_BLOCKING));
 			getPluginPreferences().addPropertyChangeListener(
 					new DbgpServicePreferenceUpdater());
 		}
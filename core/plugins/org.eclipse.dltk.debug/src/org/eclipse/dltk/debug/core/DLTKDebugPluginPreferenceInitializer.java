@@ -33,6 +33,9 @@ public class DLTKDebugPluginPreferenceInitializer extends
 				DLTKDebugPreferenceConstants.PREF_DBGP_RESPONSE_TIMEOUT,
 				60 * 60 * 1000);
 
+		prefs.setDefault(DLTKDebugPreferenceConstants.PREF_DBGP_NON_BLOCKING,
+				false);
+
 		prefs.setDefault(
 				DLTKDebugPreferenceConstants.PREF_DBGP_SHOW_SCOPE_LOCAL, true);
 
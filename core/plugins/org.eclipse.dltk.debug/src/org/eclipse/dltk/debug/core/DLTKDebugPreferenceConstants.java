@@ -30,6 +30,14 @@ public class DLTKDebugPreferenceConstants {
 	// Time to wait after sending DBGP request to the debugging engine
 	public static final String PREF_DBGP_RESPONSE_TIMEOUT = "dbgp_response_timeout"; //$NON-NLS-1$
 
+	/**
+	 * Serve the debugging engine connections by the single selector thread
+	 * instead of the threads per connection.
+	 *
+	 * @since 5.0
+	 */
+	public static final String PREF_DBGP_NON_BLOCKING = "dbgp_non_blocking"; //$NON-NLS-1$
+
 	public static final String PREF_DBGP_SHOW_SCOPE_PREFIX = "dbgp_show_scope_"; //$NON-NLS-1$
 
 	public static final String PREF_DBGP_SHOW_SCOPE_LOCAL = PREF_DBGP_SHOW_SCOPE_PREFIX
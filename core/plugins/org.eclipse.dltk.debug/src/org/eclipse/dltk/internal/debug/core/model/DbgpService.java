@@ -45,6 +45,8 @@ public class DbgpService implements IDbgpService, IDbgpTerminationListener,
 
 	private int serverPort;
 
+	private final boolean nonBlocking;
+
 	private void stopServer() {
 		if (server != null) {
 			try {
@@ -66,6 +68,7 @@ public class DbgpService implements IDbgpService, IDbgpTerminationListener,
 		serverPort = port;
 
 		server = createServer(port);
+		server.setNonBlocking(nonBlocking);
 		server.addTerminationListener(this);
 		server.setListener(this);
 		server.start();
@@ -81,6 +84,18 @@ public class DbgpService implements IDbgpService, IDbgpTerminationListener,
 	}
 
 	public DbgpService(int port) {
+		this(port, false);
+	}
+
+	/**
+	 * @param port
+	 * @param nonBlocking
+	 *            if the connections should be served by the shared selector
+	 *            thread
+	 * @since 5.0
+	 */
+	public DbgpService(int port, boolean nonBlocking) {
+		this.nonBlocking = nonBlocking;
 		if (port == DLTKDebugPreferenceConstants.DBGP_AVAILABLE_PORT) {
 			port = DbgpServer.findAvailablePort(FROM_PORT, TO_PORT);
 		}
@@ -9,6 +9,7 @@ public class Messages extends NLS {
 	public static String ScriptStackFrame_globalVariables;
 	public static String ScriptStackFrame_stackFrame;
 	public static String ScriptStackFrame_unableToLoadVariables;
+	public static String ScriptThread_prefetchVariables;
 	public static String ScriptValue_detailFormatterRequiredToContainIdentifier;
 	public static String ScriptValue_unableToLoadChildrenOf;
 	public static String ScriptVariable_cantAssignVariable;
@@ -8,6 +8,7 @@
 package org.eclipse.dltk.internal.debug.core.model;
 
 import java.net.URI;
+import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.Map;
 
@@ -27,10 +28,10 @@ import org.eclipse.dltk.core.DLTKCore;
 import org.eclipse.dltk.dbgp.IDbgpSession;
 import org.eclipse.dltk.dbgp.IDbgpSpawnpoint;
 import org.eclipse.dltk.dbgp.breakpoints.DbgpBreakpointConfig;
-import org.eclipse.dltk.dbgp.commands.IDbgpBreakpointCommands;
-import org.eclipse.dltk.dbgp.commands.IDbgpCoreCommands;
 import org.eclipse.dltk.dbgp.commands.IDbgpSpawnpointCommands;
 import org.eclipse.dltk.dbgp.exceptions.DbgpException;
+import org.eclipse.dltk.dbgp.internal.commands.DbgpBreakpointCommands;
+import org.eclipse.dltk.dbgp.internal.commands.DbgpRequestBatch;
 import org.eclipse.dltk.debug.core.DLTKDebugPlugin;
 import org.eclipse.dltk.debug.core.DebugOption;
 import org.eclipse.dltk.debug.core.IDLTKDebugToolkit;
@@ -44,6 +45,7 @@ import org.eclipse.dltk.debug.core.model.IScriptMethodEntryBreakpoint;
 import org.eclipse.dltk.debug.core.model.IScriptSpawnpoint;
 import org.eclipse.dltk.debug.core.model.IScriptWatchpoint;
 import org.eclipse.osgi.util.NLS;
+import org.w3c.dom.Element;
 
 public class ScriptBreakpointManager implements IBreakpointListener,
 		IBreakpointManagerListener {
@@ -99,13 +101,131 @@ public class ScriptBreakpointManager implements IBreakpointListener,
 		}
 	}
 
+	/**
+	 * The breakpoint configurations last sent to each session keyed by the
+	 * DBGP breakpoint id, so the breakpoints which effectively did not change
+	 * are not updated again.
+	 */
+	private final Map<IDbgpSession, Map<String, DbgpBreakpointConfig>> sentConfigs = new IdentityHashMap<IDbgpSession, Map<String, DbgpBreakpointConfig>>();
+
+	private boolean isConfigSent(IDbgpSession session, String id,
+			DbgpBreakpointConfig config) {
+		synchronized (sentConfigs) {
+			final Map<String, DbgpBreakpointConfig> configs = sentConfigs
+					.get(session);
+			return configs != null && config.equals(configs.get(id));
+		}
+	}
+
+	private void configSent(IDbgpSession session, String id,
+			DbgpBreakpointConfig config) {
+		if (id == null || id.length() == 0) {
+			return;
+		}
+		synchronized (sentConfigs) {
+			Map<String, DbgpBreakpointConfig> configs = sentConfigs
+					.get(session);
+			if (configs == null) {
+				configs = new HashMap<String, DbgpBreakpointConfig>();
+				sentConfigs.put(session, configs);
+			}
+			configs.put(id, config);
+		}
+	}
+
+	private void configRemoved(IDbgpSession session, String id) {
+		synchronized (sentConfigs) {
+			final Map<String, DbgpBreakpointConfig> configs = sentConfigs
+					.get(session);
+			if (configs != null) {
+				configs.remove(id);
+			}
+		}
+	}
+
+	private static final int ID_NONE = 0;
+	private static final int ID_BREAKPOINT = 1;
+	private static final int ID_ENTRY = 2;
+	private static final int ID_EXIT = 3;
+
+	/**
+	 * Handles the response to the <code>breakpoint_set</code> or
+	 * <code>breakpoint_update</code> request sent as the part of the batch:
+	 * stores the id of the new breakpoint and remembers the configuration
+	 * sent.
+	 */
+	private class BreakpointResponseHandler implements
+			DbgpRequestBatch.IResponseHandler {
+		private final IDbgpSession session;
+		private final IScriptBreakpoint breakpoint;
+		private final int kind;
+		private final String id;
+		private final DbgpBreakpointConfig config;
+
+		BreakpointResponseHandler(IDbgpSession session,
+				IScriptBreakpoint breakpoint, int kind, String id,
+				DbgpBreakpointConfig config) {
+			this.session = session;
+			this.breakpoint = breakpoint;
+			this.kind = kind;
+			this.id = id;
+			this.config = config;
+		}
+
+		public void responseReceived(Element response) throws CoreException {
+			String breakpointId = id;
+			if (kind != ID_NONE) {
+				breakpointId = DbgpBreakpointCommands
+						.parseBreakpointId(response);
+				if (kind == ID_ENTRY) {
+					((IScriptMethodEntryBreakpoint) breakpoint)
+							.setEntryBreakpointId(breakpointId);
+				} else if (kind == ID_EXIT) {
+					((IScriptMethodEntryBreakpoint) breakpoint)
+							.setExitBreakpointId(breakpointId);
+				} else {
+					breakpoint.setId(session, breakpointId);
+				}
+			}
+			configSent(session, breakpointId, config);
+		}
+
+		public void requestFailed(Exception e) {
+			DLTKDebugPlugin.log(e);
+		}
+	}
+
+	private DbgpRequestBatch createBatch(IDbgpSession session) {
+		return new DbgpRequestBatch(session.getCommunicator());
+	}
+
+	/**
+	 * Executes the breakpoint requests collected for the session
+	 */
+	private void execute(IDbgpSession session, DbgpRequestBatch batch) {
+		if (batch.isEmpty()) {
+			return;
+		}
+		final long startTime = DLTKCore.DEBUG ? System.currentTimeMillis() : 0;
+		final int size = batch.size();
+		try {
+			batch.execute();
+		} catch (DbgpException e) {
+			DLTKDebugPlugin.log(e);
+		}
+		if (DLTKCore.DEBUG) {
+			System.out.println("Breakpoints: " + size + " requests to " //$NON-NLS-1$ //$NON-NLS-2$
+					+ session + " in " //$NON-NLS-1$
+					+ (System.currentTimeMillis() - startTime) + " ms"); //$NON-NLS-1$
+		}
+	}
+
 	// Adding, removing, updating
-	protected void addBreakpoint(final IDbgpSession session,
-			IScriptBreakpoint breakpoint) throws CoreException, DbgpException {
-		final IDbgpCoreCommands commands = session.getCoreCommands();
+	protected void addBreakpoint(DbgpRequestBatch batch,
+			final IDbgpSession session, IScriptBreakpoint breakpoint)
+			throws CoreException {
 		DbgpBreakpointConfig config = createBreakpointConfig(breakpoint);
 
-		String id = null;
 		URI bpUri = null;
 
 		// map the outgoing uri if we're a line breakpoint
@@ -119,42 +239,51 @@ public class ScriptBreakpointManager implements IBreakpointListener,
 			IScriptWatchpoint watchpoint = (IScriptWatchpoint) breakpoint;
 			config.setExpression(makeWatchpointExpression(watchpoint));
 
-			id = commands.setWatchBreakpoint(bpUri, watchpoint.getLineNumber(),
-					config);
+			batch.add(DbgpBreakpointCommands.createSetRequest(
+					DbgpBreakpointCommands.WATCH_BREAKPOINT, bpUri,
+					new Integer(watchpoint.getLineNumber()), null, null,
+					config), new BreakpointResponseHandler(session,
+					breakpoint, ID_BREAKPOINT, null, config));
 		} else if (breakpoint instanceof IScriptMethodEntryBreakpoint) {
 			IScriptMethodEntryBreakpoint entryBreakpoint = (IScriptMethodEntryBreakpoint) breakpoint;
 
 			if (entryBreakpoint.breakOnExit()) {
-				final String exitId = commands.setReturnBreakpoint(bpUri,
-						entryBreakpoint.getMethodName(), config);
-
-				entryBreakpoint.setExitBreakpointId(exitId);
+				batch.add(DbgpBreakpointCommands.createSetRequest(
+						DbgpBreakpointCommands.RETURN_BREAKPOINT, bpUri, null,
+						entryBreakpoint.getMethodName(), null, config),
+						new BreakpointResponseHandler(session, breakpoint,
+								ID_EXIT, null, config));
 			}
 
 			if (entryBreakpoint.breakOnEntry()) {
-				final String entryId = commands.setCallBreakpoint(bpUri,
-						entryBreakpoint.getMethodName(), config);
-
-				entryBreakpoint.setEntryBreakpointId(entryId);
+				batch.add(DbgpBreakpointCommands.createSetRequest(
+						DbgpBreakpointCommands.CALL_BREAKPOINT, bpUri, null,
+						entryBreakpoint.getMethodName(), null, config),
+						new BreakpointResponseHandler(session, breakpoint,
+								ID_ENTRY, null, config));
 			}
+
+			breakpoint.setId(session, null);
 		} else if (breakpoint instanceof IScriptLineBreakpoint) {
 			IScriptLineBreakpoint lineBreakpoint = (IScriptLineBreakpoint) breakpoint;
 
-			if (ScriptBreakpointUtils.isConditional(lineBreakpoint)) {
-				id = commands.setConditionalBreakpoint(bpUri,
-						lineBreakpoint.getLineNumber(), config);
-			} else {
-				id = commands.setLineBreakpoint(bpUri,
-						lineBreakpoint.getLineNumber(), config);
-			}
+			final String type = ScriptBreakpointUtils
+					.isConditional(lineBreakpoint) ? DbgpBreakpointCommands.CONDITIONAL_BREAKPOINT
+					: DbgpBreakpointCommands.LINE_BREAKPOINT;
+			batch.add(DbgpBreakpointCommands.createSetRequest(type, bpUri,
+					new Integer(lineBreakpoint.getLineNumber()), null, null,
+					config), new BreakpointResponseHandler(session,
+					breakpoint, ID_BREAKPOINT, null, config));
 		} else if (breakpoint instanceof IScriptExceptionBreakpoint) {
 			IScriptExceptionBreakpoint lineBreakpoint = (IScriptExceptionBreakpoint) breakpoint;
-			id = commands.setExceptionBreakpoint(lineBreakpoint.getTypeName(),
-					config);
+			batch.add(DbgpBreakpointCommands.createSetRequest(
+					DbgpBreakpointCommands.EXCEPTION_BREAKPOINT, null, null,
+					null, lineBreakpoint.getTypeName(), config),
+					new BreakpointResponseHandler(session, breakpoint,
+							ID_BREAKPOINT, null, config));
+		} else {
+			breakpoint.setId(session, null);
 		}
-
-		// Identifier
-		breakpoint.setId(session, id);
 	}
 
 	private void addSpawnpoint(final IDbgpSession session,
@@ -169,9 +298,9 @@ public class ScriptBreakpointManager implements IBreakpointListener,
 		}
 	}
 
-	protected void changeBreakpoint(final IDbgpSession session,
-			IScriptBreakpoint breakpoint) throws DbgpException, CoreException {
-		final IDbgpBreakpointCommands commands = session.getCoreCommands();
+	protected void changeBreakpoint(DbgpRequestBatch batch,
+			final IDbgpSession session, IScriptBreakpoint breakpoint)
+			throws CoreException {
 		URI bpUri = null;
 
 		// map the outgoing uri if we're a line breakpoint
@@ -188,17 +317,19 @@ public class ScriptBreakpointManager implements IBreakpointListener,
 			if (entryBreakpoint.breakOnEntry()) {
 				if (entryId == null) {
 					// Create entry breakpoint
-					entryId = commands.setCallBreakpoint(bpUri,
-							entryBreakpoint.getMethodName(), config);
-					entryBreakpoint.setEntryBreakpointId(entryId);
+					batch.add(DbgpBreakpointCommands.createSetRequest(
+							DbgpBreakpointCommands.CALL_BREAKPOINT, bpUri,
+							null, entryBreakpoint.getMethodName(), null,
+							config), new BreakpointResponseHandler(session,
+							breakpoint, ID_ENTRY, null, config));
 				} else {
 					// Update entry breakpoint
-					commands.updateBreakpoint(entryId, config);
+					updateBreakpoint(batch, session, entryId, config);
 				}
 			} else {
 				if (entryId != null) {
 					// Remove existing entry breakpoint
-					commands.removeBreakpoint(entryId);
+					removeBreakpoint(batch, session, entryId);
 					entryBreakpoint.setEntryBreakpointId(null);
 				}
 			}
@@ -207,17 +338,19 @@ public class ScriptBreakpointManager implements IBreakpointListener,
 			if (entryBreakpoint.breakOnExit()) {
 				if (exitId == null) {
 					// Create exit breakpoint
-					exitId = commands.setReturnBreakpoint(bpUri,
-							entryBreakpoint.getMethodName(), config);
-					entryBreakpoint.setExitBreakpointId(exitId);
+					batch.add(DbgpBreakpointCommands.createSetRequest(
+							DbgpBreakpointCommands.RETURN_BREAKPOINT, bpUri,
+							null, entryBreakpoint.getMethodName(), null,
+							config), new BreakpointResponseHandler(session,
+							breakpoint, ID_EXIT, null, config));
 				} else {
 					// Update exit breakpoint
-					commands.updateBreakpoint(exitId, config);
+					updateBreakpoint(batch, session, exitId, config);
 				}
 			} else {
 				if (exitId != null) {
 					// Remove exit breakpoint
-					commands.removeBreakpoint(exitId);
+					removeBreakpoint(batch, session, exitId);
 					entryBreakpoint.setExitBreakpointId(null);
 				}
 			}
@@ -229,17 +362,35 @@ public class ScriptBreakpointManager implements IBreakpointListener,
 				if (breakpoint instanceof IScriptWatchpoint) {
 					config.setExpression(makeWatchpointExpression((IScriptWatchpoint) breakpoint));
 				}
-				commands.updateBreakpoint(id, config);
+				updateBreakpoint(batch, session, id, config);
 			}
 		}
 	}
 
-	protected static void removeBreakpoint(IDbgpSession session,
-			IScriptBreakpoint breakpoint) throws DbgpException, CoreException {
-		final IDbgpBreakpointCommands commands = session.getCoreCommands();
+	/**
+	 * Updates the breakpoint unless the same configuration was already sent
+	 */
+	private void updateBreakpoint(DbgpRequestBatch batch,
+			IDbgpSession session, String id, DbgpBreakpointConfig config) {
+		if (!isConfigSent(session, id, config)) {
+			batch.add(DbgpBreakpointCommands.createUpdateRequest(id, config),
+					new BreakpointResponseHandler(session, null, ID_NONE, id,
+							config));
+		}
+	}
+
+	private void removeBreakpoint(DbgpRequestBatch batch,
+			IDbgpSession session, String id) {
+		configRemoved(session, id);
+		batch.add(DbgpBreakpointCommands.createRemoveRequest(id), null);
+	}
+
+	protected void removeBreakpoint(DbgpRequestBatch batch,
+			IDbgpSession session, IScriptBreakpoint breakpoint)
+			throws CoreException {
 		final String id = breakpoint.removeId(session);
 		if (id != null) {
-			commands.removeBreakpoint(id);
+			removeBreakpoint(batch, session, id);
 		}
 
 		if (breakpoint instanceof IScriptMethodEntryBreakpoint) {
@@ -247,12 +398,12 @@ public class ScriptBreakpointManager implements IBreakpointListener,
 
 			final String entryId = entryBreakpoint.getEntryBreakpointId();
 			if (entryId != null) {
-				commands.removeBreakpoint(entryId);
+				removeBreakpoint(batch, session, entryId);
 			}
 
 			final String exitId = entryBreakpoint.getExitBreakpointId();
 			if (exitId != null) {
-				commands.removeBreakpoint(exitId);
+				removeBreakpoint(batch, session, exitId);
 			}
 		}
 	}
@@ -443,6 +594,9 @@ public class ScriptBreakpointManager implements IBreakpointListener,
 					}
 					sessions = temp;
 				}
+				synchronized (sentConfigs) {
+					sentConfigs.remove(session);
+				}
 				return true;
 			}
 		}
@@ -455,15 +609,16 @@ public class ScriptBreakpointManager implements IBreakpointListener,
 		}
 		IBreakpoint[] breakpoints = getBreakpointManager().getBreakpoints(
 				target.getModelIdentifier());
-		monitor.beginTask(Util.EMPTY_STRING, breakpoints.length);
+		monitor.beginTask(Util.EMPTY_STRING, breakpoints.length + 1);
 
+		final DbgpRequestBatch batch = createBatch(session);
 		for (int i = 0; i < breakpoints.length; i++) {
 			try {
 				final IBreakpoint breakpoint = breakpoints[i];
 				if (breakpoint instanceof IScriptSpawnpoint) {
 					addSpawnpoint(session, (IScriptSpawnpoint) breakpoint);
 				} else {
-					addBreakpoint(session, (IScriptBreakpoint) breakpoint);
+					addBreakpoint(batch, session, (IScriptBreakpoint) breakpoint);
 				}
 			} catch (Exception e) {
 				DLTKDebugPlugin.logWarning(
@@ -475,6 +630,8 @@ public class ScriptBreakpointManager implements IBreakpointListener,
 			}
 			monitor.worked(1);
 		}
+		execute(session, batch);
+		monitor.worked(1);
 		threadAccepted();
 		monitor.done();
 	}
@@ -549,17 +706,20 @@ public class ScriptBreakpointManager implements IBreakpointListener,
 		if (!supportsBreakpoint(breakpoint)) {
 			return;
 		}
-		try {
-			final IDbgpSession[] sessions = getSessions();
-			for (int i = 0; i < sessions.length; ++i) {
+		final IDbgpSession[] sessions = getSessions();
+		for (int i = 0; i < sessions.length; ++i) {
+			final DbgpRequestBatch batch = createBatch(sessions[i]);
+			try {
 				if (breakpoint instanceof IScriptSpawnpoint) {
 					addSpawnpoint(sessions[i], (IScriptSpawnpoint) breakpoint);
 				} else {
-					addBreakpoint(sessions[i], (IScriptBreakpoint) breakpoint);
+					addBreakpoint(batch, sessions[i],
+							(IScriptBreakpoint) breakpoint);
 				}
+			} catch (Exception e) {
+				DLTKDebugPlugin.log(e);
 			}
-		} catch (Exception e) {
-			DLTKDebugPlugin.log(e);
+			execute(sessions[i], batch);
 		}
 	}
 
@@ -601,15 +761,15 @@ public class ScriptBreakpointManager implements IBreakpointListener,
 						sbp) : MAJOR_CHANGE;
 				if (changes != NO_CHANGES) {
 					final IDbgpSession[] sessions = getSessions();
-					if (changes == MAJOR_CHANGE) {
-						for (int i = 0; i < sessions.length; ++i) {
-							removeBreakpoint(sessions[i], sbp);
-							addBreakpoint(sessions[i], sbp);
-						}
-					} else {
-						for (int i = 0; i < sessions.length; ++i) {
-							changeBreakpoint(sessions[i], sbp);
+					for (int i = 0; i < sessions.length; ++i) {
+						final DbgpRequestBatch batch = createBatch(sessions[i]);
+						if (changes == MAJOR_CHANGE) {
+							removeBreakpoint(batch, sessions[i], sbp);
+							addBreakpoint(batch, sessions[i], sbp);
+						} else {
+							changeBreakpoint(batch, sessions[i], sbp);
 						}
+						execute(sessions[i], batch);
 					}
 				}
 			}
@@ -631,8 +791,10 @@ public class ScriptBreakpointManager implements IBreakpointListener,
 				}
 			} else {
 				for (int i = 0; i < sessions.length; ++i) {
-					removeBreakpoint(sessions[i],
+					final DbgpRequestBatch batch = createBatch(sessions[i]);
+					removeBreakpoint(batch, sessions[i],
 							(IScriptBreakpoint) breakpoint);
+					execute(sessions[i], batch);
 				}
 			}
 		} catch (Exception e) {
@@ -646,23 +808,24 @@ public class ScriptBreakpointManager implements IBreakpointListener,
 				target.getModelIdentifier());
 
 		final IDbgpSession[] sessions = getSessions();
-		for (int i = 0; i < breakpoints.length; ++i) {
-			try {
-				final IBreakpoint breakpoint = breakpoints[i];
-				if (breakpoint instanceof IScriptSpawnpoint) {
-					for (int j = 0; j < sessions.length; ++j) {
+		for (int j = 0; j < sessions.length; ++j) {
+			// only the breakpoints which state actually changed are sent
+			final DbgpRequestBatch batch = createBatch(sessions[j]);
+			for (int i = 0; i < breakpoints.length; ++i) {
+				try {
+					final IBreakpoint breakpoint = breakpoints[i];
+					if (breakpoint instanceof IScriptSpawnpoint) {
 						changeSpawnpoint(sessions[j],
 								(IScriptSpawnpoint) breakpoint);
-					}
-				} else if (breakpoint instanceof IScriptBreakpoint) {
-					for (int j = 0; j < sessions.length; ++j) {
-						changeBreakpoint(sessions[j],
+					} else if (breakpoint instanceof IScriptBreakpoint) {
+						changeBreakpoint(batch, sessions[j],
 								(IScriptBreakpoint) breakpoint);
 					}
+				} catch (Exception e) {
+					DLTKDebugPlugin.log(e);
 				}
-			} catch (Exception e) {
-				DLTKDebugPlugin.log(e);
 			}
+			execute(sessions[j], batch);
 		}
 	}
 
@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.internal.debug.core.model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.dltk.dbgp.IDbgpProperty;
+import org.eclipse.dltk.dbgp.IDbgpSession;
+import org.eclipse.dltk.dbgp.exceptions.DbgpException;
+
+/**
+ * Caches the context properties and the property pages received from the
+ * debugging engine while the thread stays suspended, so the frames and values
+ * recreated by the views do not request them again. The cache is cleared when
+ * the thread is resumed or the values are modified.
+ * <p>
+ * The commands are executed without holding the lock of the cache, the
+ * results received after the cache was cleared are not stored.
+ * </p>
+ */
+public class ScriptPropertyCache {
+
+	private final IDbgpSession session;
+	private final Map<String, IDbgpProperty[]> contexts = new HashMap<String, IDbgpProperty[]>();
+	private final Map<String, IDbgpProperty> pages = new HashMap<String, IDbgpProperty>();
+	private int generation;
+
+	public ScriptPropertyCache(IDbgpSession session) {
+		this.session = session;
+	}
+
+	public IDbgpProperty[] getContextProperties(int level, int contextId)
+			throws DbgpException {
+		final String key = level + ":" + contextId; //$NON-NLS-1$
+		final int expectedGeneration;
+		synchronized (this) {
+			final IDbgpProperty[] properties = contexts.get(key);
+			if (properties != null) {
+				return properties;
+			}
+			expectedGeneration = generation;
+		}
+		final IDbgpProperty[] properties = session.getCoreCommands()
+				.getContextProperties(level, contextId);
+		synchronized (this) {
+			if (generation == expectedGeneration) {
+				contexts.put(key, properties);
+			}
+		}
+		return properties;
+	}
+
+	/**
+	 * Returns the specified page of the children of the property
+	 */
+	public IDbgpProperty getPropertyPage(int level, String fullName, int page)
+			throws DbgpException {
+		final String key = level + ":" + page + ":" + fullName; //$NON-NLS-1$ //$NON-NLS-2$
+		final int expectedGeneration;
+		synchronized (this) {
+			final IDbgpProperty property = pages.get(key);
+			if (property != null) {
+				return property;
+			}
+			expectedGeneration = generation;
+		}
+		final IDbgpProperty property = session.getCoreCommands().getProperty(
+				page, fullName, level);
+		synchronized (this) {
+			if (generation == expectedGeneration) {
+				pages.put(key, property);
+			}
+		}
+		return property;
+	}
+
+	public synchronized void clear() {
+		++generation;
+		contexts.clear();
+		pages.clear();
+	}
+}
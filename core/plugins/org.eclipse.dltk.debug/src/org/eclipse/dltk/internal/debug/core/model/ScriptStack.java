@@ -83,6 +83,7 @@ public class ScriptStack implements IScriptStack {
 	}
 
 	public void updateFrames() {
+		thread.getPropertyCache().clear();
 		synchronized (framesLock) {
 			for (int i = 0; i < frames.length; i++) {
 				((ScriptStackFrame) frames[i]).updateVariables();
@@ -55,8 +55,15 @@ public class ScriptStackFrame extends ScriptDebugElement implements
 			IDbgpContextCommands commands) throws DbgpException {
 
 		try {
-			IDbgpProperty[] properties = commands.getContextProperties(
-					parentFrame.getLevel(), contextId);
+			IDbgpProperty[] properties;
+			if (parentFrame.thread instanceof ScriptThread) {
+				properties = ((ScriptThread) parentFrame.thread)
+						.getPropertyCache().getContextProperties(
+								parentFrame.getLevel(), contextId);
+			} else {
+				properties = commands.getContextProperties(parentFrame
+						.getLevel(), contextId);
+			}
 
 			IScriptVariable[] variables = new IScriptVariable[properties.length];
 
@@ -357,17 +364,7 @@ public class ScriptStackFrame extends ScriptDebugElement implements
 
 	private synchronized void checkVariablesAvailable() throws DebugException {
 		try {
-			if (variables == null) {
-				variables = readAllVariables();
-
-				variables.sort(getDebugTarget());
-			} else if (needRefreshVariables) {
-				try {
-					refreshVariables();
-				} finally {
-					needRefreshVariables = false;
-				}
-			}
+			loadVariables();
 		} catch (DbgpException e) {
 			variables = new ScriptVariableContainer();
 			final Status status = new Status(IStatus.ERROR,
@@ -378,6 +375,42 @@ public class ScriptStackFrame extends ScriptDebugElement implements
 		}
 	}
 
+	private void loadVariables() throws DebugException, DbgpException {
+		if (variables == null) {
+			final ScriptVariableContainer newVars = readAllVariables();
+			newVars.sort(getDebugTarget());
+			variables = newVars;
+		} else if (needRefreshVariables) {
+			try {
+				refreshVariables();
+			} finally {
+				needRefreshVariables = false;
+			}
+		}
+	}
+
+	/**
+	 * Loads the variables in advance if the thread is still suspended. The
+	 * errors are ignored, so the variables are requested again when they are
+	 * actually needed.
+	 */
+	synchronized void prefetchVariables() {
+		if (!thread.isSuspended() || thread.isTerminated()) {
+			return;
+		}
+		try {
+			loadVariables();
+		} catch (DbgpException e) {
+			if (DLTKCore.DEBUG) {
+				e.printStackTrace();
+			}
+		} catch (DebugException e) {
+			if (DLTKCore.DEBUG) {
+				e.printStackTrace();
+			}
+		}
+	}
+
 	/**
 	 * @throws DebugException
 	 * @throws DbgpException
@@ -12,6 +12,9 @@ package org.eclipse.dltk.internal.debug.core.model;
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.debug.core.DebugEvent;
 import org.eclipse.debug.core.DebugException;
 import org.eclipse.debug.core.DebugPlugin;
@@ -48,6 +51,8 @@ public class ScriptThread extends ScriptDebugElement implements IScriptThread,
 
 	private final ScriptStack stack;
 
+	private final ScriptPropertyCache propertyCache;
+
 	// Session
 	private final IDbgpSession session;
 
@@ -67,16 +72,36 @@ public class ScriptThread extends ScriptDebugElement implements IScriptThread,
 		DebugEventHelper.fireExtendedEvent(this,
 				ExtendedDebugEventDetails.BEFORE_SUSPEND);
 
+		propertyCache.clear();
 		stack.update(true);
 
 		if (handleSmartStepInto()) {
 			return;
 		}
 
+		prefetchVariables();
 		DebugEventHelper.fireChangeEvent(this);
 		DebugEventHelper.fireSuspendEvent(this, detail);
 	}
 
+	/**
+	 * Loads the variables of the top frame in background, so they are ready
+	 * when the view asks for them.
+	 */
+	private void prefetchVariables() {
+		final IStackFrame frame = stack.getTopFrame();
+		if (frame instanceof ScriptStackFrame) {
+			final Job job = new Job(Messages.ScriptThread_prefetchVariables) {
+				protected IStatus run(IProgressMonitor monitor) {
+					((ScriptStackFrame) frame).prefetchVariables();
+					return Status.OK_STATUS;
+				}
+			};
+			job.setSystem(true);
+			job.schedule();
+		}
+	}
+
 	private boolean handleSmartStepInto() {
 		if (stateManager.isStepInto()
 				&& getScriptDebugTarget().isUseStepFilters()
@@ -107,6 +132,7 @@ public class ScriptThread extends ScriptDebugElement implements IScriptThread,
 	}
 
 	public void handleResume(int detail) {
+		propertyCache.clear();
 		DebugEventHelper.fireExtendedEvent(this,
 				ExtendedDebugEventDetails.BEFORE_RESUME);
 
@@ -160,6 +186,8 @@ public class ScriptThread extends ScriptDebugElement implements IScriptThread,
 
 		this.stateManager = new ScriptThreadStateManager(this);
 
+		this.propertyCache = new ScriptPropertyCache(session);
+
 		this.stack = new ScriptStack(this);
 	}
 
@@ -393,9 +421,18 @@ public class ScriptThread extends ScriptDebugElement implements IScriptThread,
 	}
 
 	public void notifyModified() {
+		propertyCache.clear();
 		stateManager.notifyModified();
 	}
 
+	/**
+	 * Returns the cache of the properties received while the thread is
+	 * suspended
+	 */
+	public ScriptPropertyCache getPropertyCache() {
+		return propertyCache;
+	}
+
 	public void hotCodeReplaceFailed(IScriptDebugTarget target,
 			DebugException exception) {
 		if (isSuspended()) {
@@ -95,10 +95,17 @@ public class ScriptValue extends ScriptDebugElement implements IScriptValue,
 	}
 
 	private void loadPage(int page) throws DbgpException {
-		IDbgpPropertyCommands commands = frame.getScriptThread()
-				.getDbgpSession().getCoreCommands();
-		IDbgpProperty pageProperty = commands.getProperty(page, fullname, frame
-				.getLevel());
+		final IScriptThread thread = frame.getScriptThread();
+		final IDbgpProperty pageProperty;
+		if (thread instanceof ScriptThread) {
+			pageProperty = ((ScriptThread) thread).getPropertyCache()
+					.getPropertyPage(frame.getLevel(), fullname, page);
+		} else {
+			IDbgpPropertyCommands commands = thread.getDbgpSession()
+					.getCoreCommands();
+			pageProperty = commands.getProperty(page, fullname, frame
+					.getLevel());
+		}
 		fillVariables(page, pageProperty);
 		final int endIndex = Math.min((page + 1) * pageSize, variables.length);
 		for (int i = page * pageSize; i < endIndex; ++i) {
@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.internal.testing.model;
+
+import org.eclipse.dltk.internal.testing.model.TestElement.Status;
+
+/**
+ * The constants of the binary test run history file, written by the
+ * {@link TestRunSessionWriter} and read by the {@link TestRunSessionReader}.
+ * <p>
+ * The file starts with the {@link #MAGIC} and the {@link #VERSION} followed
+ * by the records in the order of the test run events. Each record starts with
+ * its type:
+ * <ul>
+ * <li>{@link #RECORD_ELEMENT}: parent index (<code>-1</code> for the root),
+ * element kind, id, name and the expected children count. The elements are
+ * indexed in the order of their records, so the parent is always written
+ * before its children.</li>
+ * <li>{@link #RECORD_STATUS}: element index, status, flags, the new name if
+ * {@link #FLAG_RENAMED} is set and the trace, expected and actual values for
+ * the failures. The last status record of the element wins.</li>
+ * <li>{@link #RECORD_INDEX}: written when the file is complete, the
+ * indexes and offsets of the element records on the paths to the failed
+ * elements, parents first, and the offsets of the last status records of the
+ * failed elements.</li>
+ * </ul>
+ * The complete file ends with the offset of the index record and the
+ * {@link #MAGIC}. The strings are written as the length of their UTF-8 bytes
+ * followed by the bytes, <code>-1</code> stands for <code>null</code>.
+ * </p>
+ */
+public interface IBinaryTags {
+
+	public static final int MAGIC = 0x444C5452;
+	public static final int VERSION = 1;
+
+	public static final int RECORD_ELEMENT = 1;
+	public static final int RECORD_STATUS = 2;
+	public static final int RECORD_INDEX = 3;
+
+	public static final int ELEMENT_CATEGORY = 1;
+	public static final int ELEMENT_SUITE = 2;
+	public static final int ELEMENT_CASE = 3;
+
+	public static final int FLAG_IGNORED = 1;
+	public static final int FLAG_RENAMED = 2;
+
+	/**
+	 * The statuses, encoded by their position in this array
+	 */
+	public static final Status[] STATUSES = { Status.NOT_RUN, Status.RUNNING,
+			Status.RUNNING_ERROR, Status.RUNNING_FAILURE, Status.OK,
+			Status.ERROR, Status.FAILURE, Status.FAILURE_BLOCKED,
+			Status.FAILURE_SKIPPED, Status.FAILURE_UNKNOWN,
+			Status.FAILURE_ABORTED };
+
+}
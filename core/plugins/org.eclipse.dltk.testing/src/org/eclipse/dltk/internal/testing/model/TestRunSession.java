@@ -12,6 +12,7 @@
 package org.eclipse.dltk.internal.testing.model;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
@@ -86,6 +87,19 @@ public class TestRunSession implements ITestRunSession, ITestSession {
 	 */
 	private TestRoot fTestRoot;
 	
+	/**
+	 * The failed elements and their parents loaded from the swap file, or
+	 * <code>null</code>.
+	 */
+	private TestRoot fFailedTestRoot;
+	
+	/**
+	 * Writes the swap file while the test run is in progress, or
+	 * <code>null</code>. Volatile, since the test runner thread writes the
+	 * events while the UI thread could swap the session out.
+	 */
+	private volatile TestRunSessionWriter fSwapWriter;
+	
 	/**
 	 * The test run session's cached result, or <code>null</code> if <code>fTestRoot != null</code>.
 	 */
@@ -255,6 +269,7 @@ public class TestRunSession implements ITestRunSession, ITestSession {
 		fCreatedTestCaseCount=0;
 		
 		fTestRoot= new TestRoot(this);
+		fFailedTestRoot= null;
 		fTestResult= null;
 		fIdToTest = new HashMap<String, TestElement>();
 		fCategoryMap = new HashMap<String, TestCategoryElement>();
@@ -435,11 +450,16 @@ public class TestRunSession implements ITestRunSession, ITestSession {
 		}
 		
 		try {
-			File swapFile= getSwapFile();
-			
-			DLTKTestingModel.exportTestRunSession(this, swapFile);
+			TestRunSessionWriter swapWriter= fSwapWriter;
+			fSwapWriter= null;
+			if (swapWriter != null) {
+				swapWriter.finish();
+			} else {
+				TestRunSessionWriter.write(fTestRoot, getSwapFile());
+			}
 			fTestResult= fTestRoot.getTestResult(true);
 			fTestRoot= null;
+			fFailedTestRoot= null;
 			fTestRunnerClient= null;
 			fIdToTest = new HashMap<String, TestElement>();
 			fCategoryMap = new HashMap<String, TestCategoryElement>();
@@ -448,8 +468,9 @@ public class TestRunSession implements ITestRunSession, ITestSession {
 			
 		} catch (IllegalStateException e) {
 			DLTKTestingPlugin.log(e);
-		} catch (CoreException e) {
+		} catch (IOException e) {
 			DLTKTestingPlugin.log(e);
+			removeSwapFile();
 		}
 	}
 	
@@ -462,6 +483,7 @@ public class TestRunSession implements ITestRunSession, ITestSession {
 
 
 	public void removeSwapFile() {
+		discardSwapWriter();
 		File swapFile= getSwapFile();
 		if (swapFile.exists())
 			swapFile.delete();
@@ -470,7 +492,7 @@ public class TestRunSession implements ITestRunSession, ITestSession {
 	private File getSwapFile() throws IllegalStateException {
 		File historyDir= DLTKTestingPlugin.getHistoryDirectory();
 		String isoTime= new SimpleDateFormat("yyyyMMdd-HHmmss.SSS").format(new Date(getStartTime())); //$NON-NLS-1$
-		String swapFileName= isoTime + ".xml"; //$NON-NLS-1$
+		String swapFileName= isoTime + ".bin"; //$NON-NLS-1$
 		return new File(historyDir, swapFileName);
 	}
 
@@ -479,16 +501,101 @@ public class TestRunSession implements ITestRunSession, ITestSession {
 		if (fTestRoot != null)
 			return;
 
+		TestRoot testRoot= new TestRoot(this);
+		Map<String, TestElement> idToTest= new HashMap<String, TestElement>();
+		try {
+			TestRunSessionReader.read(getSwapFile(), testRoot, idToTest);
+		} catch (IllegalStateException e) {
+			DLTKTestingPlugin.log(e);
+			testRoot= new TestRoot(this);
+			idToTest.clear();
+		} catch (IOException e) {
+			DLTKTestingPlugin.log(e);
+			testRoot= new TestRoot(this);
+			idToTest.clear();
+		}
+		fTestRoot= testRoot;
+		fFailedTestRoot= null;
+		fTestResult= null;
+		fIdToTest= idToTest;
+	}
+
+	/**
+	 * Returns the tree containing only the failed elements and their parents.
+	 * If the session is swapped out, only these elements are loaded from the
+	 * swap file, the complete tree is not swapped in.
+	 * 
+	 * @return the root of the failed elements, or the complete tree if the
+	 *         session is not swapped out
+	 */
+	public TestRoot getFailedTestRoot() {
+		TestRoot testRoot= fTestRoot;
+		if (testRoot != null)
+			return testRoot;
+		if (fFailedTestRoot == null) {
+			TestRoot failedTestRoot= new TestRoot(this);
+			try {
+				if (! TestRunSessionReader.readFailures(getSwapFile(), failedTestRoot))
+					return getTestRoot();
+			} catch (IllegalStateException e) {
+				DLTKTestingPlugin.log(e);
+				return getTestRoot();
+			} catch (IOException e) {
+				DLTKTestingPlugin.log(e);
+				return getTestRoot();
+			}
+			fFailedTestRoot= failedTestRoot;
+		}
+		return fFailedTestRoot;
+	}
+
+	private void openSwapWriter() {
+		discardSwapWriter();
 		try {
-			DLTKTestingModel.importIntoTestRunSession(getSwapFile(), this);
+			TestRunSessionWriter swapWriter= new TestRunSessionWriter(getSwapFile(), fTestRoot);
+			fSwapWriter= swapWriter;
+			swapWriter.addTree(fTestRoot);
 		} catch (IllegalStateException e) {
 			DLTKTestingPlugin.log(e);
-			fTestRoot= new TestRoot(this);
-			fTestResult= null;
-		} catch (CoreException e) {
+			discardSwapWriter();
+		} catch (IOException e) {
 			DLTKTestingPlugin.log(e);
-			fTestRoot= new TestRoot(this);
-			fTestResult= null;
+			discardSwapWriter();
+		}
+	}
+
+	private void discardSwapWriter() {
+		TestRunSessionWriter swapWriter= fSwapWriter;
+		fSwapWriter= null;
+		if (swapWriter != null)
+			swapWriter.abort();
+	}
+
+	/**
+	 * Appends the new element to the swap file, if the swap file fails it is
+	 * discarded and the whole tree is written on {@link #swapOut()}.
+	 */
+	private void storeElement(TestElement testElement, int testCount) {
+		TestRunSessionWriter swapWriter= fSwapWriter;
+		if (swapWriter != null) {
+			try {
+				swapWriter.elementAdded(testElement, testCount);
+			} catch (IOException e) {
+				DLTKTestingPlugin.log(e);
+				discardSwapWriter();
+			}
+		}
+	}
+
+	private void storeStatus(TestElement testElement) {
+		TestRunSessionWriter swapWriter= fSwapWriter;
+		if (swapWriter != null) {
+			try {
+				swapWriter.statusChanged(testElement);
+			} catch (IOException e) {
+				DLTKTestingPlugin.log(e);
+				discardSwapWriter();
+			}
 		}
 	}
 
@@ -592,6 +699,7 @@ public class TestRunSession implements ITestRunSession, ITestSession {
 						categoryElement = new TestCategoryElement(fTestRoot,
 								descriptor.getId(), descriptor.getName());
 						fCategoryMap.put(descriptor.getId(), categoryElement);
+						storeElement(categoryElement, 0);
 					}
 					return categoryElement;
 				}
@@ -649,6 +757,7 @@ public class TestRunSession implements ITestRunSession, ITestSession {
 			adjustTotalCount(fCreatedTestCaseCount);
 		}
 		fIdToTest.put(id, testElement);
+		storeElement(testElement, testCount);
 		return testElement;
 	}
 	
@@ -700,6 +809,7 @@ public class TestRunSession implements ITestRunSession, ITestSession {
 			
 			fStartTime= System.currentTimeMillis();
 			fIsRunning= true;
+			openSwapWriter();
 			
 			Object[] listeners= fSessionListeners.getListeners();
 			for (int i= 0; i < listeners.length; ++i) {
@@ -812,10 +922,14 @@ public class TestRunSession implements ITestRunSession, ITestSession {
 			} else if (testName.length() != 0
 					&& !testName.equals(testCaseElement.getTestName())) {
 				testCaseElement.setTestName(testName);
+				TestRunSessionWriter swapWriter= fSwapWriter;
+				if (swapWriter != null)
+					swapWriter.elementRenamed(testCaseElement);
 			}
 
 			if (testCaseElement.getStatus() == Status.RUNNING)
 				setStatus(testCaseElement, Status.OK);
+			storeStatus(testCaseElement);
 			
 			Object[] listeners= fSessionListeners.getListeners();
 			for (int i= 0; i < listeners.length; ++i) {
@@ -840,6 +954,7 @@ public class TestRunSession implements ITestRunSession, ITestSession {
 
 			Status status= Status.convert(statusCode, code);
 			registerTestFailureStatus(testElement, status, trace, nullifyEmpty(expected), nullifyEmpty(actual));
+			storeStatus(testElement);
 			
 			Object[] listeners= fSessionListeners.getListeners();
 			for (int i= 0; i < listeners.length; ++i) {
@@ -877,6 +992,7 @@ public class TestRunSession implements ITestRunSession, ITestSession {
 			
 			Status status= Status.convert(statusCode, ITestingClient.PASSED);
 			registerTestFailureStatus(testElement, status, trace, nullifyEmpty(expectedResult), nullifyEmpty(actualResult));
+			storeStatus(testElement);
 			
 			Object[] listeners= fSessionListeners.getListeners();
 			for (int i= 0; i < listeners.length; ++i) {
@@ -942,7 +1058,7 @@ public class TestRunSession implements ITestRunSession, ITestSession {
 	
 	public ITestElement[] getFailedTestElements(ITestElementPredicate predicate) {
 		List<ITestElement> failures = new ArrayList<ITestElement>();
-		addFailures(failures, getTestRoot(), predicate);
+		addFailures(failures, getFailedTestRoot(), predicate);
 		return failures.toArray(new TestElement[failures.size()]);
 	}
 
@@ -0,0 +1,313 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.internal.testing.model;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.dltk.internal.testing.model.TestElement.Status;
+
+/**
+ * Restores the test run session tree from the binary history file written by
+ * the {@link TestRunSessionWriter}. The file format is described in
+ * {@link IBinaryTags}.
+ */
+public class TestRunSessionReader implements IBinaryTags {
+
+	private static final String UTF_8 = "UTF-8"; //$NON-NLS-1$
+
+	private TestRunSessionReader() {
+		// static methods only
+	}
+
+	/**
+	 * Reads the complete tree. The file which was not finished is read up to
+	 * its last complete record.
+	 *
+	 * @param file
+	 *            the history file
+	 * @param root
+	 *            the empty root to add the elements to
+	 * @param idToTest
+	 *            the map to register the elements in by their ids
+	 * @throws IOException
+	 */
+	public static void read(File file, TestRoot root,
+			Map<String, TestElement> idToTest) throws IOException {
+		final DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(file)));
+		try {
+			readHeader(in);
+			final List<TestElement> elements = new ArrayList<TestElement>();
+			for (;;) {
+				final int record = in.read();
+				if (record < 0 || record == RECORD_INDEX) {
+					break;
+				} else if (record == RECORD_ELEMENT) {
+					final TestElement element = readElement(in, root, elements);
+					elements.add(element);
+					idToTest.put(element.getId(), element);
+				} else if (record == RECORD_STATUS) {
+					readStatus(in, elements);
+				} else {
+					throw new IOException("Unknown record " + record); //$NON-NLS-1$
+				}
+			}
+		} catch (EOFException e) {
+			// the test run was not finished
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Reads only the failed elements and their parents using the index. The
+	 * index is read at once, then the indexed records are read in the file
+	 * order in a single buffered pass.
+	 *
+	 * @param file
+	 *            the history file
+	 * @param root
+	 *            the empty root to add the elements to
+	 * @return <code>false</code> if the file has no index, the root is left
+	 *         empty then
+	 * @throws IOException
+	 */
+	public static boolean readFailures(File file, TestRoot root)
+			throws IOException {
+		final DataInput index = readIndex(file);
+		if (index == null) {
+			return false;
+		}
+		final int elementCount = index.readInt();
+		final int[] elementIndexes = new int[elementCount];
+		final int[] elementOffsets = new int[elementCount];
+		for (int i = 0; i < elementCount; ++i) {
+			elementIndexes[i] = index.readInt();
+			elementOffsets[i] = index.readInt();
+		}
+		final int[] statusOffsets = new int[index.readInt()];
+		for (int i = 0; i < statusOffsets.length; ++i) {
+			statusOffsets[i] = index.readInt();
+		}
+		// the element offsets grow with the indexes, the status record of the
+		// element always follows its element record
+		Arrays.sort(statusOffsets);
+		final PositionInputStream stream = new PositionInputStream(
+				new BufferedInputStream(new FileInputStream(file)));
+		final DataInputStream in = new DataInputStream(stream);
+		try {
+			final Map<Integer, TestElement> elements = new HashMap<Integer, TestElement>();
+			int nextElement = 0;
+			int nextStatus = 0;
+			while (nextElement < elementCount
+					|| nextStatus < statusOffsets.length) {
+				if (nextElement < elementCount
+						&& (nextStatus == statusOffsets.length || elementOffsets[nextElement] < statusOffsets[nextStatus])) {
+					stream.seek(elementOffsets[nextElement]);
+					if (in.readByte() != RECORD_ELEMENT) {
+						throw new IOException("Invalid index"); //$NON-NLS-1$
+					}
+					final int parentIndex = in.readInt();
+					final TestContainerElement parent = parentIndex < 0 ? root
+							: (TestContainerElement) elements.get(Integer
+									.valueOf(parentIndex));
+					elements.put(Integer.valueOf(elementIndexes[nextElement]),
+							createElement(in, parent));
+					++nextElement;
+				} else {
+					stream.seek(statusOffsets[nextStatus]);
+					if (in.readByte() != RECORD_STATUS) {
+						throw new IOException("Invalid index"); //$NON-NLS-1$
+					}
+					final TestElement element = elements.get(Integer
+							.valueOf(in.readInt()));
+					if (element != null) {
+						applyStatus(in, element);
+					}
+					++nextStatus;
+				}
+			}
+			return true;
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Returns the contents of the index record after its type or
+	 * <code>null</code> if the file is not complete.
+	 */
+	private static DataInput readIndex(File file) throws IOException {
+		final RandomAccessFile in = new RandomAccessFile(file, "r"); //$NON-NLS-1$
+		try {
+			readHeader(in);
+			final long length = in.length();
+			if (length < 8 + 8) {
+				return null;
+			}
+			in.seek(length - 8);
+			final int indexOffset = in.readInt();
+			if (in.readInt() != MAGIC || indexOffset < 8
+					|| indexOffset >= length - 8) {
+				return null;
+			}
+			final byte[] index = new byte[(int) (length - 8 - indexOffset)];
+			in.seek(indexOffset);
+			in.readFully(index);
+			if (index[0] != RECORD_INDEX) {
+				return null;
+			}
+			return new DataInputStream(new ByteArrayInputStream(index, 1,
+					index.length - 1));
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Tracks the position in the file, so the buffered stream could skip
+	 * forward to the records.
+	 */
+	private static class PositionInputStream extends FilterInputStream {
+		private long position = 0;
+
+		PositionInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			final int b = super.read();
+			if (b >= 0) {
+				++position;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			final int count = super.read(b, off, len);
+			if (count > 0) {
+				position += count;
+			}
+			return count;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			final long count = super.skip(n);
+			position += count;
+			return count;
+		}
+
+		void seek(long offset) throws IOException {
+			if (offset < position) {
+				throw new IOException("Invalid index"); //$NON-NLS-1$
+			}
+			while (position < offset) {
+				if (skip(offset - position) <= 0) {
+					if (read() < 0) {
+						throw new EOFException();
+					}
+				}
+			}
+		}
+	}
+
+	private static void readHeader(DataInput in) throws IOException {
+		if (in.readInt() != MAGIC) {
+			throw new IOException("Not a test run history file"); //$NON-NLS-1$
+		}
+		final int version = in.readInt();
+		if (version != VERSION) {
+			throw new IOException("Unsupported version " + version); //$NON-NLS-1$
+		}
+	}
+
+	private static TestElement readElement(DataInput in, TestRoot root,
+			List<TestElement> elements) throws IOException {
+		final int parentIndex = in.readInt();
+		final TestContainerElement parent = parentIndex < 0 ? root
+				: (TestContainerElement) elements.get(parentIndex);
+		return createElement(in, parent);
+	}
+
+	private static TestElement createElement(DataInput in,
+			TestContainerElement parent) throws IOException {
+		final int kind = in.readByte();
+		final String id = readString(in);
+		final String name = readString(in);
+		final int testCount = in.readInt();
+		if (kind == ELEMENT_CATEGORY) {
+			return new TestCategoryElement(parent, id, name);
+		} else if (kind == ELEMENT_SUITE) {
+			return new TestSuiteElement(parent, id, name, testCount);
+		} else {
+			return new TestCaseElement(parent, id, name);
+		}
+	}
+
+	private static void readStatus(DataInput in, List<TestElement> elements)
+			throws IOException {
+		final TestElement element = elements.get(in.readInt());
+		applyStatus(in, element);
+	}
+
+	private static void applyStatus(DataInput in, TestElement element)
+			throws IOException {
+		final int code = in.readByte();
+		final Status status = code >= 0 && code < STATUSES.length ? STATUSES[code]
+				: Status.NOT_RUN;
+		final int flags = in.readByte();
+		final String name = (flags & FLAG_RENAMED) != 0 ? readString(in)
+				: null;
+		String trace = null;
+		String expected = null;
+		String actual = null;
+		if (status.isErrorOrFailure()) {
+			trace = readString(in);
+			expected = readString(in);
+			actual = readString(in);
+		}
+		if (element instanceof TestCaseElement) {
+			final TestCaseElement testCase = (TestCaseElement) element;
+			testCase.setIgnored((flags & FLAG_IGNORED) != 0);
+			if (name != null) {
+				testCase.setTestName(name);
+			}
+		}
+		element.setStatus(status, trace, expected, actual);
+	}
+
+	private static String readString(DataInput in) throws IOException {
+		final int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		final byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, UTF_8);
+	}
+
+}
@@ -0,0 +1,309 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.internal.testing.model;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.dltk.internal.testing.model.TestElement.Status;
+import org.eclipse.dltk.testing.model.ITestElement;
+
+/**
+ * Appends the test run events to the binary history file while the test run
+ * is in progress, so the session could be swapped out without serializing
+ * the whole tree. The file format is described in {@link IBinaryTags}.
+ */
+public class TestRunSessionWriter implements IBinaryTags {
+
+	private static final String UTF_8 = "UTF-8"; //$NON-NLS-1$
+
+	private final File fFile;
+	private final TestRoot fRoot;
+	private final DataOutputStream fOut;
+	private boolean fClosed;
+
+	private final Map<TestElement, Integer> fIndexes = new IdentityHashMap<TestElement, Integer>();
+	private int fCount;
+	private int[] fParents = new int[64];
+	private int[] fOffsets = new int[64];
+	private final BitSet fRenamed = new BitSet();
+
+	/**
+	 * Element index to the offset of the last status record of the failed
+	 * elements.
+	 */
+	private final Map<Integer, Integer> fFailures = new LinkedHashMap<Integer, Integer>();
+
+	/**
+	 * @param file
+	 *            the history file, overwritten if it exists
+	 * @param root
+	 *            the root of the test run session tree
+	 * @throws IOException
+	 */
+	public TestRunSessionWriter(File file, TestRoot root) throws IOException {
+		fFile = file;
+		fRoot = root;
+		fOut = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(file)));
+		fOut.writeInt(MAGIC);
+		fOut.writeInt(VERSION);
+	}
+
+	/**
+	 * Writes the complete test run session tree to the file.
+	 *
+	 * @param root
+	 *            the root of the test run session tree
+	 * @param file
+	 *            the destination
+	 * @throws IOException
+	 */
+	public static void write(TestRoot root, File file) throws IOException {
+		final TestRunSessionWriter writer = new TestRunSessionWriter(file, root);
+		try {
+			writer.addTree(root);
+			writer.finish();
+		} catch (IOException e) {
+			writer.abort();
+			throw e;
+		}
+	}
+
+	/**
+	 * Writes the elements already added to the container and their statuses.
+	 *
+	 * @param container
+	 * @throws IOException
+	 */
+	public synchronized void addTree(TestContainerElement container)
+			throws IOException {
+		addElements(container);
+		addStatuses(container);
+	}
+
+	private void addElements(TestContainerElement container)
+			throws IOException {
+		final ITestElement[] children = container.getChildren();
+		for (int i = 0; i < children.length; ++i) {
+			if (children[i] instanceof TestContainerElement) {
+				final TestContainerElement child = (TestContainerElement) children[i];
+				elementAdded(child, child.getChildren().length);
+				addElements(child);
+			} else {
+				elementAdded((TestElement) children[i], 0);
+			}
+		}
+	}
+
+	private void addStatuses(TestContainerElement container)
+			throws IOException {
+		final ITestElement[] children = container.getChildren();
+		for (int i = 0; i < children.length; ++i) {
+			if (children[i] instanceof TestContainerElement) {
+				final TestContainerElement child = (TestContainerElement) children[i];
+				addStatuses(child);
+				if (child.getSuiteStatus() != Status.NOT_RUN) {
+					statusChanged(child);
+				}
+			} else {
+				final TestElement child = (TestElement) children[i];
+				if (child.getStatus() != Status.NOT_RUN
+						|| (child instanceof TestCaseElement && ((TestCaseElement) child)
+								.isIgnored())) {
+					statusChanged(child);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes the element record, should be called after the element is added
+	 * to its parent.
+	 *
+	 * @param element
+	 * @param testCount
+	 *            the number of the children expected
+	 * @throws IOException
+	 */
+	public synchronized void elementAdded(TestElement element, int testCount)
+			throws IOException {
+		if (fClosed) {
+			return;
+		}
+		final int parent = indexOf(element.getParent());
+		final int index = fCount++;
+		if (index == fOffsets.length) {
+			final int[] offsets = new int[index * 2];
+			System.arraycopy(fOffsets, 0, offsets, 0, index);
+			fOffsets = offsets;
+			final int[] parents = new int[index * 2];
+			System.arraycopy(fParents, 0, parents, 0, index);
+			fParents = parents;
+		}
+		fOffsets[index] = fOut.size();
+		fParents[index] = parent;
+		fIndexes.put(element, Integer.valueOf(index));
+		fOut.writeByte(RECORD_ELEMENT);
+		fOut.writeInt(parent);
+		if (element instanceof TestCategoryElement) {
+			fOut.writeByte(ELEMENT_CATEGORY);
+		} else if (element instanceof TestContainerElement) {
+			fOut.writeByte(ELEMENT_SUITE);
+		} else {
+			fOut.writeByte(ELEMENT_CASE);
+		}
+		writeString(element.getId());
+		writeString(element.getTestName());
+		fOut.writeInt(testCount);
+	}
+
+	/**
+	 * Marks the element as renamed, so the name is written with its status.
+	 *
+	 * @param element
+	 */
+	public synchronized void elementRenamed(TestElement element) {
+		final Integer index = fIndexes.get(element);
+		if (index != null) {
+			fRenamed.set(index.intValue());
+		}
+	}
+
+	/**
+	 * Writes the current status of the element, for the containers their own
+	 * status is written, not the one combined with the children.
+	 *
+	 * @param element
+	 * @throws IOException
+	 */
+	public synchronized void statusChanged(TestElement element)
+			throws IOException {
+		if (fClosed) {
+			return;
+		}
+		final Integer index = fIndexes.get(element);
+		if (index == null) {
+			return;
+		}
+		final Status status = element instanceof TestContainerElement ? ((TestContainerElement) element)
+				.getSuiteStatus()
+				: element.getStatus();
+		final boolean renamed = fRenamed.get(index.intValue());
+		int flags = 0;
+		if (element instanceof TestCaseElement
+				&& ((TestCaseElement) element).isIgnored()) {
+			flags |= FLAG_IGNORED;
+		}
+		if (renamed) {
+			flags |= FLAG_RENAMED;
+		}
+		final int offset = fOut.size();
+		fOut.writeByte(RECORD_STATUS);
+		fOut.writeInt(index.intValue());
+		fOut.writeByte(encode(status));
+		fOut.writeByte(flags);
+		if (renamed) {
+			writeString(element.getTestName());
+		}
+		if (status.isErrorOrFailure()) {
+			writeString(element.getTrace());
+			writeString(element.getExpected());
+			writeString(element.getActual());
+			fFailures.put(index, Integer.valueOf(offset));
+		} else {
+			fFailures.remove(index);
+		}
+	}
+
+	/**
+	 * Writes the index of the failed elements and closes the file. The
+	 * subsequent calls of this writer are ignored.
+	 *
+	 * @throws IOException
+	 */
+	public synchronized void finish() throws IOException {
+		if (fClosed) {
+			return;
+		}
+		final int indexOffset = fOut.size();
+		fOut.writeByte(RECORD_INDEX);
+		// the parents always have the smaller indexes than their children
+		final BitSet paths = new BitSet(fCount);
+		for (Integer failure : fFailures.keySet()) {
+			for (int i = failure.intValue(); i >= 0 && !paths.get(i); i = fParents[i]) {
+				paths.set(i);
+			}
+		}
+		fOut.writeInt(paths.cardinality());
+		for (int i = paths.nextSetBit(0); i >= 0; i = paths.nextSetBit(i + 1)) {
+			fOut.writeInt(i);
+			fOut.writeInt(fOffsets[i]);
+		}
+		fOut.writeInt(fFailures.size());
+		for (Integer offset : fFailures.values()) {
+			fOut.writeInt(offset.intValue());
+		}
+		fOut.writeInt(indexOffset);
+		fOut.writeInt(MAGIC);
+		fClosed = true;
+		fOut.close();
+	}
+
+	/**
+	 * Closes and deletes the file. The subsequent calls of this writer are
+	 * ignored.
+	 */
+	public synchronized void abort() {
+		if (!fClosed) {
+			fClosed = true;
+			try {
+				fOut.close();
+			} catch (IOException e) {
+				// ignore
+			}
+		}
+		fFile.delete();
+	}
+
+	private int indexOf(TestContainerElement parent) {
+		if (parent == null || parent == fRoot) {
+			return -1;
+		}
+		final Integer index = fIndexes.get(parent);
+		return index != null ? index.intValue() : -1;
+	}
+
+	private static int encode(Status status) {
+		for (int i = 0; i < STATUSES.length; ++i) {
+			if (STATUSES[i] == status) {
+				return i;
+			}
+		}
+		return 0;
+	}
+
+	private void writeString(String value) throws IOException {
+		if (value == null) {
+			fOut.writeInt(-1);
+		} else {
+			final byte[] bytes = value.getBytes(UTF_8);
+			fOut.writeInt(bytes.length);
+			fOut.write(bytes);
+		}
+	}
+
+}
@@ -415,6 +415,18 @@ public class TestViewer {
 			return fTableViewer;
 	}
 
+	/**
+	 * The viewer showing only the failures does not need the complete tree,
+	 * so the swapped out session loads just the failed elements for it.
+	 */
+	private TestRoot getActiveViewerRoot() {
+		if (getActiveViewerHasFilter()) {
+			return fTestRunSession.getFailedTestRoot();
+		} else {
+			return fTestRunSession.getTestRoot();
+		}
+	}
+
 	private boolean getActiveViewerNeedsRefresh() {
 		if (fLayoutMode == TestRunnerViewPart.LAYOUT_HIERARCHICAL)
 			return fTreeNeedsRefresh;
@@ -443,10 +455,10 @@ public class TestViewer {
 			return;
 		}
 
-		testRoot = fTestRunSession.getTestRoot();
+		testRoot = getActiveViewerRoot();
 
 		StructuredViewer viewer = getActiveViewer();
-		if (getActiveViewerNeedsRefresh()) {
+		if (getActiveViewerNeedsRefresh() || viewer.getInput() != testRoot) {
 			clearUpdateAndExpansion();
 			setActiveViewerRefreshed();
 			viewer.setInput(testRoot);
@@ -603,8 +615,8 @@ public class TestViewer {
 	}
 
 	public void selectFirstFailure() {
-		TestCaseElement firstFailure = getNextChildFailure(fTestRunSession
-				.getTestRoot(), true);
+		TestCaseElement firstFailure = getNextChildFailure(
+				getActiveViewerRoot(), true);
 		if (firstFailure != null)
 			getActiveViewer().setSelection(
 					new StructuredSelection(firstFailure), true);
@@ -617,7 +629,7 @@ public class TestViewer {
 		TestElement next;
 
 		if (selected == null) {
-			next = getNextChildFailure(fTestRunSession.getTestRoot(), showNext);
+			next = getNextChildFailure(getActiveViewerRoot(), showNext);
 		} else {
 			next = getNextFailure(selected, showNext);
 		}
@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.benchmarks;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.eclipse.dltk.core.index2.search.ISearchEngine.MatchRule;
+import org.eclipse.dltk.core.search.SearchPattern;
+
+/**
+ * Runs the benchmarks as the test suite, so they are executed headless by the
+ * <code>benchmarks</code> build profile. Each benchmark is reported as the
+ * separate test and the scores of all of them are written to the file
+ * specified by the <code>dltk.benchmark.output</code> system property.
+ */
+public class AllBenchmarks {
+
+	private static class BenchmarkTest extends TestCase {
+		private final BenchmarkRunner runner;
+		private final Benchmark benchmark;
+
+		BenchmarkTest(BenchmarkRunner runner, Benchmark benchmark) {
+			super(benchmark.getName());
+			this.runner = runner;
+			this.benchmark = benchmark;
+		}
+
+		@Override
+		protected void runTest() throws Throwable {
+			System.out.println(runner.run(benchmark));
+		}
+	}
+
+	public static Benchmark[] createBenchmarks() {
+		return new Benchmark[] {
+				new CharOperationBenchmark(CharOperationBenchmark.MATCH),
+				new CharOperationBenchmark(CharOperationBenchmark.PREFIX),
+				new CharOperationBenchmark(CharOperationBenchmark.CAMEL_CASE),
+				new DiskIndexBenchmark("DiskIndex.queryExact", //$NON-NLS-1$
+						SearchPattern.R_EXACT_MATCH
+								| SearchPattern.R_CASE_SENSITIVE, false),
+				new DiskIndexBenchmark("DiskIndex.queryPrefix", //$NON-NLS-1$
+						SearchPattern.R_PREFIX_MATCH, false),
+				new DiskIndexBenchmark("DiskIndex.queryPattern", //$NON-NLS-1$
+						SearchPattern.R_PATTERN_MATCH, false),
+				new DiskIndexBenchmark("DiskIndex.queryReferences", //$NON-NLS-1$
+						SearchPattern.R_EXACT_MATCH
+								| SearchPattern.R_CASE_SENSITIVE, true),
+				new SourceParserBenchmark(),
+				new ModelInfoBenchmark(),
+				new H2CacheBenchmark("H2Cache.searchElementsExact", //$NON-NLS-1$
+						MatchRule.EXACT, false),
+				new H2CacheBenchmark("H2Cache.searchElementsPrefix", //$NON-NLS-1$
+						MatchRule.PREFIX, false),
+				new H2CacheBenchmark("H2Cache.searchElementsCamelCase", //$NON-NLS-1$
+						MatchRule.CAMEL_CASE, false),
+				new H2CacheBenchmark("H2Cache.searchElementsContended", //$NON-NLS-1$
+						MatchRule.PREFIX, true),
+				new H2LoadBenchmark(false), new H2LoadBenchmark(true),
+				new DbgpPacketDecoderBenchmark(),
+				new DbgpBreakpointSyncBenchmark(false),
+				new DbgpBreakpointSyncBenchmark(true) };
+	}
+
+	public static Test suite() {
+		final BenchmarkOptions options = new BenchmarkOptions();
+		final BenchmarkRunner runner = new BenchmarkRunner(options);
+		final TestSuite suite = new TestSuite(AllBenchmarks.class.getName());
+		final Benchmark[] benchmarks = createBenchmarks();
+		for (int i = 0; i < benchmarks.length; ++i) {
+			if (options.isEnabled(benchmarks[i].getName())) {
+				suite.addTest(new BenchmarkTest(runner, benchmarks[i]));
+			}
+		}
+		return new TestSetup(suite) {
+			@Override
+			protected void tearDown() throws Exception {
+				runner.write(options.getOutput());
+			}
+		};
+	}
+}
@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.benchmarks;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The single measured operation. The {@link BenchmarkRunner} calls
+ * {@link #setUp(BenchmarkOptions)} once, then {@link #run()} repeatedly during
+ * the warmup and measurement iterations and finally {@link #tearDown()}.
+ */
+public abstract class Benchmark {
+
+	private final String name;
+	private final Map<String, String> params = new LinkedHashMap<String, String>();
+
+	protected Benchmark(String name) {
+		this.name = name;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the parameters reported together with the results
+	 */
+	public Map<String, String> getParams() {
+		return params;
+	}
+
+	protected void setParam(String key, Object value) {
+		params.put(key, String.valueOf(value));
+	}
+
+	public void setUp(BenchmarkOptions options) throws Exception {
+	}
+
+	/**
+	 * Performs the single operation. The returned value is consumed by the
+	 * runner, so the computation is not optimized away.
+	 */
+	public abstract Object run() throws Exception;
+
+	public void tearDown() throws Exception {
+	}
+
+	@Override
+	public String toString() {
+		return name + params;
+	}
+}
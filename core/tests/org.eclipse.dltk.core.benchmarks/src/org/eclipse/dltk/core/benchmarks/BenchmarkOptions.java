@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.benchmarks;
+
+import java.io.File;
+import java.util.regex.Pattern;
+
+/**
+ * Size of the generated data and the measurement settings, configured by the
+ * <code>dltk.benchmark.*</code> system properties.
+ */
+public class BenchmarkOptions {
+
+	private static final String PREFIX = "dltk.benchmark."; //$NON-NLS-1$
+
+	private final int files;
+	private final int declarations;
+	private final int references;
+	private final int writers;
+	private final int warmupIterations;
+	private final int iterations;
+	private final long iterationTime;
+	private final Pattern filter;
+	private final File output;
+	private final File dbgpLog;
+
+	public BenchmarkOptions() {
+		files = getInt("files", 100); //$NON-NLS-1$
+		declarations = getInt("declarations", 20); //$NON-NLS-1$
+		references = getInt("references", 50); //$NON-NLS-1$
+		writers = getInt("writers", 2); //$NON-NLS-1$
+		warmupIterations = getInt("warmup", 3); //$NON-NLS-1$
+		iterations = getInt("iterations", 5); //$NON-NLS-1$
+		iterationTime = getInt("time", 1000); //$NON-NLS-1$
+		filter = Pattern.compile(System.getProperty(PREFIX + "filter", ".*")); //$NON-NLS-1$ //$NON-NLS-2$
+		output = new File(System.getProperty(PREFIX + "output", //$NON-NLS-1$
+				"benchmark-results.json")); //$NON-NLS-1$
+		final String log = System.getProperty(PREFIX + "dbgpLog"); //$NON-NLS-1$
+		dbgpLog = log != null && log.length() != 0 ? new File(log) : null;
+	}
+
+	private static int getInt(String name, int defaultValue) {
+		final String value = System.getProperty(PREFIX + name);
+		if (value != null && value.length() != 0) {
+			try {
+				return Integer.parseInt(value);
+			} catch (NumberFormatException e) {
+				// fall thru
+			}
+		}
+		return defaultValue;
+	}
+
+	/**
+	 * Number of the generated source files
+	 */
+	public int getFiles() {
+		return files;
+	}
+
+	/**
+	 * Number of the declarations in each generated file
+	 */
+	public int getDeclarations() {
+		return declarations;
+	}
+
+	/**
+	 * Number of the references in each generated file
+	 */
+	public int getReferences() {
+		return references;
+	}
+
+	/**
+	 * Number of the background writer threads in the contention benchmarks
+	 */
+	public int getWriters() {
+		return writers;
+	}
+
+	public int getWarmupIterations() {
+		return warmupIterations;
+	}
+
+	public int getIterations() {
+		return iterations;
+	}
+
+	/**
+	 * Duration of the single iteration in milliseconds
+	 */
+	public long getIterationTime() {
+		return iterationTime;
+	}
+
+	public boolean isEnabled(String benchmarkName) {
+		return filter.matcher(benchmarkName).matches();
+	}
+
+	/**
+	 * File the results are written to in JMH-compatible JSON format
+	 */
+	public File getOutput() {
+		return output;
+	}
+
+	/**
+	 * File with the recorded DBGP packets as they were received from the
+	 * debugging engine or <code>null</code> if the generated session should be
+	 * used
+	 */
+	public File getDbgpLog() {
+		return dbgpLog;
+	}
+}
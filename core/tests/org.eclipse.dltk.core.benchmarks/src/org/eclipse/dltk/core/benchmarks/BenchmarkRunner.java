@@ -0,0 +1,242 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the {@link Benchmark}s in the throughput mode: each iteration calls the
+ * benchmark for the configured time and the score is the number of operations
+ * per second. The results are written in the JSON format produced by JMH, so
+ * the existing tools could be used to compare them between the releases.
+ */
+public class BenchmarkRunner {
+
+	/**
+	 * 99.9% confidence interval, the same JMH reports as the score error
+	 */
+	private static final double CONFIDENCE = 3.291;
+
+	public static class Result {
+		private final Benchmark benchmark;
+		private final double[] scores;
+
+		Result(Benchmark benchmark, double[] scores) {
+			this.benchmark = benchmark;
+			this.scores = scores;
+		}
+
+		public String getName() {
+			return benchmark.getName();
+		}
+
+		public Map<String, String> getParams() {
+			return benchmark.getParams();
+		}
+
+		/**
+		 * Returns the average number of operations per second
+		 */
+		public double getScore() {
+			double sum = 0;
+			for (int i = 0; i < scores.length; ++i) {
+				sum += scores[i];
+			}
+			return scores.length != 0 ? sum / scores.length : 0;
+		}
+
+		public double getScoreError() {
+			if (scores.length < 2) {
+				return Double.NaN;
+			}
+			final double mean = getScore();
+			double variance = 0;
+			for (int i = 0; i < scores.length; ++i) {
+				variance += (scores[i] - mean) * (scores[i] - mean);
+			}
+			variance /= scores.length - 1;
+			return CONFIDENCE * Math.sqrt(variance / scores.length);
+		}
+
+		public double[] getScores() {
+			return scores;
+		}
+
+		@Override
+		public String toString() {
+			return benchmark + ": " //$NON-NLS-1$
+					+ String.format("%.3f +- %.3f ops/s", //$NON-NLS-1$
+							getScore(), getScoreError());
+		}
+	}
+
+	private final BenchmarkOptions options;
+	private final List<Result> results = new ArrayList<Result>();
+
+	/**
+	 * Accumulates the values returned by the benchmarks
+	 */
+	private volatile int sink;
+
+	public BenchmarkRunner(BenchmarkOptions options) {
+		this.options = options;
+	}
+
+	public Result run(Benchmark benchmark) throws Exception {
+		benchmark.setUp(options);
+		try {
+			for (int i = 0; i < options.getWarmupIterations(); ++i) {
+				iteration(benchmark);
+			}
+			final double[] scores = new double[options.getIterations()];
+			for (int i = 0; i < scores.length; ++i) {
+				scores[i] = iteration(benchmark);
+			}
+			final Result result = new Result(benchmark, scores);
+			synchronized (results) {
+				results.add(result);
+			}
+			return result;
+		} finally {
+			benchmark.tearDown();
+		}
+	}
+
+	private double iteration(Benchmark benchmark) throws Exception {
+		final long duration = options.getIterationTime() * 1000000L;
+		final long start = System.nanoTime();
+		long operations = 0;
+		long elapsed;
+		do {
+			consume(benchmark.run());
+			++operations;
+			elapsed = System.nanoTime() - start;
+		} while (elapsed < duration);
+		return operations * 1e9 / elapsed;
+	}
+
+	private void consume(Object value) {
+		sink ^= System.identityHashCode(value);
+	}
+
+	public List<Result> getResults() {
+		synchronized (results) {
+			return new ArrayList<Result>(results);
+		}
+	}
+
+	public void write(File file) throws IOException {
+		final File parent = file.getAbsoluteFile().getParentFile();
+		if (parent != null) {
+			parent.mkdirs();
+		}
+		final Writer writer = new OutputStreamWriter(new FileOutputStream(
+				file), "UTF-8"); //$NON-NLS-1$
+		try {
+			write(writer);
+		} finally {
+			writer.close();
+		}
+	}
+
+	public void write(Writer writer) throws IOException {
+		writer.write("[\n"); //$NON-NLS-1$
+		for (Iterator<Result> i = getResults().iterator(); i.hasNext();) {
+			final Result result = i.next();
+			writer.write("  {\n"); //$NON-NLS-1$
+			writer.write("    \"benchmark\" : " + quote(result.getName()) //$NON-NLS-1$
+					+ ",\n"); //$NON-NLS-1$
+			writer.write("    \"mode\" : \"thrpt\",\n"); //$NON-NLS-1$
+			writer.write("    \"threads\" : 1,\n"); //$NON-NLS-1$
+			writer.write("    \"forks\" : 0,\n"); //$NON-NLS-1$
+			writer.write("    \"warmupIterations\" : " //$NON-NLS-1$
+					+ options.getWarmupIterations() + ",\n"); //$NON-NLS-1$
+			writer.write("    \"warmupTime\" : \"" + options.getIterationTime() //$NON-NLS-1$
+					+ " ms\",\n"); //$NON-NLS-1$
+			writer.write("    \"measurementIterations\" : " //$NON-NLS-1$
+					+ options.getIterations() + ",\n"); //$NON-NLS-1$
+			writer.write("    \"measurementTime\" : \"" //$NON-NLS-1$
+					+ options.getIterationTime() + " ms\",\n"); //$NON-NLS-1$
+			writer.write("    \"params\" : {"); //$NON-NLS-1$
+			for (Iterator<Map.Entry<String, String>> p = result.getParams()
+					.entrySet().iterator(); p.hasNext();) {
+				final Map.Entry<String, String> param = p.next();
+				writer.write("\n      " + quote(param.getKey()) + " : " //$NON-NLS-1$ //$NON-NLS-2$
+						+ quote(param.getValue()));
+				if (p.hasNext()) {
+					writer.write(","); //$NON-NLS-1$
+				}
+			}
+			writer.write("\n    },\n"); //$NON-NLS-1$
+			writer.write("    \"primaryMetric\" : {\n"); //$NON-NLS-1$
+			writer.write("      \"score\" : " + number(result.getScore()) //$NON-NLS-1$
+					+ ",\n"); //$NON-NLS-1$
+			writer.write("      \"scoreError\" : " //$NON-NLS-1$
+					+ number(result.getScoreError()) + ",\n"); //$NON-NLS-1$
+			writer.write("      \"scoreUnit\" : \"ops/s\",\n"); //$NON-NLS-1$
+			writer.write("      \"rawData\" : [ ["); //$NON-NLS-1$
+			final double[] scores = result.getScores();
+			for (int j = 0; j < scores.length; ++j) {
+				if (j != 0) {
+					writer.write(", "); //$NON-NLS-1$
+				}
+				writer.write(number(scores[j]));
+			}
+			writer.write("] ]\n"); //$NON-NLS-1$
+			writer.write("    }\n"); //$NON-NLS-1$
+			writer.write(i.hasNext() ? "  },\n" : "  }\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		writer.write("]\n"); //$NON-NLS-1$
+	}
+
+	private static String number(double value) {
+		return Double.isNaN(value) || Double.isInfinite(value) ? "\"NaN\"" //$NON-NLS-1$
+				: String.valueOf(value);
+	}
+
+	private static String quote(String value) {
+		final StringBuilder sb = new StringBuilder(value.length() + 2);
+		sb.append('"');
+		for (int i = 0; i < value.length(); ++i) {
+			final char c = value.charAt(i);
+			switch (c) {
+			case '"':
+			case '\\':
+				sb.append('\\').append(c);
+				break;
+			case '\n':
+				sb.append("\\n"); //$NON-NLS-1$
+				break;
+			case '\r':
+				sb.append("\\r"); //$NON-NLS-1$
+				break;
+			case '\t':
+				sb.append("\\t"); //$NON-NLS-1$
+				break;
+			default:
+				if (c < ' ') {
+					sb.append(String.format("\\u%04x", Integer.valueOf(c))); //$NON-NLS-1$
+				} else {
+					sb.append(c);
+				}
+			}
+		}
+		sb.append('"');
+		return sb.toString();
+	}
+}
@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.benchmarks;
+
+import org.eclipse.dltk.compiler.CharOperation;
+
+/**
+ * Matches all the generated type names against the pattern, the way the
+ * search and completion filter the candidates.
+ */
+public class CharOperationBenchmark extends Benchmark {
+
+	public static final int MATCH = 0;
+	public static final int PREFIX = 1;
+	public static final int CAMEL_CASE = 2;
+
+	private static final String[] NAMES = { "CharOperation.match", //$NON-NLS-1$
+			"CharOperation.prefixEquals", "CharOperation.camelCaseMatch" }; //$NON-NLS-1$ //$NON-NLS-2$
+
+	private static final char[][] PATTERNS = { "*cache*".toCharArray(), //$NON-NLS-1$
+			"abstractbuffer".toCharArray(), "AMP".toCharArray() }; //$NON-NLS-1$ //$NON-NLS-2$
+
+	private final int mode;
+	private char[][] names;
+
+	public CharOperationBenchmark(int mode) {
+		super(NAMES[mode]);
+		this.mode = mode;
+		setParam("pattern", new String(PATTERNS[mode])); //$NON-NLS-1$
+	}
+
+	@Override
+	public void setUp(BenchmarkOptions options) {
+		final WorkspaceGenerator generator = new WorkspaceGenerator(options);
+		names = new char[options.getFiles() * options.getDeclarations()][];
+		int index = 0;
+		for (int f = 0; f < options.getFiles(); ++f) {
+			for (int d = 0; d < options.getDeclarations(); ++d) {
+				names[index++] = generator.getTypeName(f, d).toCharArray();
+			}
+		}
+		setParam("names", Integer.valueOf(names.length)); //$NON-NLS-1$
+	}
+
+	@Override
+	public Object run() {
+		final char[] pattern = PATTERNS[mode];
+		int count = 0;
+		for (int i = 0; i < names.length; ++i) {
+			final boolean match;
+			switch (mode) {
+			case MATCH:
+				match = CharOperation.match(pattern, names[i], false);
+				break;
+			case PREFIX:
+				match = CharOperation.prefixEquals(pattern, names[i], false);
+				break;
+			default:
+				match = CharOperation.camelCaseMatch(pattern, names[i]);
+			}
+			if (match) {
+				++count;
+			}
+		}
+		return Integer.valueOf(count);
+	}
+
+	@Override
+	public void tearDown() {
+		names = null;
+	}
+}
@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.benchmarks;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.eclipse.dltk.dbgp.DbgpBaseCommands;
+import org.eclipse.dltk.dbgp.DbgpRequest;
+import org.eclipse.dltk.dbgp.IDbgpRawListener;
+import org.eclipse.dltk.dbgp.breakpoints.DbgpBreakpointConfig;
+import org.eclipse.dltk.dbgp.internal.DbgpTermination;
+import org.eclipse.dltk.dbgp.internal.IDbgpDebugingEngine;
+import org.eclipse.dltk.dbgp.internal.commands.DbgpBreakpointCommands;
+import org.eclipse.dltk.dbgp.internal.commands.DbgpDebuggingEngineCommunicator;
+import org.eclipse.dltk.dbgp.internal.commands.DbgpRequestBatch;
+import org.eclipse.dltk.dbgp.internal.packets.DbgpNotifyPacket;
+import org.eclipse.dltk.dbgp.internal.packets.DbgpResponseFuture;
+import org.eclipse.dltk.dbgp.internal.packets.DbgpResponsePacket;
+import org.eclipse.dltk.dbgp.internal.packets.DbgpResponseTable;
+import org.eclipse.dltk.dbgp.internal.packets.DbgpStreamPacket;
+import org.eclipse.dltk.debug.core.model.DefaultDebugOptions;
+import org.w3c.dom.Element;
+
+/**
+ * Sets the line breakpoints the way the breakpoint manager does when the
+ * session is initialized, either waiting for each response or sending the
+ * whole batch at once. The debugging engine is simulated, it answers each
+ * request after the fixed network latency without any processing time, so
+ * the score shows the cost of the round trips. The number of the breakpoints
+ * is specified by the <code>dltk.benchmark.files</code> system property.
+ */
+public class DbgpBreakpointSyncBenchmark extends Benchmark {
+
+	private static final long LATENCY = 1;
+
+	private static class LatencyEngine extends DbgpTermination implements
+			IDbgpDebugingEngine {
+		private final DbgpResponseTable responses = new DbgpResponseTable();
+		private final ScheduledExecutorService network = Executors
+				.newSingleThreadScheduledExecutor(new ThreadFactory() {
+					public Thread newThread(Runnable r) {
+						final Thread thread = new Thread(r,
+								"Benchmark - Simulated Network"); //$NON-NLS-1$
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		private final Element content;
+
+		LatencyEngine() throws Exception {
+			content = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+					.newDocument().createElement("response"); //$NON-NLS-1$
+			content.setAttribute("id", "1"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+
+		public void sendCommand(DbgpRequest command) throws IOException {
+			final int transactionId = Integer.parseInt(command
+					.getOption(DbgpBaseCommands.ID_OPTION));
+			network.schedule(new Runnable() {
+				public void run() {
+					responses.put(new DbgpResponsePacket(content,
+							transactionId));
+				}
+			}, LATENCY, TimeUnit.MILLISECONDS);
+		}
+
+		public DbgpResponsePacket getResponsePacket(int transactionId,
+				int timeout) throws IOException, InterruptedException {
+			return responses.waitPacket(transactionId, timeout);
+		}
+
+		public DbgpResponseFuture getResponseFuture(int transactionId) {
+			return responses.getFuture(transactionId);
+		}
+
+		public DbgpNotifyPacket getNotifyPacket() throws IOException,
+				InterruptedException {
+			throw new InterruptedException();
+		}
+
+		public DbgpStreamPacket getStreamPacket() throws IOException,
+				InterruptedException {
+			throw new InterruptedException();
+		}
+
+		public void addRawListener(IDbgpRawListener listener) {
+		}
+
+		public void removeRawListenr(IDbgpRawListener listener) {
+		}
+
+		public void requestTermination() {
+			network.shutdownNow();
+			responses.terminate();
+		}
+
+		public void waitTerminated() throws InterruptedException {
+			network.awaitTermination(1, TimeUnit.SECONDS);
+		}
+	}
+
+	private final boolean pipelined;
+	private LatencyEngine engine;
+	private DbgpDebuggingEngineCommunicator communicator;
+	private int breakpoints;
+	private final URI uri = URI.create("file:///benchmark.txt"); //$NON-NLS-1$
+
+	public DbgpBreakpointSyncBenchmark(boolean pipelined) {
+		super(pipelined ? "DbgpBreakpointSync.pipelined" //$NON-NLS-1$
+				: "DbgpBreakpointSync.sequential"); //$NON-NLS-1$
+		this.pipelined = pipelined;
+	}
+
+	@Override
+	public void setUp(BenchmarkOptions options) throws Exception {
+		engine = new LatencyEngine();
+		communicator = new DbgpDebuggingEngineCommunicator(engine,
+				DefaultDebugOptions.getDefaultInstance());
+		breakpoints = options.getFiles();
+		setParam("breakpoints", Integer.valueOf(breakpoints)); //$NON-NLS-1$
+		setParam("latencyMs", Long.valueOf(LATENCY)); //$NON-NLS-1$
+	}
+
+	private DbgpRequest createRequest(int line) {
+		return DbgpBreakpointCommands.createSetRequest(
+				DbgpBreakpointCommands.LINE_BREAKPOINT, uri, Integer
+						.valueOf(line), null, null, new DbgpBreakpointConfig());
+	}
+
+	@Override
+	public Object run() throws Exception {
+		int count = 0;
+		if (pipelined) {
+			final DbgpRequestBatch batch = new DbgpRequestBatch(communicator);
+			for (int i = 0; i < breakpoints; ++i) {
+				batch.add(createRequest(i + 1), null);
+			}
+			count = batch.size();
+			batch.execute();
+		} else {
+			for (int i = 0; i < breakpoints; ++i) {
+				DbgpBreakpointCommands.parseBreakpointId(communicator
+						.communicate(createRequest(i + 1)));
+				++count;
+			}
+		}
+		return Integer.valueOf(count);
+	}
+
+	@Override
+	public void tearDown() throws Exception {
+		engine.requestTermination();
+		engine.waitTerminated();
+		engine = null;
+		communicator = null;
+	}
+}
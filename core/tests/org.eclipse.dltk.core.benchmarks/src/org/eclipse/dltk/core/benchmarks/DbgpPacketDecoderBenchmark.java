@@ -0,0 +1,164 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.eclipse.dltk.dbgp.internal.DbgpRawPacket;
+import org.eclipse.dltk.dbgp.internal.packets.DbgpPacket;
+import org.eclipse.dltk.dbgp.internal.packets.DbgpPacketDecoder;
+import org.eclipse.dltk.dbgp.internal.packets.DbgpResponsePacket;
+import org.eclipse.dltk.dbgp.internal.utils.Base64Helper;
+import org.eclipse.dltk.dbgp.internal.utils.DbgpXmlEntityParser;
+
+/**
+ * Decodes the recorded DBGP session the same way the packet receiver does,
+ * also getting the properties of the responses like the context and property
+ * commands. The session is read from the file specified by the
+ * <code>dltk.benchmark.dbgpLog</code> system property, which contains the
+ * packets exactly as they were received from the debugging engine, otherwise
+ * the session of stepping through the code printing to stdout and showing
+ * the variables is generated.
+ */
+public class DbgpPacketDecoderBenchmark extends Benchmark {
+
+	private static final String ENCODING = "UTF-8"; //$NON-NLS-1$
+
+	private byte[] log;
+	private final DbgpPacketDecoder decoder = new DbgpPacketDecoder();
+
+	public DbgpPacketDecoderBenchmark() {
+		super("DbgpPacketDecoder.decodeSession"); //$NON-NLS-1$
+	}
+
+	@Override
+	public void setUp(BenchmarkOptions options) throws Exception {
+		final File file = options.getDbgpLog();
+		if (file != null) {
+			log = readFile(file);
+			setParam("log", file.getName()); //$NON-NLS-1$
+		} else {
+			log = generateSession(options.getFiles(), options
+					.getDeclarations());
+			setParam("steps", Integer.valueOf(options.getFiles())); //$NON-NLS-1$
+			setParam("variables", Integer.valueOf(options.getDeclarations())); //$NON-NLS-1$
+		}
+		setParam("bytes", Integer.valueOf(log.length)); //$NON-NLS-1$
+	}
+
+	private static byte[] readFile(File file) throws IOException {
+		final InputStream input = new FileInputStream(file);
+		try {
+			final ByteArrayOutputStream output = new ByteArrayOutputStream();
+			final byte[] buffer = new byte[8192];
+			int len;
+			while ((len = input.read(buffer)) != -1) {
+				output.write(buffer, 0, len);
+			}
+			return output.toByteArray();
+		} finally {
+			input.close();
+		}
+	}
+
+	private static void writePacket(ByteArrayOutputStream output,
+			CharSequence xml) throws IOException {
+		final byte[] bytes = ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" + xml) //$NON-NLS-1$
+				.getBytes(ENCODING);
+		output.write(Integer.toString(bytes.length).getBytes(ENCODING));
+		output.write(0);
+		output.write(bytes);
+		output.write(0);
+	}
+
+	private static void appendProperty(StringBuilder sb, String name,
+			int children, int depth) {
+		sb.append("<property name=\"").append(name); //$NON-NLS-1$
+		sb.append("\" fullname=\"").append(name); //$NON-NLS-1$
+		sb.append("\" type=\"").append(children > 0 ? "hash" : "string"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		sb.append("\" children=\"").append(children > 0 ? 1 : 0); //$NON-NLS-1$
+		sb.append("\" numchildren=\"").append(children); //$NON-NLS-1$
+		sb.append("\" encoding=\"base64\">"); //$NON-NLS-1$
+		final StringBuilder value = new StringBuilder();
+		for (int i = 0; i < 8; ++i) {
+			value.append("value of the ").append(name).append(' '); //$NON-NLS-1$
+		}
+		sb.append(Base64Helper.encodeString(value.toString()));
+		if (depth > 0) {
+			for (int i = 0; i < children; ++i) {
+				appendProperty(sb, name + "[" + i + "]", children, depth - 1); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		}
+		sb.append("</property>"); //$NON-NLS-1$
+	}
+
+	private static byte[] generateSession(int steps, int variables)
+			throws IOException {
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		int transactionId = 0;
+		writePacket(output, "<init appid=\"benchmark\" idekey=\"benchmark\" " //$NON-NLS-1$
+				+ "session=\"1\" thread=\"main\" language=\"benchmark\" " //$NON-NLS-1$
+				+ "protocol_version=\"1.0\" fileuri=\"file:///benchmark\"/>"); //$NON-NLS-1$
+		for (int step = 0; step < steps; ++step) {
+			final StringBuilder text = new StringBuilder();
+			for (int i = 0; i < 20; ++i) {
+				text.append("step ").append(step).append(" line ").append(i) //$NON-NLS-1$ //$NON-NLS-2$
+						.append(" of the program output\n"); //$NON-NLS-1$
+			}
+			writePacket(output, "<stream type=\"stdout\">" //$NON-NLS-1$
+					+ Base64Helper.encodeString(text.toString())
+					+ "</stream>"); //$NON-NLS-1$
+			writePacket(output, "<response command=\"step_into\" " //$NON-NLS-1$
+					+ "status=\"break\" reason=\"ok\" transaction_id=\"" //$NON-NLS-1$
+					+ (++transactionId) + "\"/>"); //$NON-NLS-1$
+			writePacket(output, "<response command=\"stack_get\" " //$NON-NLS-1$
+					+ "transaction_id=\"" + (++transactionId) + "\">" //$NON-NLS-1$ //$NON-NLS-2$
+					+ "<stack level=\"0\" type=\"file\" " //$NON-NLS-1$
+					+ "filename=\"file:///benchmark\" lineno=\"" + step //$NON-NLS-1$
+					+ "\" where=\"main\"/></response>"); //$NON-NLS-1$
+			final StringBuilder context = new StringBuilder();
+			context.append("<response command=\"context_get\" context=\"0\" " //$NON-NLS-1$
+					+ "transaction_id=\"").append(++transactionId).append("\">"); //$NON-NLS-1$ //$NON-NLS-2$
+			for (int i = 0; i < variables; ++i) {
+				appendProperty(context, "var" + i, i % 4, 1); //$NON-NLS-1$
+			}
+			context.append("</response>"); //$NON-NLS-1$
+			writePacket(output, context);
+		}
+		writePacket(output, "<notify name=\"stdin\"/>"); //$NON-NLS-1$
+		return output.toByteArray();
+	}
+
+	@Override
+	public Object run() throws Exception {
+		final InputStream input = new ByteArrayInputStream(log);
+		int count = 0;
+		while (input.available() > 0) {
+			final DbgpPacket packet = decoder.decode(DbgpRawPacket.readPacket(
+					input).getXml());
+			if (packet instanceof DbgpResponsePacket
+					&& ((DbgpResponsePacket) packet).getProperties() == null) {
+				DbgpXmlEntityParser.parseProperties(packet.getContent());
+			}
+			++count;
+		}
+		return Integer.valueOf(count);
+	}
+
+	@Override
+	public void tearDown() throws Exception {
+		log = null;
+	}
+}
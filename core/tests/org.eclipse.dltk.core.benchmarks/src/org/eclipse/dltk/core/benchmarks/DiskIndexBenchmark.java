@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.benchmarks;
+
+import java.io.File;
+
+import org.eclipse.dltk.core.search.SearchPattern;
+import org.eclipse.dltk.core.search.index.EntryResult;
+import org.eclipse.dltk.core.search.index.Index;
+import org.eclipse.dltk.core.search.indexing.IIndexConstants;
+
+/**
+ * Queries the saved index containing the declarations and references of the
+ * generated files, so the queries are answered by the disk index.
+ */
+public class DiskIndexBenchmark extends Benchmark {
+
+	private static final char[][] DECLARATIONS = { IIndexConstants.TYPE_DECL,
+			IIndexConstants.METHOD_DECL };
+
+	private static final char[][] REFERENCES = { IIndexConstants.METHOD_REF };
+
+	private final int matchRule;
+	private final boolean references;
+	private char[] key;
+	private File file;
+	private Index index;
+
+	/**
+	 * @param matchRule
+	 *            one of {@link SearchPattern#R_EXACT_MATCH},
+	 *            {@link SearchPattern#R_PREFIX_MATCH} or
+	 *            {@link SearchPattern#R_PATTERN_MATCH}
+	 * @param references
+	 *            <code>true</code> to query the references,
+	 *            <code>false</code> to query the declarations
+	 */
+	public DiskIndexBenchmark(String name, int matchRule, boolean references) {
+		super(name);
+		this.matchRule = matchRule;
+		this.references = references;
+	}
+
+	@Override
+	public void setUp(BenchmarkOptions options) throws Exception {
+		final WorkspaceGenerator generator = new WorkspaceGenerator(options);
+		file = File.createTempFile("benchmark", ".index"); //$NON-NLS-1$ //$NON-NLS-2$
+		index = new Index(file.getAbsolutePath(), "/benchmark", false); //$NON-NLS-1$
+		for (int f = 0; f < options.getFiles(); ++f) {
+			final String document = generator.getFolderName(f) + '/'
+					+ generator.getFileName(f);
+			for (int d = 0; d < options.getDeclarations(); ++d) {
+				index.addIndexEntry(IIndexConstants.TYPE_DECL, generator
+						.getTypeName(f, d).toCharArray(), document);
+				index.addIndexEntry(IIndexConstants.METHOD_DECL, generator
+						.getMethodName(f, d).toCharArray(), document);
+			}
+			for (int r = 0; r < options.getReferences(); ++r) {
+				index.addIndexEntry(IIndexConstants.METHOD_REF, generator
+						.getReferenceName(f, r).toCharArray(), document);
+			}
+		}
+		index.save();
+		switch (matchRule) {
+		case SearchPattern.R_EXACT_MATCH:
+			key = (references ? generator.getReferenceName(0, 0) : generator
+					.getTypeName(0, 0)).toCharArray();
+			break;
+		case SearchPattern.R_PREFIX_MATCH:
+			key = (references ? "getabstract" : "abstract").toCharArray(); //$NON-NLS-1$ //$NON-NLS-2$
+			break;
+		default:
+			key = "*cache*".toCharArray(); //$NON-NLS-1$
+		}
+		setParam("key", new String(key)); //$NON-NLS-1$
+		setParam("files", Integer.valueOf(options.getFiles())); //$NON-NLS-1$
+		setParam("declarations", Integer.valueOf(options.getDeclarations())); //$NON-NLS-1$
+		setParam("references", Integer.valueOf(options.getReferences())); //$NON-NLS-1$
+	}
+
+	@Override
+	public Object run() throws Exception {
+		index.startQuery();
+		try {
+			final EntryResult[] results = index.query(
+					references ? REFERENCES : DECLARATIONS, key, matchRule);
+			int count = 0;
+			if (results != null) {
+				for (int i = 0; i < results.length; ++i) {
+					count += results[i].getDocumentNames(index).length;
+				}
+			}
+			return Integer.valueOf(count);
+		} finally {
+			index.stopQuery();
+		}
+	}
+
+	@Override
+	public void tearDown() {
+		index = null;
+		if (file != null) {
+			file.delete();
+		}
+	}
+}
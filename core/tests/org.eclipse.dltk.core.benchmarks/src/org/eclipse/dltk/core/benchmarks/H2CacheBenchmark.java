@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.dltk.core.IModelElement;
+import org.eclipse.dltk.core.index.sql.Element;
+import org.eclipse.dltk.core.index2.search.ISearchEngine.MatchRule;
+import org.eclipse.dltk.internal.core.index.sql.h2.H2Cache;
+
+/**
+ * Searches the type declarations of the generated files in the
+ * {@link H2Cache}. In the contention mode the background threads keep
+ * replacing the declarations of the other files, like the indexer does, while
+ * the searches are measured.
+ */
+public class H2CacheBenchmark extends Benchmark {
+
+	/**
+	 * File identifiers of the generated elements, far from the ones used by
+	 * the real index
+	 */
+	private static final int FILE_ID_BASE = 1000000000;
+
+	private final MatchRule matchRule;
+	private final boolean contention;
+	private String pattern;
+	private int fileCount;
+	private final List<Thread> writers = new ArrayList<Thread>();
+	private volatile boolean running;
+
+	public H2CacheBenchmark(String name, MatchRule matchRule, boolean contention) {
+		super(name);
+		this.matchRule = matchRule;
+		this.contention = contention;
+	}
+
+	private static Element createElement(WorkspaceGenerator generator,
+			int file, int declaration, int fileId) {
+		final String name = generator.getTypeName(file, declaration);
+		final StringBuilder camelCaseName = new StringBuilder();
+		for (int i = 0; i < name.length(); ++i) {
+			if (Character.isUpperCase(name.charAt(i))) {
+				camelCaseName.append(name.charAt(i));
+			}
+		}
+		return new Element(IModelElement.TYPE, 0, 0, 0, 0, name.length(),
+				name, camelCaseName.toString(), null, null, null, null, fileId,
+				false);
+	}
+
+	@Override
+	public void setUp(BenchmarkOptions options) throws Exception {
+		final WorkspaceGenerator generator = new WorkspaceGenerator(options);
+		fileCount = options.getFiles();
+		for (int f = 0; f < fileCount; ++f) {
+			for (int d = 0; d < options.getDeclarations(); ++d) {
+				H2Cache.addElement(createElement(generator, f, d, FILE_ID_BASE
+						+ f));
+			}
+		}
+		switch (matchRule) {
+		case EXACT:
+			pattern = generator.getTypeName(0, 0);
+			break;
+		case CAMEL_CASE:
+			pattern = "AM"; //$NON-NLS-1$
+			break;
+		default:
+			pattern = "abstract"; //$NON-NLS-1$
+		}
+		setParam("pattern", pattern); //$NON-NLS-1$
+		setParam("files", Integer.valueOf(options.getFiles())); //$NON-NLS-1$
+		setParam("declarations", Integer.valueOf(options.getDeclarations())); //$NON-NLS-1$
+		if (contention) {
+			setParam("writers", Integer.valueOf(options.getWriters())); //$NON-NLS-1$
+			running = true;
+			for (int w = 0; w < options.getWriters(); ++w) {
+				final Thread writer = new Writer(generator, options, w);
+				writers.add(writer);
+				writer.start();
+			}
+		}
+	}
+
+	/**
+	 * Re-indexes the files of its own, the same way the indexer replaces the
+	 * elements of the changed file.
+	 */
+	private class Writer extends Thread {
+		private final WorkspaceGenerator generator;
+		private final BenchmarkOptions options;
+		private final int index;
+
+		Writer(WorkspaceGenerator generator, BenchmarkOptions options, int index) {
+			super("H2Cache Benchmark Writer-" + (index + 1)); //$NON-NLS-1$
+			setDaemon(true);
+			this.generator = generator;
+			this.options = options;
+			this.index = index;
+		}
+
+		@Override
+		public void run() {
+			int file = index;
+			while (running) {
+				final int fileId = FILE_ID_BASE + fileCount + index;
+				H2Cache.deleteElementsByFileId(fileId);
+				for (int d = 0; d < options.getDeclarations(); ++d) {
+					H2Cache.addElement(createElement(generator, file, d, fileId));
+				}
+				file = (file + options.getWriters()) % fileCount;
+			}
+		}
+	}
+
+	@Override
+	public Object run() {
+		return H2Cache.searchElements(pattern, matchRule, IModelElement.TYPE,
+				0, 0, null, null, null, null, null, 0);
+	}
+
+	@Override
+	public void tearDown() throws Exception {
+		running = false;
+		for (Thread writer : writers) {
+			writer.join();
+		}
+		for (int i = 0; i < writers.size(); ++i) {
+			H2Cache.deleteElementsByFileId(FILE_ID_BASE + fileCount + i);
+		}
+		writers.clear();
+		for (int f = 0; f < fileCount; ++f) {
+			H2Cache.deleteElementsByFileId(FILE_ID_BASE + f);
+		}
+	}
+}
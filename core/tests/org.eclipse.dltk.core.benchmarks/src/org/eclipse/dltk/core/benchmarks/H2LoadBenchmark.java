@@ -0,0 +1,53 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.benchmarks;
+
+import org.eclipse.dltk.core.tests.index.H2ElementLoader;
+
+/**
+ * Loads the declarations and references of the generated files into the new
+ * H2 element tables, either the way the files are indexed one by one or in
+ * the bulk load mode used for the initial indexing. Each operation loads the
+ * tables of its own and drops them afterwards, the drop is measured in both
+ * modes.
+ */
+public class H2LoadBenchmark extends Benchmark {
+
+	private final boolean bulk;
+	private BenchmarkOptions options;
+	private int count;
+
+	public H2LoadBenchmark(boolean bulk) {
+		super(bulk ? "H2.loadBulk" : "H2.loadRegular"); //$NON-NLS-1$ //$NON-NLS-2$
+		this.bulk = bulk;
+	}
+
+	@Override
+	public void setUp(BenchmarkOptions options) throws Exception {
+		this.options = options;
+		setParam("files", Integer.valueOf(options.getFiles())); //$NON-NLS-1$
+		setParam("declarations", Integer.valueOf(options.getDeclarations())); //$NON-NLS-1$
+		setParam("references", Integer.valueOf(options.getReferences())); //$NON-NLS-1$
+	}
+
+	@Override
+	public Object run() throws Exception {
+		final H2ElementLoader loader = new H2ElementLoader(
+				"org.eclipse.dltk.benchmark.load" + (++count), //$NON-NLS-1$
+				options.getFiles(), options.getDeclarations(), options
+						.getReferences());
+		try {
+			loader.load(bulk);
+		} finally {
+			loader.delete();
+		}
+		return loader;
+	}
+}
@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.dltk.core.IModelElement;
+import org.eclipse.dltk.core.IParent;
+import org.eclipse.dltk.core.ISourceModule;
+import org.eclipse.dltk.core.ModelException;
+import org.eclipse.dltk.internal.core.ModelManager;
+
+/**
+ * Looks up the element infos of the opened modules and their members in the
+ * model cache.
+ */
+public class ModelInfoBenchmark extends WorkspaceBenchmark {
+
+	private IModelElement[] elements;
+	private int next;
+
+	public ModelInfoBenchmark() {
+		super("ModelManager.getInfo"); //$NON-NLS-1$
+	}
+
+	@Override
+	public void setUp(BenchmarkOptions options) throws Exception {
+		super.setUp(options);
+		final List<IModelElement> list = new ArrayList<IModelElement>();
+		final ISourceModule[] modules = getSourceModules();
+		for (int i = 0; i < modules.length; ++i) {
+			collect(modules[i], list);
+		}
+		elements = list.toArray(new IModelElement[list.size()]);
+		next = 0;
+		setParam("elements", Integer.valueOf(elements.length)); //$NON-NLS-1$
+	}
+
+	private static void collect(IModelElement element, List<IModelElement> list)
+			throws ModelException {
+		list.add(element);
+		if (element instanceof IParent) {
+			final IModelElement[] children = ((IParent) element).getChildren();
+			for (int i = 0; i < children.length; ++i) {
+				collect(children[i], list);
+			}
+		}
+	}
+
+	@Override
+	public Object run() {
+		final IModelElement element = elements[next];
+		if (++next == elements.length) {
+			next = 0;
+		}
+		return ModelManager.getModelManager().getInfo(element);
+	}
+
+	@Override
+	public void tearDown() throws Exception {
+		elements = null;
+		super.tearDown();
+	}
+}
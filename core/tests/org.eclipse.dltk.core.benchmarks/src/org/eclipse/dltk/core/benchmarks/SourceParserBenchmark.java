@@ -0,0 +1,50 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.benchmarks;
+
+import org.eclipse.dltk.core.ISourceModule;
+import org.eclipse.dltk.core.SourceParserUtil;
+
+/**
+ * Requests the AST of the generated modules one after another. After the
+ * warmup the modules are served from the AST cache, unless the cache is too
+ * small for the generated project.
+ */
+public class SourceParserBenchmark extends WorkspaceBenchmark {
+
+	private ISourceModule[] modules;
+	private int next;
+
+	public SourceParserBenchmark() {
+		super("SourceParserUtil.parse"); //$NON-NLS-1$
+	}
+
+	@Override
+	public void setUp(BenchmarkOptions options) throws Exception {
+		super.setUp(options);
+		modules = getSourceModules();
+		next = 0;
+	}
+
+	@Override
+	public Object run() {
+		final ISourceModule module = modules[next];
+		if (++next == modules.length) {
+			next = 0;
+		}
+		return SourceParserUtil.parse(module, null);
+	}
+
+	@Override
+	public void tearDown() throws Exception {
+		modules = null;
+		super.tearDown();
+	}
+}
@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.dltk.core.IModelElement;
+import org.eclipse.dltk.core.IProjectFragment;
+import org.eclipse.dltk.core.IScriptFolder;
+import org.eclipse.dltk.core.IScriptProject;
+import org.eclipse.dltk.core.ISourceModule;
+import org.eclipse.dltk.core.ModelException;
+
+/**
+ * Benchmark running against the project with the generated sources
+ */
+public abstract class WorkspaceBenchmark extends Benchmark {
+
+	private static final String PROJECT_NAME = "Benchmark"; //$NON-NLS-1$
+
+	private WorkspaceGenerator generator;
+	private IScriptProject project;
+
+	protected WorkspaceBenchmark(String name) {
+		super(name);
+	}
+
+	@Override
+	public void setUp(BenchmarkOptions options) throws Exception {
+		generator = new WorkspaceGenerator(options);
+		project = generator.createProject(PROJECT_NAME);
+		// let the build and the indexing settle down
+		Job.getJobManager().join(ResourcesPlugin.FAMILY_AUTO_BUILD, null);
+		setParam("files", Integer.valueOf(options.getFiles())); //$NON-NLS-1$
+		setParam("declarations", Integer.valueOf(options.getDeclarations())); //$NON-NLS-1$
+		setParam("references", Integer.valueOf(options.getReferences())); //$NON-NLS-1$
+	}
+
+	protected IScriptProject getProject() {
+		return project;
+	}
+
+	protected ISourceModule[] getSourceModules() throws ModelException {
+		final List<ISourceModule> modules = new ArrayList<ISourceModule>();
+		final IProjectFragment[] fragments = project.getProjectFragments();
+		for (int i = 0; i < fragments.length; ++i) {
+			if (fragments[i].getKind() != IProjectFragment.K_SOURCE) {
+				continue;
+			}
+			final IModelElement[] folders = fragments[i].getChildren();
+			for (int j = 0; j < folders.length; ++j) {
+				final ISourceModule[] folderModules = ((IScriptFolder) folders[j])
+						.getSourceModules();
+				for (int k = 0; k < folderModules.length; ++k) {
+					modules.add(folderModules[k]);
+				}
+			}
+		}
+		return modules.toArray(new ISourceModule[modules.size()]);
+	}
+
+	@Override
+	public void tearDown() throws Exception {
+		if (project != null) {
+			generator.deleteProject(project);
+			project = null;
+		}
+	}
+}
@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.Random;
+
+import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IProjectDescription;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.dltk.core.DLTKCore;
+import org.eclipse.dltk.core.IBuildpathEntry;
+import org.eclipse.dltk.core.IScriptProject;
+import org.eclipse.dltk.core.tests.model.ModelTestsPlugin;
+
+/**
+ * Generates the synthetic sources of the configured size. The names are built
+ * from the small vocabulary, so they share the prefixes and camel case
+ * abbreviations like the real code does. The generated data is the same for
+ * the same options, so the results of the different runs are comparable.
+ */
+public class WorkspaceGenerator {
+
+	private static final String[] WORDS = { "Abstract", "Buffer", "Cache", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			"Document", "Element", "Factory", "Handler", "Index", "Model", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
+			"Parser", "Reader", "Source", "Type", "Writer" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+
+	/**
+	 * Number of the files in the single folder
+	 */
+	private static final int FOLDER_SIZE = 50;
+
+	private static final String SOURCE_FOLDER = "src"; //$NON-NLS-1$
+
+	private final BenchmarkOptions options;
+
+	public WorkspaceGenerator(BenchmarkOptions options) {
+		this.options = options;
+	}
+
+	private static String getWords(int file, int declaration) {
+		final Random random = new Random(file * 31L + declaration);
+		final StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 3; ++i) {
+			sb.append(WORDS[random.nextInt(WORDS.length)]);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Returns the name of the type declared in the specified file
+	 */
+	public String getTypeName(int file, int declaration) {
+		return getWords(file, declaration) + file + '_' + declaration;
+	}
+
+	/**
+	 * Returns the name of the method declared in the specified file
+	 */
+	public String getMethodName(int file, int declaration) {
+		return "get" + getWords(file, declaration); //$NON-NLS-1$
+	}
+
+	/**
+	 * Returns the name of the method referenced from the specified file,
+	 * pointing to the declaration in the other file.
+	 */
+	public String getReferenceName(int file, int reference) {
+		final Random random = new Random(file * 17L + reference);
+		return getMethodName(random.nextInt(options.getFiles()), random
+				.nextInt(Math.max(options.getDeclarations(), 1)));
+	}
+
+	public String getFolderName(int file) {
+		return "folder" + (file / FOLDER_SIZE); //$NON-NLS-1$
+	}
+
+	public String getFileName(int file) {
+		return "module" + file + ".txt"; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * Returns the content of the specified file in the format understood by
+	 * the test language parser.
+	 */
+	public String getSource(int file) {
+		final StringBuilder sb = new StringBuilder("# parseme!\n"); //$NON-NLS-1$
+		final int declarations = options.getDeclarations();
+		final int references = options.getReferences();
+		for (int d = 0; d < declarations; ++d) {
+			sb.append("enterType ").append(getTypeName(file, d)).append('\n'); //$NON-NLS-1$
+			sb.append("enterMethod ").append(getMethodName(file, d)) //$NON-NLS-1$
+					.append('\n');
+			// spread the references over the declared methods
+			for (int r = d; r < references; r += declarations) {
+				sb.append("callMethod ").append(getReferenceName(file, r)) //$NON-NLS-1$
+						.append('\n');
+			}
+			sb.append("exitMethod\n"); //$NON-NLS-1$
+			sb.append("exitType\n"); //$NON-NLS-1$
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Creates the project with the generated sources
+	 */
+	public IScriptProject createProject(final String name) throws CoreException {
+		final IProject project = ResourcesPlugin.getWorkspace().getRoot()
+				.getProject(name);
+		ResourcesPlugin.getWorkspace().run(new IWorkspaceRunnable() {
+			public void run(IProgressMonitor monitor) throws CoreException {
+				if (project.exists()) {
+					project.delete(true, true, monitor);
+				}
+				project.create(monitor);
+				project.open(monitor);
+				final IProjectDescription description = project
+						.getDescription();
+				description
+						.setNatureIds(new String[] { ModelTestsPlugin.TEST_NATURE });
+				project.setDescription(description, monitor);
+				final IFolder source = project.getFolder(SOURCE_FOLDER);
+				source.create(true, true, monitor);
+				for (int i = 0; i < options.getFiles(); ++i) {
+					final IFolder folder = source.getFolder(getFolderName(i));
+					if (!folder.exists()) {
+						folder.create(true, true, monitor);
+					}
+					folder.getFile(getFileName(i)).create(
+							new ByteArrayInputStream(getBytes(getSource(i))),
+							true, monitor);
+				}
+				DLTKCore.create(project).setRawBuildpath(
+						new IBuildpathEntry[] { DLTKCore.newSourceEntry(source
+								.getFullPath()) }, monitor);
+			}
+		}, null);
+		return DLTKCore.create(project);
+	}
+
+	public void deleteProject(IScriptProject project) throws CoreException {
+		project.getProject().delete(true, true, null);
+	}
+
+	private static byte[] getBytes(String value) {
+		try {
+			return value.getBytes("UTF-8"); //$NON-NLS-1$
+		} catch (UnsupportedEncodingException e) {
+			return value.getBytes();
+		}
+	}
+}
@@ -14,22 +14,39 @@ import junit.framework.Test;
 import junit.framework.TestSuite;
 
 import org.eclipse.dltk.core.tests.builder.BuildParticipantManagerTests;
+import org.eclipse.dltk.core.tests.builder.ParallelBuildTests;
 import org.eclipse.dltk.core.tests.buildpath.BuildpathTests;
 import org.eclipse.dltk.core.tests.cache.CacheTests;
+import org.eclipse.dltk.core.tests.cache.ElementCacheTests;
+import org.eclipse.dltk.core.tests.cache.FileInfoCacheTests;
 import org.eclipse.dltk.core.tests.cache.SourceModuleInfoCacheTest;
+import org.eclipse.dltk.core.tests.cache.SubTypeCacheTests;
 import org.eclipse.dltk.core.tests.compiler.CompilerCharOperationTests;
 import org.eclipse.dltk.core.tests.compiler.CompilerUtilTests;
 import org.eclipse.dltk.core.tests.ddp.CoreDDPTests;
+import org.eclipse.dltk.core.tests.index.H2BulkLoadTests;
+import org.eclipse.dltk.core.tests.index.H2CacheTests;
 import org.eclipse.dltk.core.tests.launching.EnvironmentResolverTests;
 import org.eclipse.dltk.core.tests.launching.InterpreterConfigTests;
+import org.eclipse.dltk.core.tests.mixin.KnownKeysCacheTests;
 import org.eclipse.dltk.core.tests.mixin.MixinIndexTests;
 import org.eclipse.dltk.core.tests.mixin.MixinModelTests;
+import org.eclipse.dltk.core.tests.model.AsyncDeltaDispatcherTests;
 import org.eclipse.dltk.core.tests.model.BufferTests;
+import org.eclipse.dltk.core.tests.model.MappedArchiveFileTests;
 import org.eclipse.dltk.core.tests.model.ModelMembersTests;
+import org.eclipse.dltk.core.tests.model.NameLookupTableTests;
+import org.eclipse.dltk.core.tests.model.NameLookupTests;
 import org.eclipse.dltk.core.tests.model.NamespaceTests;
 import org.eclipse.dltk.core.tests.model.WorkingCopyTests;
+import org.eclipse.dltk.core.tests.parser.ASTNodeIndexTests;
+import org.eclipse.dltk.core.tests.parser.PersistentASTCacheTests;
 import org.eclipse.dltk.core.tests.parser.SourceParserTests;
 import org.eclipse.dltk.core.tests.search.Bug387751Test;
+import org.eclipse.dltk.core.tests.search.DiskIndexTests;
+import org.eclipse.dltk.core.tests.search.JobManagerTests;
+import org.eclipse.dltk.core.tests.search.ParallelMatchLocatorTests;
+import org.eclipse.dltk.core.tests.search.SearchBudgetTests;
 import org.eclipse.dltk.core.tests.util.CharacterStackTests;
 import org.eclipse.dltk.core.tests.utils.CharOperationTests;
 import org.eclipse.dltk.core.tests.utils.IntListTests;
@@ -42,6 +59,7 @@ public class AllTests {
 		TestSuite suite = new TestSuite("org.eclipse.dltk.core.tests.model");
 		// $JUnit-BEGIN$
 		suite.addTest(new TestSuite(BuildParticipantManagerTests.class));
+		suite.addTest(ParallelBuildTests.suite());
 		suite.addTest(BuildpathTests.suite());
 
 		suite.addTest(new TestSuite(CacheTests.class));
@@ -57,6 +75,7 @@ public class AllTests {
 
 		suite.addTest(new TestSuite(MixinIndexTests.class));
 		suite.addTest(new TestSuite(MixinModelTests.class));
+		suite.addTest(new TestSuite(KnownKeysCacheTests.class));
 
 		suite.addTest(BufferTests.suite());
 		suite.addTest(ModelMembersTests.suite());
@@ -64,6 +83,7 @@ public class AllTests {
 		suite.addTest(WorkingCopyTests.suite());
 
 		suite.addTest(new TestSuite(SourceParserTests.class));
+		suite.addTestSuite(PersistentASTCacheTests.class);
 
 		suite.addTestSuite(CharacterStackTests.class);
 
@@ -71,7 +91,21 @@ public class AllTests {
 		suite.addTest(new TestSuite(InternalCoreUtilTest.class));
 		suite.addTest(TextUtilsTest.suite());
 		suite.addTest(new JUnit4TestAdapter(Bug387751Test.class));
+		suite.addTestSuite(JobManagerTests.class);
+		suite.addTestSuite(DiskIndexTests.class);
+		suite.addTestSuite(SearchBudgetTests.class);
+		suite.addTest(ParallelMatchLocatorTests.suite());
 		suite.addTest(new JUnit4TestAdapter(SourceModuleInfoCacheTest.class));
+		suite.addTestSuite(ElementCacheTests.class);
+		suite.addTestSuite(SubTypeCacheTests.class);
+		suite.addTestSuite(NameLookupTableTests.class);
+		suite.addTest(NameLookupTests.suite());
+		suite.addTestSuite(MappedArchiveFileTests.class);
+		suite.addTestSuite(FileInfoCacheTests.class);
+		suite.addTestSuite(AsyncDeltaDispatcherTests.class);
+		suite.addTestSuite(ASTNodeIndexTests.class);
+		suite.addTestSuite(H2CacheTests.class);
+		suite.addTestSuite(H2BulkLoadTests.class);
 		// $JUnit-END$
 		return suite;
 	}
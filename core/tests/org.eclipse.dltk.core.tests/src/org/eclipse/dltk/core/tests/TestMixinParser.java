@@ -11,6 +11,10 @@
  *******************************************************************************/
 package org.eclipse.dltk.core.tests;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.eclipse.dltk.core.ISourceModule;
 import org.eclipse.dltk.core.mixin.IMixinParser;
 import org.eclipse.dltk.core.mixin.IMixinRequestor;
@@ -20,8 +24,55 @@ public class TestMixinParser implements IMixinParser {
 
 	private IMixinRequestor requestor;
 
+	private static final AtomicInteger parseCount = new AtomicInteger();
+	private static volatile CountDownLatch parsing = null;
+	private static volatile CountDownLatch resume = null;
+
+	/**
+	 * Returns the number of the times X.txt was parsed
+	 */
+	public static int getParseCount() {
+		return parseCount.get();
+	}
+
+	/**
+	 * Makes the next parse of X.txt wait for {@link #resume()}
+	 */
+	public static void suspend() {
+		parsing = new CountDownLatch(1);
+		resume = new CountDownLatch(1);
+	}
+
+	/**
+	 * Waits until the suspended parse of X.txt is started
+	 */
+	public static boolean awaitSuspended(long timeout)
+			throws InterruptedException {
+		return parsing.await(timeout, TimeUnit.MILLISECONDS);
+	}
+
+	public static void resume() {
+		final CountDownLatch latch = resume;
+		parsing = null;
+		resume = null;
+		if (latch != null) {
+			latch.countDown();
+		}
+	}
+
 	public void parserSourceModule(boolean signature, ISourceModule module) {
 		if (module.getElementName().equals("X.txt")) {
+			parseCount.incrementAndGet();
+			final CountDownLatch started = parsing;
+			final CountDownLatch latch = resume;
+			if (started != null && latch != null) {
+				started.countDown();
+				try {
+					latch.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
 			requestor.reportElement(key("{foo"));
 			requestor.reportElement(key("{foo{$a"));
 			requestor.reportElement(key("{foo{$b"));
@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.tests.builder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Hashtable;
+import java.util.List;
+
+import junit.framework.Test;
+
+import org.eclipse.core.resources.ICommand;
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IProjectDescription;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IncrementalProjectBuilder;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.dltk.compiler.problem.DefaultProblem;
+import org.eclipse.dltk.core.DLTKCore;
+import org.eclipse.dltk.core.tests.model.ModelTestsPlugin;
+import org.eclipse.dltk.core.tests.model.ModifyingResourceTests;
+
+/**
+ * Compares the problem markers created by the sequential and the parallel
+ * builds.
+ */
+public class ParallelBuildTests extends ModifyingResourceTests {
+	private static final String[] TEST_NATURE = new String[] { "org.eclipse.dltk.core.tests.testnature" }; //$NON-NLS-1$
+
+	/**
+	 * Enough to build in parallel and to use more than one window of the
+	 * submitted modules
+	 */
+	private static final int MODULE_COUNT = 40;
+
+	/**
+	 * Less than the parallel build threshold
+	 */
+	private static final int CHANGED_COUNT = 3;
+
+	private static final String WORKER = "Script Builder Worker-"; //$NON-NLS-1$
+
+	private Hashtable<String, String> oldOptions;
+
+	public ParallelBuildTests(String name) {
+		super(ModelTestsPlugin.PLUGIN_NAME, name);
+	}
+
+	public static Test suite() {
+		return new Suite(ParallelBuildTests.class);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		oldOptions = DLTKCore.getOptions();
+		TestThreadSafeBuildParticipantFactory.enabled = true;
+		final IProject project = createScriptProject("P", TEST_NATURE, //$NON-NLS-1$
+				new String[] { "src" }).getProject(); //$NON-NLS-1$
+		final IProjectDescription description = project.getDescription();
+		final ICommand command = description.newCommand();
+		command.setBuilderName(DLTKCore.BUILDER_ID);
+		description.setBuildSpec(new ICommand[] { command });
+		project.setDescription(description, null);
+		for (int i = 0; i < MODULE_COUNT; ++i) {
+			final StringBuilder sb = new StringBuilder();
+			for (int j = 0; j <= i % 3; ++j) {
+				sb.append("line").append(j).append('\n'); //$NON-NLS-1$
+				sb.append(TestThreadSafeBuildParticipantFactory.PROBLEM)
+						.append(i).append('_').append(j).append('\n');
+			}
+			createFile("P/src/module" + i + ".txt", sb.toString()); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		TestThreadSafeBuildParticipantFactory.enabled = false;
+		TestThreadSafeBuildParticipantFactory.threads.clear();
+		DLTKCore.setOptions(oldOptions);
+		deleteProject("P"); //$NON-NLS-1$
+		super.tearDown();
+	}
+
+	private void setThreads(int threads) {
+		final Hashtable<String, String> options = DLTKCore.getOptions();
+		options.put(DLTKCore.BUILDER_THREADS, String.valueOf(threads));
+		DLTKCore.setOptions(options);
+	}
+
+	private List<String> build(int kind) throws CoreException {
+		TestThreadSafeBuildParticipantFactory.threads.clear();
+		final IProject project = getProject("P"); //$NON-NLS-1$
+		project.build(kind, null);
+		final IMarker[] markers = project.findMarkers(
+				DefaultProblem.MARKER_TYPE_PROBLEM, true,
+				IResource.DEPTH_INFINITE);
+		final List<String> result = new ArrayList<String>();
+		for (IMarker marker : markers) {
+			result.add(marker.getResource().getName()
+					+ ":" //$NON-NLS-1$
+					+ marker.getAttribute(IMarker.MESSAGE, null)
+					+ ":" //$NON-NLS-1$
+					+ marker.getAttribute(IMarker.LINE_NUMBER, -1)
+					+ ":" //$NON-NLS-1$
+					+ marker.getAttribute(IMarker.CHAR_START, -1)
+					+ "-" //$NON-NLS-1$
+					+ marker.getAttribute(IMarker.CHAR_END, -1)
+					+ ":" //$NON-NLS-1$
+					+ marker.getAttribute(IMarker.SEVERITY, -1));
+		}
+		Collections.sort(result);
+		return result;
+	}
+
+	private static boolean isBuiltByWorkers() {
+		synchronized (TestThreadSafeBuildParticipantFactory.threads) {
+			for (String thread : TestThreadSafeBuildParticipantFactory.threads) {
+				if (thread.startsWith(WORKER)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	public void testSameMarkers() throws CoreException {
+		setThreads(1);
+		final List<String> sequential = build(IncrementalProjectBuilder.FULL_BUILD);
+		assertFalse(isBuiltByWorkers());
+		int problemCount = 0;
+		for (int i = 0; i < MODULE_COUNT; ++i) {
+			problemCount += i % 3 + 1;
+		}
+		assertEquals(problemCount, sequential.size());
+		setThreads(4);
+		final List<String> parallel = build(IncrementalProjectBuilder.FULL_BUILD);
+		assertTrue(isBuiltByWorkers());
+		assertEquals(sequential, parallel);
+	}
+
+	/**
+	 * The changes below the threshold are built sequentially, the markers of
+	 * the other modules are kept.
+	 */
+	public void testThreshold() throws CoreException {
+		setThreads(4);
+		final List<String> before = build(IncrementalProjectBuilder.FULL_BUILD);
+		assertTrue(isBuiltByWorkers());
+		for (int i = 0; i < CHANGED_COUNT; ++i) {
+			getFile("P/src/module" + i + ".txt").touch(null); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		final List<String> after = build(IncrementalProjectBuilder.INCREMENTAL_BUILD);
+		assertFalse(TestThreadSafeBuildParticipantFactory.threads.isEmpty());
+		assertFalse(isBuiltByWorkers());
+		assertEquals(before, after);
+	}
+
+}
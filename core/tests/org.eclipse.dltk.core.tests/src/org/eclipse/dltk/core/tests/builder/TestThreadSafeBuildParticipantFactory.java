@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.tests.builder;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.dltk.compiler.problem.DefaultProblem;
+import org.eclipse.dltk.compiler.problem.ProblemSeverity;
+import org.eclipse.dltk.core.IScriptProject;
+import org.eclipse.dltk.core.builder.IBuildContext;
+import org.eclipse.dltk.core.builder.IBuildParticipant;
+import org.eclipse.dltk.core.builder.IBuildParticipantExtension5;
+import org.eclipse.dltk.core.builder.IBuildParticipantFactory;
+
+/**
+ * Creates the thread safe participant reporting a problem for each line
+ * starting with {@link #PROBLEM}, only when {@link #enabled}, so the builds
+ * of the other tests are not affected.
+ */
+public class TestThreadSafeBuildParticipantFactory implements
+		IBuildParticipantFactory {
+
+	static final String PROBLEM = "problem"; //$NON-NLS-1$
+
+	static volatile boolean enabled = false;
+
+	/**
+	 * The names of the threads the modules were built on
+	 */
+	static final Set<String> threads = Collections
+			.synchronizedSet(new HashSet<String>());
+
+	public IBuildParticipant createBuildParticipant(IScriptProject project)
+			throws CoreException {
+		return enabled ? new Participant() : null;
+	}
+
+	private static class Participant implements IBuildParticipantExtension5 {
+
+		public boolean isThreadSafe() {
+			return true;
+		}
+
+		public void build(IBuildContext context) throws CoreException {
+			threads.add(Thread.currentThread().getName());
+			final char[] contents = context.getContents();
+			int line = 0;
+			int start = 0;
+			while (start < contents.length) {
+				int end = start;
+				while (end < contents.length && contents[end] != '\n') {
+					++end;
+				}
+				final String text = new String(contents, start, end - start);
+				if (text.startsWith(PROBLEM)) {
+					context.getProblemReporter().reportProblem(
+							new DefaultProblem(context.getFileName(), text,
+									null, null, ProblemSeverity.ERROR, start,
+									end, line, 0));
+				}
+				++line;
+				start = end + 1;
+			}
+		}
+	}
+
+}
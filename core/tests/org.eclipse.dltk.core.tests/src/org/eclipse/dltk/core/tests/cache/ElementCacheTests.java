@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.tests.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.dltk.internal.core.ElementCache;
+
+public class ElementCacheTests extends TestCase {
+
+	private static final int KEYS = 100;
+
+	public void testConcurrentValues() {
+		final ElementCache cache = new ElementCache(1000);
+		assertNull(cache.getConcurrently("a")); //$NON-NLS-1$
+		cache.put("a", "1"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("1", cache.getConcurrently("a")); //$NON-NLS-1$ //$NON-NLS-2$
+		cache.put("a", "2"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("2", cache.peekConcurrently("a")); //$NON-NLS-1$ //$NON-NLS-2$
+		cache.applyAccesses();
+		cache.remove("a"); //$NON-NLS-1$
+		assertNull(cache.getConcurrently("a")); //$NON-NLS-1$
+		cache.put("b", "3"); //$NON-NLS-1$ //$NON-NLS-2$
+		cache.flush();
+		assertNull(cache.peekConcurrently("b")); //$NON-NLS-1$
+	}
+
+	public void testReadersDontBlock() throws InterruptedException {
+		final ElementCache cache = new ElementCache(1000);
+		for (int i = 0; i < KEYS; ++i) {
+			cache.put("key" + i, "value" + i); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		final List<Throwable> errors = Collections
+				.synchronizedList(new ArrayList<Throwable>());
+		final Thread[] readers = new Thread[4];
+		final long[] lookups = new long[readers.length];
+		final Object lock = new Object();
+		synchronized (lock) {
+			// the lock guarding modifications is held during all reads
+			for (int t = 0; t < readers.length; ++t) {
+				final int index = t;
+				readers[t] = new Thread() {
+					@Override
+					public void run() {
+						try {
+							for (int i = 0; i < 10000; ++i) {
+								final int key = i % KEYS;
+								assertEquals("value" + key, //$NON-NLS-1$
+										cache.getConcurrently("key" + key)); //$NON-NLS-1$
+								++lookups[index];
+							}
+						} catch (Throwable e) {
+							errors.add(e);
+						}
+					}
+				};
+				readers[t].start();
+			}
+			for (Thread reader : readers) {
+				reader.join(10000);
+				assertFalse(reader.isAlive());
+			}
+			cache.applyAccesses();
+		}
+		assertEquals(errors.toString(), 0, errors.size());
+		for (long count : lookups) {
+			assertEquals(10000, count);
+		}
+	}
+}
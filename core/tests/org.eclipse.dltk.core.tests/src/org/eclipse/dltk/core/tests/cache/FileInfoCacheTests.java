@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.tests.cache;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.filesystem.EFS;
+import org.eclipse.core.filesystem.IFileStore;
+import org.eclipse.core.resources.IMarkerDelta;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.dltk.core.internal.environment.FileInfoCache;
+
+public class FileInfoCacheTests extends TestCase {
+
+	private static final long LOCAL_TIMEOUT = 1000;
+	private static final long REMOTE_TIMEOUT = 5000;
+
+	private static class TestFileInfoCache extends FileInfoCache {
+		long time = 0;
+
+		TestFileInfoCache(int capacity) {
+			super(capacity, LOCAL_TIMEOUT, REMOTE_TIMEOUT);
+		}
+
+		@Override
+		protected long currentTime() {
+			return time;
+		}
+	}
+
+	private File directory;
+	private TestFileInfoCache cache;
+
+	@Override
+	protected void setUp() throws Exception {
+		directory = File.createTempFile("fileinfo", ""); //$NON-NLS-1$ //$NON-NLS-2$
+		directory.delete();
+		directory.mkdir();
+		new File(directory, "sub").mkdir(); //$NON-NLS-1$
+		write(new File(directory, "a.txt")); //$NON-NLS-1$
+		write(new File(directory, "sub/b.txt")); //$NON-NLS-1$
+		cache = new TestFileInfoCache(100);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		new File(directory, "sub/b.txt").delete(); //$NON-NLS-1$
+		new File(directory, "sub/c.txt").delete(); //$NON-NLS-1$
+		new File(directory, "sub").delete(); //$NON-NLS-1$
+		new File(directory, "a.txt").delete(); //$NON-NLS-1$
+		new File(directory, "c.txt").delete(); //$NON-NLS-1$
+		directory.delete();
+	}
+
+	private static void write(File file) throws IOException {
+		final FileOutputStream output = new FileOutputStream(file);
+		try {
+			output.write(1);
+		} finally {
+			output.close();
+		}
+	}
+
+	private IFileStore store(String name) {
+		return EFS.getLocalFileSystem().fromLocalFile(
+				new File(directory, name));
+	}
+
+	public void testTimeout() throws IOException {
+		final IFileStore c = store("c.txt"); //$NON-NLS-1$
+		assertFalse(cache.fetchInfo(c, false).exists());
+		write(new File(directory, "c.txt")); //$NON-NLS-1$
+		cache.time = LOCAL_TIMEOUT;
+		assertFalse(cache.fetchInfo(c, false).exists());
+		cache.time = REMOTE_TIMEOUT;
+		assertTrue(cache.fetchInfo(c, false).exists());
+	}
+
+	/**
+	 * The local entries expire sooner than the remote ones
+	 */
+	public void testLocalTimeout() throws IOException, CoreException {
+		final IFileStore c = store("c.txt"); //$NON-NLS-1$
+		assertFalse(cache.fetchInfo(c, true).exists());
+		assertEquals(2, cache.childInfos(store(""), true, null).length); //$NON-NLS-1$
+		write(new File(directory, "c.txt")); //$NON-NLS-1$
+		assertFalse(cache.fetchInfo(c, true).exists());
+		assertEquals(2, cache.childInfos(store(""), true, null).length); //$NON-NLS-1$
+		cache.time = LOCAL_TIMEOUT;
+		assertTrue(cache.fetchInfo(c, true).exists());
+		assertEquals(3, cache.childInfos(store(""), true, null).length); //$NON-NLS-1$
+	}
+
+	/**
+	 * The whole subtree is listed at once
+	 */
+	public void testPrefetch() throws IOException, CoreException {
+		cache.prefetch(store(""), false, null); //$NON-NLS-1$
+		// the directories, the files and the listings
+		assertEquals(4, cache.size());
+		write(new File(directory, "sub/c.txt")); //$NON-NLS-1$
+		assertEquals(1, cache.childInfos(store("sub"), false, null).length); //$NON-NLS-1$
+		assertTrue(cache.fetchInfo(store("sub/b.txt"), false).exists()); //$NON-NLS-1$
+		assertEquals(4, cache.size());
+	}
+
+	public void testInvalidate() throws IOException {
+		final IFileStore c = store("c.txt"); //$NON-NLS-1$
+		final IFileStore root = store(""); //$NON-NLS-1$
+		assertFalse(cache.fetchInfo(c, false).exists());
+		assertEquals(2, childCount(root));
+		write(new File(directory, "c.txt")); //$NON-NLS-1$
+		assertEquals(2, childCount(root));
+		cache.invalidate(c);
+		assertTrue(cache.fetchInfo(c, false).exists());
+		assertEquals(3, childCount(root));
+	}
+
+	private int childCount(IFileStore store) {
+		try {
+			return cache.childInfos(store, false, null).length;
+		} catch (CoreException e) {
+			fail(e.getMessage());
+			return -1;
+		}
+	}
+
+	/**
+	 * The workspace changes are not visited if only the remote entries are
+	 * cached
+	 */
+	public void testRemoteOnlyChangesSkipped() {
+		cache.fetchInfo(store("a.txt"), false); //$NON-NLS-1$
+		cache.resourceChanged(new NoDeltaEvent());
+		cache.fetchInfo(store("sub"), true); //$NON-NLS-1$
+		boolean requested = false;
+		try {
+			cache.resourceChanged(new NoDeltaEvent());
+		} catch (IllegalStateException e) {
+			requested = true;
+		}
+		assertTrue(requested);
+	}
+
+	private static class NoDeltaEvent implements IResourceChangeEvent {
+		public IMarkerDelta[] findMarkerDeltas(String type,
+				boolean includeSubtypes) {
+			return null;
+		}
+
+		public int getBuildKind() {
+			return 0;
+		}
+
+		public IResourceDelta getDelta() {
+			throw new IllegalStateException();
+		}
+
+		public IResource getResource() {
+			return null;
+		}
+
+		public Object getSource() {
+			return null;
+		}
+
+		public int getType() {
+			return POST_CHANGE;
+		}
+	}
+
+	public void testCapacity() {
+		final FileInfoCache small = new TestFileInfoCache(1);
+		small.fetchInfo(store("a.txt"), false); //$NON-NLS-1$
+		small.fetchInfo(store("sub"), false); //$NON-NLS-1$
+		assertEquals(1, small.size());
+	}
+}
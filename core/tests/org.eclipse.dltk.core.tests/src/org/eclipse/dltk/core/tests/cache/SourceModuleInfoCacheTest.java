@@ -26,6 +26,7 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.dltk.core.IModelElement;
 import org.eclipse.dltk.core.IScriptFolder;
 import org.eclipse.dltk.core.ISourceModule;
+import org.eclipse.dltk.core.ISourceModuleInfoCache.ISourceModuleInfo;
 import org.eclipse.dltk.core.ModelException;
 import org.eclipse.dltk.core.SourceParserUtil;
 import org.eclipse.dltk.core.tests.ProjectSetup;
@@ -201,4 +202,33 @@ public class SourceModuleInfoCacheTest extends Assert {
 		assertThat(modules.get(0), not(IS_CACHED));
 	}
 
+	@Test
+	public void concurrentGet() throws Exception {
+		final ISourceModule module = project.getSourceModule("src",
+				"folder1/a.txt");
+		assertNotNull(module);
+		final int threadCount = 8;
+		final ISourceModuleInfo[] infos = new ISourceModuleInfo[threadCount];
+		final Thread[] threads = new Thread[threadCount];
+		for (int i = 0; i < threadCount; ++i) {
+			final int index = i;
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					infos[index] = getCache().get(module);
+				}
+			};
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		for (ISourceModuleInfo info : infos) {
+			assertSame(infos[0], info);
+		}
+		assertEquals(1, getCache().size());
+	}
+
 }
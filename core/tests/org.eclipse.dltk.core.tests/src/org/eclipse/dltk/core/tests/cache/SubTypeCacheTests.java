@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.tests.cache;
+
+import java.io.File;
+
+import junit.framework.TestCase;
+
+import org.eclipse.dltk.internal.core.hierarchy.SubTypeCache;
+import org.eclipse.dltk.internal.core.hierarchy.SubTypeCache.SubTypeReference;
+
+public class SubTypeCacheTests extends TestCase {
+
+	private static final String NATURE = "nature"; //$NON-NLS-1$
+	private static final String PATH_A = "/project/a.txt"; //$NON-NLS-1$
+	private static final String PATH_B = "/project/b.txt"; //$NON-NLS-1$
+
+	private SubTypeCache cache;
+
+	@Override
+	protected void setUp() throws Exception {
+		cache = new SubTypeCache(100);
+		final SubTypeReference a = new SubTypeReference(PATH_A,
+				"A".toCharArray(), false); //$NON-NLS-1$
+		final SubTypeReference b = new SubTypeReference(PATH_B,
+				"B".toCharArray(), false); //$NON-NLS-1$
+		final SubTypeReference c = new SubTypeReference(PATH_B,
+				"C".toCharArray(), true); //$NON-NLS-1$
+		cache.put(NATURE, "Base", new SubTypeReference[] { a, b }, //$NON-NLS-1$
+				cache.getGeneration());
+		cache.put(NATURE, "A", new SubTypeReference[] { c }, //$NON-NLS-1$
+				cache.getGeneration());
+	}
+
+	public void testGet() {
+		assertEquals(2, cache.get(NATURE, "Base").length); //$NON-NLS-1$
+		assertEquals(1, cache.get(NATURE, "A").length); //$NON-NLS-1$
+		assertNull(cache.get(NATURE, "B")); //$NON-NLS-1$
+		assertNull(cache.get("other", "Base")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testStaleQuery() {
+		final int generation = cache.getGeneration();
+		cache.superTypeReferenceAdded("X{}Y{".toCharArray()); //$NON-NLS-1$
+		cache.put(NATURE, "Z", new SubTypeReference[0], generation); //$NON-NLS-1$
+		assertNull(cache.get(NATURE, "Z")); //$NON-NLS-1$
+	}
+
+	public void testSuperTypeReferenceAdded() {
+		cache.superTypeReferenceAdded("Base{}D{".toCharArray()); //$NON-NLS-1$
+		assertNull(cache.get(NATURE, "Base")); //$NON-NLS-1$
+		assertNotNull(cache.get(NATURE, "A")); //$NON-NLS-1$
+	}
+
+	public void testDocumentRemoved() {
+		cache.documentRemoved(PATH_A);
+		assertNull(cache.get(NATURE, "Base")); //$NON-NLS-1$
+		assertNotNull(cache.get(NATURE, "A")); //$NON-NLS-1$
+		cache.documentRemoved(PATH_B);
+		assertEquals(0, cache.size());
+	}
+
+	public void testSaveLoad() throws Exception {
+		final File file = File.createTempFile("subtypes", ".cache"); //$NON-NLS-1$ //$NON-NLS-2$
+		try {
+			cache.save(file);
+			final SubTypeCache loaded = new SubTypeCache(100);
+			loaded.load(file);
+			assertFalse(file.exists());
+			final SubTypeReference[] subTypes = loaded.get(NATURE, "A"); //$NON-NLS-1$
+			assertEquals(1, subTypes.length);
+			assertEquals(PATH_B, subTypes[0].documentPath);
+			assertEquals("C", new String(subTypes[0].typeName)); //$NON-NLS-1$
+			assertTrue(subTypes[0].isLocalOrAnonymous);
+			loaded.documentRemoved(PATH_A);
+			assertNull(loaded.get(NATURE, "Base")); //$NON-NLS-1$
+		} finally {
+			file.delete();
+		}
+	}
+}
@@ -9,9 +9,14 @@
  *******************************************************************************/
 package org.eclipse.dltk.core.tests.ddp;
 
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import junit.framework.Test;
 
@@ -19,8 +24,11 @@ import org.eclipse.dltk.ast.ASTNode;
 import org.eclipse.dltk.ast.expressions.Expression;
 import org.eclipse.dltk.ast.expressions.NumericLiteral;
 import org.eclipse.dltk.ast.references.SimpleReference;
+import org.eclipse.dltk.core.ISourceModule;
 import org.eclipse.dltk.core.tests.model.SuiteOfTestCases;
+import org.eclipse.dltk.ti.BasicContext;
 import org.eclipse.dltk.ti.DefaultTypeInferencer;
+import org.eclipse.dltk.ti.GoalResultCache;
 import org.eclipse.dltk.ti.GoalState;
 import org.eclipse.dltk.ti.IGoalEvaluatorFactory;
 import org.eclipse.dltk.ti.ITypeInferencer;
@@ -112,6 +120,45 @@ public class CoreDDPTests extends SuiteOfTestCases {
 		
 	}
 
+	/**
+	 * Waits in {@link #init()} until the other evaluators sharing the latch
+	 * are initialized too.
+	 */
+	private static final class OverlappingGoalEvaluator extends GoalEvaluator {
+		private final CountDownLatch initialized;
+		private final IEvaluatedType answer;
+		private boolean overlapped;
+
+		private OverlappingGoalEvaluator(IGoal goal,
+				CountDownLatch initialized, IEvaluatedType answer) {
+			super(goal);
+			this.initialized = initialized;
+			this.answer = answer;
+		}
+
+		public IGoal[] init() {
+			initialized.countDown();
+			try {
+				overlapped = initialized.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				// not overlapped
+			}
+			return IGoal.NO_GOALS;
+		}
+
+		public IGoal[] subGoalDone(IGoal goal2, Object result, GoalState state) {
+			return IGoal.NO_GOALS;
+		}
+
+		public Object produceResult() {
+			return answer;
+		}
+
+		public boolean isOverlapped() {
+			return overlapped;
+		}
+	}
+
 	class MyNum implements IEvaluatedType {
 
 		public String toString() {
@@ -214,4 +261,149 @@ public class CoreDDPTests extends SuiteOfTestCases {
 			}
 		}
 	}
+
+	private IGoalEvaluatorFactory createTreeFactory(final Expression x,
+			final Expression y, final Expression z, final Expression num,
+			final Collection evaluators) {
+		return new IGoalEvaluatorFactory() {
+			public GoalEvaluator createEvaluator(IGoal goal) {
+				GoalEvaluator result = null;
+				if (goal instanceof ExpressionTypeGoal) {
+					ASTNode expr = ((ExpressionTypeGoal) goal).getExpression();
+					if (expr == x)
+						result = new SingleDependentGoalEvaluator(goal,
+								new IGoal[] { new ExpressionTypeGoal(null, y),
+										new ExpressionTypeGoal(null, z) },
+								new MyNum());
+					else if (expr == y || expr == z)
+						result = new SingleDependentGoalEvaluator(goal,
+								new ExpressionTypeGoal(null, num), new MyNum());
+					else if (expr == num)
+						result = new FixedAnswerGoalEvaluator(goal, new MyNum());
+				}
+				if (result != null) {
+					synchronized (evaluators) {
+						evaluators.add(result);
+					}
+				}
+				return result;
+			}
+		};
+	}
+
+	public void testResultCache() throws Exception {
+		final Expression x = new SimpleReference(0, 0, "x");
+		final Expression y = new SimpleReference(0, 0, "y");
+		final Expression z = new SimpleReference(0, 0, "z");
+		final Expression num = new NumericLiteral(0, 0, 0);
+		final Collection evaluators = new ArrayList();
+		final DefaultTypeInferencer man = new DefaultTypeInferencer(
+				createTreeFactory(x, y, z, num, evaluators));
+		final GoalResultCache cache = new GoalResultCache(100);
+		man.setResultCache(cache);
+
+		assertTrue(man.evaluateType(new ExpressionTypeGoal(null, x), -1) instanceof MyNum);
+		final int evaluatorCount = evaluators.size();
+		assertTrue(evaluatorCount > 0);
+		assertTrue(cache.size() > 0);
+
+		assertTrue(man.evaluateType(new ExpressionTypeGoal(null, x), -1) instanceof MyNum);
+		assertTrue(man.evaluateType(new ExpressionTypeGoal(null, y), -1) instanceof MyNum);
+		assertEquals(evaluatorCount, evaluators.size());
+
+		cache.clear();
+		assertTrue(man.evaluateType(new ExpressionTypeGoal(null, y), -1) instanceof MyNum);
+		assertTrue(evaluators.size() > evaluatorCount);
+	}
+
+	public void testParallelEvaluation() throws Exception {
+		final Expression x = new SimpleReference(0, 0, "x");
+		final Expression y = new SimpleReference(0, 0, "y");
+		final Expression z = new SimpleReference(0, 0, "z");
+		final Expression num = new NumericLiteral(0, 0, 0);
+		final Collection evaluators = new ArrayList();
+		final DefaultTypeInferencer man = new DefaultTypeInferencer(
+				createTreeFactory(x, y, z, num, evaluators));
+		man.setParallelEvaluation(true);
+
+		assertTrue(man.evaluateType(new ExpressionTypeGoal(null, x), -1) instanceof MyNum);
+		for (Iterator iter = evaluators.iterator(); iter.hasNext();) {
+			GoalEvaluator ev = (GoalEvaluator) iter.next();
+			if (ev instanceof SingleDependentGoalEvaluator) {
+				((SingleDependentGoalEvaluator) ev).assertState();
+			}
+		}
+	}
+
+	public void testParallelEvaluationOverlap() throws Exception {
+		final Expression x = new SimpleReference(0, 0, "x");
+		final Expression y = new SimpleReference(0, 0, "y");
+		final Expression z = new SimpleReference(0, 0, "z");
+		final CountDownLatch initialized = new CountDownLatch(2);
+		final Collection evaluators = new ArrayList();
+		final DefaultTypeInferencer man = new DefaultTypeInferencer(
+				new IGoalEvaluatorFactory() {
+					public GoalEvaluator createEvaluator(IGoal goal) {
+						final ASTNode expr = ((ExpressionTypeGoal) goal)
+								.getExpression();
+						if (expr == x) {
+							return new SingleDependentGoalEvaluator(goal,
+									new IGoal[] {
+											new ExpressionTypeGoal(null, y),
+											new ExpressionTypeGoal(null, z) },
+									new MyNum());
+						}
+						final GoalEvaluator result = new OverlappingGoalEvaluator(
+								goal, initialized, new MyNum());
+						evaluators.add(result);
+						return result;
+					}
+				});
+		man.setParallelEvaluation(true);
+
+		assertTrue(man.evaluateType(new ExpressionTypeGoal(null, x), -1) instanceof MyNum);
+		assertEquals(2, evaluators.size());
+		for (Iterator iter = evaluators.iterator(); iter.hasNext();) {
+			assertTrue(((OverlappingGoalEvaluator) iter.next()).isOverlapped());
+		}
+	}
+
+	private static ISourceModule createSourceModule() {
+		return (ISourceModule) Proxy.newProxyInstance(ISourceModule.class
+				.getClassLoader(), new Class[] { ISourceModule.class },
+				new InvocationHandler() {
+					public Object invoke(Object proxy, Method method,
+							Object[] args) {
+						if ("getPrimary".equals(method.getName())) {
+							return proxy;
+						} else if ("equals".equals(method.getName())) {
+							return Boolean.valueOf(proxy == args[0]);
+						} else if ("hashCode".equals(method.getName())) {
+							return new Integer(System.identityHashCode(proxy));
+						}
+						return null;
+					}
+				});
+	}
+
+	public void testResultCacheClearModule() throws Exception {
+		final ISourceModule module1 = createSourceModule();
+		final ISourceModule module2 = createSourceModule();
+		final IGoal goal1 = new ExpressionTypeGoal(new BasicContext(module1,
+				null), new SimpleReference(0, 0, "x"));
+		final IGoal goal2 = new ExpressionTypeGoal(new BasicContext(module2,
+				null), new SimpleReference(0, 0, "x"));
+		final IGoal goal3 = new ExpressionTypeGoal(null, new SimpleReference(
+				0, 0, "x"));
+		final GoalResultCache cache = new GoalResultCache(100);
+		cache.put(goal1, new MyNum());
+		cache.put(goal2, new MyNum());
+		cache.put(goal3, new MyNum());
+
+		cache.clear(module1);
+		assertSame(GoalResultCache.NOT_CACHED, cache.get(goal1));
+		assertTrue(cache.get(goal2) instanceof MyNum);
+		// the goals without module could depend on any of them
+		assertSame(GoalResultCache.NOT_CACHED, cache.get(goal3));
+	}
 }
@@ -0,0 +1,65 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.tests.index;
+
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class H2BulkLoadTests extends TestCase {
+
+	/** More than the number of files committed at once in the bulk mode */
+	private static final int FILES = 250;
+	private static final int DECLARATIONS = 5;
+	private static final int REFERENCES = 10;
+
+	private H2ElementLoader regular;
+	private H2ElementLoader bulk;
+
+	@Override
+	protected void setUp() throws Exception {
+		final long suffix = System.currentTimeMillis();
+		regular = new H2ElementLoader("org.eclipse.dltk.core.tests.regular" //$NON-NLS-1$
+				+ suffix, FILES, DECLARATIONS, REFERENCES);
+		bulk = new H2ElementLoader("org.eclipse.dltk.core.tests.bulk" //$NON-NLS-1$
+				+ suffix, FILES, DECLARATIONS, REFERENCES);
+		regular.load(false);
+		bulk.load(true);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		regular.delete();
+		bulk.delete();
+	}
+
+	public void testSameRows() throws Exception {
+		final List<String> declarations = regular.selectRows(false);
+		assertEquals(FILES * DECLARATIONS, declarations.size());
+		assertEquals(declarations, bulk.selectRows(false));
+		final List<String> references = regular.selectRows(true);
+		assertEquals(FILES * REFERENCES, references.size());
+		assertEquals(references, bulk.selectRows(true));
+	}
+
+	/**
+	 * The indexes postponed during the bulk load are created at its end.
+	 */
+	public void testIndexesCreated() throws Exception {
+		assertEquals(Collections.singleton("NAME"), regular //$NON-NLS-1$
+				.selectIndexedColumns(true));
+		assertEquals(regular.selectIndexedColumns(true), bulk
+				.selectIndexedColumns(true));
+		assertEquals(regular.selectIndexedColumns(false), bulk
+				.selectIndexedColumns(false));
+	}
+
+}
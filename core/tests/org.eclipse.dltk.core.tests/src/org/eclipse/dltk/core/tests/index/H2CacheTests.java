@@ -0,0 +1,315 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.tests.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.eclipse.dltk.core.index.sql.Container;
+import org.eclipse.dltk.core.index.sql.Element;
+import org.eclipse.dltk.core.index.sql.File;
+import org.eclipse.dltk.core.index2.search.ISearchEngine.MatchRule;
+import org.eclipse.dltk.internal.core.index.sql.h2.H2Cache;
+
+public class H2CacheTests extends TestCase {
+
+	/**
+	 * Identifiers far from the ones used by the real index
+	 */
+	private static final int ID_BASE = 2000000000;
+
+	/**
+	 * Element type of its own, so the searches never see the real elements
+	 */
+	private static final int TYPE = 1000;
+
+	private static final int CONTAINER_A = ID_BASE;
+	private static final int CONTAINER_B = ID_BASE + 1;
+	private static final int CONTAINER_EMPTY = ID_BASE + 2;
+
+	private static final int FILE_A1 = ID_BASE;
+	private static final int FILE_A2 = ID_BASE + 1;
+	private static final int FILE_B1 = ID_BASE + 2;
+
+	private static final int WRITERS = 2;
+	private static final int READERS = 2;
+	private static final int WRITER_DECLARATIONS = 50;
+	private static final int WRITER_ITERATIONS = 200;
+
+	@Override
+	protected void setUp() throws Exception {
+		H2Cache.addContainer(new Container(CONTAINER_A, "/a")); //$NON-NLS-1$
+		H2Cache.addContainer(new Container(CONTAINER_B, "/b")); //$NON-NLS-1$
+		H2Cache.addContainer(new Container(CONTAINER_EMPTY, "/empty")); //$NON-NLS-1$
+		H2Cache.addFile(new File(FILE_A1, "a1", 0, CONTAINER_A)); //$NON-NLS-1$
+		H2Cache.addFile(new File(FILE_A2, "a2", 0, CONTAINER_A)); //$NON-NLS-1$
+		H2Cache.addFile(new File(FILE_B1, "b1", 0, CONTAINER_B)); //$NON-NLS-1$
+		add("AbstractModel", FILE_A1); //$NON-NLS-1$
+		add("ArrayMap", FILE_A1); //$NON-NLS-1$
+		add("abstractSet", FILE_A2); //$NON-NLS-1$
+		add("Item", FILE_B1); //$NON-NLS-1$
+		add("ModelItem", FILE_B1); //$NON-NLS-1$
+		add("AbstractModel", FILE_B1); //$NON-NLS-1$
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		for (int w = 0; w < WRITERS; ++w) {
+			H2Cache.deleteFileById(writerFileId(w));
+		}
+		H2Cache.deleteContainerById(CONTAINER_A);
+		H2Cache.deleteContainerById(CONTAINER_B);
+		H2Cache.deleteContainerById(CONTAINER_EMPTY);
+	}
+
+	/**
+	 * Adds the element with the camel case name computed the same way as
+	 * H2ElementDao does
+	 */
+	static void add(String name, int fileId) {
+		final StringBuilder camelCaseName = new StringBuilder();
+		for (int i = 0; i < name.length(); ++i) {
+			char ch = name.charAt(i);
+			if (Character.isUpperCase(ch)) {
+				camelCaseName.append(ch);
+			} else if (i == 0) {
+				break;
+			}
+		}
+		H2Cache.addElement(new Element(TYPE, 0, 0, 0, 0, name.length(), name,
+				camelCaseName.length() > 0 ? camelCaseName.toString() : null,
+				null, null, null, null, fileId, false));
+	}
+
+	/**
+	 * Returns the sorted "name@file" strings of the found elements
+	 */
+	static List<String> search(String pattern, MatchRule matchRule,
+			int[] filesId, int[] containersId) {
+		final List<String> result = new ArrayList<String>();
+		for (Element element : H2Cache.searchElements(pattern, matchRule,
+				TYPE, 0, 0, null, null, filesId, containersId, null, 0)) {
+			result.add(element.getName() + "@" //$NON-NLS-1$
+					+ (element.getFileId() - ID_BASE));
+		}
+		Collections.sort(result);
+		return result;
+	}
+
+	private static void assertResult(String expected, List<String> actual) {
+		assertEquals(expected, actual.toString());
+	}
+
+	public void testExact() {
+		assertResult("[AbstractModel@0, AbstractModel@2]", search( //$NON-NLS-1$
+				"abstractmodel", MatchRule.EXACT, null, null)); //$NON-NLS-1$
+		assertResult("[AbstractModel@0]", search("AbstractModel", //$NON-NLS-1$ //$NON-NLS-2$
+				MatchRule.EXACT, new int[] { FILE_A1 }, null));
+		assertResult("[AbstractModel@2]", search("AbstractModel", //$NON-NLS-1$ //$NON-NLS-2$
+				MatchRule.EXACT, null, new int[] { CONTAINER_B }));
+		assertResult("[]", search("Abstract", MatchRule.EXACT, null, null)); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testPrefix() {
+		assertResult("[AbstractModel@0, AbstractModel@2, abstractSet@1]", //$NON-NLS-1$
+				search("ABS", MatchRule.PREFIX, null, null)); //$NON-NLS-1$
+		assertResult("[AbstractModel@0, abstractSet@1]", search("abs", //$NON-NLS-1$ //$NON-NLS-2$
+				MatchRule.PREFIX, null, new int[] { CONTAINER_A }));
+		assertResult("[abstractSet@1]", search("abs", MatchRule.PREFIX, //$NON-NLS-1$ //$NON-NLS-2$
+				new int[] { FILE_A2, FILE_B1 + 1 }, null));
+		assertResult("[ModelItem@2]", search("m", MatchRule.PREFIX, null, //$NON-NLS-1$ //$NON-NLS-2$
+				new int[] { CONTAINER_A, CONTAINER_B }));
+	}
+
+	public void testCamelCase() {
+		assertResult("[AbstractModel@0, AbstractModel@2, ArrayMap@0]", //$NON-NLS-1$
+				search("AM", MatchRule.CAMEL_CASE, null, null)); //$NON-NLS-1$
+		assertResult("[AbstractModel@2]", search("am", MatchRule.CAMEL_CASE, //$NON-NLS-1$ //$NON-NLS-2$
+				null, new int[] { CONTAINER_B }));
+		assertResult("[ModelItem@2]", search("MI", MatchRule.CAMEL_CASE, //$NON-NLS-1$ //$NON-NLS-2$
+				new int[] { FILE_B1 }, null));
+		// the names starting with the lower case letter are not matched
+		assertResult("[]", search("S", MatchRule.CAMEL_CASE, null, null)); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testPattern() {
+		assertResult("[AbstractModel@0, AbstractModel@2, ModelItem@2]", //$NON-NLS-1$
+				search("*model*", MatchRule.PATTERN, null, null)); //$NON-NLS-1$
+		assertResult("[AbstractModel@2, ModelItem@2]", search("*Model*", //$NON-NLS-1$ //$NON-NLS-2$
+				MatchRule.PATTERN, new int[] { FILE_B1 }, null));
+		assertResult("[ArrayMap@0]", search("Arr?yMap", MatchRule.PATTERN, //$NON-NLS-1$ //$NON-NLS-2$
+				null, new int[] { CONTAINER_A }));
+	}
+
+	public void testSet() {
+		assertResult("[ArrayMap@0, Item@2]", search("item,ARRAYMAP", //$NON-NLS-1$ //$NON-NLS-2$
+				MatchRule.SET, null, null));
+		assertResult("[ArrayMap@0]", search("item,ARRAYMAP", MatchRule.SET, //$NON-NLS-1$ //$NON-NLS-2$
+				null, new int[] { CONTAINER_A }));
+	}
+
+	/**
+	 * Neither the empty file list nor the containers without files limit the
+	 * search.
+	 */
+	public void testNoFiles() {
+		final String all = "[AbstractModel@0, AbstractModel@2, abstractSet@1]"; //$NON-NLS-1$
+		assertResult(all, search("abs", MatchRule.PREFIX, new int[0], null)); //$NON-NLS-1$
+		assertResult(all, search("abs", MatchRule.PREFIX, null, //$NON-NLS-1$
+				new int[] { CONTAINER_EMPTY }));
+		assertResult(all, search("abs", MatchRule.PREFIX, null, //$NON-NLS-1$
+				new int[] { ID_BASE + 100 }));
+		assertResult("[AbstractModel@2]", search("abs", MatchRule.PREFIX, //$NON-NLS-1$ //$NON-NLS-2$
+				null, new int[] { CONTAINER_EMPTY, CONTAINER_B }));
+	}
+
+	/**
+	 * The name lookups don't depend on the default locale: in Turkish the
+	 * lower case of "I" is the dotless "\u0131".
+	 */
+	public void testTurkishLocale() {
+		final Locale locale = Locale.getDefault();
+		Locale.setDefault(new Locale("tr", "TR")); //$NON-NLS-1$ //$NON-NLS-2$
+		try {
+			add("Index", FILE_A2); //$NON-NLS-1$
+			assertResult("[Index@1]", search("index", MatchRule.EXACT, null, //$NON-NLS-1$ //$NON-NLS-2$
+					null));
+			assertResult("[Index@1, Item@2]", search("i", MatchRule.PREFIX, //$NON-NLS-1$ //$NON-NLS-2$
+					null, null));
+			assertResult("[Index@1, Item@2]", search("I", MatchRule.PREFIX, //$NON-NLS-1$ //$NON-NLS-2$
+					null, null));
+			assertResult("[Index@1, Item@2]", search("index,item", //$NON-NLS-1$ //$NON-NLS-2$
+					MatchRule.SET, null, null));
+		} finally {
+			Locale.setDefault(locale);
+		}
+	}
+
+	private static int writerFileId(int writer) {
+		return ID_BASE + 10 + writer;
+	}
+
+	private static String writerTypeName(int writer, int declaration) {
+		return "Writer" + writer + "Type" + declaration; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * Replaces the elements of the file the same way the indexer does.
+	 */
+	private static void replaceWriterFile(int writer) {
+		H2Cache.deleteElementsByFileId(writerFileId(writer));
+		for (int d = 0; d < WRITER_DECLARATIONS; ++d) {
+			add(writerTypeName(writer, d), writerFileId(writer));
+		}
+	}
+
+	/**
+	 * Checks that the found writer elements are not duplicated and belong to
+	 * their files.
+	 */
+	private static void assertWriterElements(List<String> found) {
+		final Set<String> unique = new HashSet<String>(found);
+		assertEquals(found.toString(), unique.size(), found.size());
+		for (String element : found) {
+			final int writer = element.charAt("Writer".length()) - '0'; //$NON-NLS-1$
+			assertTrue(element, element.endsWith("@" //$NON-NLS-1$
+					+ (writerFileId(writer) - ID_BASE)));
+		}
+	}
+
+	/**
+	 * The writers keep replacing the elements of their files while the
+	 * readers search: the elements of the other files are never lost and the
+	 * replaced elements are never duplicated.
+	 */
+	public void testConcurrentReplace() throws Throwable {
+		for (int w = 0; w < WRITERS; ++w) {
+			H2Cache.addFile(new File(writerFileId(w), "w" + w, 0, CONTAINER_A)); //$NON-NLS-1$
+			replaceWriterFile(w);
+		}
+		final List<Throwable> failures = Collections
+				.synchronizedList(new ArrayList<Throwable>());
+		final Thread[] writers = new Thread[WRITERS];
+		for (int w = 0; w < WRITERS; ++w) {
+			final int writer = w;
+			writers[w] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						for (int i = 0; i < WRITER_ITERATIONS; ++i) {
+							replaceWriterFile(writer);
+						}
+					} catch (Throwable e) {
+						failures.add(e);
+					}
+				}
+			};
+		}
+		final boolean[] running = new boolean[] { true };
+		final int[] searches = new int[1];
+		final Thread[] readers = new Thread[READERS];
+		for (int r = 0; r < READERS; ++r) {
+			readers[r] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						while (running[0] && failures.isEmpty()) {
+							assertResult(
+									"[AbstractModel@0, AbstractModel@2, abstractSet@1]", //$NON-NLS-1$
+									search("abs", MatchRule.PREFIX, null, null)); //$NON-NLS-1$
+							assertResult("[AbstractModel@0, ArrayMap@0]", //$NON-NLS-1$
+									search("A", MatchRule.CAMEL_CASE, //$NON-NLS-1$
+											null, new int[] { CONTAINER_A }));
+							assertWriterElements(search("writer", //$NON-NLS-1$
+									MatchRule.PREFIX, null, null));
+							assertWriterElements(search("WT", //$NON-NLS-1$
+									MatchRule.CAMEL_CASE, null,
+									new int[] { CONTAINER_A }));
+							synchronized (searches) {
+								++searches[0];
+							}
+						}
+					} catch (Throwable e) {
+						failures.add(e);
+					}
+				}
+			};
+		}
+		for (Thread reader : readers) {
+			reader.start();
+		}
+		for (Thread writer : writers) {
+			writer.start();
+		}
+		for (Thread writer : writers) {
+			writer.join();
+		}
+		running[0] = false;
+		for (Thread reader : readers) {
+			reader.join();
+		}
+		if (!failures.isEmpty()) {
+			throw failures.get(0);
+		}
+		assertTrue(searches[0] > 0);
+		// nothing is lost once the writers are done
+		final List<String> found = search("writer", MatchRule.PREFIX, null, //$NON-NLS-1$
+				null);
+		assertWriterElements(found);
+		assertEquals(WRITERS * WRITER_DECLARATIONS, found.size());
+	}
+
+}
@@ -0,0 +1,215 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.tests.index;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.eclipse.dltk.core.IModelElement;
+import org.eclipse.dltk.core.index.sql.Container;
+import org.eclipse.dltk.core.index.sql.DbFactory;
+import org.eclipse.dltk.core.index.sql.File;
+import org.eclipse.dltk.core.index.sql.IElementDao;
+import org.eclipse.dltk.internal.core.index.sql.h2.H2ElementDao;
+import org.eclipse.dltk.internal.core.index.sql.h2.Schema;
+
+/**
+ * Loads the generated declarations and references into the H2 database the
+ * same way the SqlIndexer does, either in the regular mode, with the
+ * connection and the transaction per file, or in the bulk load mode. The
+ * elements are stored in the tables of the nature of its own, so they are
+ * created by the load and could be dropped afterwards.
+ */
+public class H2ElementLoader {
+
+	/** The same as the SqlIndexer uses */
+	private static final int BULK_COMMIT_INTERVAL = 100;
+
+	private final String natureId;
+	private final String containerPath;
+	private final int files;
+	private final int declarations;
+	private final int references;
+
+	public H2ElementLoader(String natureId, int files, int declarations,
+			int references) {
+		this.natureId = natureId;
+		this.containerPath = "/" + natureId; //$NON-NLS-1$
+		this.files = files;
+		this.declarations = declarations;
+		this.references = references;
+	}
+
+	public String getTableName(boolean isReference) {
+		return new Schema().getTableName(IModelElement.TYPE, natureId,
+				isReference);
+	}
+
+	public void load(boolean bulk) throws SQLException {
+		final DbFactory dbFactory = DbFactory.getInstance();
+		final H2ElementDao elementDao = new H2ElementDao();
+		if (bulk) {
+			elementDao.beginBulkLoad();
+			final Connection connection = dbFactory.createConnection();
+			try {
+				connection.setAutoCommit(false);
+				final Container container = dbFactory.getContainerDao()
+						.insert(connection, containerPath);
+				for (int f = 0; f < files; ++f) {
+					loadFile(dbFactory, elementDao, connection, container, f);
+					if ((f + 1) % BULK_COMMIT_INTERVAL == 0) {
+						elementDao.commitInsertions();
+						connection.commit();
+					}
+				}
+				elementDao.commitInsertions();
+				elementDao.endBulkLoad(connection);
+			} finally {
+				connection.commit();
+				connection.close();
+			}
+		} else {
+			for (int f = 0; f < files; ++f) {
+				final Connection connection = dbFactory.createConnection();
+				try {
+					connection.setAutoCommit(false);
+					final Container container = dbFactory.getContainerDao()
+							.insert(connection, containerPath);
+					loadFile(dbFactory, elementDao, connection, container, f);
+				} finally {
+					elementDao.commitInsertions();
+					connection.commit();
+					connection.close();
+				}
+			}
+		}
+	}
+
+	private void loadFile(DbFactory dbFactory, IElementDao elementDao,
+			Connection connection, Container container, int f)
+			throws SQLException {
+		final File file = dbFactory.getFileDao().insert(connection,
+				"file" + f, 0, container.getId()); //$NON-NLS-1$
+		for (int d = 0; d < declarations; ++d) {
+			final String name = "File" + f + "Type" + d; //$NON-NLS-1$ //$NON-NLS-2$
+			elementDao.insert(connection, IModelElement.TYPE, 0, d * 10, 10,
+					d * 10, name.length(), name, null, null, null, null, file
+							.getId(), natureId, false);
+		}
+		for (int r = 0; r < references; ++r) {
+			final String name = "File" + (r % files) + "Type" //$NON-NLS-1$ //$NON-NLS-2$
+					+ (r % declarations);
+			elementDao.insert(connection, IModelElement.TYPE, 0, r * 10,
+					name.length(), 0, 0, name, null, null, null, null, file
+							.getId(), natureId, true);
+		}
+	}
+
+	/**
+	 * Returns the rows of the elements table ordered by the file and the
+	 * offset, without the generated identifiers.
+	 */
+	public List<String> selectRows(boolean isReference) throws SQLException {
+		final Connection connection = DbFactory.getInstance()
+				.createConnection();
+		try {
+			final Statement statement = connection.createStatement();
+			try {
+				final ResultSet result = statement
+						.executeQuery("SELECT E.*, F.PATH FROM " //$NON-NLS-1$
+								+ getTableName(isReference)
+								+ " E JOIN FILES F ON E.FILE_ID = F.ID ORDER BY F.PATH, E.OFFSET"); //$NON-NLS-1$
+				try {
+					final int columns = result.getMetaData().getColumnCount();
+					final List<String> rows = new ArrayList<String>();
+					while (result.next()) {
+						final StringBuilder row = new StringBuilder();
+						for (int i = 1; i <= columns; ++i) {
+							final String column = result.getMetaData()
+									.getColumnName(i);
+							if (!"ID".equals(column) //$NON-NLS-1$
+									&& !"FILE_ID".equals(column)) { //$NON-NLS-1$
+								row.append(column).append('=').append(
+										result.getString(i)).append(' ');
+							}
+						}
+						rows.add(row.toString());
+					}
+					return rows;
+				} finally {
+					result.close();
+				}
+			} finally {
+				statement.close();
+			}
+		} finally {
+			connection.close();
+		}
+	}
+
+	/**
+	 * Returns the indexed columns of the elements table, except of the
+	 * primary key and the foreign key.
+	 */
+	public Set<String> selectIndexedColumns(boolean isReference)
+			throws SQLException {
+		final Connection connection = DbFactory.getInstance()
+				.createConnection();
+		try {
+			final DatabaseMetaData metaData = connection.getMetaData();
+			final ResultSet result = metaData.getIndexInfo(null, null,
+					getTableName(isReference), false, false);
+			try {
+				final Set<String> columns = new TreeSet<String>();
+				while (result.next()) {
+					final String column = result.getString("COLUMN_NAME"); //$NON-NLS-1$
+					if (!"ID".equals(column) && !"FILE_ID".equals(column)) { //$NON-NLS-1$ //$NON-NLS-2$
+						columns.add(column);
+					}
+				}
+				return columns;
+			} finally {
+				result.close();
+			}
+		} finally {
+			connection.close();
+		}
+	}
+
+	/**
+	 * Removes the loaded container and drops the element tables.
+	 */
+	public void delete() throws SQLException {
+		final DbFactory dbFactory = DbFactory.getInstance();
+		final Connection connection = dbFactory.createConnection();
+		try {
+			dbFactory.getContainerDao().deleteByPath(connection,
+					containerPath);
+			final Statement statement = connection.createStatement();
+			try {
+				statement.executeUpdate("DROP TABLE IF EXISTS " //$NON-NLS-1$
+						+ getTableName(false));
+				statement.executeUpdate("DROP TABLE IF EXISTS " //$NON-NLS-1$
+						+ getTableName(true));
+			} finally {
+				statement.close();
+			}
+		} finally {
+			connection.close();
+		}
+	}
+}
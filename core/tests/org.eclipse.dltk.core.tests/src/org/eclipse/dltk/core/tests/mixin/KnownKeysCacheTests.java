@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.tests.mixin;
+
+import junit.framework.TestCase;
+
+import org.eclipse.dltk.internal.core.mixin.KnownKeysCache;
+
+public class KnownKeysCacheTests extends TestCase {
+
+	/**
+	 * Two keys per segment
+	 */
+	private static final int LIMIT = 32;
+
+	public void testPutGet() {
+		final KnownKeysCache cache = new KnownKeysCache(LIMIT);
+		cache.put("A", Boolean.TRUE); //$NON-NLS-1$
+		cache.put("B", Boolean.FALSE); //$NON-NLS-1$
+		assertEquals(Boolean.TRUE, cache.get("A")); //$NON-NLS-1$
+		assertEquals(Boolean.FALSE, cache.get("B")); //$NON-NLS-1$
+		assertNull(cache.get("C")); //$NON-NLS-1$
+		cache.remove("A"); //$NON-NLS-1$
+		assertNull(cache.get("A")); //$NON-NLS-1$
+		assertEquals(1, cache.size());
+		cache.clear();
+		assertEquals(0, cache.size());
+	}
+
+	public void testLimit() {
+		final KnownKeysCache cache = new KnownKeysCache(LIMIT);
+		for (int i = 0; i < LIMIT * 10; ++i) {
+			cache.put("key" + i, Boolean.TRUE); //$NON-NLS-1$
+			assertTrue(cache.size() <= LIMIT);
+		}
+		assertNull(cache.get("key0")); //$NON-NLS-1$
+		assertEquals(Boolean.TRUE, cache.get("key" + (LIMIT * 10 - 1))); //$NON-NLS-1$
+	}
+
+	/**
+	 * The recently used keys are kept, the least recently used are evicted.
+	 */
+	public void testLeastRecentlyUsedEvicted() {
+		final KnownKeysCache cache = new KnownKeysCache(LIMIT);
+		cache.put("used", Boolean.TRUE); //$NON-NLS-1$
+		cache.put("unused", Boolean.FALSE); //$NON-NLS-1$
+		for (int i = 0; i < LIMIT * 10; ++i) {
+			cache.put("key" + i, Boolean.TRUE); //$NON-NLS-1$
+			assertEquals(Boolean.TRUE, cache.get("used")); //$NON-NLS-1$
+		}
+		assertNull(cache.get("unused")); //$NON-NLS-1$
+		assertEquals(Boolean.TRUE, cache.get("used")); //$NON-NLS-1$
+	}
+
+}
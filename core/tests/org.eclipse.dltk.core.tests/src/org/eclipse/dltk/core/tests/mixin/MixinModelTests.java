@@ -11,14 +11,22 @@
  *******************************************************************************/
 package org.eclipse.dltk.core.tests.mixin;
 
+import java.util.concurrent.TimeUnit;
+
 import junit.framework.TestCase;
 
 import org.eclipse.core.resources.IProject;
+import org.eclipse.dltk.core.ElementChangedEvent;
+import org.eclipse.dltk.core.IModelElementDelta;
+import org.eclipse.dltk.core.ISourceModule;
 import org.eclipse.dltk.core.mixin.IMixinElement;
 import org.eclipse.dltk.core.mixin.MixinModel;
 import org.eclipse.dltk.core.search.index.MixinIndex;
+import org.eclipse.dltk.core.tests.TestMixinParser;
 import org.eclipse.dltk.core.tests.model.AbstractModelTests;
 import org.eclipse.dltk.core.tests.model.TestLanguageToolkit;
+import org.eclipse.dltk.internal.core.ModelElementDelta;
+import org.eclipse.dltk.internal.core.ModelManager;
 
 /**
  * Tests for the {@link MixinIndex} class.
@@ -74,4 +82,100 @@ public class MixinModelTests extends AbstractModelTests {
 			model.stop();
 		}
 	}
+
+	private static final long TIMEOUT = TimeUnit.SECONDS.toMillis(10);
+
+	private static Thread start(Runnable runnable) {
+		final Thread thread = new Thread(runnable);
+		thread.start();
+		return thread;
+	}
+
+	private static void join(Thread thread) throws InterruptedException {
+		thread.join(TIMEOUT);
+		assertFalse(thread.isAlive());
+	}
+
+	/**
+	 * The element requested while its module is being parsed by another thread
+	 * is returned when that parse completes, the module is parsed once.
+	 */
+	public void testGetWhileReporting() throws Throwable {
+		final MixinModel model = new MixinModel(TestLanguageToolkit.getDefault());
+		try {
+			final ISourceModule module = getSourceModule("Mixin0/X.txt");
+			// cache the search, so the reader goes straight to the module
+			TestCase.assertEquals(1, model.findModules("{foo").length);
+			final int parseCount = TestMixinParser.getParseCount();
+			final IMixinElement[] result = new IMixinElement[1];
+			TestMixinParser.suspend();
+			final Thread reporter;
+			final Thread reader;
+			try {
+				reporter = start(new Runnable() {
+					public void run() {
+						model.reportModule(module);
+					}
+				});
+				assertTrue(TestMixinParser.awaitSuspended(TIMEOUT));
+				reader = start(new Runnable() {
+					public void run() {
+						result[0] = model.get("{foo");
+					}
+				});
+				// the reader waits for the reporter instead of parsing
+				final long deadline = System.currentTimeMillis() + TIMEOUT;
+				while (reader.getState() != Thread.State.WAITING) {
+					assertTrue(reader.isAlive());
+					assertTrue(System.currentTimeMillis() < deadline);
+					Thread.sleep(10);
+				}
+			} finally {
+				TestMixinParser.resume();
+			}
+			join(reporter);
+			join(reader);
+			TestCase.assertEquals(parseCount + 1, TestMixinParser
+					.getParseCount());
+			assertNotNull(result[0]);
+			TestCase.assertEquals("{foo", result[0].getKey());
+			TestCase.assertEquals(2, result[0].getChildren().length);
+		} finally {
+			model.stop();
+		}
+	}
+
+	/**
+	 * The results of the module removed by the element changed event while
+	 * being parsed are skipped, so it is parsed again on the next request.
+	 */
+	public void testRemoveWhileReporting() throws Throwable {
+		final MixinModel model = new MixinModel(TestLanguageToolkit.getDefault());
+		try {
+			final ISourceModule module = getSourceModule("Mixin0/X.txt");
+			TestMixinParser.suspend();
+			final Thread reporter;
+			try {
+				reporter = start(new Runnable() {
+					public void run() {
+						model.reportModule(module);
+					}
+				});
+				assertTrue(TestMixinParser.awaitSuspended(TIMEOUT));
+				final ModelElementDelta delta = new ModelElementDelta(module);
+				delta.changed(IModelElementDelta.F_CONTENT);
+				ModelManager.getModelManager().getDeltaProcessor().fire(delta,
+						ElementChangedEvent.POST_CHANGE);
+			} finally {
+				TestMixinParser.resume();
+			}
+			join(reporter);
+			final int parseCount = TestMixinParser.getParseCount();
+			TestCase.assertEquals(1, model.find("{foo").length);
+			TestCase.assertEquals(parseCount + 1, TestMixinParser
+					.getParseCount());
+		} finally {
+			model.stop();
+		}
+	}
 }
@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.tests.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.dltk.core.DLTKCore;
+import org.eclipse.dltk.core.ElementChangedEvent;
+import org.eclipse.dltk.core.IAsyncElementChangedListener;
+import org.eclipse.dltk.core.IModelElementDelta;
+import org.eclipse.dltk.core.IScriptProject;
+import org.eclipse.dltk.internal.core.AsyncDeltaDispatcher;
+import org.eclipse.dltk.internal.core.ModelElementDelta;
+
+public class AsyncDeltaDispatcherTests extends TestCase {
+
+	private static class Listener implements IAsyncElementChangedListener {
+		final List<ElementChangedEvent> events = new ArrayList<ElementChangedEvent>();
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+
+		public void elementChanged(ElementChangedEvent event) {
+			started.countDown();
+			try {
+				release.await(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			synchronized (events) {
+				events.add(event);
+			}
+		}
+	}
+
+	private AsyncDeltaDispatcher dispatcher;
+
+	@Override
+	protected void setUp() throws Exception {
+		dispatcher = new AsyncDeltaDispatcher();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		dispatcher.shutdown();
+	}
+
+	private static IScriptProject project(String name) {
+		return DLTKCore.create(ResourcesPlugin.getWorkspace().getRoot()
+				.getProject(name));
+	}
+
+	private static ModelElementDelta added(String projectName) {
+		final ModelElementDelta delta = new ModelElementDelta(DLTKCore
+				.create(ResourcesPlugin.getWorkspace().getRoot()));
+		delta.added(project(projectName));
+		return delta;
+	}
+
+	public void testMerge() throws InterruptedException {
+		final Listener listener = new Listener();
+		final ModelElementDelta first = added("P1"); //$NON-NLS-1$
+		dispatcher.post(listener, first, ElementChangedEvent.POST_CHANGE);
+		assertTrue(listener.started.await(10, TimeUnit.SECONDS));
+		// listener is busy, so the following deltas are merged
+		final ModelElementDelta second = added("P2"); //$NON-NLS-1$
+		final ModelElementDelta third = added("P3"); //$NON-NLS-1$
+		dispatcher.post(listener, second, ElementChangedEvent.POST_CHANGE);
+		dispatcher.post(listener, third, ElementChangedEvent.POST_CHANGE);
+		dispatcher.post(listener, added("P4"), //$NON-NLS-1$
+				ElementChangedEvent.POST_RECONCILE);
+		listener.release.countDown();
+		dispatcher.waitForIdle();
+		assertEquals(3, listener.events.size());
+		assertSame(first, listener.events.get(0).getDelta());
+		final IModelElementDelta merged = listener.events.get(1).getDelta();
+		assertEquals(ElementChangedEvent.POST_CHANGE, listener.events.get(1)
+				.getType());
+		assertEquals(2, merged.getAffectedChildren().length);
+		assertEquals(project("P2"), merged.getAffectedChildren()[0] //$NON-NLS-1$
+				.getElement());
+		assertEquals(project("P3"), merged.getAffectedChildren()[1] //$NON-NLS-1$
+				.getElement());
+		// original deltas are not modified
+		assertEquals(1, second.getAffectedChildren().length);
+		assertEquals(1, third.getAffectedChildren().length);
+		assertEquals(ElementChangedEvent.POST_RECONCILE, listener.events.get(2)
+				.getType());
+
+		final AsyncDeltaDispatcher.Statistics statistics = dispatcher
+				.getStatistics().get(0);
+		assertSame(listener, statistics.getListener());
+		assertEquals(4, statistics.getPostedCount());
+		assertEquals(3, statistics.getDeliveredCount());
+		assertEquals(0, statistics.getPendingCount());
+	}
+
+	public void testRemove() throws InterruptedException {
+		final Listener listener = new Listener();
+		dispatcher.post(listener, added("P1"), ElementChangedEvent.POST_CHANGE); //$NON-NLS-1$
+		assertTrue(listener.started.await(10, TimeUnit.SECONDS));
+		dispatcher.post(listener, added("P2"), ElementChangedEvent.POST_CHANGE); //$NON-NLS-1$
+		dispatcher.remove(listener);
+		listener.release.countDown();
+		dispatcher.waitForIdle();
+		assertTrue(dispatcher.getStatistics().isEmpty());
+	}
+
+	public void testWaitForIdleAfterShutdown() throws InterruptedException {
+		final Listener[] listeners = new Listener[3];
+		for (int i = 0; i < listeners.length; ++i) {
+			listeners[i] = new Listener();
+			dispatcher.post(listeners[i], added("P" + i), //$NON-NLS-1$
+					ElementChangedEvent.POST_CHANGE);
+		}
+		// two listeners keep the workers busy, the third one is queued
+		assertTrue(listeners[0].started.await(10, TimeUnit.SECONDS));
+		assertTrue(listeners[1].started.await(10, TimeUnit.SECONDS));
+		final Thread waiter = new Thread() {
+			@Override
+			public void run() {
+				try {
+					dispatcher.waitForIdle();
+				} catch (InterruptedException e) {
+					// ignore
+				}
+			}
+		};
+		waiter.start();
+		while (waiter.isAlive() && waiter.getState() != Thread.State.WAITING) {
+			Thread.sleep(10);
+		}
+		dispatcher.shutdown();
+		waiter.join(10000);
+		assertFalse(waiter.isAlive());
+	}
+}
@@ -0,0 +1,197 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.tests.model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import junit.framework.TestCase;
+
+import org.eclipse.dltk.core.IArchive;
+import org.eclipse.dltk.core.IArchiveEntry;
+import org.eclipse.dltk.internal.core.MappedArchiveFile;
+
+public class MappedArchiveFileTests extends TestCase {
+
+	private static final String STORED = "stored"; //$NON-NLS-1$
+
+	private File file;
+	private String content;
+	private final List<File> files = new ArrayList<File>();
+
+	@Override
+	protected void setUp() throws Exception {
+		final StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 1000; ++i) {
+			sb.append("line").append(i).append('\n'); //$NON-NLS-1$
+		}
+		content = sb.toString();
+		file = createArchive();
+	}
+
+	private File createArchive() throws IOException {
+		final File file = File.createTempFile("archive", ".zip"); //$NON-NLS-1$ //$NON-NLS-2$
+		files.add(file);
+		final ZipOutputStream output = new ZipOutputStream(
+				new FileOutputStream(file));
+		try {
+			output.putNextEntry(new ZipEntry("lib/")); //$NON-NLS-1$
+			output.closeEntry();
+			output.putNextEntry(new ZipEntry("lib/deflated.txt")); //$NON-NLS-1$
+			output.write(content.getBytes());
+			output.closeEntry();
+			final byte[] bytes = STORED.getBytes();
+			final ZipEntry stored = new ZipEntry("stored.txt"); //$NON-NLS-1$
+			stored.setMethod(ZipEntry.STORED);
+			stored.setSize(bytes.length);
+			final CRC32 crc = new CRC32();
+			crc.update(bytes);
+			stored.setCrc(crc.getValue());
+			output.putNextEntry(stored);
+			output.write(bytes);
+			output.closeEntry();
+		} finally {
+			output.close();
+		}
+		return file;
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		MappedArchiveFile.flush();
+		for (File file : files) {
+			file.delete();
+		}
+	}
+
+	private static String read(IArchive archive, String name)
+			throws IOException {
+		final InputStream input = archive.getInputStream(archive
+				.getArchiveEntry(name));
+		try {
+			final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			final byte[] buffer = new byte[100];
+			int len;
+			while ((len = input.read(buffer)) > 0) {
+				bytes.write(buffer, 0, len);
+			}
+			return bytes.toString();
+		} finally {
+			input.close();
+		}
+	}
+
+	public void testEntries() throws IOException {
+		final IArchive archive = MappedArchiveFile.open(file);
+		assertTrue(archive instanceof MappedArchiveFile);
+		final List<String> names = new ArrayList<String>();
+		for (Enumeration<? extends IArchiveEntry> e = archive
+				.getArchiveEntries(); e.hasMoreElements();) {
+			names.add(e.nextElement().getName());
+		}
+		assertEquals("[lib/, lib/deflated.txt, stored.txt]", names.toString()); //$NON-NLS-1$
+		assertTrue(archive.getArchiveEntry("lib/").isDirectory()); //$NON-NLS-1$
+		assertEquals(content.length(),
+				archive.getArchiveEntry("lib/deflated.txt").getSize()); //$NON-NLS-1$
+		assertNull(archive.getArchiveEntry("unknown")); //$NON-NLS-1$
+	}
+
+	public void testContent() throws IOException {
+		final MappedArchiveFile archive = (MappedArchiveFile) MappedArchiveFile
+				.open(file);
+		assertEquals(content, read(archive, "lib/deflated.txt")); //$NON-NLS-1$
+		assertEquals(STORED, read(archive, "stored.txt")); //$NON-NLS-1$
+		assertEquals(STORED.length(),
+				archive.getStoredContent(archive.getArchiveEntry("stored.txt")) //$NON-NLS-1$
+						.remaining());
+		assertNull(archive.getStoredContent(archive
+				.getArchiveEntry("lib/deflated.txt"))); //$NON-NLS-1$
+	}
+
+	public void testFolders() throws IOException {
+		final MappedArchiveFile archive = (MappedArchiveFile) MappedArchiveFile
+				.open(file);
+		final HashSet<String> folders = new HashSet<String>();
+		folders.add(""); //$NON-NLS-1$
+		folders.add("lib"); //$NON-NLS-1$
+		assertEquals(folders, archive.getFolders());
+		assertEquals("[lib/, stored.txt]", archive.getFolderEntries("") //$NON-NLS-1$ //$NON-NLS-2$
+				.toString());
+		assertEquals("[lib/deflated.txt]", archive.getFolderEntries("lib") //$NON-NLS-1$ //$NON-NLS-2$
+				.toString());
+		assertTrue(archive.getFolderEntries("other").isEmpty()); //$NON-NLS-1$
+	}
+
+	public void testShared() throws IOException {
+		final IArchive archive = MappedArchiveFile.open(file);
+		archive.close();
+		assertSame(archive, MappedArchiveFile.open(file));
+		assertEquals(STORED, read(archive, "stored.txt")); //$NON-NLS-1$
+		file.setLastModified(file.lastModified() - 10000);
+		assertNotSame(archive, MappedArchiveFile.open(file));
+	}
+
+	/**
+	 * The discarded archive is usable until closed by all its users
+	 */
+	public void testReleasedWhenClosed() throws IOException {
+		final IArchive archive = MappedArchiveFile.open(file);
+		final IArchive other = MappedArchiveFile.open(file);
+		assertSame(archive, other);
+		MappedArchiveFile.flush();
+		other.close();
+		assertEquals(STORED, read(archive, "stored.txt")); //$NON-NLS-1$
+		archive.close();
+		try {
+			read(archive, "stored.txt"); //$NON-NLS-1$
+			fail();
+		} catch (IOException e) {
+			// expected
+		}
+		assertNotSame(archive, MappedArchiveFile.open(file));
+	}
+
+	/**
+	 * The least recently used archives above the limit are released
+	 */
+	public void testUnusedLimit() throws IOException {
+		final IArchive first = MappedArchiveFile.open(file);
+		first.close();
+		IArchive last = null;
+		for (int i = 0; i < MappedArchiveFile.UNUSED_LIMIT; ++i) {
+			last = MappedArchiveFile.open(createArchive());
+			last.close();
+		}
+		assertNotSame(first, MappedArchiveFile.open(file));
+		assertSame(last, MappedArchiveFile.open(new File(last.getName())));
+	}
+
+	/**
+	 * The archives being used are not released
+	 */
+	public void testUsedNotReleased() throws IOException {
+		final IArchive archive = MappedArchiveFile.open(file);
+		for (int i = 0; i <= MappedArchiveFile.UNUSED_LIMIT; ++i) {
+			MappedArchiveFile.open(createArchive()).close();
+		}
+		assertEquals(STORED, read(archive, "stored.txt")); //$NON-NLS-1$
+		assertSame(archive, MappedArchiveFile.open(file));
+	}
+}
@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.tests.model;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.eclipse.dltk.internal.core.NameLookupTable;
+
+public class NameLookupTableTests extends TestCase {
+
+	private static String[] segments(String name) {
+		return name.length() == 0 ? new String[0] : name.split("\\."); //$NON-NLS-1$
+	}
+
+	private static NameLookupTable createFolders() {
+		final NameLookupTable.Builder builder = new NameLookupTable.Builder();
+		final String[] names = { "", "Foo", "foo.Bar", "foo.baz", "foobar", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+				"other", "foo.bar.qux" }; //$NON-NLS-1$ //$NON-NLS-2$
+		for (int i = 0; i < names.length; ++i) {
+			builder.add(segments(names[i]), names[i]);
+		}
+		return builder.build();
+	}
+
+	public void testQualifiedPrefix() {
+		final NameLookupTable table = createFolders();
+		assertEquals(7, table.size());
+		assertEquals(Arrays.asList("Foo", "foo.Bar", "foo.baz", "foobar", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+				"foo.bar.qux"), table.findPrefix(new String[] { "foo" })); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(Arrays.asList("foo.Bar", "foo.baz", "foo.bar.qux"), //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				table.findPrefix(new String[] { "FOO", "b" })); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(Arrays.asList("foo.Bar", "foo.bar.qux"), //$NON-NLS-1$ //$NON-NLS-2$
+				table.findPrefix(new String[] { "foo", "bar" })); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(Arrays.asList("foo.bar.qux"), //$NON-NLS-1$
+				table.findPrefix(new String[] { "foo", "bar", "" })); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertTrue(table.findPrefix(new String[] { "unknown" }).isEmpty()); //$NON-NLS-1$
+		assertEquals(7, table.findPrefix(new String[0]).size());
+	}
+
+	public void testSimplePrefix() {
+		final NameLookupTable.Builder builder = new NameLookupTable.Builder();
+		builder.add("Zeta.txt", "1"); //$NON-NLS-1$ //$NON-NLS-2$
+		builder.add("alpha.txt", "2"); //$NON-NLS-1$ //$NON-NLS-2$
+		builder.add("Alpha.txt", "3"); //$NON-NLS-1$ //$NON-NLS-2$
+		builder.add("alphabet.txt", "4"); //$NON-NLS-1$ //$NON-NLS-2$
+		final NameLookupTable table = builder.build();
+		// values are returned in the order they were added
+		assertEquals(Arrays.asList("2", "3", "4"), table.findPrefix("ALPHA")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		assertEquals(Arrays.asList("2", "3"), table.findPrefix("alpha.")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertEquals(Arrays.asList("1"), table.findPrefix("z")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue(table.findPrefix("beta").isEmpty()); //$NON-NLS-1$
+		assertTrue(new NameLookupTable.Builder().build().findPrefix("a") //$NON-NLS-1$
+				.isEmpty());
+	}
+}
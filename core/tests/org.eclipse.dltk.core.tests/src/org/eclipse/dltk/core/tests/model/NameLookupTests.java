@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.tests.model;
+
+import junit.framework.Test;
+
+import org.eclipse.dltk.core.IType;
+import org.eclipse.dltk.core.WorkingCopyOwner;
+import org.eclipse.dltk.internal.core.ModelElementRequestor;
+import org.eclipse.dltk.internal.core.NameLookup;
+import org.eclipse.dltk.internal.core.ScriptProject;
+
+public class NameLookupTests extends ModifyingResourceTests {
+	private static final String[] TEST_NATURE = new String[] { "org.eclipse.dltk.core.tests.testnature" }; //$NON-NLS-1$
+
+	public NameLookupTests(String name) {
+		super(ModelTestsPlugin.PLUGIN_NAME, name);
+	}
+
+	public static Test suite() {
+		return new Suite(NameLookupTests.class);
+	}
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		createScriptProject("P1", TEST_NATURE, new String[] { "src" }); //$NON-NLS-1$ //$NON-NLS-2$
+		createScriptProject("P2", TEST_NATURE, new String[] { "src" }, //$NON-NLS-1$ //$NON-NLS-2$
+				new String[] { "/P1" }); //$NON-NLS-1$
+		createFile("P1/src/alpha.txt", //$NON-NLS-1$
+				"# parseme!\nenterType Alpha\nexitType\n"); //$NON-NLS-1$
+	}
+
+	protected void tearDown() throws Exception {
+		deleteProject("P1"); //$NON-NLS-1$
+		deleteProject("P2"); //$NON-NLS-1$
+		super.tearDown();
+	}
+
+	private String[] findTypes(String projectName, String prefix)
+			throws Exception {
+		final ScriptProject project = (ScriptProject) getScriptProject(projectName);
+		final NameLookup lookup = project
+				.newNameLookup((WorkingCopyOwner) null);
+		final ModelElementRequestor requestor = new ModelElementRequestor();
+		lookup.seekTypes(prefix, null, true, NameLookup.ACCEPT_ALL, requestor);
+		final IType[] types = requestor.getTypes();
+		final String[] names = new String[types.length];
+		for (int i = 0; i < types.length; ++i) {
+			names[i] = types[i].getElementName();
+		}
+		return names;
+	}
+
+	/**
+	 * The source modules added to the required project are visible to the
+	 * partial type lookups of the dependent project.
+	 */
+	public void testModuleAddedToRequiredProject() throws Exception {
+		assertEquals(1, findTypes("P2", "Al").length); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(0, findTypes("P2", "Be").length); //$NON-NLS-1$ //$NON-NLS-2$
+		createFile("P1/src/beta.txt", //$NON-NLS-1$
+				"# parseme!\nenterType Beta\nexitType\n"); //$NON-NLS-1$
+		final String[] names = findTypes("P2", "Be"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(1, names.length);
+		assertEquals("Beta", names[0]); //$NON-NLS-1$
+	}
+
+	/**
+	 * The source modules removed from the required project are not returned
+	 * by the partial type lookups of the dependent project.
+	 */
+	public void testModuleRemovedFromRequiredProject() throws Exception {
+		assertEquals(1, findTypes("P2", "Al").length); //$NON-NLS-1$ //$NON-NLS-2$
+		deleteFile("P1/src/alpha.txt"); //$NON-NLS-1$
+		assertEquals(0, findTypes("P2", "Al").length); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+}
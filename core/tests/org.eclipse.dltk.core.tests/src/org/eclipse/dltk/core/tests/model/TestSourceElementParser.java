@@ -76,6 +76,9 @@ public class TestSourceElementParser implements ISourceElementParser {
 					requestor.exitType(currentLineOffset + line.length());
 				} else if (cmd.equals("exitMethod")) {
 					requestor.exitMethod(currentLineOffset + line.length());
+				} else if (cmd.equals("callMethod")) {
+					requestor.acceptMethodReference(arg, 0, currentLineOffset,
+							currentLineOffset + line.length());
 				}
 			}
 			currentLineOffset += line.length() + 1;
@@ -1,15 +1,43 @@
 package org.eclipse.dltk.core.tests.model;
 
 import org.eclipse.dltk.ast.declarations.ModuleDeclaration;
+import org.eclipse.dltk.ast.declarations.TypeDeclaration;
 import org.eclipse.dltk.ast.parser.AbstractSourceParser;
 import org.eclipse.dltk.compiler.env.IModuleSource;
 import org.eclipse.dltk.compiler.problem.IProblemReporter;
 
 public class TestSourceParser extends AbstractSourceParser {
 
+	private static final String PARSEME_HEADER = "# parseme!\n";
+
 	public ModuleDeclaration parse(IModuleSource input,
 			IProblemReporter reporter) {
-		return new ModuleDeclaration(input.getSourceContents().length());
+		final String contents = input.getSourceContents();
+		final ModuleDeclaration module = new ModuleDeclaration(contents
+				.length());
+		if (contents.startsWith(PARSEME_HEADER)) {
+			parsePseudo(module, contents);
+		}
+		return module;
+	}
+
+	/**
+	 * Creates the type declarations of the pseudo-model-code, the positions are
+	 * the same as reported by the {@link TestSourceElementParser}
+	 */
+	private void parsePseudo(ModuleDeclaration module, String contents) {
+		final String[] lines = contents.split("\n");
+		int currentLineOffset = 0;
+		for (int i = 0; i < lines.length; i++) {
+			final String line = lines[i];
+			final String[] split = line.split("\\s+");
+			if (split.length > 1 && split[0].equals("enterType")) {
+				final int end = currentLineOffset + line.length();
+				module.addStatement(new TypeDeclaration(split[1],
+						currentLineOffset, end, currentLineOffset, end));
+			}
+			currentLineOffset += line.length() + 1;
+		}
 	}
 
 }
@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.tests.parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.eclipse.dltk.ast.ASTNode;
+import org.eclipse.dltk.ast.ASTVisitor;
+import org.eclipse.dltk.ast.declarations.ModuleDeclaration;
+import org.eclipse.dltk.ast.statements.Block;
+import org.eclipse.dltk.ast.utils.ASTNodeIndex;
+
+public class ASTNodeIndexTests extends TestCase {
+
+	public void testNested() {
+		final ModuleDeclaration module = new ModuleDeclaration(100);
+		final Block outer = new Block(10, 50);
+		final Block inner = new Block(20, 30);
+		final Block same = new Block(20, 30);
+		final Block other = new Block(60, 70);
+		inner.addStatement(same);
+		outer.addStatement(inner);
+		module.addStatement(outer);
+		module.addStatement(other);
+		final ASTNodeIndex index = ASTNodeIndex.build(module);
+		assertEquals(5, index.size());
+		assertSame(module, index.findInnermost(5));
+		assertSame(outer, index.findInnermost(10));
+		assertSame(same, index.findInnermost(25));
+		assertSame(outer, index.findInnermost(31));
+		assertSame(other, index.findInnermost(70));
+		assertSame(outer, index.findInnermost(25, 40));
+		assertSame(module, index.findInnermost(40, 65));
+		assertNull(index.findInnermost(101));
+		assertEquals(Arrays.asList(module, outer, inner, same), index
+				.findCovering(20));
+		assertTrue(index.findCovering(-1).isEmpty());
+	}
+
+	private static void generate(Random random, Block parent, int start,
+			int end, int depth) {
+		int position = start;
+		while (depth > 0 && position < end && random.nextInt(4) != 0) {
+			final int childStart = position + random.nextInt(5);
+			final int childEnd = Math.min(end, childStart + random.nextInt(40));
+			if (childStart > childEnd) {
+				break;
+			}
+			final Block child = new Block(childStart, childEnd);
+			parent.addStatement(child);
+			generate(random, child, childStart, childEnd, depth - 1);
+			position = childEnd + 1;
+		}
+	}
+
+	private static List<ASTNode> traverse(ASTNode root, final int start,
+			final int end) throws Exception {
+		final List<ASTNode> result = new ArrayList<ASTNode>();
+		root.traverse(new ASTVisitor() {
+			@Override
+			public boolean visitGeneral(ASTNode node) {
+				if (node.sourceStart() <= start && node.sourceEnd() >= end) {
+					result.add(node);
+				}
+				return true;
+			}
+		});
+		return result;
+	}
+
+	public void testRandom() throws Exception {
+		final Random random = new Random(1);
+		for (int n = 0; n < 20; ++n) {
+			final Block root = new Block(0, 1000);
+			generate(random, root, 0, 1000, 6);
+			final ASTNodeIndex index = ASTNodeIndex.build(root);
+			for (int i = 0; i < 200; ++i) {
+				final int start = random.nextInt(1010);
+				final int end = start + random.nextInt(3) * random.nextInt(20);
+				final List<ASTNode> expected = traverse(root, start, end);
+				assertEquals(expected, index.findCovering(start, end));
+				assertSame(expected.isEmpty() ? null : expected.get(expected
+						.size() - 1), index.findInnermost(start, end));
+			}
+		}
+	}
+}
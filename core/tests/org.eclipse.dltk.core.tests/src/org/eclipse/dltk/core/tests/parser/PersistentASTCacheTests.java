@@ -0,0 +1,273 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.tests.parser;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+import junit.framework.TestCase;
+
+import org.eclipse.dltk.ast.ASTNode;
+import org.eclipse.dltk.ast.ASTVisitor;
+import org.eclipse.dltk.ast.Modifiers;
+import org.eclipse.dltk.ast.declarations.Argument;
+import org.eclipse.dltk.ast.declarations.Declaration;
+import org.eclipse.dltk.ast.declarations.FieldDeclaration;
+import org.eclipse.dltk.ast.declarations.MethodDeclaration;
+import org.eclipse.dltk.ast.declarations.ModuleDeclaration;
+import org.eclipse.dltk.ast.declarations.TypeDeclaration;
+import org.eclipse.dltk.ast.expressions.BooleanLiteral;
+import org.eclipse.dltk.ast.expressions.CallArgumentsList;
+import org.eclipse.dltk.ast.expressions.CallExpression;
+import org.eclipse.dltk.ast.expressions.Literal;
+import org.eclipse.dltk.ast.expressions.NilLiteral;
+import org.eclipse.dltk.ast.expressions.NumericLiteral;
+import org.eclipse.dltk.ast.expressions.StringLiteral;
+import org.eclipse.dltk.ast.parser.IASTCache.ASTCacheEntry;
+import org.eclipse.dltk.ast.references.ConstantReference;
+import org.eclipse.dltk.ast.references.SimpleReference;
+import org.eclipse.dltk.ast.references.TypeReference;
+import org.eclipse.dltk.ast.references.VariableKind;
+import org.eclipse.dltk.ast.references.VariableReference;
+import org.eclipse.dltk.ast.statements.Block;
+import org.eclipse.dltk.compiler.problem.DefaultProblem;
+import org.eclipse.dltk.compiler.problem.IProblem;
+import org.eclipse.dltk.compiler.problem.ProblemCollector;
+import org.eclipse.dltk.compiler.problem.ProblemSeverity;
+import org.eclipse.dltk.internal.core.PersistentASTCache;
+
+public class PersistentASTCacheTests extends TestCase {
+
+	private static final String PATH = "/project/src/module.txt"; //$NON-NLS-1$
+	private static final String VERSION = "parser_1.0"; //$NON-NLS-1$
+
+	private File directory;
+	private PersistentASTCache cache;
+
+	@Override
+	protected void setUp() throws Exception {
+		directory = File.createTempFile("astcache", ""); //$NON-NLS-1$ //$NON-NLS-2$
+		directory.delete();
+		cache = new PersistentASTCache(directory);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		cache.clear();
+		directory.delete();
+	}
+
+	private static ModuleDeclaration createModule() {
+		final ModuleDeclaration module = new ModuleDeclaration(200);
+		final TypeDeclaration type = new TypeDeclaration("Type", 6, 10, 0, //$NON-NLS-1$
+				150);
+		type.setModifiers(Modifiers.AccPublic);
+		type.setComments("/** type */"); //$NON-NLS-1$
+		type.setEnclosingTypeName("Outer"); //$NON-NLS-1$
+		type.addSuperClass(new TypeReference(20, 24, "Base")); //$NON-NLS-1$
+		final Block body = new Block(25, 150);
+		final FieldDeclaration field = new FieldDeclaration("field", 30, 35, //$NON-NLS-1$
+				26, 40);
+		body.addStatement(field);
+		final MethodDeclaration method = new MethodDeclaration("run", 45, //$NON-NLS-1$
+				48, 41, 149);
+		method.setDeclaringTypeName("Type"); //$NON-NLS-1$
+		method.addArgument(new Argument(new SimpleReference(49, 50, "a"), 49, //$NON-NLS-1$
+				new NilLiteral(52, 55), 0));
+		final Block methodBody = new Block(60, 149);
+		final CallArgumentsList args = new CallArgumentsList(70, 100);
+		args.addNode(new StringLiteral(71, 76, "text")); //$NON-NLS-1$
+		args.addNode(new NumericLiteral(78, 80, 42));
+		args.addNode(new BooleanLiteral(82, 86, true));
+		args.addNode(new VariableReference(88, 89, "a", //$NON-NLS-1$
+				VariableKind.ARGUMENT));
+		methodBody.addStatement(new CallExpression(61, 100,
+				new ConstantReference(61, 64, "OUT"), "print", args)); //$NON-NLS-1$ //$NON-NLS-2$
+		method.acceptBody(methodBody, false);
+		body.addStatement(method);
+		type.setBody(body);
+		module.addStatement(type);
+		module.addStatement(new VariableReference(160, 165, "other")); //$NON-NLS-1$
+		return module;
+	}
+
+	private static String dump(ASTNode node) throws Exception {
+		final StringBuilder sb = new StringBuilder();
+		node.traverse(new ASTVisitor() {
+			@Override
+			public boolean visitGeneral(ASTNode node) throws Exception {
+				sb.append(node.getClass().getSimpleName());
+				sb.append('[').append(node.sourceStart()).append(',').append(
+						node.sourceEnd()).append(']');
+				if (node instanceof Declaration) {
+					final Declaration declaration = (Declaration) node;
+					sb.append(' ').append(declaration.getName());
+					sb.append('[').append(declaration.getNameStart()).append(
+							',').append(declaration.getNameEnd()).append(']');
+					sb.append(' ').append(declaration.getModifiers());
+					sb.append(' ').append(declaration.getComments());
+				}
+				if (node instanceof TypeDeclaration) {
+					final TypeDeclaration type = (TypeDeclaration) node;
+					sb.append(' ').append(type.getEnclosingTypeName());
+					sb.append(' ').append(type.getBodyStart());
+					sb.append(' ').append(type.getBodyEnd());
+				}
+				if (node instanceof MethodDeclaration) {
+					sb.append(' ').append(
+							((MethodDeclaration) node).getDeclaringTypeName());
+				}
+				if (node instanceof SimpleReference) {
+					sb.append(' ').append(((SimpleReference) node).getName());
+				}
+				if (node instanceof VariableReference) {
+					sb.append(' ').append(
+							((VariableReference) node).getVariableKind()
+									.getId());
+				}
+				if (node instanceof CallExpression) {
+					sb.append(' ').append(((CallExpression) node).getName());
+				}
+				if (node instanceof Literal) {
+					sb.append(' ').append(((Literal) node).getValue());
+				}
+				sb.append('(');
+				return true;
+			}
+
+			@Override
+			public void endvisitGeneral(ASTNode node) throws Exception {
+				sb.append(')');
+			}
+		});
+		return sb.toString();
+	}
+
+	public void testRoundTrip() throws Exception {
+		final ModuleDeclaration module = createModule();
+		cache.store(PATH, 1, 2, VERSION, module, null);
+		final ASTCacheEntry entry = cache.restore(PATH, 1, 2, VERSION);
+		assertNotNull(entry);
+		assertNull(entry.problems);
+		assertTrue(entry.module instanceof ModuleDeclaration);
+		assertNotSame(module, entry.module);
+		assertEquals(dump(module), dump((ASTNode) entry.module));
+		final ModuleDeclaration restored = (ModuleDeclaration) entry.module;
+		assertEquals(1, restored.getTypes().length);
+		assertEquals(1, restored.getTypes()[0].getMethods().length);
+		assertEquals(1, restored.getTypes()[0].getVariables().length);
+		assertEquals(module.getTypes()[0].getSuperClassNames(), restored
+				.getTypes()[0].getSuperClassNames());
+	}
+
+	public void testProblems() {
+		final ProblemCollector problems = new ProblemCollector();
+		problems.reportProblem(new DefaultProblem(PATH, "message", null, //$NON-NLS-1$
+				new String[] { "arg" }, ProblemSeverity.ERROR, 1, 5, 1, 2)); //$NON-NLS-1$
+		cache.store(PATH, 1, 2, VERSION, new ModuleDeclaration(10), problems);
+		final ASTCacheEntry entry = cache.restore(PATH, 1, 2, VERSION);
+		assertNotNull(entry);
+		assertEquals(1, entry.problems.getProblems().size());
+		final IProblem problem = entry.problems.getProblems().get(0);
+		assertEquals("message", problem.getMessage()); //$NON-NLS-1$
+		assertEquals(ProblemSeverity.ERROR, problem.getSeverity());
+		assertEquals(1, problem.getSourceStart());
+		assertEquals(5, problem.getSourceEnd());
+		assertEquals("arg", problem.getArguments()[0]); //$NON-NLS-1$
+	}
+
+	public void testKey() {
+		cache.store(PATH, 1, 2, VERSION, new ModuleDeclaration(10), null);
+		assertNull(cache.restore(PATH, 2, 2, VERSION));
+		assertNull(cache.restore(PATH, 1, 3, VERSION));
+		assertNull(cache.restore(PATH, 1, 2, "parser_1.1")); //$NON-NLS-1$
+		assertNull(cache.restore("/project/src/other.txt", 1, 2, VERSION)); //$NON-NLS-1$
+		assertNotNull(cache.restore(PATH, 1, 2, VERSION));
+	}
+
+	/**
+	 * The new entry of the module replaces the previous one
+	 */
+	public void testStale() {
+		cache.store(PATH, 1, 2, VERSION, new ModuleDeclaration(10), null);
+		cache.store(PATH, 3, 4, VERSION, new ModuleDeclaration(20), null);
+		assertNull(cache.restore(PATH, 1, 2, VERSION));
+		final ASTCacheEntry entry = cache.restore(PATH, 3, 4, VERSION);
+		assertNotNull(entry);
+		assertEquals(20, ((ModuleDeclaration) entry.module).sourceEnd());
+		assertEquals(1, countFiles());
+	}
+
+	/**
+	 * The trees with the language specific nodes are not stored
+	 */
+	public void testUnsupportedNode() {
+		final ModuleDeclaration module = new ModuleDeclaration(100);
+		final Block block = new Block(0, 100);
+		block.addStatement(new TypeDeclaration("Type", 0, 4, 0, 50) { //$NON-NLS-1$
+				});
+		module.addStatement(block);
+		cache.store(PATH, 1, 2, VERSION, module, null);
+		assertNull(cache.restore(PATH, 1, 2, VERSION));
+		assertEquals(0, countFiles());
+	}
+
+	public void testCorrupted() throws Exception {
+		cache.store(PATH, 1, 2, VERSION, createModule(), null);
+		final File file = findFile();
+		final RandomAccessFile raf = new RandomAccessFile(file, "rw"); //$NON-NLS-1$
+		try {
+			raf.setLength(raf.length() / 2);
+		} finally {
+			raf.close();
+		}
+		assertNull(cache.restore(PATH, 1, 2, VERSION));
+		assertFalse(file.exists());
+		cache.store(PATH, 1, 2, VERSION, createModule(), null);
+		assertNotNull(cache.restore(PATH, 1, 2, VERSION));
+	}
+
+	/**
+	 * The big entries are memory-mapped
+	 */
+	public void testBigModule() throws Exception {
+		final ModuleDeclaration module = new ModuleDeclaration(100000);
+		for (int i = 0; i < 10000; ++i) {
+			module.addStatement(new SimpleReference(i * 10, i * 10 + 5,
+					"reference" + i)); //$NON-NLS-1$
+		}
+		cache.store(PATH, 1, 2, VERSION, module, null);
+		assertTrue(findFile().length() > 64 * 1024);
+		final ASTCacheEntry entry = cache.restore(PATH, 1, 2, VERSION);
+		assertNotNull(entry);
+		assertEquals(dump(module), dump((ASTNode) entry.module));
+	}
+
+	private File[] listFiles() {
+		final File[] folders = directory.listFiles();
+		assertNotNull(folders);
+		assertEquals(1, folders.length);
+		final File[] files = folders[0].listFiles();
+		assertNotNull(files);
+		return files;
+	}
+
+	private int countFiles() {
+		final File[] folders = directory.listFiles();
+		return folders != null && folders.length != 0 ? listFiles().length
+				: 0;
+	}
+
+	private File findFile() {
+		final File[] files = listFiles();
+		assertEquals(1, files.length);
+		return files[0];
+	}
+}
@@ -0,0 +1,228 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.tests.search;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.dltk.core.search.SearchPattern;
+import org.eclipse.dltk.core.search.index.DiskIndex;
+import org.eclipse.dltk.core.search.index.EntryResult;
+import org.eclipse.dltk.core.search.index.Index;
+
+public class DiskIndexTests extends TestCase {
+
+	private static final char[] CATEGORY = "cat".toCharArray(); //$NON-NLS-1$
+	private static final char[][] CATEGORIES = { CATEGORY };
+	private static final char[] COMMON = "common".toCharArray(); //$NON-NLS-1$
+	private static final int DOCUMENTS = 300;
+	private static final int EXACT = SearchPattern.R_EXACT_MATCH
+			| SearchPattern.R_CASE_SENSITIVE;
+
+	private File file;
+
+	@Override
+	protected void setUp() throws Exception {
+		file = File.createTempFile("index", ".index"); //$NON-NLS-1$ //$NON-NLS-2$
+		file.delete();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		file.delete();
+	}
+
+	private static String documentName(int i) {
+		return "folder/doc" + i + ".txt"; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	private Index createIndex() throws IOException {
+		final Index index = new Index(file.getPath(), "container", false); //$NON-NLS-1$
+		for (int i = 0; i < DOCUMENTS; ++i) {
+			index.addIndexEntry(CATEGORY, COMMON, documentName(i));
+			index.addIndexEntry(CATEGORY, ("word" + i).toCharArray(), //$NON-NLS-1$
+					documentName(i));
+		}
+		index.save();
+		return new Index(file.getPath(), "container", true); //$NON-NLS-1$
+	}
+
+	private static String[] query(Index index, String word) throws IOException {
+		index.startQuery();
+		try {
+			final EntryResult[] results = index.query(CATEGORIES,
+					word.toCharArray(), EXACT);
+			if (results == null) {
+				return new String[0];
+			}
+			assertEquals(1, results.length);
+			final String[] names = results[0].getDocumentNames(index);
+			Arrays.sort(names);
+			return names;
+		} finally {
+			index.stopQuery();
+		}
+	}
+
+	public void testQuery() throws IOException {
+		final Index index = createIndex();
+		assertFalse(index.hasChanged());
+		final String[] common = query(index, "common"); //$NON-NLS-1$
+		assertEquals(DOCUMENTS, common.length);
+		assertEquals(DOCUMENTS, index.queryDocumentNames(null).length);
+		final String[] single = query(index, "word123"); //$NON-NLS-1$
+		assertEquals(1, single.length);
+		assertEquals(documentName(123), single[0]);
+		assertEquals(0, query(index, "unknown").length); //$NON-NLS-1$
+	}
+
+	public void testAcceptDocumentNames() throws IOException {
+		final Index index = createIndex();
+		index.startQuery();
+		try {
+			final EntryResult[] results = index.query(CATEGORIES, COMMON,
+					EXACT);
+			assertEquals(1, results.length);
+			final List<String> names = new ArrayList<String>();
+			assertFalse(results[0].acceptDocumentNames(index,
+					new EntryResult.IDocumentNameRequestor() {
+						public boolean acceptDocumentName(String documentName) {
+							names.add(documentName);
+							return names.size() < 10;
+						}
+					}));
+			assertEquals(10, names.size());
+		} finally {
+			index.stopQuery();
+		}
+	}
+
+	public void testMerge() throws IOException {
+		final Index index = createIndex();
+		index.remove(documentName(5));
+		index.addIndexEntry(CATEGORY, COMMON, "new.txt"); //$NON-NLS-1$
+		index.save();
+		final Index reopened = new Index(file.getPath(), "container", true); //$NON-NLS-1$
+		final List<String> common = Arrays.asList(query(reopened, "common")); //$NON-NLS-1$
+		assertEquals(DOCUMENTS, common.size());
+		assertTrue(common.contains("new.txt")); //$NON-NLS-1$
+		assertFalse(common.contains(documentName(5)));
+		assertEquals(0, query(reopened, "word5").length); //$NON-NLS-1$
+	}
+
+	public void testConcurrentQueries() throws Exception {
+		final Index index = createIndex();
+		final List<Throwable> errors = Collections
+				.synchronizedList(new ArrayList<Throwable>());
+		final Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; ++t) {
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						for (int i = 0; i < DOCUMENTS; ++i) {
+							assertEquals(DOCUMENTS,
+									query(index, "common").length); //$NON-NLS-1$
+							assertEquals(documentName(i), query(index, "word" //$NON-NLS-1$
+									+ i)[0]);
+						}
+					} catch (Throwable e) {
+						errors.add(e);
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(errors.toString(), 0, errors.size());
+	}
+
+	public void testLegacyFormat() throws IOException {
+		writeLegacyIndex();
+		final Index index = new Index(file.getPath(), "container", true); //$NON-NLS-1$
+		assertTrue(index.hasChanged());
+		assertTrue(Arrays.equals(new String[] { "a.txt", "b.txt" }, //$NON-NLS-1$ //$NON-NLS-2$
+				query(index, "foo"))); //$NON-NLS-1$
+		assertTrue(Arrays.equals(new String[] { "b.txt" }, //$NON-NLS-1$
+				query(index, "bar"))); //$NON-NLS-1$
+		index.save();
+		final Index converted = new Index(file.getPath(), "container", true); //$NON-NLS-1$
+		assertFalse(converted.hasChanged());
+		assertTrue(Arrays.equals(new String[] { "a.txt", "b.txt" }, //$NON-NLS-1$ //$NON-NLS-2$
+				query(converted, "foo"))); //$NON-NLS-1$
+		final RandomAccessFile input = new RandomAccessFile(file, "r"); //$NON-NLS-1$
+		try {
+			assertEquals(DiskIndex.SIGNATURE, input.readUTF());
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Writes index with 2 documents in the format with the fixed size document
+	 * numbers
+	 */
+	private void writeLegacyIndex() throws IOException {
+		final DataOutputStream output = new DataOutputStream(
+				new FileOutputStream(file));
+		int headerOffset;
+		try {
+			output.writeUTF("DLTK INDEX VERSION 1.014"); //$NON-NLS-1$
+			output.writeInt(-1);
+			// document names chunk: "a.txt", "b.txt"
+			final int chunkOffset = output.size();
+			output.writeUTF("a.txt"); //$NON-NLS-1$
+			output.writeByte(0);
+			output.writeByte(4);
+			output.writeUTF("b"); //$NON-NLS-1$
+			final int startOfCategoryTables = output.size() + 1;
+			// category table: foo -> [0, 1], bar -> [1]
+			final int categoryOffset = output.size();
+			output.writeInt(2);
+			output.writeUTF("foo"); //$NON-NLS-1$
+			output.writeInt(2);
+			output.writeByte(0);
+			output.writeByte(1);
+			output.writeUTF("bar"); //$NON-NLS-1$
+			output.writeInt(-1);
+			// header
+			headerOffset = output.size();
+			output.writeInt(1);
+			output.writeByte(2);
+			output.writeByte(1);
+			output.writeByte('/'); // separator
+			output.writeInt(chunkOffset);
+			output.writeInt(startOfCategoryTables);
+			output.writeInt(1);
+			output.writeUTF(new String(CATEGORY));
+			output.writeInt(categoryOffset);
+		} finally {
+			output.close();
+		}
+		final RandomAccessFile patch = new RandomAccessFile(file, "rw"); //$NON-NLS-1$
+		try {
+			patch.readUTF();
+			patch.writeInt(headerOffset);
+		} finally {
+			patch.close();
+		}
+	}
+}
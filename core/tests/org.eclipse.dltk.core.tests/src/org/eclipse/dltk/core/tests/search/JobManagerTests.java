@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.tests.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.dltk.internal.core.search.processing.IParallelJob;
+import org.eclipse.dltk.internal.core.search.processing.JobManager;
+
+public class JobManagerTests extends TestCase {
+
+	private static final int KEYS = 4;
+	private static final int JOBS = 40;
+	private static final long JOB_DURATION = 20;
+	private static final long TIMEOUT = 5000;
+	private static final String CONFLICT = "conflict:"; //$NON-NLS-1$
+
+	private static class TestJobManager extends JobManager {
+		@Override
+		public String processName() {
+			return "JobManagerTests"; //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * The jobs currently running, by their serialization keys
+	 */
+	private static class Activity {
+		final Map<String, Integer> active = new HashMap<String, Integer>();
+		int maxActive;
+	}
+
+	private static class TestJob implements IParallelJob {
+		final String key;
+		final int index;
+		final List<String> log;
+		final Activity activity;
+		final CountDownLatch started;
+
+		TestJob(String key, int index, List<String> log, Activity activity,
+				CountDownLatch started) {
+			this.key = key;
+			this.index = index;
+			this.log = log;
+			this.activity = activity;
+			this.started = started;
+		}
+
+		public Object getSerializationKey() {
+			return key;
+		}
+
+		public boolean belongsTo(String jobFamily) {
+			return key.equals(jobFamily);
+		}
+
+		public void cancel() {
+		}
+
+		public void ensureReadyToRun() {
+		}
+
+		public boolean execute(IProgressMonitor progress) {
+			synchronized (activity) {
+				if (activity.active.containsKey(key)) {
+					log.add(CONFLICT + key);
+				}
+				activity.active.put(key, Integer.valueOf(index));
+				activity.maxActive = Math.max(activity.maxActive,
+						activity.active.size());
+			}
+			try {
+				if (started != null) {
+					// keep running until the jobs of the other keys start
+					started.countDown();
+					started.await(TIMEOUT, TimeUnit.MILLISECONDS);
+				} else {
+					Thread.sleep(JOB_DURATION);
+				}
+			} catch (InterruptedException e) {
+				// ignore
+			}
+			synchronized (activity) {
+				activity.active.remove(key);
+				log.add(key + ":" + index); //$NON-NLS-1$
+			}
+			return COMPLETE;
+		}
+
+		@Override
+		public String toString() {
+			return key + ":" + index; //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Runs the jobs and returns the maximum number of the jobs running at the
+	 * same time.
+	 */
+	private int runJobs(int workers, List<String> log, CountDownLatch started) {
+		final Activity activity = new Activity();
+		final TestJobManager manager = new TestJobManager();
+		manager.setWorkerCount(workers);
+		manager.reset();
+		try {
+			for (int i = 0; i < JOBS; ++i) {
+				manager.request(new TestJob("index" + (i % KEYS), i, log, //$NON-NLS-1$
+						activity, started));
+			}
+			manager.waitUntilReady();
+			assertEquals(0, manager.awaitingJobsCount());
+			synchronized (activity) {
+				return activity.maxActive;
+			}
+		} finally {
+			manager.shutdown();
+		}
+	}
+
+	public void testSerializationKeyOrder() {
+		final List<String> log = Collections
+				.synchronizedList(new ArrayList<String>());
+		runJobs(KEYS, log, null);
+		final Map<String, Integer> last = new HashMap<String, Integer>();
+		for (String entry : log) {
+			assertFalse(entry, entry.startsWith(CONFLICT));
+			final int pos = entry.indexOf(':');
+			final String key = entry.substring(0, pos);
+			final int index = Integer.parseInt(entry.substring(pos + 1));
+			final Integer previous = last.get(key);
+			if (previous != null) {
+				assertTrue(entry, previous.intValue() < index);
+			}
+			last.put(key, Integer.valueOf(index));
+		}
+		assertEquals(JOBS, log.size());
+	}
+
+	public void testSequential() {
+		final List<String> log = Collections
+				.synchronizedList(new ArrayList<String>());
+		assertEquals(1, runJobs(1, log, null));
+		assertEquals(JOBS, log.size());
+	}
+
+	/**
+	 * The jobs of the different keys are executed by the workers at the same
+	 * time.
+	 */
+	public void testOverlap() {
+		final List<String> log = Collections
+				.synchronizedList(new ArrayList<String>());
+		assertEquals(KEYS, runJobs(KEYS, log, new CountDownLatch(KEYS)));
+		assertEquals(JOBS, log.size());
+	}
+
+}
@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.tests.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Hashtable;
+import java.util.List;
+
+import junit.framework.Test;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.dltk.core.DLTKCore;
+import org.eclipse.dltk.core.IModelElement;
+import org.eclipse.dltk.core.search.IDLTKSearchConstants;
+import org.eclipse.dltk.core.search.IDLTKSearchScope;
+import org.eclipse.dltk.core.search.SearchEngine;
+import org.eclipse.dltk.core.search.SearchMatch;
+import org.eclipse.dltk.core.search.SearchParticipant;
+import org.eclipse.dltk.core.search.SearchPattern;
+import org.eclipse.dltk.core.search.SearchRequestor;
+import org.eclipse.dltk.core.tests.model.ModelTestsPlugin;
+import org.eclipse.dltk.core.tests.model.ModifyingResourceTests;
+
+/**
+ * Compares the results of the sequential and the parallel match location.
+ */
+public class ParallelMatchLocatorTests extends ModifyingResourceTests {
+	private static final String[] TEST_NATURE = new String[] { "org.eclipse.dltk.core.tests.testnature" }; //$NON-NLS-1$
+
+	private static final int MODULE_COUNT = 24;
+
+	private Hashtable<String, String> oldOptions;
+
+	public ParallelMatchLocatorTests(String name) {
+		super(ModelTestsPlugin.PLUGIN_NAME, name);
+	}
+
+	public static Test suite() {
+		return new Suite(ParallelMatchLocatorTests.class);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		oldOptions = DLTKCore.getOptions();
+		createScriptProject("P", TEST_NATURE, new String[] { "src" }); //$NON-NLS-1$ //$NON-NLS-2$
+		for (int i = 0; i < MODULE_COUNT; ++i) {
+			createFile("P/src/module" + i + ".txt", //$NON-NLS-1$ //$NON-NLS-2$
+					"# parseme!\nenterType Type" + i //$NON-NLS-1$
+							+ "\nexitType\nenterType Other" + i //$NON-NLS-1$
+							+ "\nexitType\n"); //$NON-NLS-1$
+		}
+		waitUntilIndexesReady();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		DLTKCore.setOptions(oldOptions);
+		deleteProject("P"); //$NON-NLS-1$
+		super.tearDown();
+	}
+
+	private void setThreads(int threads) {
+		final Hashtable<String, String> options = DLTKCore.getOptions();
+		options.put(DLTKCore.SEARCH_THREADS, String.valueOf(threads));
+		DLTKCore.setOptions(options);
+	}
+
+	private List<String> searchTypes(String pattern) throws CoreException {
+		final IDLTKSearchScope scope = SearchEngine
+				.createSearchScope(getScriptProject("P")); //$NON-NLS-1$
+		final List<String> results = new ArrayList<String>();
+		new SearchEngine().search(SearchPattern.createPattern(pattern,
+				IDLTKSearchConstants.TYPE, IDLTKSearchConstants.DECLARATIONS,
+				SearchPattern.R_PATTERN_MATCH, scope.getLanguageToolkit()),
+				new SearchParticipant[] { SearchEngine
+						.getDefaultSearchParticipant() }, scope,
+				new SearchRequestor() {
+					@Override
+					public void acceptSearchMatch(SearchMatch match) {
+						results.add(((IModelElement) match.getElement())
+								.getElementName()
+								+ "@" + match.getOffset()); //$NON-NLS-1$
+					}
+				}, null);
+		return results;
+	}
+
+	public void testSameResults() throws CoreException {
+		setThreads(1);
+		final List<String> sequential = searchTypes("Type*"); //$NON-NLS-1$
+		setThreads(4);
+		final List<String> parallel = searchTypes("Type*"); //$NON-NLS-1$
+		assertEquals(MODULE_COUNT, sequential.size());
+		// the matches are reported in the same order
+		assertEquals(sequential, parallel);
+		Collections.sort(parallel);
+		assertEquals("Type0@11", parallel.get(0)); //$NON-NLS-1$
+	}
+
+}
@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.core.tests.search;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.dltk.core.search.SearchBudget;
+
+public class SearchBudgetTests extends TestCase {
+
+	public void testResultLimit() {
+		final SearchBudget budget = new SearchBudget(3, 0);
+		assertTrue(budget.consume());
+		assertTrue(budget.consume());
+		assertFalse(budget.isExhausted());
+		assertTrue(budget.consume());
+		assertTrue(budget.isExhausted());
+		assertFalse(budget.consume());
+		assertEquals(3, budget.getResultCount());
+	}
+
+	public void testUnlimited() {
+		final SearchBudget budget = new SearchBudget(0, 0);
+		for (int i = 0; i < 1000; ++i) {
+			assertTrue(budget.consume());
+		}
+		assertFalse(budget.isExhausted());
+		assertEquals(1000, budget.getResultCount());
+	}
+
+	public void testTimeLimit() throws InterruptedException {
+		final SearchBudget budget = new SearchBudget(0, 10);
+		Thread.sleep(50);
+		assertTrue(budget.isExhausted());
+		assertFalse(budget.consume());
+		assertEquals(0, budget.getResultCount());
+	}
+
+	public void testMonitor() {
+		final SearchBudget budget = new SearchBudget(1, 0);
+		final IProgressMonitor monitor = budget.wrap(null);
+		assertFalse(monitor.isCanceled());
+		budget.consume();
+		assertTrue(monitor.isCanceled());
+		final NullProgressMonitor canceled = new NullProgressMonitor();
+		canceled.setCanceled(true);
+		assertTrue(new SearchBudget(0, 0).wrap(canceled).isCanceled());
+	}
+}
@@ -0,0 +1,182 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.debug.dbgp.tests;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.eclipse.dltk.dbgp.internal.DbgpChannelEngine;
+import org.eclipse.dltk.dbgp.internal.DbgpSelector;
+import org.eclipse.dltk.dbgp.internal.packets.DbgpPacket;
+import org.eclipse.dltk.dbgp.internal.packets.DbgpResponsePacket;
+import org.eclipse.dltk.dbgp.internal.packets.IDbgpPacketHandler;
+
+public class DbgpChannelEngineTests extends TestCase {
+
+	private static final int TIMEOUT = 5000;
+
+	private final List<SocketChannel> clients = new ArrayList<SocketChannel>();
+	private final List<DbgpChannelEngine> engines = new ArrayList<DbgpChannelEngine>();
+
+	private SocketChannel client;
+	private DbgpChannelEngine engine;
+
+	protected void setUp() throws Exception {
+		engine = connect();
+		client = clients.get(0);
+	}
+
+	protected void tearDown() throws Exception {
+		for (DbgpChannelEngine e : engines) {
+			e.requestTermination();
+		}
+		for (SocketChannel c : clients) {
+			c.close();
+		}
+	}
+
+	private DbgpChannelEngine connect() throws IOException {
+		final ServerSocketChannel server = ServerSocketChannel.open();
+		try {
+			server.socket().bind(
+					new InetSocketAddress(InetAddress.getByName(null), 0));
+			clients.add(SocketChannel.open(new InetSocketAddress(InetAddress
+					.getByName(null), server.socket().getLocalPort())));
+			final DbgpChannelEngine result = new DbgpChannelEngine(server
+					.accept(), DbgpSelector.getDefault());
+			engines.add(result);
+			return result;
+		} finally {
+			server.close();
+		}
+	}
+
+	private static byte[] packet(String xml) throws IOException {
+		final byte[] bytes = ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" + xml)
+				.getBytes("UTF-8");
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		output.write(Integer.toString(bytes.length).getBytes("ASCII"));
+		output.write(0);
+		output.write(bytes);
+		output.write(0);
+		return output.toByteArray();
+	}
+
+	private static byte[] response(int transactionId) throws IOException {
+		return packet("<response command=\"status\" status=\"break\" "
+				+ "reason=\"ok\" transaction_id=\"" + transactionId + "\"/>");
+	}
+
+	private void send(byte[] bytes, int offset, int length) throws Exception {
+		send(client, bytes, offset, length);
+	}
+
+	private static void send(SocketChannel channel, byte[] bytes, int offset,
+			int length) throws Exception {
+		final ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, length);
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		// let the selector read the part on its own
+		Thread.sleep(50);
+	}
+
+	private void assertResponse(int transactionId) throws Exception {
+		final DbgpResponsePacket packet = engine.getResponsePacket(
+				transactionId, TIMEOUT);
+		assertNotNull(packet);
+		assertEquals(transactionId, packet.getTransactionId());
+		assertEquals("break", packet.getContent().getAttribute("status"));
+	}
+
+	public void testSplit() throws Exception {
+		final byte[] bytes = response(1);
+		// inside of the size, right after the size, inside of the xml and
+		// before the termination byte
+		final int[] splits = new int[] { 1, 3, 20, bytes.length - 1,
+				bytes.length };
+		int offset = 0;
+		for (int i = 0; i < splits.length; ++i) {
+			send(bytes, offset, splits[i] - offset);
+			offset = splits[i];
+		}
+		assertResponse(1);
+	}
+
+	public void testCoalesced() throws Exception {
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		output.write(response(2));
+		output.write(packet("<notify name=\"first\"/>"));
+		output.write(response(3));
+		output.write(packet("<notify name=\"second\"/>"));
+		final byte[] bytes = output.toByteArray();
+		send(bytes, 0, bytes.length);
+		assertResponse(3);
+		assertResponse(2);
+		assertEquals("first", engine.getNotifyPacket().getName());
+		assertEquals("second", engine.getNotifyPacket().getName());
+	}
+
+	public void testCoalescedAndSplit() throws Exception {
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		output.write(response(4));
+		output.write(response(5));
+		final byte[] bytes = output.toByteArray();
+		final int middle = response(4).length + 2;
+		send(bytes, 0, middle);
+		send(bytes, middle, bytes.length - middle);
+		assertResponse(4);
+		assertResponse(5);
+	}
+
+	/**
+	 * The handlers waiting in the other connections do not prevent the
+	 * responses from being decoded
+	 */
+	public void testBlockedHandlers() throws Exception {
+		final int count = 4;
+		final CountDownLatch entered = new CountDownLatch(count);
+		final CountDownLatch release = new CountDownLatch(1);
+		try {
+			for (int i = 0; i < count; ++i) {
+				final DbgpChannelEngine other = connect();
+				other.addPacketHandler(new IDbgpPacketHandler() {
+					public void handlePacket(DbgpPacket packet) {
+						entered.countDown();
+						try {
+							release.await();
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+					}
+				});
+				final byte[] bytes = packet("<notify name=\"blocking\"/>");
+				send(clients.get(clients.size() - 1), bytes, 0, bytes.length);
+			}
+			assertTrue(entered.await(TIMEOUT, TimeUnit.MILLISECONDS));
+			final byte[] bytes = response(6);
+			send(bytes, 0, bytes.length);
+			assertResponse(6);
+		} finally {
+			release.countDown();
+		}
+	}
+}
@@ -0,0 +1,182 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.debug.dbgp.tests;
+
+import java.io.UnsupportedEncodingException;
+
+import junit.framework.TestCase;
+
+import org.eclipse.dltk.dbgp.IDbgpProperty;
+import org.eclipse.dltk.dbgp.exceptions.DbgpProtocolException;
+import org.eclipse.dltk.dbgp.internal.packets.DbgpNotifyPacket;
+import org.eclipse.dltk.dbgp.internal.packets.DbgpPacket;
+import org.eclipse.dltk.dbgp.internal.packets.DbgpPacketDecoder;
+import org.eclipse.dltk.dbgp.internal.packets.DbgpResponsePacket;
+import org.eclipse.dltk.dbgp.internal.packets.DbgpStreamPacket;
+import org.eclipse.dltk.dbgp.internal.utils.Base64Helper;
+import org.eclipse.dltk.dbgp.internal.utils.DbgpXmlEntityParser;
+import org.eclipse.dltk.dbgp.internal.utils.DbgpXmlParser;
+
+public class DbgpPacketDecoderTests extends TestCase {
+
+	private static final String HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n";
+
+	private final DbgpPacketDecoder decoder = new DbgpPacketDecoder();
+
+	private DbgpPacket decode(String xml) throws DbgpProtocolException,
+			UnsupportedEncodingException {
+		return decoder.decode((HEADER + xml).getBytes("UTF-8"));
+	}
+
+	public void testStream() throws Exception {
+		final DbgpPacket packet = decode("<stream type=\"stdout\">"
+				+ Base64Helper.encodeString("Hello\n") + "</stream>");
+		assertTrue(packet instanceof DbgpStreamPacket);
+		final DbgpStreamPacket stream = (DbgpStreamPacket) packet;
+		assertTrue(stream.isStdout());
+		assertEquals("Hello\n", stream.getTextContent());
+		assertNull(stream.getContent());
+	}
+
+	public void testResponse() throws Exception {
+		final DbgpPacket packet = decode("<response command=\"status\" "
+				+ "status=\"break\" reason=\"ok\" transaction_id=\"15\"/>");
+		assertTrue(packet instanceof DbgpResponsePacket);
+		assertEquals(15, ((DbgpResponsePacket) packet).getTransactionId());
+		assertEquals("break", packet.getContent().getAttribute("status"));
+	}
+
+	public void testInit() throws Exception {
+		final DbgpPacket packet = decode("<init appid=\"test\" idekey=\"key\" "
+				+ "session=\"1\" thread=\"main\" language=\"test\" "
+				+ "protocol_version=\"1.0\" fileuri=\"file:///test\"/>");
+		assertTrue(packet instanceof DbgpResponsePacket);
+		assertEquals(-1, ((DbgpResponsePacket) packet).getTransactionId());
+		assertEquals("init", packet.getContent().getTagName());
+	}
+
+	public void testNotify() throws Exception {
+		final DbgpPacket packet = decode("<notify name=\"breakpoint\"/>");
+		assertTrue(packet instanceof DbgpNotifyPacket);
+		assertEquals("breakpoint", ((DbgpNotifyPacket) packet).getName());
+	}
+
+	public void testComment() throws Exception {
+		final DbgpPacket stream = decode("<!-- <response/> --><stream type=\"stderr\">"
+				+ Base64Helper.encodeString("Error") + "</stream>");
+		assertTrue(stream instanceof DbgpStreamPacket);
+		assertEquals("Error", ((DbgpStreamPacket) stream).getTextContent());
+		final DbgpPacket notify = decode("<!-- <stream> --><notify name=\"n\"/>");
+		assertTrue(notify instanceof DbgpNotifyPacket);
+		assertEquals("n", ((DbgpNotifyPacket) notify).getName());
+	}
+
+	public void testUnknown() throws Exception {
+		assertNull(decode("<unknown/>"));
+	}
+
+	public void testMalformed() throws Exception {
+		try {
+			decode("<response transaction_id=\"1\">");
+			fail();
+		} catch (DbgpProtocolException e) {
+			// expected
+		}
+		// the decoder is still usable after the error
+		assertTrue(decode("<notify name=\"n\"/>") instanceof DbgpNotifyPacket);
+	}
+
+	public void testPropertyValue() throws Exception {
+		final DbgpPacket packet = decode("<response command=\"property_get\" "
+				+ "transaction_id=\"2\"><property name=\"a\" fullname=\"a\" "
+				+ "type=\"string\" children=\"0\" encoding=\"base64\">"
+				+ Base64Helper.encodeString("value") + "</property></response>");
+		assertTrue(packet instanceof DbgpResponsePacket);
+		final DbgpResponsePacket response = (DbgpResponsePacket) packet;
+		assertEquals(2, response.getTransactionId());
+		final IDbgpProperty[] properties = response.getProperties();
+		assertEquals(1, properties.length);
+		final IDbgpProperty property = properties[0];
+		assertEquals("a", property.getName());
+		assertEquals("value", property.getValue());
+		assertSame(property.getValue(), property.getValue());
+	}
+
+	private static String toString(IDbgpProperty property) {
+		final StringBuilder sb = new StringBuilder();
+		sb.append(property.getName()).append('|');
+		sb.append(property.getEvalName()).append('|');
+		sb.append(property.getType()).append('|');
+		sb.append(property.getValue()).append('|');
+		sb.append(property.hasChildren()).append('|');
+		sb.append(property.getChildrenCount()).append('|');
+		sb.append(property.isConstant()).append('|');
+		sb.append(property.getKey()).append('|');
+		sb.append(property.getAddress()).append('|');
+		sb.append(property.getPage()).append('|');
+		sb.append(property.getPageSize());
+		sb.append('[');
+		for (IDbgpProperty child : property.getAvailableChildren()) {
+			sb.append(toString(child));
+		}
+		sb.append(']');
+		return sb.toString();
+	}
+
+	/**
+	 * The properties are decoded without the DOM the same way as from the DOM
+	 */
+	public void testContextProperties() throws Exception {
+		final DbgpPacket packet = decode("<response command=\"context_get\" "
+				+ "context=\"0\" transaction_id=\"3\">\n"
+				+ "<property name=\"h\" fullname=\"$h\" type=\"hash\" "
+				+ "children=\"1\" numchildren=\"5\" page=\"1\" "
+				+ "pagesize=\"2\" key=\"k\" address=\"0x1\">\n"
+				+ "<property type=\"int\" children=\"0\" constant=\"1\">"
+				+ "<name encoding=\"base64\">"
+				+ Base64Helper.encodeString("x")
+				+ "</name><fullname>$h[x]</fullname>"
+				+ "<value encoding=\"base64\">"
+				+ Base64Helper.encodeString("1")
+				+ "</value></property>\n"
+				+ "<property name=\"y\" type=\"string\" children=\"0\">"
+				+ "a &amp; b</property>\n</property>\n"
+				+ "<property name=\"n\" type=\"array\" children=\"0\">"
+				+ "<property name=\"skipped\"/></property>\n</response>");
+		assertTrue(packet instanceof DbgpResponsePacket);
+		final IDbgpProperty[] properties = ((DbgpResponsePacket) packet)
+				.getProperties();
+		assertNotNull(properties);
+		final IDbgpProperty[] expected = DbgpXmlEntityParser
+				.parseProperties(packet.getContent());
+		assertEquals(2, expected.length);
+		assertEquals(expected.length, properties.length);
+		for (int i = 0; i < expected.length; ++i) {
+			assertEquals(toString(expected[i]), toString(properties[i]));
+		}
+		assertEquals("x", properties[0].getAvailableChildren()[0].getName());
+		assertEquals("a & b", properties[0].getAvailableChildren()[1]
+				.getValue());
+		assertEquals(0, properties[1].getAvailableChildren().length);
+	}
+
+	/**
+	 * The responses with the errors are decoded into the DOM
+	 */
+	public void testPropertyError() throws Exception {
+		final DbgpPacket packet = decode("<response command=\"property_get\" "
+				+ "transaction_id=\"4\"><error code=\"300\">"
+				+ "<message>Can not get property</message></error></response>");
+		assertTrue(packet instanceof DbgpResponsePacket);
+		assertNull(((DbgpResponsePacket) packet).getProperties());
+		assertEquals(4, ((DbgpResponsePacket) packet).getTransactionId());
+		assertNotNull(DbgpXmlParser.checkError(packet.getContent()));
+	}
+}
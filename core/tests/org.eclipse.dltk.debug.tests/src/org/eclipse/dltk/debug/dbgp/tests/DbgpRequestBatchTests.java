@@ -0,0 +1,303 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.debug.dbgp.tests;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import junit.framework.TestCase;
+
+import org.eclipse.debug.core.DebugPlugin;
+import org.eclipse.debug.core.IBreakpointManager;
+import org.eclipse.dltk.dbgp.DbgpBaseCommands;
+import org.eclipse.dltk.dbgp.DbgpRequest;
+import org.eclipse.dltk.dbgp.IDbgpRawListener;
+import org.eclipse.dltk.dbgp.IDbgpSession;
+import org.eclipse.dltk.dbgp.breakpoints.DbgpBreakpointConfig;
+import org.eclipse.dltk.dbgp.internal.DbgpTermination;
+import org.eclipse.dltk.dbgp.internal.IDbgpDebugingEngine;
+import org.eclipse.dltk.dbgp.internal.commands.DbgpBreakpointCommands;
+import org.eclipse.dltk.dbgp.internal.commands.DbgpDebuggingEngineCommunicator;
+import org.eclipse.dltk.dbgp.internal.commands.DbgpRequestBatch;
+import org.eclipse.dltk.dbgp.internal.packets.DbgpNotifyPacket;
+import org.eclipse.dltk.dbgp.internal.packets.DbgpResponseFuture;
+import org.eclipse.dltk.dbgp.internal.packets.DbgpResponsePacket;
+import org.eclipse.dltk.dbgp.internal.packets.DbgpResponseTable;
+import org.eclipse.dltk.dbgp.internal.packets.DbgpStreamPacket;
+import org.eclipse.dltk.debug.core.model.DefaultDebugOptions;
+import org.eclipse.dltk.debug.core.model.IScriptBreakpoint;
+import org.eclipse.dltk.debug.core.model.IScriptExceptionBreakpoint;
+import org.eclipse.dltk.internal.debug.core.model.ScriptBreakpointManager;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+public class DbgpRequestBatchTests extends TestCase {
+
+	private static final String BREAKPOINT_SET = "breakpoint_set";
+	private static final String BREAKPOINT_UPDATE = "breakpoint_update";
+
+	/**
+	 * Answers the requests in the reverse order only after the expected number
+	 * of them is received, so the test hangs if the requests are not
+	 * pipelined.
+	 */
+	private static class ReversingEngine extends DbgpTermination implements
+			IDbgpDebugingEngine {
+		private final int expected;
+		private final List<DbgpRequest> requests = new ArrayList<DbgpRequest>();
+		private int counted;
+		private final DbgpResponseTable responses = new DbgpResponseTable();
+		private final Document document;
+
+		ReversingEngine(int expected) throws Exception {
+			this.expected = expected;
+			this.document = DocumentBuilderFactory.newInstance()
+					.newDocumentBuilder().newDocument();
+		}
+
+		public void sendCommand(DbgpRequest command) throws IOException {
+			requests.add(command);
+			if (requests.size() % expected == 0) {
+				for (int i = requests.size(); --i >= requests.size() - expected;) {
+					final DbgpRequest request = requests.get(i);
+					final int id = Integer.parseInt(request
+							.getOption(DbgpBaseCommands.ID_OPTION));
+					final Element response = document
+							.createElement("response");
+					response.setAttribute("transaction_id", String
+							.valueOf(id));
+					response.setAttribute("id", "bp" + i);
+					responses.put(new DbgpResponsePacket(response, id));
+				}
+			}
+		}
+
+		public DbgpResponsePacket getResponsePacket(int transactionId,
+				int timeout) throws IOException, InterruptedException {
+			return responses.waitPacket(transactionId, timeout);
+		}
+
+		public DbgpResponseFuture getResponseFuture(int transactionId) {
+			return responses.getFuture(transactionId);
+		}
+
+		public DbgpNotifyPacket getNotifyPacket() throws IOException,
+				InterruptedException {
+			throw new InterruptedException();
+		}
+
+		public DbgpStreamPacket getStreamPacket() throws IOException,
+				InterruptedException {
+			throw new InterruptedException();
+		}
+
+		public void addRawListener(IDbgpRawListener listener) {
+		}
+
+		public void removeRawListenr(IDbgpRawListener listener) {
+		}
+
+		public void requestTermination() {
+			responses.terminate();
+		}
+
+		public void waitTerminated() throws InterruptedException {
+		}
+
+		/**
+		 * Returns the number of the requests of the specified command sent
+		 * since the previous call
+		 */
+		int countSent(String command) {
+			int count = 0;
+			for (int i = counted; i < requests.size(); ++i) {
+				if (command.equals(requests.get(i).getCommand())) {
+					++count;
+				}
+			}
+			counted = requests.size();
+			return count;
+		}
+	}
+
+	private static class IdCollector implements
+			DbgpRequestBatch.IResponseHandler {
+		final List<String> ids = new ArrayList<String>();
+		final List<Exception> errors = new ArrayList<Exception>();
+
+		public void responseReceived(Element response) throws Exception {
+			ids.add(DbgpBreakpointCommands.parseBreakpointId(response));
+		}
+
+		public void requestFailed(Exception e) {
+			errors.add(e);
+		}
+	}
+
+	public void testPipelined() throws Exception {
+		final int count = 3;
+		final ReversingEngine engine = new ReversingEngine(count);
+		final DbgpRequestBatch batch = new DbgpRequestBatch(
+				new DbgpDebuggingEngineCommunicator(engine, DefaultDebugOptions
+						.getDefaultInstance()));
+		final IdCollector collector = new IdCollector();
+		for (int i = 0; i < count; ++i) {
+			batch.add(DbgpBreakpointCommands.createSetRequest(
+					DbgpBreakpointCommands.LINE_BREAKPOINT, null, new Integer(
+							i + 1), null, null, new DbgpBreakpointConfig()),
+					collector);
+		}
+		assertEquals(count, batch.size());
+		batch.execute();
+		assertTrue(batch.isEmpty());
+		assertEquals(0, collector.errors.size());
+		assertEquals(count, collector.ids.size());
+		for (int i = 0; i < count; ++i) {
+			assertEquals("bp" + i, collector.ids.get(i));
+		}
+	}
+
+	public void testConfigEquals() {
+		final DbgpBreakpointConfig config = new DbgpBreakpointConfig(true, 2,
+				1, "x > 1");
+		assertEquals(config, new DbgpBreakpointConfig(true, 2, 1, "x > 1"));
+		assertEquals(config.hashCode(), new DbgpBreakpointConfig(true, 2, 1,
+				"x > 1").hashCode());
+		assertFalse(config
+				.equals(new DbgpBreakpointConfig(false, 2, 1, "x > 1")));
+		assertFalse(config.equals(new DbgpBreakpointConfig(true, 2, 1, null)));
+	}
+
+	/**
+	 * Exposes the breakpoint requests of the manager, each of them is executed
+	 * as a separate batch.
+	 */
+	private static class TestBreakpointManager extends ScriptBreakpointManager {
+		TestBreakpointManager() {
+			super(null, null);
+		}
+
+		void add(IDbgpSession session, IScriptBreakpoint breakpoint)
+				throws Exception {
+			final DbgpRequestBatch batch = new DbgpRequestBatch(session
+					.getCommunicator());
+			addBreakpoint(batch, session, breakpoint);
+			batch.execute();
+		}
+
+		void change(IDbgpSession session, IScriptBreakpoint breakpoint)
+				throws Exception {
+			final DbgpRequestBatch batch = new DbgpRequestBatch(session
+					.getCommunicator());
+			changeBreakpoint(batch, session, breakpoint);
+			batch.execute();
+		}
+	}
+
+	private static Object newProxy(Class<?> type, InvocationHandler handler) {
+		return Proxy.newProxyInstance(type.getClassLoader(),
+				new Class[] { type }, handler);
+	}
+
+	private static IDbgpSession newSession(IDbgpDebugingEngine engine) {
+		final DbgpDebuggingEngineCommunicator communicator = new DbgpDebuggingEngineCommunicator(
+				engine, DefaultDebugOptions.getDefaultInstance());
+		return (IDbgpSession) newProxy(IDbgpSession.class,
+				new InvocationHandler() {
+					public Object invoke(Object proxy, Method method,
+							Object[] args) {
+						if ("getCommunicator".equals(method.getName())) {
+							return communicator;
+						} else if ("hashCode".equals(method.getName())) {
+							return Integer.valueOf(System
+									.identityHashCode(proxy));
+						} else if ("equals".equals(method.getName())) {
+							return Boolean.valueOf(proxy == args[0]);
+						}
+						return null;
+					}
+				});
+	}
+
+	private static IScriptBreakpoint newBreakpoint(final boolean enabled) {
+		return (IScriptBreakpoint) newProxy(IScriptExceptionBreakpoint.class,
+				new InvocationHandler() {
+					private String id;
+
+					public Object invoke(Object proxy, Method method,
+							Object[] args) {
+						final String name = method.getName();
+						if ("isEnabled".equals(name)) {
+							return Boolean.valueOf(enabled);
+						} else if ("getHitValue".equals(name)
+								|| "getHitCondition".equals(name)) {
+							return Integer.valueOf(-1);
+						} else if ("getExpressionState".equals(name)) {
+							return Boolean.FALSE;
+						} else if ("getTypeName".equals(name)) {
+							return "Error";
+						} else if ("getId".equals(name)) {
+							return id;
+						} else if ("setId".equals(name)) {
+							id = (String) args[1];
+						}
+						return null;
+					}
+				});
+	}
+
+	/**
+	 * The "skip all breakpoints" toggle sends the update only once and only
+	 * for the breakpoints which state actually changes.
+	 */
+	public void testSkipAllBreakpoints() throws Exception {
+		final IBreakpointManager breakpointManager = DebugPlugin.getDefault()
+				.getBreakpointManager();
+		assertTrue(breakpointManager.isEnabled());
+		final ReversingEngine engine = new ReversingEngine(1);
+		final IDbgpSession session = newSession(engine);
+		final TestBreakpointManager manager = new TestBreakpointManager();
+		final IScriptBreakpoint enabled = newBreakpoint(true);
+		final IScriptBreakpoint disabled = newBreakpoint(false);
+		manager.add(session, enabled);
+		manager.add(session, disabled);
+		assertEquals(2, engine.countSent(BREAKPOINT_SET));
+		assertEquals("bp0", enabled.getId(session));
+		assertEquals("bp1", disabled.getId(session));
+		try {
+			for (int i = 0; i < 2; ++i) {
+				breakpointManager.setEnabled(false);
+				manager.change(session, enabled);
+				manager.change(session, disabled);
+				assertEquals(1, engine.countSent(BREAKPOINT_UPDATE));
+				// the same state again
+				manager.change(session, enabled);
+				manager.change(session, disabled);
+				assertEquals(0, engine.countSent(BREAKPOINT_UPDATE));
+
+				breakpointManager.setEnabled(true);
+				manager.change(session, enabled);
+				manager.change(session, disabled);
+				assertEquals(1, engine.countSent(BREAKPOINT_UPDATE));
+				manager.change(session, enabled);
+				manager.change(session, disabled);
+				assertEquals(0, engine.countSent(BREAKPOINT_UPDATE));
+			}
+		} finally {
+			breakpointManager.setEnabled(true);
+		}
+	}
+}
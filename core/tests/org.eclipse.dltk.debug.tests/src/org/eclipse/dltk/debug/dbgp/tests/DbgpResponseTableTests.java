@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.debug.dbgp.tests;
+
+import junit.framework.TestCase;
+
+import org.eclipse.dltk.dbgp.internal.packets.DbgpResponseFuture;
+import org.eclipse.dltk.dbgp.internal.packets.DbgpResponsePacket;
+import org.eclipse.dltk.dbgp.internal.packets.DbgpResponseTable;
+
+public class DbgpResponseTableTests extends TestCase {
+
+	private final DbgpResponseTable table = new DbgpResponseTable();
+
+	public void testReceivedBeforeRequested() throws Exception {
+		final DbgpResponsePacket packet = new DbgpResponsePacket(null, 1);
+		table.put(packet);
+		final DbgpResponseFuture future = table.getFuture(1);
+		assertTrue(future.isDone());
+		assertSame(packet, future.get());
+		assertFalse(table.getFuture(1).isDone());
+	}
+
+	public void testRequestedBeforeReceived() throws Exception {
+		final DbgpResponseFuture future = table.getFuture(2);
+		assertFalse(future.isDone());
+		final DbgpResponsePacket packet = new DbgpResponsePacket(null, 2);
+		table.put(packet);
+		assertTrue(future.isDone());
+		assertSame(packet, future.get());
+	}
+
+	public void testOutOfOrder() throws Exception {
+		final DbgpResponseFuture first = table.getFuture(3);
+		final DbgpResponseFuture second = table.getFuture(4);
+		final DbgpResponsePacket packet4 = new DbgpResponsePacket(null, 4);
+		final DbgpResponsePacket packet3 = new DbgpResponsePacket(null, 3);
+		table.put(packet4);
+		table.put(packet3);
+		assertSame(packet3, first.get());
+		assertSame(packet4, second.get());
+	}
+
+	public void testTimeout() throws Exception {
+		assertNull(table.waitPacket(5, 10));
+	}
+
+	public void testTerminate() throws Exception {
+		final DbgpResponsePacket packet = new DbgpResponsePacket(null, 6);
+		table.put(packet);
+		final DbgpResponseFuture pending = table.getFuture(7);
+		table.terminate();
+		assertTrue(pending.isDone());
+		try {
+			table.waitPacket(7, 0);
+			fail();
+		} catch (InterruptedException e) {
+			// expected
+		}
+		assertSame(packet, table.waitPacket(6, 0));
+		try {
+			table.waitPacket(8, 0);
+			fail();
+		} catch (InterruptedException e) {
+			// expected
+		}
+	}
+}
@@ -14,11 +14,15 @@ import junit.framework.TestSuite;
 
 import org.eclipse.dltk.debug.dbgp.tests.DbgpBase64Tests;
 import org.eclipse.dltk.debug.dbgp.tests.DbgpBreakpointCommandsTests;
+import org.eclipse.dltk.debug.dbgp.tests.DbgpChannelEngineTests;
 import org.eclipse.dltk.debug.dbgp.tests.DbgpContextCommandsTests;
 import org.eclipse.dltk.debug.dbgp.tests.DbgpContinuationCommandsTests;
 import org.eclipse.dltk.debug.dbgp.tests.DbgpFeatureCommandsTests;
+import org.eclipse.dltk.debug.dbgp.tests.DbgpPacketDecoderTests;
 import org.eclipse.dltk.debug.dbgp.tests.DbgpPropertyCommandsTests;
+import org.eclipse.dltk.debug.dbgp.tests.DbgpRequestBatchTests;
 import org.eclipse.dltk.debug.dbgp.tests.DbgpRequestTests;
+import org.eclipse.dltk.debug.dbgp.tests.DbgpResponseTableTests;
 import org.eclipse.dltk.debug.dbgp.tests.DbgpStackCommandsTests;
 import org.eclipse.dltk.debug.dbgp.tests.DbgpStackLevelTests;
 import org.eclipse.dltk.debug.dbgp.tests.DbgpStatusCommandsTests;
@@ -27,6 +31,7 @@ import org.eclipse.dltk.debug.dbgp.tests.DbgpStreamCommandsTests;
 import org.eclipse.dltk.debug.dbgp.tests.service.DbgpServiceDispatcherTests;
 import org.eclipse.dltk.debug.dbgp.tests.service.DbgpServiceTests;
 import org.eclipse.dltk.debug.tests.breakpoints.BreakpointTests;
+import org.eclipse.dltk.debug.tests.model.ScriptPropertyCacheTests;
 
 public class AllTests {
 
@@ -49,6 +54,10 @@ public class AllTests {
 		dbgpSuite.addTestSuite(DbgpStatusCommandsTests.class);
 		dbgpSuite.addTestSuite(DbgpBase64Tests.class);
 		dbgpSuite.addTestSuite(DbgpStatusTests.class);
+		dbgpSuite.addTestSuite(DbgpPacketDecoderTests.class);
+		dbgpSuite.addTestSuite(DbgpResponseTableTests.class);
+		dbgpSuite.addTestSuite(DbgpRequestBatchTests.class);
+		dbgpSuite.addTestSuite(DbgpChannelEngineTests.class);
 		suite.addTest(dbgpSuite);
 
 		final TestSuite serviceSuite = new TestSuite("DBGP Service tests");
@@ -58,6 +67,9 @@ public class AllTests {
 
 		// Breakpoints
 		suite.addTest(BreakpointTests.suite());
+
+		// Model
+		suite.addTestSuite(ScriptPropertyCacheTests.class);
 		// // $JUnit-END$
 		return suite;
 	}
@@ -0,0 +1,212 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.debug.tests.model;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import junit.framework.TestCase;
+
+import org.eclipse.debug.core.DebugEvent;
+import org.eclipse.dltk.dbgp.IDbgpProperty;
+import org.eclipse.dltk.dbgp.IDbgpSession;
+import org.eclipse.dltk.dbgp.commands.IDbgpCoreCommands;
+import org.eclipse.dltk.debug.core.model.IScriptDebugTarget;
+import org.eclipse.dltk.internal.debug.core.model.IScriptThreadManager;
+import org.eclipse.dltk.internal.debug.core.model.ScriptPropertyCache;
+import org.eclipse.dltk.internal.debug.core.model.ScriptThread;
+
+public class ScriptPropertyCacheTests extends TestCase {
+
+	/**
+	 * Returns the default values, so the proxies could stand for the
+	 * interfaces the tested code does not care about.
+	 */
+	private static class DefaultHandler implements InvocationHandler {
+		public Object invoke(Object proxy, Method method, Object[] args)
+				throws Throwable {
+			final Class type = method.getReturnType();
+			if (type == Boolean.TYPE) {
+				return Boolean.FALSE;
+			} else if (type == Integer.TYPE) {
+				return new Integer(0);
+			} else if (type == Long.TYPE) {
+				return new Long(0);
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Counts the property commands and returns the new properties for each
+	 * of them.
+	 */
+	private class CommandsHandler extends DefaultHandler {
+		int contextCount;
+		int pageCount;
+
+		public Object invoke(Object proxy, Method method, Object[] args)
+				throws Throwable {
+			if ("getContextProperties".equals(method.getName())) { //$NON-NLS-1$
+				++contextCount;
+				onCommand();
+				return new IDbgpProperty[] { newProperty() };
+			} else if ("getProperty".equals(method.getName())) { //$NON-NLS-1$
+				++pageCount;
+				onCommand();
+				return newProperty();
+			}
+			return super.invoke(proxy, method, args);
+		}
+
+		/**
+		 * Called while the command is executed
+		 */
+		protected void onCommand() {
+		}
+	}
+
+	private CommandsHandler commands;
+	private IDbgpSession session;
+
+	protected void setUp() throws Exception {
+		commands = new CommandsHandler();
+		session = newSession(commands);
+	}
+
+	private static Object newProxy(Class type, InvocationHandler handler) {
+		return Proxy.newProxyInstance(type.getClassLoader(),
+				new Class[] { type }, handler);
+	}
+
+	private static IDbgpProperty newProperty() {
+		return (IDbgpProperty) newProxy(IDbgpProperty.class,
+				new DefaultHandler());
+	}
+
+	private static IDbgpSession newSession(InvocationHandler commandsHandler) {
+		final IDbgpCoreCommands coreCommands = (IDbgpCoreCommands) newProxy(
+				IDbgpCoreCommands.class, commandsHandler);
+		return (IDbgpSession) newProxy(IDbgpSession.class,
+				new DefaultHandler() {
+					public Object invoke(Object proxy, Method method,
+							Object[] args) throws Throwable {
+						if ("getCoreCommands".equals(method.getName())) { //$NON-NLS-1$
+							return coreCommands;
+						}
+						return super.invoke(proxy, method, args);
+					}
+				});
+	}
+
+	private ScriptThread newThread() throws Exception {
+		return new ScriptThread((IScriptDebugTarget) newProxy(
+				IScriptDebugTarget.class, new DefaultHandler()), session,
+				(IScriptThreadManager) newProxy(IScriptThreadManager.class,
+						new DefaultHandler()));
+	}
+
+	private static void fill(ScriptPropertyCache cache) throws Exception {
+		cache.getContextProperties(0, 0);
+		cache.getPropertyPage(0, "a", 1); //$NON-NLS-1$
+	}
+
+	public void testHit() throws Exception {
+		final ScriptPropertyCache cache = new ScriptPropertyCache(session);
+		final IDbgpProperty[] properties = cache.getContextProperties(0, 0);
+		final IDbgpProperty page = cache.getPropertyPage(0, "a", 1); //$NON-NLS-1$
+		assertSame(properties, cache.getContextProperties(0, 0));
+		assertSame(page, cache.getPropertyPage(0, "a", 1)); //$NON-NLS-1$
+		assertEquals(1, commands.contextCount);
+		assertEquals(1, commands.pageCount);
+		// the other levels, contexts and pages are requested
+		cache.getContextProperties(1, 0);
+		cache.getContextProperties(0, 1);
+		cache.getPropertyPage(0, "a", 2); //$NON-NLS-1$
+		cache.getPropertyPage(0, "b", 1); //$NON-NLS-1$
+		assertEquals(3, commands.contextCount);
+		assertEquals(3, commands.pageCount);
+	}
+
+	public void testClear() throws Exception {
+		final ScriptPropertyCache cache = new ScriptPropertyCache(session);
+		fill(cache);
+		cache.clear();
+		fill(cache);
+		assertEquals(2, commands.contextCount);
+		assertEquals(2, commands.pageCount);
+	}
+
+	public void testHitWhileSuspended() throws Exception {
+		final ScriptThread thread = newThread();
+		fill(thread.getPropertyCache());
+		fill(thread.getPropertyCache());
+		assertEquals(1, commands.contextCount);
+		assertEquals(1, commands.pageCount);
+	}
+
+	public void testClearedOnResume() throws Exception {
+		final ScriptThread thread = newThread();
+		fill(thread.getPropertyCache());
+		thread.handleResume(DebugEvent.CLIENT_REQUEST);
+		fill(thread.getPropertyCache());
+		assertEquals(2, commands.contextCount);
+		assertEquals(2, commands.pageCount);
+	}
+
+	public void testClearedOnNotifyModified() throws Exception {
+		final ScriptThread thread = newThread();
+		fill(thread.getPropertyCache());
+		thread.notifyModified();
+		fill(thread.getPropertyCache());
+		assertEquals(2, commands.contextCount);
+		assertEquals(2, commands.pageCount);
+	}
+
+	public void testClearedOnUpdateFrames() throws Exception {
+		final ScriptThread thread = newThread();
+		fill(thread.getPropertyCache());
+		thread.updateStackFrames();
+		fill(thread.getPropertyCache());
+		assertEquals(2, commands.contextCount);
+		assertEquals(2, commands.pageCount);
+	}
+
+	/**
+	 * The result received after the cache was cleared belongs to the previous
+	 * suspension and is not stored.
+	 */
+	public void testLateResultNotStored() throws Exception {
+		final ScriptPropertyCache[] cache = new ScriptPropertyCache[1];
+		final boolean[] resumed = new boolean[] { true };
+		final CommandsHandler clearing = new CommandsHandler() {
+			protected void onCommand() {
+				if (resumed[0]) {
+					// resumed while the command is executed
+					cache[0].clear();
+				}
+			}
+		};
+		cache[0] = new ScriptPropertyCache(newSession(clearing));
+		final IDbgpProperty[] properties = cache[0].getContextProperties(0, 0);
+		final IDbgpProperty page = cache[0].getPropertyPage(0, "a", 1); //$NON-NLS-1$
+		resumed[0] = false;
+		assertNotSame(properties, cache[0].getContextProperties(0, 0));
+		assertNotSame(page, cache[0].getPropertyPage(0, "a", 1)); //$NON-NLS-1$
+		assertEquals(2, clearing.contextCount);
+		assertEquals(2, clearing.pageCount);
+		// the results received after the clear are stored
+		cache[0].getContextProperties(0, 0);
+		cache[0].getPropertyPage(0, "a", 1); //$NON-NLS-1$
+		assertEquals(2, clearing.contextCount);
+		assertEquals(2, clearing.pageCount);
+	}
+}
@@ -8,6 +8,7 @@ import org.eclipse.dltk.ui.tests.core.ScriptElementLabelsTest;
 import org.eclipse.dltk.ui.tests.navigator.scriptexplorer.PackageExplorerTests;
 import org.eclipse.dltk.ui.tests.refactoring.ModelElementUtilTests;
 import org.eclipse.dltk.ui.tests.templates.ScriptTemplateContextTest;
+import org.eclipse.dltk.ui.tests.testing.TestRunSessionSerializationTests;
 import org.eclipse.dltk.ui.tests.text.FloatNumberRuleTest;
 import org.eclipse.dltk.ui.tests.text.TodoHighlightingTest;
 
@@ -24,6 +25,7 @@ public class AllTests {
 		suite.addTestSuite(ScriptTemplateContextTest.class);
 		suite.addTestSuite(TodoHighlightingTest.class);
 		suite.addTestSuite(FloatNumberRuleTest.class);
+		suite.addTestSuite(TestRunSessionSerializationTests.class);
 		// $JUnit-END$
 		return suite;
 	}
@@ -0,0 +1,272 @@
+/*******************************************************************************
+ * Copyright (c) 2013 xored software, Inc. and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.dltk.ui.tests.testing;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.eclipse.dltk.internal.testing.model.TestCaseElement;
+import org.eclipse.dltk.internal.testing.model.TestCategoryElement;
+import org.eclipse.dltk.internal.testing.model.TestContainerElement;
+import org.eclipse.dltk.internal.testing.model.TestElement;
+import org.eclipse.dltk.internal.testing.model.TestElement.Status;
+import org.eclipse.dltk.internal.testing.model.TestRoot;
+import org.eclipse.dltk.internal.testing.model.TestRunSessionReader;
+import org.eclipse.dltk.internal.testing.model.TestRunSessionWriter;
+import org.eclipse.dltk.internal.testing.model.TestSuiteElement;
+import org.eclipse.dltk.testing.model.ITestElement;
+import org.eclipse.dltk.testing.model.ITestRunSession;
+
+public class TestRunSessionSerializationTests extends TestCase {
+
+	private static final ITestRunSession SESSION = (ITestRunSession) Proxy
+			.newProxyInstance(ITestRunSession.class.getClassLoader(),
+					new Class[] { ITestRunSession.class },
+					new InvocationHandler() {
+						public Object invoke(Object proxy, Method method,
+								Object[] args) {
+							if ("getTestRunName".equals(method.getName())) { //$NON-NLS-1$
+								return "run"; //$NON-NLS-1$
+							}
+							return null;
+						}
+					});
+
+	private File file;
+	private TestRoot root;
+	private TestRunSessionWriter writer;
+
+	private TestSuiteElement suiteA;
+	private TestCaseElement a1;
+	private TestCaseElement a2;
+	private TestSuiteElement suiteB;
+	private TestCaseElement b1;
+	private TestCaseElement b2;
+	private TestCaseElement b3;
+	private TestCategoryElement category;
+	private TestSuiteElement suiteC;
+	private TestCaseElement c1;
+
+	@Override
+	protected void setUp() throws Exception {
+		file = File.createTempFile("session", ".bin"); //$NON-NLS-1$ //$NON-NLS-2$
+		root = new TestRoot(SESSION);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		if (writer != null) {
+			writer.abort();
+		}
+		file.delete();
+	}
+
+	/**
+	 * Builds the tree, reporting the events to the writer if it is opened.
+	 */
+	private void run() throws IOException {
+		suiteA = new TestSuiteElement(root, "1", "A", 2); //$NON-NLS-1$ //$NON-NLS-2$
+		added(suiteA, 2);
+		a1 = new TestCaseElement(suiteA, "2", "a1"); //$NON-NLS-1$ //$NON-NLS-2$
+		added(a1, 0);
+		a2 = new TestCaseElement(suiteA, "3", "a2"); //$NON-NLS-1$ //$NON-NLS-2$
+		added(a2, 0);
+		suiteB = new TestSuiteElement(root, "4", "B", 3); //$NON-NLS-1$ //$NON-NLS-2$
+		added(suiteB, 3);
+		b1 = new TestCaseElement(suiteB, "5", "b1"); //$NON-NLS-1$ //$NON-NLS-2$
+		added(b1, 0);
+		b2 = new TestCaseElement(suiteB, "6", "b2"); //$NON-NLS-1$ //$NON-NLS-2$
+		added(b2, 0);
+		b3 = new TestCaseElement(suiteB, "7", "b3"); //$NON-NLS-1$ //$NON-NLS-2$
+		added(b3, 0);
+		category = new TestCategoryElement(root, "c", "Category"); //$NON-NLS-1$ //$NON-NLS-2$
+		added(category, 0);
+		suiteC = new TestSuiteElement(category, "8", "C", 1); //$NON-NLS-1$ //$NON-NLS-2$
+		added(suiteC, 1);
+		c1 = new TestCaseElement(suiteC, "9", "c1"); //$NON-NLS-1$ //$NON-NLS-2$
+		added(c1, 0);
+
+		a1.setStatus(Status.RUNNING);
+		changed(a1);
+		a1.setStatus(Status.OK);
+		changed(a1);
+		a2.setStatus(Status.RUNNING);
+		changed(a2);
+		a2.setStatus(Status.FAILURE, "trace \u00e9", "1", "2"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		changed(a2);
+		// failed first, then passed when rerun
+		b1.setStatus(Status.FAILURE, "trace", null, null); //$NON-NLS-1$
+		changed(b1);
+		b1.setStatus(Status.OK, null, null, null);
+		changed(b1);
+		b2.setIgnored(true);
+		b2.setStatus(Status.OK);
+		changed(b2);
+		b3.setTestName("b3 renamed"); //$NON-NLS-1$
+		if (writer != null) {
+			writer.elementRenamed(b3);
+		}
+		b3.setStatus(Status.ERROR, "error", null, null); //$NON-NLS-1$
+		changed(b3);
+		c1.setStatus(Status.ERROR, "error", null, null); //$NON-NLS-1$
+		changed(c1);
+	}
+
+	private void added(TestElement element, int testCount) throws IOException {
+		if (writer != null) {
+			writer.elementAdded(element, testCount);
+		}
+	}
+
+	private void changed(TestElement element) throws IOException {
+		if (writer != null) {
+			writer.statusChanged(element);
+		}
+	}
+
+	private static String dump(TestContainerElement container) {
+		final StringBuilder sb = new StringBuilder();
+		dump(sb, container, ""); //$NON-NLS-1$
+		return sb.toString();
+	}
+
+	private static void dump(StringBuilder sb, TestContainerElement container,
+			String indent) {
+		final ITestElement[] children = container.getChildren();
+		for (int i = 0; i < children.length; ++i) {
+			final TestElement child = (TestElement) children[i];
+			sb.append(indent).append(child.getClass().getSimpleName());
+			sb.append(' ').append(child.getId());
+			sb.append(' ').append(child.getTestName());
+			sb.append(' ').append(child.getStatus());
+			if (child.getTrace() != null) {
+				sb.append(" trace=").append(child.getTrace()); //$NON-NLS-1$
+			}
+			if (child.getExpected() != null) {
+				sb.append(" expected=").append(child.getExpected()); //$NON-NLS-1$
+			}
+			if (child.getActual() != null) {
+				sb.append(" actual=").append(child.getActual()); //$NON-NLS-1$
+			}
+			if (child instanceof TestCaseElement
+					&& ((TestCaseElement) child).isIgnored()) {
+				sb.append(" ignored"); //$NON-NLS-1$
+			}
+			sb.append('\n');
+			if (child instanceof TestContainerElement) {
+				dump(sb, (TestContainerElement) child, indent + "  "); //$NON-NLS-1$
+			}
+		}
+	}
+
+	private TestRoot read() throws IOException {
+		final TestRoot result = new TestRoot(SESSION);
+		final Map<String, TestElement> idToTest = new HashMap<String, TestElement>();
+		TestRunSessionReader.read(file, result, idToTest);
+		assertEquals(10, idToTest.size());
+		assertSame(idToTest.get("5").getParent(), idToTest.get("4")); //$NON-NLS-1$ //$NON-NLS-2$
+		return result;
+	}
+
+	public void testStreamedRun() throws IOException {
+		writer = new TestRunSessionWriter(file, root);
+		run();
+		writer.finish();
+		assertEquals(dump(root), dump(read()));
+	}
+
+	public void testWrite() throws IOException {
+		run();
+		TestRunSessionWriter.write(root, file);
+		assertEquals(dump(root), dump(read()));
+	}
+
+	public void testRenamed() throws IOException {
+		writer = new TestRunSessionWriter(file, root);
+		run();
+		writer.finish();
+		final TestRoot result = read();
+		final TestElement renamed = (TestElement) ((TestContainerElement) result
+				.getChildren()[1]).getChildren()[2];
+		assertEquals("7", renamed.getId()); //$NON-NLS-1$
+		assertEquals("b3 renamed", renamed.getTestName()); //$NON-NLS-1$
+	}
+
+	public void testIgnored() throws IOException {
+		run();
+		TestRunSessionWriter.write(root, file);
+		final TestRoot result = read();
+		final TestCaseElement ignored = (TestCaseElement) ((TestContainerElement) result
+				.getChildren()[1]).getChildren()[1];
+		assertEquals("6", ignored.getId()); //$NON-NLS-1$
+		assertTrue(ignored.isIgnored());
+		final TestCaseElement notIgnored = (TestCaseElement) ((TestContainerElement) result
+				.getChildren()[1]).getChildren()[0];
+		assertFalse(notIgnored.isIgnored());
+	}
+
+	public void testTruncated() throws IOException {
+		writer = new TestRunSessionWriter(file, root);
+		run();
+		writer.finish();
+		final RandomAccessFile truncate = new RandomAccessFile(file, "rw"); //$NON-NLS-1$
+		try {
+			truncate.seek(truncate.length() - 8);
+			// inside of the last status record, right before the index
+			truncate.setLength(truncate.readInt() - 3);
+		} finally {
+			truncate.close();
+		}
+		assertFalse(TestRunSessionReader.readFailures(file, new TestRoot(
+				SESSION)));
+		// everything but the last status record is read
+		final TestRoot result = read();
+		final TestContainerElement resultB = (TestContainerElement) result
+				.getChildren()[1];
+		assertEquals(Status.ERROR, ((TestElement) resultB.getChildren()[2])
+				.getStatus());
+		final TestContainerElement resultC = (TestContainerElement) ((TestContainerElement) result
+				.getChildren()[2]).getChildren()[0];
+		assertEquals(Status.NOT_RUN, ((TestElement) resultC.getChildren()[0])
+				.getStatus());
+	}
+
+	public void testReadFailures() throws IOException {
+		writer = new TestRunSessionWriter(file, root);
+		run();
+		writer.finish();
+		final TestRoot result = new TestRoot(SESSION);
+		assertTrue(TestRunSessionReader.readFailures(file, result));
+		final StringBuilder expected = new StringBuilder();
+		expected.append("TestSuiteElement 1 A ").append(suiteA.getStatus()) //$NON-NLS-1$
+				.append('\n');
+		expected.append("  TestCaseElement 3 a2 ").append(Status.FAILURE) //$NON-NLS-1$
+				.append(" trace=trace \u00e9 expected=1 actual=2\n"); //$NON-NLS-1$
+		expected.append("TestSuiteElement 4 B ").append(suiteB.getStatus()) //$NON-NLS-1$
+				.append('\n');
+		expected.append("  TestCaseElement 7 b3 renamed ").append( //$NON-NLS-1$
+				Status.ERROR).append(" trace=error\n"); //$NON-NLS-1$
+		expected.append("TestCategoryElement c Category ").append( //$NON-NLS-1$
+				category.getStatus()).append('\n');
+		expected.append("  TestSuiteElement 8 C ").append(suiteC.getStatus()) //$NON-NLS-1$
+				.append('\n');
+		expected.append("    TestCaseElement 9 c1 ").append(Status.ERROR) //$NON-NLS-1$
+				.append(" trace=error\n"); //$NON-NLS-1$
+		assertEquals(expected.toString(), dump(result));
+	}
+}